@@ -1,5 +1,7 @@
 package org.opendaylight.controller.config.yang.config.groupbasedpolicy;
 
+import java.util.concurrent.TimeUnit;
+
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.groupbasedpolicy.statistics.StatisticsManagerImpl;
 
@@ -20,7 +22,9 @@ public class StatisticsManagerImplModule extends org.opendaylight.controller.con
     @Override
     public java.lang.AutoCloseable createInstance() {
         DataBroker broker = getDataBrokerDependency();
-        StatisticsManagerImpl manager = new StatisticsManagerImpl(broker);
+        StatisticsManagerImpl manager =
+                new StatisticsManagerImpl(broker, getRpcRegistryDependency(),
+                        TimeUnit.SECONDS.toMillis(getStatisticsRetention()));
         return manager;
     }
 
@@ -16,6 +16,7 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yangtools.yang.binding.Augmentation;
 
 public interface EpRendererAugmentation {
@@ -49,4 +50,15 @@ public interface EpRendererAugmentation {
      */
     @Nullable Map.Entry<Class<? extends Augmentation<EndpointL3Prefix>>, Augmentation<EndpointL3Prefix>> buildL3PrefixEndpointAugmentation(
             RegisterL3PrefixEndpointInput input);
+
+    /**
+     * Creates pair of RegisterEndpointInput augmentation, specific for renderer and augmentation
+     * type (class name), from an item of a bulk registration. The item is then registered exactly
+     * as the input of a single endpoint registration.
+     *
+     * @param registration item of a bulk endpoint registration
+     * @return pair of augmentation type and augmentation
+     */
+    @Nullable Map.Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> buildRegisterEndpointInputAugmentation(
+            EndpointRegistration registration);
 }
@@ -8,6 +8,8 @@
 
 package org.opendaylight.groupbasedpolicy.api;
 
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsOutput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecords;
 
 public interface StatisticsManager {
@@ -20,8 +22,15 @@ public interface StatisticsManager {
     boolean writeStat(StatRecords record);
 
     /**
-     * Returns all records stored in datastore
-     * @return all records from datastore
+     * Returns records within the retention window, summed per EP pair, EPG pair and rule
+     * @return summed records
      */
     StatRecords readStats();
+
+    /**
+     * Returns one page of EP pairs ordered by traffic, the highest first
+     * @param query filters, time range, ordering and position of the page
+     * @return records of the page and cursor of the next page
+     */
+    QueryStatisticsOutput queryStats(QueryStatisticsInput query);
 }
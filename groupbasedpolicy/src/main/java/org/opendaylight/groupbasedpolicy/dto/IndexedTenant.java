@@ -8,10 +8,12 @@
 
 package org.opendaylight.groupbasedpolicy.dto;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,8 +40,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.subject.feature.instances.ActionInstance;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.subject.feature.instances.ClassifierInstance;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableSet;
 
 /**
@@ -63,6 +63,7 @@ public class IndexedTenant {
             new HashMap<>();
     private final Map<String, Set<SubnetId>> subnetMap = new HashMap<>();
     private Set<ExternalImplicitGroup> externalImplicitGroups = Collections.emptySet();
+    private final Map<String, DomainAncestry> ancestries = new HashMap<>();
 
     public IndexedTenant(Tenant tenant) {
         this.tenant = tenant;
@@ -73,6 +74,7 @@ public class IndexedTenant {
         if (tenant.getForwardingContext() != null) {
             processForwardingContext(tenant.getForwardingContext());
         }
+        processAncestries();
     }
 
     private void processPolicy(Policy policy) {
@@ -132,6 +134,14 @@ public class IndexedTenant {
         }
     }
 
+    private void processAncestries() {
+        Set<String> ids = new HashSet<>(networkDomains.keySet());
+        ids.addAll(subnetMap.keySet());
+        for (String id : ids) {
+            ancestries.put(id, resolveAncestry(id));
+        }
+    }
+
     /**
      * Get the underlying tenant object
      * @return the {@link Tenant}
@@ -205,7 +215,8 @@ public class IndexedTenant {
      * @return the {@link L3Context} or <code>null</code> if it does not exist
      */
     public L3Context resolveL3Context(NetworkDomainId id) {
-        return resolveDomain(L3Context.class, id);
+        DomainAncestry ancestry = getAncestry(id);
+        return ancestry == null ? null : ancestry.l3Context;
     }
 
     /**
@@ -216,7 +227,8 @@ public class IndexedTenant {
      * not exist
      */
     public L2BridgeDomain resolveL2BridgeDomain(NetworkDomainId id) {
-        return resolveDomain(L2BridgeDomain.class, id);
+        DomainAncestry ancestry = getAncestry(id);
+        return ancestry == null ? null : ancestry.l2BridgeDomain;
     }
 
     /**
@@ -227,7 +239,8 @@ public class IndexedTenant {
      * not exist
      */
     public L2FloodDomain resolveL2FloodDomain(NetworkDomainId id) {
-        return resolveDomain(L2FloodDomain.class, id);
+        DomainAncestry ancestry = getAncestry(id);
+        return ancestry == null ? null : ancestry.l2FloodDomain;
     }
 
     /**
@@ -236,33 +249,8 @@ public class IndexedTenant {
      * @return the set of subnets.  Cannot be null, but could be empty.
      */
     public Collection<Subnet> resolveSubnets(NetworkDomainId id) {
-        Set<SubnetId> sset = new HashSet<>();
-        HashSet<NetworkDomainId> visited = new HashSet<>();
-        while (id != null) {
-            if (visited.contains(id)) break;
-            visited.add(id);
-            Set<SubnetId> cursset = subnetMap.get(id.getValue());
-            if (cursset != null)
-                sset.addAll(cursset);
-            NetworkDomain d = networkDomains.get(id.getValue());
-            if (d == null) break;
-            if (d instanceof Subnet) {
-                id = ((Subnet)d).getParent();
-                sset.add(((Subnet) d).getId());
-            } 
-            else if (d instanceof L2BridgeDomain)
-                id = ((L2BridgeDomain)d).getParent();
-            else if (d instanceof L2FloodDomain)
-                id = ((L2FloodDomain)d).getParent();
-            else
-                id = null;
-        }
-        return Collections2.transform(sset, new Function<SubnetId, Subnet>() {
-            @Override
-            public Subnet apply(SubnetId input) {
-                return (Subnet)networkDomains.get(input.getValue());
-            }
-        });
+        DomainAncestry ancestry = getAncestry(id);
+        return ancestry == null ? Collections.<Subnet>emptyList() : ancestry.subnets;
     }
 
     // ******
@@ -295,24 +283,70 @@ public class IndexedTenant {
     // Implementation
     // **************
 
-    private <C extends NetworkDomain> C resolveDomain(Class<C> domainClass,
-                                                      NetworkDomainId id) {
-        HashSet<NetworkDomainId> visited = new HashSet<>();        
+    private DomainAncestry getAncestry(NetworkDomainId id) {
+        if (id == null)
+            return null;
+        return ancestries.get(id.getValue());
+    }
+
+    /**
+     * Walk up the hierarchy once from the given network domain, picking up
+     * the nearest domain of each kind and every subnet along the way
+     */
+    private DomainAncestry resolveAncestry(String id) {
+        L3Context l3Context = null;
+        L2BridgeDomain l2BridgeDomain = null;
+        L2FloodDomain l2FloodDomain = null;
+        Set<SubnetId> sset = new HashSet<>();
+        Set<String> visited = new HashSet<>();
         while (id != null) {
-            if (visited.contains(id)) return null;
-            visited.add(id);
-            NetworkDomain d = networkDomains.get(id.getValue());
-            if (d == null) return null;
-            if (domainClass.isInstance(d)) return domainClass.cast(d);
-            if (d instanceof Subnet)
-                id = ((Subnet)d).getParent();
-            else if (d instanceof L2BridgeDomain)
-                id = ((L2BridgeDomain)d).getParent();
-            else if (d instanceof L2FloodDomain)
-                id = ((L2FloodDomain)d).getParent();
-            else
-                id = null;
+            if (!visited.add(id)) break;
+            Set<SubnetId> cursset = subnetMap.get(id);
+            if (cursset != null)
+                sset.addAll(cursset);
+            NetworkDomain d = networkDomains.get(id);
+            if (d == null) break;
+            NetworkDomainId parent = null;
+            if (d instanceof Subnet) {
+                parent = ((Subnet) d).getParent();
+                sset.add(((Subnet) d).getId());
+            } else if (d instanceof L2BridgeDomain) {
+                if (l2BridgeDomain == null)
+                    l2BridgeDomain = (L2BridgeDomain) d;
+                parent = ((L2BridgeDomain) d).getParent();
+            } else if (d instanceof L2FloodDomain) {
+                if (l2FloodDomain == null)
+                    l2FloodDomain = (L2FloodDomain) d;
+                parent = ((L2FloodDomain) d).getParent();
+            } else if (d instanceof L3Context) {
+                if (l3Context == null)
+                    l3Context = (L3Context) d;
+            }
+            id = parent == null ? null : parent.getValue();
+        }
+        List<Subnet> subnets = new ArrayList<>(sset.size());
+        for (SubnetId subnetId : sset) {
+            subnets.add((Subnet) networkDomains.get(subnetId.getValue()));
+        }
+        return new DomainAncestry(l3Context, l2BridgeDomain, l2FloodDomain,
+                Collections.unmodifiableList(subnets));
+    }
+
+    /**
+     * Flattened ancestry of a network domain
+     */
+    private static final class DomainAncestry {
+        private final L3Context l3Context;
+        private final L2BridgeDomain l2BridgeDomain;
+        private final L2FloodDomain l2FloodDomain;
+        private final Collection<Subnet> subnets;
+
+        DomainAncestry(L3Context l3Context, L2BridgeDomain l2BridgeDomain, L2FloodDomain l2FloodDomain,
+                Collection<Subnet> subnets) {
+            this.l3Context = l3Context;
+            this.l2BridgeDomain = l2BridgeDomain;
+            this.l2FloodDomain = l2FloodDomain;
+            this.subnets = subnets;
         }
-        return null;
     }
 }
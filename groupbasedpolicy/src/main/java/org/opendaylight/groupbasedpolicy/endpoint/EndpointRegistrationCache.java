@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.endpoint;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.util.DataTreeChangeHandler;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Builder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+/**
+ * Remembers the content of endpoints registered through
+ * {@link EndpointRpcRegistry}, without their timestamp, so that registering
+ * an unchanged endpoint again does not produce a datastore change and a
+ * policy recomputation in renderers.
+ * <p>
+ * Entries are dropped when the endpoint is removed or changed in the
+ * datastore by anyone else, so the cache never hides a real change.
+ * <p>
+ * An endpoint is {@link #registering(Endpoint) pending} while the
+ * transaction writing it is in flight and it becomes registered only when
+ * the transaction commits; a pending endpoint is not reported as
+ * registered, so a failed commit never suppresses a later registration.
+ */
+public class EndpointRegistrationCache implements AutoCloseable {
+
+    private final ConcurrentMap<EndpointKey, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointL3Key, EndpointL3> l3Endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointKey, Endpoint> pendingEndpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointL3Key, EndpointL3> pendingL3Endpoints = new ConcurrentHashMap<>();
+    private final EndpointListener endpointListener;
+    private final EndpointL3Listener endpointL3Listener;
+
+    /**
+     * @param dataProvider the {@link DataBroker} whose changes invalidate
+     *        cached registrations; when {@code null}, nothing is listened to
+     *        and entries are dropped only on unregistration
+     */
+    public EndpointRegistrationCache(DataBroker dataProvider) {
+        if (dataProvider != null) {
+            endpointListener = new EndpointListener(dataProvider);
+            endpointL3Listener = new EndpointL3Listener(dataProvider);
+        } else {
+            endpointListener = null;
+            endpointL3Listener = null;
+        }
+    }
+
+    /**
+     * @param ep the endpoint to be registered
+     * @return {@code true} if the endpoint was already registered with the
+     *         same content, regardless of the timestamp
+     */
+    public boolean isRegistered(Endpoint ep) {
+        return fingerprint(ep).equals(endpoints.get(ep.getKey()));
+    }
+
+    /**
+     * @param ep the L3 endpoint to be registered
+     * @return {@code true} if the endpoint was already registered with the
+     *         same content, regardless of the timestamp
+     */
+    public boolean isRegistered(EndpointL3 ep) {
+        return fingerprint(ep).equals(l3Endpoints.get(ep.getKey()));
+    }
+
+    /**
+     * The endpoint was written to a transaction which is not committed yet
+     */
+    public void registering(Endpoint ep) {
+        pendingEndpoints.put(ep.getKey(), fingerprint(ep));
+    }
+
+    public void registering(EndpointL3 ep) {
+        pendingL3Endpoints.put(ep.getKey(), fingerprint(ep));
+    }
+
+    /**
+     * The transaction writing the endpoint was committed. Nothing is
+     * remembered if the endpoint was unregistered, or registered with other
+     * content, in the meantime.
+     */
+    public void registered(Endpoint ep) {
+        Endpoint fingerprint = fingerprint(ep);
+        if (pendingEndpoints.remove(ep.getKey(), fingerprint)) {
+            endpoints.put(ep.getKey(), fingerprint);
+        }
+    }
+
+    public void registered(EndpointL3 ep) {
+        EndpointL3 fingerprint = fingerprint(ep);
+        if (pendingL3Endpoints.remove(ep.getKey(), fingerprint)) {
+            l3Endpoints.put(ep.getKey(), fingerprint);
+        }
+    }
+
+    /**
+     * The transaction writing the endpoint failed, so it is not known what
+     * the datastore contains for the endpoint
+     */
+    public void registrationFailed(Endpoint ep) {
+        pendingEndpoints.remove(ep.getKey(), fingerprint(ep));
+        endpoints.remove(ep.getKey());
+    }
+
+    public void registrationFailed(EndpointL3 ep) {
+        pendingL3Endpoints.remove(ep.getKey(), fingerprint(ep));
+        l3Endpoints.remove(ep.getKey());
+    }
+
+    public void unregistered(EndpointKey key) {
+        pendingEndpoints.remove(key);
+        endpoints.remove(key);
+    }
+
+    public void unregistered(EndpointL3Key key) {
+        pendingL3Endpoints.remove(key);
+        l3Endpoints.remove(key);
+    }
+
+    /**
+     * Forget all registrations, e.g. when it is not known which of them
+     * made it to the datastore
+     */
+    public void clear() {
+        endpoints.clear();
+        l3Endpoints.clear();
+        pendingEndpoints.clear();
+        pendingL3Endpoints.clear();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (endpointListener != null) {
+            endpointListener.close();
+        }
+        if (endpointL3Listener != null) {
+            endpointL3Listener.close();
+        }
+    }
+
+    private static Endpoint fingerprint(Endpoint ep) {
+        if (ep.getTimestamp() == null) {
+            return ep;
+        }
+        return new EndpointBuilder(ep).setTimestamp(null).build();
+    }
+
+    private static EndpointL3 fingerprint(EndpointL3 ep) {
+        if (ep.getTimestamp() == null) {
+            return ep;
+        }
+        return new EndpointL3Builder(ep).setTimestamp(null).build();
+    }
+
+    private class EndpointListener extends DataTreeChangeHandler<Endpoint> {
+
+        EndpointListener(DataBroker dataProvider) {
+            super(dataProvider, new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                    InstanceIdentifier.builder(Endpoints.class).child(Endpoint.class).build()));
+        }
+
+        @Override
+        protected void onWrite(DataObjectModification<Endpoint> rootNode, InstanceIdentifier<Endpoint> rootIdentifier) {
+            onChanged(rootNode.getDataAfter());
+        }
+
+        @Override
+        protected void onDelete(DataObjectModification<Endpoint> rootNode,
+                InstanceIdentifier<Endpoint> rootIdentifier) {
+            endpoints.remove(rootIdentifier.firstKeyOf(Endpoint.class, EndpointKey.class));
+        }
+
+        @Override
+        protected void onSubtreeModified(DataObjectModification<Endpoint> rootNode,
+                InstanceIdentifier<Endpoint> rootIdentifier) {
+            onChanged(rootNode.getDataAfter());
+        }
+
+        private void onChanged(Endpoint ep) {
+            Endpoint cached = endpoints.get(ep.getKey());
+            if (cached != null && !cached.equals(fingerprint(ep))) {
+                endpoints.remove(ep.getKey(), cached);
+            }
+        }
+    }
+
+    private class EndpointL3Listener extends DataTreeChangeHandler<EndpointL3> {
+
+        EndpointL3Listener(DataBroker dataProvider) {
+            super(dataProvider, new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                    InstanceIdentifier.builder(Endpoints.class).child(EndpointL3.class).build()));
+        }
+
+        @Override
+        protected void onWrite(DataObjectModification<EndpointL3> rootNode,
+                InstanceIdentifier<EndpointL3> rootIdentifier) {
+            onChanged(rootNode.getDataAfter());
+        }
+
+        @Override
+        protected void onDelete(DataObjectModification<EndpointL3> rootNode,
+                InstanceIdentifier<EndpointL3> rootIdentifier) {
+            l3Endpoints.remove(rootIdentifier.firstKeyOf(EndpointL3.class, EndpointL3Key.class));
+        }
+
+        @Override
+        protected void onSubtreeModified(DataObjectModification<EndpointL3> rootNode,
+                InstanceIdentifier<EndpointL3> rootIdentifier) {
+            onChanged(rootNode.getDataAfter());
+        }
+
+        private void onChanged(EndpointL3 ep) {
+            EndpointL3 cached = l3Endpoints.get(ep.getKey());
+            if (cached != null && !cached.equals(fingerprint(ep))) {
+                l3Endpoints.remove(ep.getKey(), cached);
+            }
+        }
+    }
+}
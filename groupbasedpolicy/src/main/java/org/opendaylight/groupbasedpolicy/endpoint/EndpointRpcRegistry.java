@@ -8,6 +8,8 @@
 
 package org.opendaylight.groupbasedpolicy.endpoint;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,9 +29,18 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsOutputBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterL3PrefixEndpointInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.SetEndpointGroupConditionsInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.bulk.endpoint.operation.result.FailedItem;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.bulk.endpoint.operation.result.FailedItemBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnsetEndpointGroupConditionsInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.ConditionMapping;
@@ -45,8 +56,11 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3PrefixKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.has.endpoint.group.conditions.EndpointGroupCondition;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.has.endpoint.group.conditions.EndpointGroupConditionKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoint.input.L2;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoint.input.L3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L2Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L3Endpoint;
 import org.opendaylight.yangtools.yang.binding.Augmentation;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.opendaylight.yangtools.yang.common.RpcError.ErrorType;
@@ -73,6 +87,12 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
     private final RpcProviderRegistry rpcRegistry;
 
     private final BindingAwareBroker.RpcRegistration<EndpointService> rpcRegistration;
+    private final EndpointRegistrationCache registrationCache;
+
+    /**
+     * Maximum number of write operations in one transaction of a bulk RPC
+     */
+    static final int BULK_TRANSACTION_SIZE = 500;
 
     final static ConcurrentMap<String, EpRendererAugmentation> registeredRenderers =
             new ConcurrentHashMap<String, EpRendererAugmentation>();
@@ -122,6 +142,7 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
             rpcRegistration = null;
         }
 
+        registrationCache = new EndpointRegistrationCache(dataProvider);
         if (dataProvider != null) {
             InstanceIdentifier<Endpoints> iid = InstanceIdentifier.builder(Endpoints.class).build();
             WriteTransaction t = this.dataProvider.newWriteOnlyTransaction();
@@ -150,6 +171,7 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
         if (rpcRegistration != null) {
             rpcRegistration.close();
         }
+        registrationCache.close();
     }
 
     /**
@@ -224,6 +246,30 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
         return eb;
     }
 
+    /**
+     * Construct the input of a single endpoint registration from an item of
+     * a bulk registration, with the augmentations each concrete
+     * implementation provides for the item.
+     *
+     * @param registration
+     *        the item of the bulk registration
+     */
+    private RegisterEndpointInputBuilder buildRegisterEndpointInput(EndpointRegistration registration) {
+        RegisterEndpointInputBuilder ib = new RegisterEndpointInputBuilder(registration);
+        for (Entry<String, EpRendererAugmentation> entry : registeredRenderers.entrySet()) {
+            try {
+                Map.Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> augmentationEntry =
+                        entry.getValue().buildRegisterEndpointInputAugmentation(registration);
+                if (augmentationEntry != null) {
+                    ib.addAugmentation(augmentationEntry.getKey(), augmentationEntry.getValue());
+                }
+            } catch (Exception e) {
+                LOG.warn("Endpoint registration Augmentation error while processing " + entry.getKey() + ". Reason: ", e);
+            }
+        }
+        return ib;
+    }
+
     @Override
     public Future<RpcResult<Void>> registerEndpoint(RegisterEndpointInput input) {
         long timestamp = System.currentTimeMillis();
@@ -231,25 +277,94 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
         // TODO: Replicate RPC feedback implemented in L3Prefix register for
         // unmet requirements.
         WriteTransaction t = dataProvider.newWriteOnlyTransaction();
+        PendingRegistrations pending = new PendingRegistrations();
+        if (putEndpoint(t, input, timestamp, pending) == 0) {
+            // nothing changed since the last registration
+            t.cancel();
+            return Futures.immediateFuture(RpcResultBuilder.<Void>success().build());
+        }
+        ListenableFuture<Void> r = t.submit();
+        Futures.addCallback(r, pending);
+        return Futures.transform(r, futureTrans);
+    }
 
+    /**
+     * Put the L2 endpoint and all L3 endpoints described by the input.
+     * Endpoints which are registered with the same content already are
+     * skipped, so re-registration does not cause a datastore change.
+     *
+     * @param pending collects the written endpoints, which are registered
+     *        in the cache when the transaction commits
+     * @return number of write operations
+     */
+    private int putEndpoint(WriteTransaction t, RegisterEndpointInput input, long timestamp,
+            PendingRegistrations pending) {
+        int operations = 0;
         if (input.getL2Context() != null && input.getMacAddress() != null) {
-            Endpoint ep = buildEndpoint(input).setTimestamp(timestamp).build();
-
-            EndpointKey key = new EndpointKey(ep.getL2Context(), ep.getMacAddress());
-            t.put(LogicalDatastoreType.OPERATIONAL, IidFactory.endpointIid(key), ep, true);
+            Endpoint ep = buildEndpoint(input).build();
+
+            if (registrationCache.isRegistered(ep)) {
+                LOG.trace("Endpoint {} is registered already", ep.getKey());
+            } else {
+                EndpointKey key = new EndpointKey(ep.getL2Context(), ep.getMacAddress());
+                t.put(LogicalDatastoreType.OPERATIONAL, IidFactory.endpointIid(key),
+                        new EndpointBuilder(ep).setTimestamp(timestamp).build(), true);
+                pending.add(ep);
+                operations++;
+            }
         }
         if (input.getL3Address() != null) {
             for (L3Address l3addr : input.getL3Address()) {
                 EndpointL3Key key3 = new EndpointL3Key(l3addr.getIpAddress(), l3addr.getL3Context());
                 EndpointL3 ep3 = buildEndpointL3(input).setIpAddress(key3.getIpAddress())
                     .setL3Context(key3.getL3Context())
-                    .setTimestamp(timestamp)
                     .build();
-                t.put(LogicalDatastoreType.OPERATIONAL, IidFactory.l3EndpointIid(key3), ep3, true);
+                if (registrationCache.isRegistered(ep3)) {
+                    LOG.trace("L3 endpoint {} is registered already", key3);
+                    continue;
+                }
+                t.put(LogicalDatastoreType.OPERATIONAL, IidFactory.l3EndpointIid(key3),
+                        new EndpointL3Builder(ep3).setTimestamp(timestamp).build(), true);
+                pending.add(ep3);
+                operations++;
             }
         }
-        ListenableFuture<Void> r = t.submit();
-        return Futures.transform(r, futureTrans);
+        return operations;
+    }
+
+    @Override
+    public Future<RpcResult<RegisterEndpointsOutput>> registerEndpoints(RegisterEndpointsInput input) {
+        long timestamp = System.currentTimeMillis();
+        List<FailedItem> failedItems = new ArrayList<>();
+        BulkTransactions transactions = new BulkTransactions();
+
+        if (input.getEndpointRegistration() != null) {
+            long index = 0;
+            for (EndpointRegistration registration : input.getEndpointRegistration()) {
+                boolean hasL2 = registration.getL2Context() != null && registration.getMacAddress() != null;
+                boolean hasL3 = registration.getL3Address() != null && !registration.getL3Address().isEmpty();
+                if (!hasL2 && !hasL3) {
+                    failedItems.add(failedItem(index, "Endpoint must have l2-context and mac-address or l3-address."));
+                } else {
+                    RegisterEndpointInput epInput = buildRegisterEndpointInput(registration).build();
+                    int operations = putEndpoint(transactions.getTransaction(index), epInput, timestamp,
+                            transactions.getPendingRegistrations());
+                    transactions.itemDone(operations);
+                }
+                index++;
+            }
+        }
+
+        return Futures.transform(transactions.submit(failedItems),
+                new Function<List<FailedItem>, RpcResult<RegisterEndpointsOutput>>() {
+
+                    @Override
+                    public RpcResult<RegisterEndpointsOutput> apply(List<FailedItem> failed) {
+                        return RpcResultBuilder
+                            .success(new RegisterEndpointsOutputBuilder().setFailedItem(failed).build())
+                            .build();
+                    }
+                });
     }
 
     @Override
@@ -299,6 +414,7 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
                 InstanceIdentifier<Endpoint> iid =
                         InstanceIdentifier.builder(Endpoints.class).child(Endpoint.class, key).build();
                 t.delete(LogicalDatastoreType.OPERATIONAL, iid);
+                registrationCache.unregistered(key);
             }
         }
         if (input.getL3() != null) {
@@ -307,6 +423,7 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
                 InstanceIdentifier<EndpointL3> iid_l3 =
                         InstanceIdentifier.builder(Endpoints.class).child(EndpointL3.class, key3).build();
                 t.delete(LogicalDatastoreType.OPERATIONAL, iid_l3);
+                registrationCache.unregistered(key3);
             }
         }
         // TODO: Implement L3Prefix
@@ -315,6 +432,45 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
         return Futures.transform(r, futureTrans);
     }
 
+    @Override
+    public Future<RpcResult<UnregisterEndpointsOutput>> unregisterEndpoints(UnregisterEndpointsInput input) {
+        List<FailedItem> failedItems = new ArrayList<>();
+        BulkTransactions transactions = new BulkTransactions();
+
+        long index = 0;
+        if (input.getL2Endpoint() != null) {
+            for (L2Endpoint l2 : input.getL2Endpoint()) {
+                EndpointKey key = new EndpointKey(l2.getL2Context(), l2.getMacAddress());
+                transactions.getTransaction(index).delete(LogicalDatastoreType.OPERATIONAL,
+                        IidFactory.endpointIid(key));
+                registrationCache.unregistered(key);
+                transactions.itemDone(1);
+                index++;
+            }
+        }
+        if (input.getL3Endpoint() != null) {
+            for (L3Endpoint l3 : input.getL3Endpoint()) {
+                EndpointL3Key key3 = new EndpointL3Key(l3.getIpAddress(), l3.getL3Context());
+                transactions.getTransaction(index).delete(LogicalDatastoreType.OPERATIONAL,
+                        IidFactory.l3EndpointIid(key3));
+                registrationCache.unregistered(key3);
+                transactions.itemDone(1);
+                index++;
+            }
+        }
+
+        return Futures.transform(transactions.submit(failedItems),
+                new Function<List<FailedItem>, RpcResult<UnregisterEndpointsOutput>>() {
+
+                    @Override
+                    public RpcResult<UnregisterEndpointsOutput> apply(List<FailedItem> failed) {
+                        return RpcResultBuilder
+                            .success(new UnregisterEndpointsOutputBuilder().setFailedItem(failed).build())
+                            .build();
+                    }
+                });
+    }
+
     @Override
     public Future<RpcResult<Void>> setEndpointGroupConditions(SetEndpointGroupConditionsInput input) {
         WriteTransaction t = dataProvider.newWriteOnlyTransaction();
@@ -361,4 +517,149 @@ public class EndpointRpcRegistry implements EndpointService, EpRendererAugmentat
             return RpcResultBuilder.<Void>success().build();
         }
     };
+
+    /**
+     * It is not known which registrations of a failed transaction made it to
+     * the datastore, so none of them may suppress a following registration
+     */
+    /**
+     * Endpoints written to a transaction. They are marked as registered in
+     * the cache when the transaction commits and forgotten when it fails.
+     */
+    private class PendingRegistrations implements FutureCallback<Void> {
+
+        private final List<Endpoint> endpoints = new ArrayList<>();
+        private final List<EndpointL3> l3Endpoints = new ArrayList<>();
+
+        void add(Endpoint ep) {
+            registrationCache.registering(ep);
+            endpoints.add(ep);
+        }
+
+        void add(EndpointL3 ep) {
+            registrationCache.registering(ep);
+            l3Endpoints.add(ep);
+        }
+
+        @Override
+        public void onSuccess(Void result) {
+            for (Endpoint ep : endpoints) {
+                registrationCache.registered(ep);
+            }
+            for (EndpointL3 ep : l3Endpoints) {
+                registrationCache.registered(ep);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            for (Endpoint ep : endpoints) {
+                registrationCache.registrationFailed(ep);
+            }
+            for (EndpointL3 ep : l3Endpoints) {
+                registrationCache.registrationFailed(ep);
+            }
+        }
+    }
+
+    private static FailedItem failedItem(long index, String errorMessage) {
+        return new FailedItemBuilder().setIndex(index).setErrorMessage(errorMessage).build();
+    }
+
+    /**
+     * Spreads the items of a bulk operation over write transactions of
+     * bounded size. All writes of a single item always go to the same
+     * transaction, so an item is either fully written or reported as failed.
+     */
+    private class BulkTransactions {
+
+        private final List<ListenableFuture<Boolean>> commits = new ArrayList<>();
+        private final List<List<Long>> committedItems = new ArrayList<>();
+        private WriteTransaction transaction;
+        private PendingRegistrations pendingRegistrations;
+        private List<Long> transactionItems;
+        private int transactionOperations;
+
+        WriteTransaction getTransaction(long index) {
+            if (transaction == null) {
+                transaction = dataProvider.newWriteOnlyTransaction();
+                pendingRegistrations = new PendingRegistrations();
+                transactionItems = new ArrayList<>();
+                transactionOperations = 0;
+            }
+            transactionItems.add(index);
+            return transaction;
+        }
+
+        /**
+         * @return endpoints registered by the current transaction
+         */
+        PendingRegistrations getPendingRegistrations() {
+            return pendingRegistrations;
+        }
+
+        void itemDone(int operations) {
+            transactionOperations += operations;
+            if (transactionOperations >= BULK_TRANSACTION_SIZE) {
+                commit();
+            }
+        }
+
+        private void commit() {
+            if (transaction == null) {
+                return;
+            }
+            if (transactionOperations == 0) {
+                // every item was registered already
+                transaction.cancel();
+                transaction = null;
+                return;
+            }
+            final int transactionSize = transactionItems.size();
+            ListenableFuture<Void> f = transaction.submit();
+            Futures.addCallback(f, new FutureCallback<Void>() {
+
+                @Override
+                public void onSuccess(Void result) {}
+
+                @Override
+                public void onFailure(Throwable t) {
+                    LOG.error("Could not commit bulk endpoint transaction of {} items", transactionSize, t);
+                }
+            });
+            Futures.addCallback(f, pendingRegistrations);
+            commits.add(Futures.transform(f, new Function<Void, Boolean>() {
+
+                @Override
+                public Boolean apply(Void input) {
+                    return Boolean.TRUE;
+                }
+            }));
+            committedItems.add(transactionItems);
+            transaction = null;
+        }
+
+        /**
+         * Submit the last transaction and report items of all failed
+         * transactions together with the given failed items
+         */
+        ListenableFuture<List<FailedItem>> submit(final List<FailedItem> failedItems) {
+            commit();
+            return Futures.transform(Futures.successfulAsList(commits),
+                    new Function<List<Boolean>, List<FailedItem>>() {
+
+                        @Override
+                        public List<FailedItem> apply(List<Boolean> results) {
+                            for (int i = 0; i < results.size(); i++) {
+                                if (results.get(i) == null) {
+                                    for (Long index : committedItems.get(i)) {
+                                        failedItems.add(failedItem(index, "Transaction commit failed."));
+                                    }
+                                }
+                            }
+                            return failedItems;
+                        }
+                    });
+        }
+    }
 }
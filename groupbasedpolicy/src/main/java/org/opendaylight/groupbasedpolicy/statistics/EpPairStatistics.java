@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticKey;
+
+/**
+ * Sums of {@link StatisticSeries} of one endpoint pair, from which an
+ * {@link EpToEpStatistic} is built
+ */
+final class EpPairStatistics {
+
+    /**
+     * Orders endpoint pairs by byte count, the highest first
+     */
+    static final Comparator<EpPairStatistics> BY_BYTES = new Comparator<EpPairStatistics>() {
+
+        @Override
+        public int compare(EpPairStatistics o1, EpPairStatistics o2) {
+            return compareRank(o1.byteCount, o1.id, o2.byteCount, o2.id);
+        }
+    };
+
+    /**
+     * Orders endpoint pairs by packet count, the highest first
+     */
+    static final Comparator<EpPairStatistics> BY_PACKETS = new Comparator<EpPairStatistics>() {
+
+        @Override
+        public int compare(EpPairStatistics o1, EpPairStatistics o2) {
+            return compareRank(o1.packetCount, o1.id, o2.packetCount, o2.id);
+        }
+    };
+
+    private final EpToEpStatisticKey key;
+    private final String id;
+    private final EpToEpStatisticBuilder epStatBuilder;
+    private final Map<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>> ruleStatsByEpgKey = new HashMap<>();
+    private long byteCount = 0;
+    private long packetCount = 0;
+
+    EpPairStatistics(StatisticSeries series) {
+        StatisticSeriesKey seriesKey = series.getKey();
+        key = createKey(seriesKey);
+        id = createId(seriesKey);
+        epStatBuilder = new EpToEpStatisticBuilder().setKey(key)
+            .setSrcMacAddress(seriesKey.getSrcMac())
+            .setSrcL2c(seriesKey.getSrcL2c())
+            .setSrcTenant(series.getSrcTenant())
+            .setDstMacAddress(seriesKey.getDstMac())
+            .setDstL2c(seriesKey.getDstL2c())
+            .setDstTenant(series.getDstTenant());
+    }
+
+    static EpToEpStatisticKey createKey(StatisticSeriesKey seriesKey) {
+        return new EpToEpStatisticKey(seriesKey.getDstL2c(), seriesKey.getDstMac(), seriesKey.getSrcL2c(),
+                seriesKey.getSrcMac());
+    }
+
+    private static String createId(StatisticSeriesKey seriesKey) {
+        return seriesKey.getSrcL2c().getValue() + "/" + seriesKey.getSrcMac().getValue() + "/"
+                + seriesKey.getDstL2c().getValue() + "/" + seriesKey.getDstMac().getValue();
+    }
+
+    /**
+     * Compares positions in ordering by a counter, the highest count first and the lowest
+     * id first on the same count
+     */
+    static int compareRank(long count1, String id1, long count2, String id2) {
+        if (count1 != count2) {
+            return count1 > count2 ? -1 : 1;
+        }
+        return id1.compareTo(id2);
+    }
+
+    void add(StatisticSeries series, StatisticSeries.Counters counters) {
+        StatisticSeriesKey seriesKey = series.getKey();
+        EpEpgToEpEpgStatisticKey epgKey = new EpEpgToEpEpgStatisticKey(seriesKey.getDstEpg(), seriesKey.getSrcEpg());
+        List<MatchedRuleStatistic> ruleStats = ruleStatsByEpgKey.get(epgKey);
+        if (ruleStats == null) {
+            ruleStats = new ArrayList<>();
+            ruleStatsByEpgKey.put(epgKey, ruleStats);
+        }
+        ruleStats.add(new MatchedRuleStatisticBuilder()
+            .setKey(new MatchedRuleStatisticKey(seriesKey.getContract(), seriesKey.getRule(), seriesKey.getSubject()))
+            .setContract(seriesKey.getContract())
+            .setSubject(seriesKey.getSubject())
+            .setMatchedRule(seriesKey.getRule())
+            .setAction(series.getActions())
+            .setClassifier(series.getClassifiers())
+            .setByteCount(counters.getByteCount())
+            .setPacketCount(counters.getPacketCount())
+            .build());
+        byteCount += counters.getByteCount();
+        packetCount += counters.getPacketCount();
+    }
+
+    EpToEpStatisticKey getKey() {
+        return key;
+    }
+
+    /**
+     * @return identification of the endpoint pair used to order pairs with the same count
+     */
+    String getId() {
+        return id;
+    }
+
+    long getByteCount() {
+        return byteCount;
+    }
+
+    long getPacketCount() {
+        return packetCount;
+    }
+
+    EpToEpStatistic build() {
+        List<EpEpgToEpEpgStatistic> epgStats = new ArrayList<>(ruleStatsByEpgKey.size());
+        for (Map.Entry<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>> entry : ruleStatsByEpgKey.entrySet()) {
+            epgStats.add(new EpEpgToEpEpgStatisticBuilder().setKey(entry.getKey())
+                .setSrcEpg(entry.getKey().getSrcEpg())
+                .setDstEpg(entry.getKey().getDstEpg())
+                .setMatchedRuleStatistic(entry.getValue())
+                .build());
+        }
+        return epStatBuilder.setEpEpgToEpEpgStatistic(epgStats).build();
+    }
+}
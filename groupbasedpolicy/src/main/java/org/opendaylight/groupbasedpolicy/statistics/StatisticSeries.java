@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.statistics;
+
+import java.util.List;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ActionName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ClassifierName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+
+/**
+ * Byte and packet counts of one {@link StatisticSeriesKey} over time.
+ * <p>
+ * Recent samples are kept as they were written in a ring buffer of fixed
+ * size. Every sample is also added to rollups, which sum samples into
+ * buckets of fixed length, again in ring buffers covering the retention
+ * window. Sums are computed from raw samples when they still cover the
+ * requested interval, otherwise from the finest rollup which does.
+ */
+@ThreadSafe
+final class StatisticSeries {
+
+    /**
+     * Byte and packet count
+     */
+    static final class Counters {
+
+        private final long byteCount;
+        private final long packetCount;
+
+        Counters(long byteCount, long packetCount) {
+            this.byteCount = byteCount;
+            this.packetCount = packetCount;
+        }
+
+        long getByteCount() {
+            return byteCount;
+        }
+
+        long getPacketCount() {
+            return packetCount;
+        }
+    }
+
+    private final StatisticSeriesKey key;
+    private final long[] rawTimestamps;
+    private final long[] rawBytes;
+    private final long[] rawPackets;
+    private int rawLast = -1;
+    private int rawSize = 0;
+    // newest timestamp of raw samples which were overwritten before they expired
+    private long rawOverwrittenUntil = Long.MIN_VALUE;
+    private final Rollup[] rollups;
+    private TenantId srcTenant;
+    private TenantId dstTenant;
+    private List<ClassifierName> classifiers;
+    private List<ActionName> actions;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * @param key identification of the series
+     * @param rawCapacity number of the most recent samples kept as they were written
+     * @param rollupResolutions bucket lengths of rollups in milliseconds, from the finest
+     * @param retentionMillis how long samples are kept
+     */
+    StatisticSeries(StatisticSeriesKey key, int rawCapacity, long[] rollupResolutions, long retentionMillis) {
+        this.key = key;
+        rawTimestamps = new long[rawCapacity];
+        rawBytes = new long[rawCapacity];
+        rawPackets = new long[rawCapacity];
+        rollups = new Rollup[rollupResolutions.length];
+        for (int i = 0; i < rollupResolutions.length; i++) {
+            rollups[i] = new Rollup(rollupResolutions[i], (int) (retentionMillis / rollupResolutions[i]) + 2);
+        }
+    }
+
+    StatisticSeriesKey getKey() {
+        return key;
+    }
+
+    synchronized void add(long timestamp, long byteCount, long packetCount, TenantId srcTenant, TenantId dstTenant,
+            List<ClassifierName> classifiers, List<ActionName> actions) {
+        rawLast = (rawLast + 1) % rawTimestamps.length;
+        if (rawSize == rawTimestamps.length) {
+            rawOverwrittenUntil = Math.max(rawOverwrittenUntil, rawTimestamps[rawLast]);
+        } else {
+            rawSize++;
+        }
+        rawTimestamps[rawLast] = timestamp;
+        rawBytes[rawLast] = byteCount;
+        rawPackets[rawLast] = packetCount;
+        for (Rollup rollup : rollups) {
+            rollup.add(timestamp, byteCount, packetCount);
+        }
+        if (timestamp >= lastTimestamp) {
+            lastTimestamp = timestamp;
+            this.srcTenant = srcTenant;
+            this.dstTenant = dstTenant;
+            this.classifiers = classifiers;
+            this.actions = actions;
+        }
+    }
+
+    /**
+     * @param from start of the interval in milliseconds, inclusive
+     * @param to end of the interval in milliseconds, inclusive
+     * @return sum of samples in the interval; when computed from a rollup, buckets overlapping
+     *         the interval are summed whole
+     */
+    synchronized Counters sum(long from, long to) {
+        long byteCount = 0;
+        long packetCount = 0;
+        if (from > rawOverwrittenUntil) {
+            for (int i = 0; i < rawSize; i++) {
+                int index = (rawLast - i + rawTimestamps.length) % rawTimestamps.length;
+                if (rawTimestamps[index] >= from && rawTimestamps[index] <= to) {
+                    byteCount += rawBytes[index];
+                    packetCount += rawPackets[index];
+                }
+            }
+            return new Counters(byteCount, packetCount);
+        }
+        Rollup rollup = rollups[rollups.length - 1];
+        for (Rollup candidate : rollups) {
+            if (from >= candidate.overwrittenUntil) {
+                rollup = candidate;
+                break;
+            }
+        }
+        return rollup.sum(from, to);
+    }
+
+    /**
+     * Drops samples older than the given time
+     *
+     * @param oldest the oldest timestamp to keep in milliseconds
+     * @return {@code true} if nothing is left in the series
+     */
+    synchronized boolean expire(long oldest) {
+        while (rawSize > 0) {
+            int rawFirst = (rawLast - rawSize + 1 + rawTimestamps.length) % rawTimestamps.length;
+            if (rawTimestamps[rawFirst] >= oldest) {
+                break;
+            }
+            rawSize--;
+        }
+        for (Rollup rollup : rollups) {
+            rollup.expire(oldest);
+        }
+        return lastTimestamp < oldest;
+    }
+
+    synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    synchronized TenantId getSrcTenant() {
+        return srcTenant;
+    }
+
+    synchronized TenantId getDstTenant() {
+        return dstTenant;
+    }
+
+    synchronized List<ClassifierName> getClassifiers() {
+        return classifiers;
+    }
+
+    synchronized List<ActionName> getActions() {
+        return actions;
+    }
+
+    /**
+     * Sums of samples in consecutive buckets of the same length
+     */
+    private static final class Rollup {
+
+        private final long resolution;
+        private final long[] bucketStarts;
+        private final long[] bytes;
+        private final long[] packets;
+        private int last = -1;
+        private int size = 0;
+        // end of the newest bucket which was overwritten before it expired
+        private long overwrittenUntil = Long.MIN_VALUE;
+
+        Rollup(long resolution, int capacity) {
+            this.resolution = resolution;
+            bucketStarts = new long[capacity];
+            bytes = new long[capacity];
+            packets = new long[capacity];
+        }
+
+        void add(long timestamp, long byteCount, long packetCount) {
+            long bucketStart = timestamp - timestamp % resolution;
+            for (int i = 0; i < size; i++) {
+                int index = (last - i + bucketStarts.length) % bucketStarts.length;
+                if (bucketStarts[index] == bucketStart) {
+                    bytes[index] += byteCount;
+                    packets[index] += packetCount;
+                    return;
+                }
+                if (bucketStarts[index] < bucketStart) {
+                    break;
+                }
+            }
+            if (size > 0 && bucketStart < bucketStarts[last]) {
+                // too late for the rollup, its bucket is already gone
+                return;
+            }
+            last = (last + 1) % bucketStarts.length;
+            if (size == bucketStarts.length) {
+                overwrittenUntil = Math.max(overwrittenUntil, bucketStarts[last] + resolution);
+            } else {
+                size++;
+            }
+            bucketStarts[last] = bucketStart;
+            bytes[last] = byteCount;
+            packets[last] = packetCount;
+        }
+
+        Counters sum(long from, long to) {
+            long byteCount = 0;
+            long packetCount = 0;
+            for (int i = 0; i < size; i++) {
+                int index = (last - i + bucketStarts.length) % bucketStarts.length;
+                if (bucketStarts[index] + resolution <= from) {
+                    break;
+                }
+                if (bucketStarts[index] <= to) {
+                    byteCount += bytes[index];
+                    packetCount += packets[index];
+                }
+            }
+            return new Counters(byteCount, packetCount);
+        }
+
+        void expire(long oldest) {
+            while (size > 0) {
+                int first = (last - size + 1 + bucketStarts.length) % bucketStarts.length;
+                if (bucketStarts[first] + resolution > oldest) {
+                    break;
+                }
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.statistics;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
+
+import com.google.common.base.Objects;
+
+/**
+ * Identifies a time series of statistics - traffic between two endpoints in
+ * given endpoint groups matched by a rule of a contract
+ */
+@Immutable
+final class StatisticSeriesKey {
+
+    private final L2BridgeDomainId srcL2c;
+    private final MacAddress srcMac;
+    private final L2BridgeDomainId dstL2c;
+    private final MacAddress dstMac;
+    private final EndpointGroupId srcEpg;
+    private final EndpointGroupId dstEpg;
+    private final ContractId contract;
+    private final SubjectName subject;
+    private final RuleName rule;
+    private final int hashCode;
+
+    StatisticSeriesKey(L2BridgeDomainId srcL2c, MacAddress srcMac, L2BridgeDomainId dstL2c, MacAddress dstMac,
+            EndpointGroupId srcEpg, EndpointGroupId dstEpg, ContractId contract, SubjectName subject, RuleName rule) {
+        this.srcL2c = srcL2c;
+        this.srcMac = srcMac;
+        this.dstL2c = dstL2c;
+        this.dstMac = dstMac;
+        this.srcEpg = srcEpg;
+        this.dstEpg = dstEpg;
+        this.contract = contract;
+        this.subject = subject;
+        this.rule = rule;
+        this.hashCode = Objects.hashCode(srcL2c, srcMac, dstL2c, dstMac, srcEpg, dstEpg, contract, subject, rule);
+    }
+
+    L2BridgeDomainId getSrcL2c() {
+        return srcL2c;
+    }
+
+    MacAddress getSrcMac() {
+        return srcMac;
+    }
+
+    L2BridgeDomainId getDstL2c() {
+        return dstL2c;
+    }
+
+    MacAddress getDstMac() {
+        return dstMac;
+    }
+
+    EndpointGroupId getSrcEpg() {
+        return srcEpg;
+    }
+
+    EndpointGroupId getDstEpg() {
+        return dstEpg;
+    }
+
+    ContractId getContract() {
+        return contract;
+    }
+
+    SubjectName getSubject() {
+        return subject;
+    }
+
+    RuleName getRule() {
+        return rule;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        StatisticSeriesKey other = (StatisticSeriesKey) obj;
+        return hashCode == other.hashCode && Objects.equal(srcL2c, other.srcL2c)
+                && Objects.equal(srcMac, other.srcMac) && Objects.equal(dstL2c, other.dstL2c)
+                && Objects.equal(dstMac, other.dstMac) && Objects.equal(srcEpg, other.srcEpg)
+                && Objects.equal(dstEpg, other.dstEpg) && Objects.equal(contract, other.contract)
+                && Objects.equal(subject, other.subject) && Objects.equal(rule, other.rule);
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticSeriesKey [src=" + srcL2c + "/" + srcMac + ", dst=" + dstL2c + "/" + dstMac + ", srcEpg="
+                + srcEpg + ", dstEpg=" + dstEpg + ", contract=" + contract + ", subject=" + subject + ", rule=" + rule
+                + "]";
+    }
+}
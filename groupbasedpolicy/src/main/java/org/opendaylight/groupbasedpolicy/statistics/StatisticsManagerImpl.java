@@ -8,32 +8,49 @@
 
 package org.opendaylight.groupbasedpolicy.statistics;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.sal.binding.api.BindingAwareBroker;
+import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.groupbasedpolicy.api.StatisticsManager;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.StatisticsService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecords;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecordsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatistic;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatistic;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticBuilder;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatistic;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticBuilder;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.RecordId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.StatisticsStore;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.StatisticsStoreBuilder;
@@ -46,20 +63,86 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.statistic.record.StatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.statistic.record.StatisticKey;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.common.RpcError.ErrorType;
+import org.opendaylight.yangtools.yang.common.RpcResult;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Optional;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-public class StatisticsManagerImpl implements StatisticsManager, AutoCloseable {
+public class StatisticsManagerImpl implements StatisticsManager, StatisticsService, AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(StatisticsManagerImpl.class);
-    private static long recordKey = 0;
+    // records written in one transaction at most
+    static final int MAX_RECORDS_PER_TRANSACTION = 1000;
+    // submitted transactions which were not committed yet at most
+    static final int MAX_PENDING_TRANSACTIONS = 16;
+    // how long a writer waits for a pending transaction to finish
+    static final long PENDING_TRANSACTION_WAIT_SECONDS = 5;
+    static final long DEFAULT_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // most recent samples of a series kept as they were written
+    static final int RAW_SAMPLES_PER_SERIES = 64;
+    // bucket lengths of rollups kept for each series, from the finest
+    static final long[] ROLLUP_RESOLUTIONS_MILLIS = {TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1)};
+    // how often expired statistics are removed
+    static final long EXPIRATION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // page size of a query without limit
+    static final int DEFAULT_QUERY_LIMIT = 100;
+    private final AtomicLong recordKey = new AtomicLong();
+    private final Semaphore pendingTransactions = new Semaphore(MAX_PENDING_TRANSACTIONS);
+    private final long retentionMillis;
+    private final ConcurrentMap<StatisticSeriesKey, StatisticSeries> seriesByKey = new ConcurrentHashMap<>();
+    // keys of records in datastore with their timestamp, the oldest first regardless of the order
+    // in which they were written
+    private final Queue<WrittenRecord> writtenRecords = new PriorityQueue<>();
+    // keys of series by tenant, endpoint group and contract, so that a filtered query does not
+    // visit all series; guarded by seriesIndexLock
+    private final Object seriesIndexLock = new Object();
+    private final Map<TenantId, Set<StatisticSeriesKey>> seriesByTenant = new HashMap<>();
+    private final Map<EndpointGroupId, Set<StatisticSeriesKey>> seriesByEpg = new HashMap<>();
+    private final Map<ContractId, Set<StatisticSeriesKey>> seriesByContract = new HashMap<>();
+    private final ScheduledExecutorService expirationExecutor;
     private DataBroker dataBroker;
+    private final BindingAwareBroker.RpcRegistration<StatisticsService> rpcRegistration;
 
     public StatisticsManagerImpl(DataBroker broker) {
+        this(broker, null, DEFAULT_RETENTION_MILLIS);
+    }
+
+    /**
+     * @param broker the data broker
+     * @param rpcRegistry registry of the statistics RPCs; may be {@code null}
+     * @param retentionMillis how long statistics are kept in datastore and in memory
+     */
+    public StatisticsManagerImpl(DataBroker broker, RpcProviderRegistry rpcRegistry, long retentionMillis) {
+        checkArgument(retentionMillis > 0, "Retention must be positive.");
         this.dataBroker = broker;
+        this.retentionMillis = retentionMillis;
         inicializeStatistics();
+        expirationExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("gbp-statistics-expiration-%d").setDaemon(true).build());
+        expirationExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    expire(System.currentTimeMillis());
+                } catch (RuntimeException e) {
+                    LOG.warn("Removing of expired statistics failed.", e);
+                }
+            }
+        }, EXPIRATION_INTERVAL_MILLIS, EXPIRATION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (rpcRegistry != null) {
+            rpcRegistration = rpcRegistry.addRpcImplementation(StatisticsService.class, this);
+        } else {
+            rpcRegistration = null;
+        }
     }
 
     private void inicializeStatistics() {
@@ -70,8 +153,26 @@ public class StatisticsManagerImpl implements StatisticsManager, AutoCloseable {
         wtx.submit();
     }
 
+    /**
+     * Records are written in transactions of at most {@link #MAX_RECORDS_PER_TRANSACTION} records
+     * which are submitted asynchronously. When {@link #MAX_PENDING_TRANSACTIONS} transactions
+     * are not committed yet, the caller waits up to {@link #PENDING_TRANSACTION_WAIT_SECONDS} for
+     * one of them.
+     *
+     * Records are also added to the in-memory series from which statistics are read. Records
+     * older than the retention window are removed from both every
+     * {@link #EXPIRATION_INTERVAL_MILLIS} by a background task, not by the writer.
+     *
+     * @return {@code false} if the datastore did not keep up and some records were dropped
+     */
     @Override
     public boolean writeStat(StatRecords record) {
+        long now = System.currentTimeMillis();
+        boolean allWritten = true;
+        if (record.getEpToEpStatistic() == null) {
+            return allWritten;
+        }
+        List<StatisticRecord> statRecords = new ArrayList<>();
         for (EpToEpStatistic epStats : record.getEpToEpStatistic()) {
             SrcEndpointBuilder srcBuilder = new SrcEndpointBuilder();
             DstEndpointBuilder dstBuilder = new DstEndpointBuilder();
@@ -81,12 +182,12 @@ public class StatisticsManagerImpl implements StatisticsManager, AutoCloseable {
             dstBuilder.setMacAddress(epStats.getDstMacAddress())
                 .setL2Context(epStats.getDstL2c())
                 .setTenant(epStats.getDstTenant());
+            long timestamp = epStats.getTimestamp() != null ? epStats.getTimestamp().longValue() : now;
             for (EpEpgToEpEpgStatistic epgStats : epStats.getEpEpgToEpEpgStatistic()) {
-                StatisticRecordKey key = new StatisticRecordKey(new RecordId(recordKey++));
-                StatisticRecord statRecord;
+                StatisticRecordKey key = new StatisticRecordKey(new RecordId(recordKey.getAndIncrement()));
                 srcBuilder.setEndpointGroup(epgStats.getSrcEpg());
                 dstBuilder.setEndpointGroup(epgStats.getDstEpg());
-                ArrayList<Statistic> statisticList = new ArrayList<>();
+                List<Statistic> statisticList = new ArrayList<>(epgStats.getMatchedRuleStatistic().size());
                 for (MatchedRuleStatistic ruleStats : epgStats.getMatchedRuleStatistic()) {
                     Statistic statistic = new StatisticBuilder()
                         .setKey(new StatisticKey(ruleStats.getContract(), ruleStats.getMatchedRule(),
@@ -100,134 +201,392 @@ public class StatisticsManagerImpl implements StatisticsManager, AutoCloseable {
                         .setPacketCount(ruleStats.getPacketCount())
                         .build();
                     statisticList.add(statistic);
+                    StatisticSeries series = getSeries(new StatisticSeriesKey(epStats.getSrcL2c(),
+                            epStats.getSrcMacAddress(), epStats.getDstL2c(), epStats.getDstMacAddress(),
+                            epgStats.getSrcEpg(), epgStats.getDstEpg(), ruleStats.getContract(),
+                            ruleStats.getSubject(), ruleStats.getMatchedRule()));
+                    TenantId srcTenantBefore = series.getSrcTenant();
+                    TenantId dstTenantBefore = series.getDstTenant();
+                    series.add(timestamp, nullToZero(ruleStats.getByteCount()),
+                            nullToZero(ruleStats.getPacketCount()), epStats.getSrcTenant(), epStats.getDstTenant(),
+                            ruleStats.getClassifier(), ruleStats.getAction());
+                    if (!Objects.equal(srcTenantBefore, series.getSrcTenant())
+                            || !Objects.equal(dstTenantBefore, series.getDstTenant())) {
+                        reindexTenants(series, srcTenantBefore, dstTenantBefore);
+                    }
                 }
-                statRecord = new StatisticRecordBuilder().setKey(key)
-                    .setRecordId(new RecordId(recordKey))
+                statRecords.add(new StatisticRecordBuilder().setKey(key)
                     .setTimestamp(epStats.getTimestamp())
                     .setSrcEndpoint(srcBuilder.build())
                     .setDstEndpoint(dstBuilder.build())
                     .setStatistic(statisticList)
-                    .build();
+                    .build());
+                synchronized (writtenRecords) {
+                    writtenRecords.add(new WrittenRecord(key, timestamp));
+                }
+            }
+        }
+        for (List<StatisticRecord> chunk : Lists.partition(statRecords, MAX_RECORDS_PER_TRANSACTION)) {
+            allWritten &= submitRecords(chunk);
+        }
+        return allWritten;
+    }
+
+    private StatisticSeries getSeries(StatisticSeriesKey key) {
+        StatisticSeries series = seriesByKey.get(key);
+        if (series == null) {
+            series = new StatisticSeries(key, RAW_SAMPLES_PER_SERIES, ROLLUP_RESOLUTIONS_MILLIS, retentionMillis);
+            StatisticSeries existing = seriesByKey.putIfAbsent(key, series);
+            if (existing != null) {
+                series = existing;
+            } else {
+                synchronized (seriesIndexLock) {
+                    index(seriesByEpg, key.getSrcEpg(), key);
+                    index(seriesByEpg, key.getDstEpg(), key);
+                    index(seriesByContract, key.getContract(), key);
+                }
+            }
+        }
+        return series;
+    }
+
+    private void reindexTenants(StatisticSeries series, TenantId srcTenantBefore, TenantId dstTenantBefore) {
+        synchronized (seriesIndexLock) {
+            unindex(seriesByTenant, srcTenantBefore, series.getKey());
+            unindex(seriesByTenant, dstTenantBefore, series.getKey());
+            index(seriesByTenant, series.getSrcTenant(), series.getKey());
+            index(seriesByTenant, series.getDstTenant(), series.getKey());
+        }
+    }
+
+    private void unindexSeries(StatisticSeries series) {
+        StatisticSeriesKey key = series.getKey();
+        synchronized (seriesIndexLock) {
+            unindex(seriesByTenant, series.getSrcTenant(), key);
+            unindex(seriesByTenant, series.getDstTenant(), key);
+            unindex(seriesByEpg, key.getSrcEpg(), key);
+            unindex(seriesByEpg, key.getDstEpg(), key);
+            unindex(seriesByContract, key.getContract(), key);
+        }
+    }
+
+    private static <K> void index(Map<K, Set<StatisticSeriesKey>> index, K id, StatisticSeriesKey key) {
+        if (id == null) {
+            return;
+        }
+        Set<StatisticSeriesKey> keys = index.get(id);
+        if (keys == null) {
+            keys = new HashSet<>();
+            index.put(id, keys);
+        }
+        keys.add(key);
+    }
 
-                InstanceIdentifier<StatisticRecord> statIID = IidFactory.statisticRecordIid(key);
-                WriteTransaction wtx = dataBroker.newWriteOnlyTransaction();
-                LOG.debug("Writing statistics to datastore");
-                wtx.put(LogicalDatastoreType.OPERATIONAL, statIID, statRecord);
-                wtx.submit();
+    private static <K> void unindex(Map<K, Set<StatisticSeriesKey>> index, K id, StatisticSeriesKey key) {
+        if (id == null) {
+            return;
+        }
+        Set<StatisticSeriesKey> keys = index.get(id);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * Removes statistics older than retention window from memory and datastore. Called every
+     * {@link #EXPIRATION_INTERVAL_MILLIS} from the expiration task.
+     *
+     * @return {@code false} if expired records could not be removed from datastore
+     */
+    @VisibleForTesting
+    boolean expire(long now) {
+        long oldest = now - retentionMillis;
+        Iterator<StatisticSeries> seriesIterator = seriesByKey.values().iterator();
+        while (seriesIterator.hasNext()) {
+            StatisticSeries series = seriesIterator.next();
+            if (series.expire(oldest)) {
+                seriesIterator.remove();
+                unindexSeries(series);
             }
         }
+        // the transaction is acquired before expired records are taken from the queue, so records
+        // which cannot be removed now stay in the queue for the next run
+        while (hasExpiredRecords(oldest)) {
+            if (!acquireTransaction()) {
+                LOG.warn("Datastore does not keep up with statistics, removal of expired records is postponed.");
+                return false;
+            }
+            List<StatisticRecordKey> expiredRecords = new ArrayList<>();
+            synchronized (writtenRecords) {
+                while (expiredRecords.size() < MAX_RECORDS_PER_TRANSACTION && !writtenRecords.isEmpty()
+                        && writtenRecords.peek().timestamp < oldest) {
+                    expiredRecords.add(writtenRecords.poll().key);
+                }
+            }
+            if (expiredRecords.isEmpty()) {
+                pendingTransactions.release();
+                break;
+            }
+            removeRecords(expiredRecords);
+        }
         return true;
     }
 
+    private boolean hasExpiredRecords(long oldest) {
+        synchronized (writtenRecords) {
+            return !writtenRecords.isEmpty() && writtenRecords.peek().timestamp < oldest;
+        }
+    }
+
+    private boolean submitRecords(List<StatisticRecord> statRecords) {
+        if (!acquireTransaction()) {
+            LOG.warn("Datastore does not keep up with statistics, {} records were dropped.", statRecords.size());
+            return false;
+        }
+        WriteTransaction wtx = dataBroker.newWriteOnlyTransaction();
+        for (StatisticRecord statRecord : statRecords) {
+            wtx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.statisticRecordIid(statRecord.getKey()), statRecord);
+        }
+        LOG.debug("Writing {} statistic records to datastore", statRecords.size());
+        submit(wtx, "Writing", statRecords.size());
+        return true;
+    }
+
+    /**
+     * The caller has to {@link #acquireTransaction() acquire} the transaction.
+     */
+    private void removeRecords(List<StatisticRecordKey> keys) {
+        WriteTransaction wtx = dataBroker.newWriteOnlyTransaction();
+        for (StatisticRecordKey key : keys) {
+            wtx.delete(LogicalDatastoreType.OPERATIONAL, IidFactory.statisticRecordIid(key));
+        }
+        LOG.debug("Removing {} expired statistic records from datastore", keys.size());
+        submit(wtx, "Removing", keys.size());
+    }
+
+    /**
+     * @return {@code false} if too many transactions are pending or the thread was interrupted
+     *         while waiting for one of them
+     */
+    private boolean acquireTransaction() {
+        try {
+            return pendingTransactions.tryAcquire(PENDING_TRANSACTION_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void submit(WriteTransaction wtx, final String operation, final int records) {
+        Futures.addCallback(wtx.submit(), new FutureCallback<Void>() {
+
+            @Override
+            public void onSuccess(Void result) {
+                pendingTransactions.release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                pendingTransactions.release();
+                LOG.warn("{} of {} statistic records failed.", operation, records, t);
+            }
+        });
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Returns statistics within the retention window, summed per EP pair, EPG pair and rule.
+     * Statistics are read from memory, not from datastore.
+     */
     @Override
     public StatRecords readStats() {
-        InstanceIdentifier<StatisticsStore> statsIID = InstanceIdentifier.builder(StatisticsStore.class).build();
-        ReadOnlyTransaction rtx = dataBroker.newReadOnlyTransaction();
         LOG.debug("Reading statistics");
-        Optional<StatisticsStore> storeOpt = Optional.absent();
+        Map<EpToEpStatisticKey, EpPairStatistics> epPairs =
+                sumSeries(System.currentTimeMillis() - retentionMillis, Long.MAX_VALUE, null);
+        List<EpToEpStatistic> epList = new ArrayList<>(epPairs.size());
+        for (EpPairStatistics epPair : epPairs.values()) {
+            epList.add(epPair.build());
+        }
+        return new StatRecordsBuilder().setEpToEpStatistic(epList).build();
+    }
+
+    /**
+     * Only the requested page is built; the remaining endpoint pairs are just ranked in a heap
+     * of {@code limit} entries. The cursor has the form {@code <count>:<endpoint pair id>} of the
+     * last endpoint pair of the previous page. Statistics are read from memory, not from
+     * datastore.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Override
+    public QueryStatisticsOutput queryStats(QueryStatisticsInput query) {
+        LOG.debug("Querying statistics {}", query);
+        long from = System.currentTimeMillis() - retentionMillis;
+        if (query.getFromTimestamp() != null) {
+            from = Math.max(from, query.getFromTimestamp().longValue());
+        }
+        long to = query.getToTimestamp() != null ? query.getToTimestamp().longValue() : Long.MAX_VALUE;
+        boolean byPackets = query.getOrderBy() == QueryStatisticsInput.OrderBy.PacketCount;
+        Comparator<EpPairStatistics> order = byPackets ? EpPairStatistics.BY_PACKETS : EpPairStatistics.BY_BYTES;
+        int limit = query.getLimit() != null ? query.getLimit().intValue() : DEFAULT_QUERY_LIMIT;
+        long cursorCount = 0;
+        String cursorId = null;
+        if (query.getCursor() != null) {
+            int separator = query.getCursor().indexOf(':');
+            checkArgument(separator > 0, "Malformed cursor %s", query.getCursor());
+            cursorCount = Long.parseLong(query.getCursor().substring(0, separator));
+            cursorId = query.getCursor().substring(separator + 1);
+        }
+
+        PriorityQueue<EpPairStatistics> top = new PriorityQueue<>(limit + 1, Collections.reverseOrder(order));
+        boolean hasMore = false;
+        for (EpPairStatistics epPair : sumSeries(from, to, query).values()) {
+            long count = byPackets ? epPair.getPacketCount() : epPair.getByteCount();
+            if (cursorId != null && EpPairStatistics.compareRank(count, epPair.getId(), cursorCount, cursorId) <= 0) {
+                continue;
+            }
+            top.add(epPair);
+            if (top.size() > limit) {
+                top.poll();
+                hasMore = true;
+            }
+        }
+        List<EpPairStatistics> page = new ArrayList<>(top);
+        Collections.sort(page, order);
+        List<EpToEpStatistic> epList = new ArrayList<>(page.size());
+        for (EpPairStatistics epPair : page) {
+            epList.add(epPair.build());
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            EpPairStatistics last = page.get(page.size() - 1);
+            nextCursor = (byPackets ? last.getPacketCount() : last.getByteCount()) + ":" + last.getId();
+        }
+        return new QueryStatisticsOutputBuilder()
+            .setStatRecords(new StatRecordsBuilder().setEpToEpStatistic(epList).build())
+            .setNextCursor(nextCursor)
+            .build();
+    }
+
+    @Override
+    public Future<RpcResult<QueryStatisticsOutput>> queryStatistics(QueryStatisticsInput input) {
         try {
-            storeOpt = rtx.read(LogicalDatastoreType.OPERATIONAL, statsIID).get();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        if (storeOpt.isPresent()) {
-            StatisticsStore store = storeOpt.get();
-            Map<EpToEpStatisticKey, EpToEpStatisticBuilder> map = new HashMap<>();
-            for (StatisticRecord storeStat : store.getStatisticRecord()) {
-                MacAddress srcMac = storeStat.getSrcEndpoint().getMacAddress();
-                MacAddress dstMac = storeStat.getDstEndpoint().getMacAddress();
-                L2BridgeDomainId srcL2C = storeStat.getSrcEndpoint().getL2Context();
-                L2BridgeDomainId dstL2C = storeStat.getDstEndpoint().getL2Context();
-                TenantId srcTenant = storeStat.getSrcEndpoint().getTenant();
-                TenantId dstTenant = storeStat.getDstEndpoint().getTenant();
-                EpToEpStatisticKey epKey = new EpToEpStatisticKey(dstL2C, dstMac, srcL2C, srcMac);
-                EpEpgToEpEpgStatisticKey epgKey = new EpEpgToEpEpgStatisticKey(
-                        storeStat.getDstEndpoint().getEndpointGroup(), storeStat.getSrcEndpoint().getEndpointGroup());
-                EpToEpStatisticBuilder epStat = map.get(epKey);
-                if (epStat == null) {
-                    // eptoep combination doesnt exist
-                    epStat = new EpToEpStatisticBuilder();
-                    epStat.setKey(epKey)
-                        .setSrcMacAddress(srcMac)
-                        .setSrcL2c(srcL2C)
-                        .setSrcTenant(storeStat.getSrcEndpoint().getTenant())
-                        .setDstMacAddress(dstMac)
-                        .setDstL2c(dstL2C)
-                        .setDstTenant(storeStat.getDstEndpoint().getTenant());
-                }
-                List<MatchedRuleStatistic> ruleStatList = new ArrayList<>();
-                for(Statistic statistic : storeStat.getStatistic())
-                {
-                    MatchedRuleStatisticBuilder statBuilder = new MatchedRuleStatisticBuilder()
-                            .setKey(new MatchedRuleStatisticKey(statistic.getContract()
-                                    ,statistic.getRule()
-                                    ,statistic.getSubject()))
-                            .setContract(statistic.getContract())
-                            .setSubject(statistic.getSubject())
-                            .setMatchedRule(statistic.getRule())
-                            .setAction(statistic.getAction())
-                            .setClassifier(statistic.getClassifier())
-                            .setByteCount(statistic.getByteCount())
-                            .setPacketCount(statistic.getPacketCount());
-                    ruleStatList.add(statBuilder.build());
-                }
-                EpEpgToEpEpgStatisticBuilder epgtoepgBuilder = new EpEpgToEpEpgStatisticBuilder();
-                epgtoepgBuilder.setKey(epgKey)
-                    .setSrcEpg(storeStat.getSrcEndpoint().getEndpointGroup())
-                    .setDstEpg(storeStat.getDstEndpoint().getEndpointGroup())
-                    .setMatchedRuleStatistic(ruleStatList);
-                epStat.setEpEpgToEpEpgStatistic(
-                        addIfNotExists(epgtoepgBuilder, epStat.getEpEpgToEpEpgStatistic()));
-                map.put(epKey, epStat);
-            }
-            List<EpToEpStatistic> epList = new ArrayList<>();
-            for (EpToEpStatisticBuilder statBuilder : map.values()) {
-                epList.add(statBuilder.build());
-            }
-            StatRecordsBuilder statStore = new StatRecordsBuilder();
-            statStore.setEpToEpStatistic(epList);
-            return statStore.build();
-        }
-        LOG.debug("Statistics store empty");
-        return null;
-    }
-
-    private List<EpEpgToEpEpgStatistic> addIfNotExists(EpEpgToEpEpgStatisticBuilder stat,
-            List<EpEpgToEpEpgStatistic> list) {
-        Iterator<EpEpgToEpEpgStatistic> iterator = list.iterator();
-        while (iterator.hasNext()) {
-            EpEpgToEpEpgStatistic epgStat = iterator.next();
-            if (stat.getKey().equals(epgStat.getKey())) {
-                Iterator<MatchedRuleStatistic> iteratorNew = stat.getMatchedRuleStatistic().iterator();
-                while(iteratorNew.hasNext()) {
-                    MatchedRuleStatistic newStat = iteratorNew.next();
-                    Iterator<MatchedRuleStatistic> iteratorOld = epgStat.getMatchedRuleStatistic().iterator();
-                    while(iteratorOld.hasNext()) {
-                        MatchedRuleStatistic oldStat = iteratorOld.next();
-                        if(oldStat.getKey().equals(newStat.getKey())) {
-                            newStat = new MatchedRuleStatisticBuilder(oldStat)
-                                    .setByteCount(oldStat.getByteCount()+newStat.getByteCount())
-                                    .setPacketCount(oldStat.getPacketCount()+newStat.getPacketCount())
-                                    .build();
-                            iteratorNew.remove();
-                            iteratorOld.remove();
-                            break;
-                        }
-                    }
-                    epgStat.getMatchedRuleStatistic().add(newStat);
-                }
-                iterator.remove();
-                break;
+            return Futures.immediateFuture(RpcResultBuilder.<QueryStatisticsOutput>success(queryStats(input)).build());
+        } catch (IllegalArgumentException e) {
+            return Futures.immediateFuture(RpcResultBuilder.<QueryStatisticsOutput>failed()
+                .withError(ErrorType.RPC, e.getMessage())
+                .build());
+        }
+    }
+
+    /**
+     * Sums series with samples in the interval per EP pair
+     *
+     * @param filter series not matching it are skipped; {@code null} matches all
+     */
+    private Map<EpToEpStatisticKey, EpPairStatistics> sumSeries(long from, long to, QueryStatisticsInput filter) {
+        Map<EpToEpStatisticKey, EpPairStatistics> epPairs = new HashMap<>();
+        for (StatisticSeries series : candidateSeries(filter)) {
+            if (series.getLastTimestamp() < from || (filter != null && !matches(series, filter))) {
+                continue;
+            }
+            StatisticSeries.Counters counters = series.sum(from, to);
+            if (filter != null && counters.getByteCount() == 0 && counters.getPacketCount() == 0) {
+                continue;
             }
+            EpToEpStatisticKey epKey = EpPairStatistics.createKey(series.getKey());
+            EpPairStatistics epPair = epPairs.get(epKey);
+            if (epPair == null) {
+                epPair = new EpPairStatistics(series);
+                epPairs.put(epKey, epPair);
+            }
+            epPair.add(series, counters);
         }
-        list.add(stat.build());
-        return list;
+        return epPairs;
+    }
+
+    /**
+     * @return series from the smallest index set selected by the tenant, endpoint group or
+     *         contract of the filter; all series if the filter uses none of them
+     */
+    private Collection<StatisticSeries> candidateSeries(QueryStatisticsInput filter) {
+        if (filter == null) {
+            return seriesByKey.values();
+        }
+        List<StatisticSeriesKey> keys;
+        synchronized (seriesIndexLock) {
+            Set<StatisticSeriesKey> narrowest = null;
+            if (filter.getTenant() != null) {
+                narrowest = narrower(narrowest, seriesByTenant.get(filter.getTenant()));
+            }
+            if (filter.getEndpointGroup() != null) {
+                narrowest = narrower(narrowest, seriesByEpg.get(filter.getEndpointGroup()));
+            }
+            if (filter.getContract() != null) {
+                narrowest = narrower(narrowest, seriesByContract.get(filter.getContract()));
+            }
+            if (narrowest == null) {
+                return seriesByKey.values();
+            }
+            keys = new ArrayList<>(narrowest);
+        }
+        List<StatisticSeries> candidates = new ArrayList<>(keys.size());
+        for (StatisticSeriesKey key : keys) {
+            StatisticSeries series = seriesByKey.get(key);
+            if (series != null) {
+                candidates.add(series);
+            }
+        }
+        return candidates;
+    }
+
+    private static Set<StatisticSeriesKey> narrower(Set<StatisticSeriesKey> current, Set<StatisticSeriesKey> indexed) {
+        if (indexed == null) {
+            return Collections.emptySet();
+        }
+        return current == null || indexed.size() < current.size() ? indexed : current;
+    }
+
+    private static boolean matches(StatisticSeries series, QueryStatisticsInput filter) {
+        StatisticSeriesKey key = series.getKey();
+        if (filter.getTenant() != null && !filter.getTenant().equals(series.getSrcTenant())
+                && !filter.getTenant().equals(series.getDstTenant())) {
+            return false;
+        }
+        if (filter.getEndpointGroup() != null && !filter.getEndpointGroup().equals(key.getSrcEpg())
+                && !filter.getEndpointGroup().equals(key.getDstEpg())) {
+            return false;
+        }
+        if (filter.getContract() != null && !filter.getContract().equals(key.getContract())) {
+            return false;
+        }
+        return filter.getRule() == null || filter.getRule().equals(key.getRule());
     }
 
     @Override
     public void close() throws Exception {
-        // TODO Auto-generated method stub
-
+        expirationExecutor.shutdownNow();
+        if (rpcRegistration != null) {
+            rpcRegistration.close();
+        }
     }
 
+    private static final class WrittenRecord implements Comparable<WrittenRecord> {
+
+        private final StatisticRecordKey key;
+        private final long timestamp;
+
+        WrittenRecord(StatisticRecordKey key, long timestamp) {
+            this.key = key;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int compareTo(WrittenRecord other) {
+            return Long.compare(timestamp, other.timestamp);
+        }
+    }
 }
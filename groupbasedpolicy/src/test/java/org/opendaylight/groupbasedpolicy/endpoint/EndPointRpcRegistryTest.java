@@ -10,6 +10,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -35,21 +36,38 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointsOutput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterL3PrefixEndpointInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterL3PrefixEndpointInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.SetEndpointGroupConditionsInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointsOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.bulk.endpoint.operation.result.FailedItem;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnsetEndpointGroupConditionsInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3AddressBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.has.endpoint.group.conditions.EndpointGroupCondition;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistrationBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoint.input.L2;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoint.input.L3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoint.input.L3Builder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L2Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L2EndpointBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L3Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.unregister.endpoints.input.L3EndpointBuilder;
 import org.opendaylight.yangtools.yang.binding.DataObject;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.opendaylight.yangtools.yang.binding.RpcService;
+import org.opendaylight.yangtools.yang.common.RpcResult;
 
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
 
 public class EndPointRpcRegistryTest {
 
@@ -70,8 +88,7 @@ public class EndPointRpcRegistryTest {
 
         t = mock(WriteTransaction.class);
         when(dataProvider.newWriteOnlyTransaction()).thenReturn(t);
-        CheckedFuture<Void, TransactionCommitFailedException> f = mock(CheckedFuture.class);
-        when(t.submit()).thenReturn(f);
+        when(t.submit()).thenReturn(Futures.<Void, TransactionCommitFailedException>immediateCheckedFuture(null));
 
         rpcRegistration = mock(RpcRegistration.class);
         when(rpcRegistry.addRpcImplementation(any(Class.class), any(RpcService.class))).thenReturn(rpcRegistration);
@@ -98,6 +115,12 @@ public class EndPointRpcRegistryTest {
         Assert.assertEquals(1, EndpointRpcRegistry.registeredRenderers.size());
     }
 
+    @Test
+    public void closeTestWithoutDataProvider() throws Exception {
+        EndpointRpcRegistry registry = new EndpointRpcRegistry(null, null);
+        registry.close();
+    }
+
     @Test
     public void registerEndpointTest()throws Exception{
         endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
@@ -107,6 +130,72 @@ public class EndPointRpcRegistryTest {
         verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class), any(DataObject.class), eq(true));
     }
 
+    @Test
+    public void registerEndpointTestUnchanged() throws Exception {
+        endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
+        endpointRpcRegistry.registerEndpoint(
+                new RegisterEndpointInputBuilder(setRegisterEndpointVariablesForTest()).setTimestamp(42L).build());
+        verify(t, times(1)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+        verify(t, times(1)).cancel();
+
+        endpointRpcRegistry.registerEndpoint(new RegisterEndpointInputBuilder(setRegisterEndpointVariablesForTest())
+            .setTenant(new TenantId("t1")).build());
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+    }
+
+    @Test
+    public void registerEndpointTestAfterUnregister() throws Exception {
+        endpointRpcRegistry.registerEndpoint(setL3AddressVariableForTest());
+        UnregisterEndpointInput unregisterInput = new UnregisterEndpointInputBuilder()
+            .setL3(Collections.singletonList(new L3Builder().setL3Context(new L3ContextId("l3c"))
+                .setIpAddress(new IpAddress(new Ipv4Address("1.1.1.1")))
+                .build()))
+            .build();
+        endpointRpcRegistry.unregisterEndpoint(unregisterInput);
+        endpointRpcRegistry.registerEndpoint(setL3AddressVariableForTest());
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+    }
+
+    @Test
+    public void registerEndpointTestCommitFailed() throws Exception {
+        CheckedFuture<Void, TransactionCommitFailedException> failed =
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test"));
+        when(t.submit()).thenReturn(failed);
+        endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
+        endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+    }
+
+    @Test
+    public void registerEndpointTestCommitFailedThenSucceeded() throws Exception {
+        CheckedFuture<Void, TransactionCommitFailedException> failed =
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test"));
+        when(t.submit()).thenReturn(failed)
+            .thenReturn(Futures.<Void, TransactionCommitFailedException>immediateCheckedFuture(null));
+        endpointRpcRegistry.registerEndpoint(setL3AddressVariableForTest());
+        endpointRpcRegistry.registerEndpoint(setL3AddressVariableForTest());
+        endpointRpcRegistry.registerEndpoint(setL3AddressVariableForTest());
+        // written again after the failed commit, skipped after the successful one
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerEndpointTestCommitPending() throws Exception {
+        CheckedFuture<Void, TransactionCommitFailedException> pending = mock(CheckedFuture.class);
+        when(t.submit()).thenReturn(pending);
+        endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
+        endpointRpcRegistry.registerEndpoint(setRegisterEndpointVariablesForTest());
+        // the first registration may still fail, so the second one is not suppressed
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+    }
+
     private RegisterEndpointInput setRegisterEndpointVariablesForTest() throws Exception{
         RegisterEndpointInputBuilder registerEndpointInputBuilder = new RegisterEndpointInputBuilder();
         registerEndpointInputBuilder.setL2Context(new L2BridgeDomainId("l2bdId"));
@@ -153,6 +242,86 @@ public class EndPointRpcRegistryTest {
         verify(t, times(2)).delete(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class));
     }
 
+    @Test
+    public void registerEndpointsTest() throws Exception {
+        when(t.submit()).thenReturn(Futures.<Void, TransactionCommitFailedException>immediateCheckedFuture(null));
+        List<EndpointRegistration> registrations = new ArrayList<>();
+        registrations.add(new EndpointRegistrationBuilder(setRegisterEndpointVariablesForTest()).build());
+        registrations.add(new EndpointRegistrationBuilder().setTenant(new TenantId("t1")).build());
+        registrations.add(new EndpointRegistrationBuilder(setL3AddressVariableForTest()).build());
+        RegisterEndpointsInput input = new RegisterEndpointsInputBuilder().setEndpointRegistration(registrations)
+            .build();
+
+        RpcResult<RegisterEndpointsOutput> result = endpointRpcRegistry.registerEndpoints(input).get();
+        verify(t, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(DataObject.class), eq(true));
+        // base container and one transaction for both valid endpoints
+        verify(dataProvider, times(2)).newWriteOnlyTransaction();
+        Assert.assertTrue(result.isSuccessful());
+        List<FailedItem> failedItems = result.getResult().getFailedItem();
+        Assert.assertEquals(1, failedItems.size());
+        Assert.assertEquals(Long.valueOf(1), failedItems.get(0).getIndex());
+    }
+
+    @Test
+    public void registerEndpointsTestRendererAugmentation() throws Exception {
+        EndpointRegistration registration =
+                new EndpointRegistrationBuilder(setRegisterEndpointVariablesForTest()).build();
+        RegisterEndpointsInput input = new RegisterEndpointsInputBuilder()
+            .setEndpointRegistration(Collections.singletonList(registration))
+            .build();
+
+        endpointRpcRegistry.register(epRendererAugmentation);
+        try {
+            endpointRpcRegistry.registerEndpoints(input);
+        } finally {
+            endpointRpcRegistry.unregister(epRendererAugmentation);
+        }
+        verify(epRendererAugmentation).buildRegisterEndpointInputAugmentation(registration);
+        verify(epRendererAugmentation).buildEndpointAugmentation(any(RegisterEndpointInput.class));
+    }
+
+    @Test
+    public void registerEndpointsTestBoundedTransactions() throws Exception {
+        List<EndpointRegistration> registrations = new ArrayList<>();
+        for (int i = 0; i <= EndpointRpcRegistry.BULK_TRANSACTION_SIZE; i++) {
+            registrations.add(new EndpointRegistrationBuilder().setL2Context(new L2BridgeDomainId("l2bdId"))
+                .setMacAddress(new MacAddress(String.format("5E:83:39:98:%02X:%02X", i / 256, i % 256)))
+                .build());
+        }
+        RegisterEndpointsInput input = new RegisterEndpointsInputBuilder().setEndpointRegistration(registrations)
+            .build();
+
+        endpointRpcRegistry.registerEndpoints(input);
+        verify(t, times(EndpointRpcRegistry.BULK_TRANSACTION_SIZE + 1)).put(eq(LogicalDatastoreType.OPERATIONAL),
+                any(InstanceIdentifier.class), any(DataObject.class), eq(true));
+        // base container and two bulk transactions
+        verify(dataProvider, times(3)).newWriteOnlyTransaction();
+        verify(t, times(3)).submit();
+    }
+
+    @Test
+    public void unregisterEndpointsTest() throws Exception {
+        CheckedFuture<Void, TransactionCommitFailedException> failed =
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test"));
+        when(t.submit()).thenReturn(failed);
+        List<L2Endpoint> l2List = new ArrayList<>();
+        l2List.add(new L2EndpointBuilder().setL2Context(new L2BridgeDomainId("l2bdId"))
+            .setMacAddress(new MacAddress("5E:83:39:98:4F:1B"))
+            .build());
+        List<L3Endpoint> l3List = new ArrayList<>();
+        l3List.add(new L3EndpointBuilder().setL3Context(new L3ContextId("l3c"))
+            .setIpAddress(new IpAddress(new Ipv4Address("1.1.1.1")))
+            .build());
+        UnregisterEndpointsInput input = new UnregisterEndpointsInputBuilder().setL2Endpoint(l2List)
+            .setL3Endpoint(l3List)
+            .build();
+
+        RpcResult<UnregisterEndpointsOutput> result = endpointRpcRegistry.unregisterEndpoints(input).get();
+        verify(t, times(2)).delete(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class));
+        Assert.assertEquals(2, result.getResult().getFailedItem().size());
+    }
+
     @Test
     public void setEndpointGroupConditionsTest()throws Exception{
         EndpointGroupId endpointGroupIdMock = mock(EndpointGroupId.class);
@@ -11,6 +11,7 @@ package org.opendaylight.groupbasedpolicy.resolver;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -98,6 +99,47 @@ public class IndexedTenantTest {
         assertEquals(fdid, it.resolveL2FloodDomain(sid).getId());
     }
 
+    @Test
+    public void testResolveNDUnknownDomain() throws Exception {
+        SubnetId sid = new SubnetId("dd25397d-d829-4c8d-8c01-31f129b8de8f");
+        L2FloodDomainId fdid = new L2FloodDomainId("252fbac6-bb6e-4d16-808d-6f56d20e5cca");
+        L2BridgeDomainId bdid = new L2BridgeDomainId("70aeb9ea-4ca1-4fb9-9780-22b04b84a0d6");
+
+        Subnet s = new SubnetBuilder().setParent(fdid).setId(sid).build();
+        Tenant t = new TenantBuilder()
+            .setForwardingContext(new ForwardingContextBuilder().setSubnet(ImmutableList.of(s)).build())
+            .build();
+        IndexedTenant it = new IndexedTenant(t);
+
+        assertNull(it.resolveL3Context(sid));
+        assertNull(it.resolveL2FloodDomain(sid));
+        assertTrue(it.resolveSubnets(sid).contains(s));
+        // flood domain is not defined, but subnets pointing to it are still known
+        assertTrue(it.resolveSubnets(fdid).contains(s));
+        assertNull(it.resolveL2BridgeDomain(bdid));
+        assertTrue(it.resolveSubnets(bdid).isEmpty());
+    }
+
+    @Test
+    public void testResolveNDCycle() throws Exception {
+        SubnetId sid = new SubnetId("dd25397d-d829-4c8d-8c01-31f129b8de8f");
+        SubnetId sid2 = new SubnetId("c752ba40-40aa-4a47-8138-9b7175b854fa");
+
+        Subnet s = new SubnetBuilder().setParent(new ContextId(sid2.getValue())).setId(sid).build();
+        Subnet s2 = new SubnetBuilder().setParent(new ContextId(sid.getValue())).setId(sid2).build();
+        Tenant t = new TenantBuilder()
+            .setForwardingContext(new ForwardingContextBuilder().setSubnet(ImmutableList.of(s, s2)).build())
+            .build();
+        IndexedTenant it = new IndexedTenant(t);
+
+        assertNull(it.resolveL3Context(sid));
+        assertNull(it.resolveL2BridgeDomain(sid2));
+        Collection<Subnet> sns = it.resolveSubnets(sid);
+        assertEquals(2, sns.size());
+        assertTrue(sns.contains(s));
+        assertTrue(sns.contains(s2));
+    }
+
     @Test
     public void constructorTest() {
         EndpointGroup eg = mock(EndpointGroup.class);
@@ -8,8 +8,10 @@
 
 package org.opendaylight.groupbasedpolicy.statistics;
 
-import java.util.ArrayList;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -19,7 +21,7 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
-import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ActionName;
@@ -30,17 +32,20 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.QueryStatisticsOutput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecords;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecordsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatistic;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatistic;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatistic;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.RecordId;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.StatisticsStore;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.StatisticsStoreBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.dst.ep.fields.DstEndpointBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.source.ep.fields.SrcEndpointBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.StatisticRecord;
@@ -48,10 +53,10 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.StatisticRecordKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.statistic.record.StatisticBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.store.rev151215.statistics.store.statistic.record.StatisticKey;
-import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.common.RpcResult;
 
-import com.google.common.base.Optional;
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
 
 public class StatisticManagerImplTest {
 
@@ -67,6 +72,8 @@ public class StatisticManagerImplTest {
         rtx = Mockito.mock(ReadOnlyTransaction.class);
         Mockito.when(dataBroker.newWriteOnlyTransaction()).thenReturn(wtx);
         Mockito.when(dataBroker.newReadOnlyTransaction()).thenReturn(rtx);
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = Futures.immediateCheckedFuture(null);
+        Mockito.when(wtx.submit()).thenReturn(submitFuture);
         manager = new StatisticsManagerImpl(dataBroker);
     }
 
@@ -138,6 +145,39 @@ public class StatisticManagerImplTest {
                 statRecord.build());
     }
 
+    @Test
+    public void writeStatTestOneTransaction() {
+        MacAddress srcMac = new MacAddress("00:00:00:00:00:01");
+        MacAddress dstMac = new MacAddress("00:00:00:00:00:02");
+        L2BridgeDomainId l2C = new L2BridgeDomainId("l2C");
+        EndpointGroupId srcEPG1 = new EndpointGroupId("srcEPG1");
+        EndpointGroupId srcEPG2 = new EndpointGroupId("srcEPG2");
+        EndpointGroupId dstEPG = new EndpointGroupId("dstEPG");
+        EpEpgToEpEpgStatisticBuilder epgBuilder = new EpEpgToEpEpgStatisticBuilder()
+            .setMatchedRuleStatistic(Collections.<MatchedRuleStatistic>emptyList());
+        EpToEpStatisticBuilder epBuilder = new EpToEpStatisticBuilder().setSrcMacAddress(srcMac)
+            .setDstMacAddress(dstMac)
+            .setSrcL2c(l2C)
+            .setDstL2c(l2C)
+            .setEpEpgToEpEpgStatistic(Arrays.asList(
+                    epgBuilder.setSrcEpg(srcEPG1).setDstEpg(dstEPG).setKey(null).build(),
+                    epgBuilder.setSrcEpg(srcEPG2).setDstEpg(dstEPG).setKey(null).build()));
+        StatRecords records = new StatRecordsBuilder()
+            .setEpToEpStatistic(Collections.singletonList(epBuilder.build()))
+            .build();
+
+        Assert.assertTrue(manager.writeStat(records));
+        // first transaction initializes the store
+        Mockito.verify(dataBroker, Mockito.times(2)).newWriteOnlyTransaction();
+        Mockito.verify(wtx).put(Mockito.eq(LogicalDatastoreType.OPERATIONAL),
+                Mockito.eq(IidFactory.statisticRecordIid(new StatisticRecordKey(new RecordId(0l)))),
+                Mockito.any(StatisticRecord.class));
+        Mockito.verify(wtx).put(Mockito.eq(LogicalDatastoreType.OPERATIONAL),
+                Mockito.eq(IidFactory.statisticRecordIid(new StatisticRecordKey(new RecordId(1l)))),
+                Mockito.any(StatisticRecord.class));
+        Mockito.verify(wtx, Mockito.times(2)).submit();
+    }
+
     @Test
     public void readStatsTest() {
         MacAddress srcMac = new MacAddress("00:00:00:00:00:01");
@@ -153,47 +193,22 @@ public class StatisticManagerImplTest {
         RuleName rule = new RuleName("rule");
         ActionName action = new ActionName("action");
         ClassifierName classifier = new ClassifierName("classifier");
-        // input
-        SrcEndpointBuilder srcBuilder = new SrcEndpointBuilder();
-        DstEndpointBuilder dstBuilder = new DstEndpointBuilder();
-        srcBuilder.setMacAddress(srcMac).setL2Context(srcL2C).setTenant(srcTenant);
-        dstBuilder.setMacAddress(dstMac).setL2Context(dstL2C).setTenant(dstTenant);
-        srcBuilder.setEndpointGroup(srcEPG);
-        dstBuilder.setEndpointGroup(dstEPG);
-        StatisticBuilder statBuilder = new StatisticBuilder().setKey(new StatisticKey(contract, rule, subject))
+        StatRecordsBuilder recordsBuilder = new StatRecordsBuilder();
+        EpToEpStatisticBuilder epBuilder = new EpToEpStatisticBuilder();
+        EpEpgToEpEpgStatisticBuilder epgBuilder = new EpEpgToEpEpgStatisticBuilder();
+        MatchedRuleStatisticBuilder ruleBuilder = new MatchedRuleStatisticBuilder()
+            .setKey(new MatchedRuleStatisticKey(contract, rule, subject))
             .setContract(contract)
-            .setRule(rule)
             .setSubject(subject)
-            .setClassifier(Collections.singletonList(classifier))
+            .setMatchedRule(rule)
             .setAction(Collections.singletonList(action))
+            .setClassifier(Collections.singletonList(classifier))
             .setByteCount(25l)
             .setPacketCount(5l);
-        StatisticRecordKey key = new StatisticRecordKey(new RecordId(0l));
-        StatisticRecordBuilder statRecord = new StatisticRecordBuilder().setKey(key)
-            .setStatistic(Collections.singletonList(statBuilder.build()))
-            .setSrcEndpoint(srcBuilder.build())
-            .setDstEndpoint(dstBuilder.build());
-        ArrayList<StatisticRecord> stats = new ArrayList<>();
-        stats.add(statRecord.build());
-        statRecord.setKey(new StatisticRecordKey(new RecordId(1l)));
-        stats.add(statRecord.build());
-        // output
-        StatRecordsBuilder recordsBuilder = new StatRecordsBuilder();
-        EpToEpStatisticBuilder epBuilder = new EpToEpStatisticBuilder();
-        EpEpgToEpEpgStatisticBuilder epgBuilder = new EpEpgToEpEpgStatisticBuilder();
         epgBuilder.setSrcEpg(srcEPG)
             .setDstEpg(dstEPG)
             .setKey(new EpEpgToEpEpgStatisticKey(dstEPG, srcEPG))
-            .setMatchedRuleStatistic(Collections.singletonList(new MatchedRuleStatisticBuilder()
-                .setKey(new MatchedRuleStatisticKey(contract, rule, subject))
-                .setContract(contract)
-                .setSubject(subject)
-                .setMatchedRule(rule)
-                .setAction(Collections.singletonList(action))
-                .setClassifier(Collections.singletonList(classifier))
-                .setByteCount(50l)
-                .setPacketCount(10l)
-                .build()));
+            .setMatchedRuleStatistic(Collections.singletonList(ruleBuilder.build()));
         epBuilder.setSrcMacAddress(srcMac)
             .setDstMacAddress(dstMac)
             .setSrcL2c(srcL2C)
@@ -203,18 +218,186 @@ public class StatisticManagerImplTest {
             .setKey(new EpToEpStatisticKey(dstL2C, dstMac, srcL2C, srcMac))
             .setEpEpgToEpEpgStatistic(Collections.singletonList(epgBuilder.build()));
         recordsBuilder.setEpToEpStatistic(Collections.singletonList(epBuilder.build()));
+        // input
+        manager.writeStat(recordsBuilder.build());
+        manager.writeStat(recordsBuilder.build());
+        // output
+        epgBuilder.setMatchedRuleStatistic(
+                Collections.singletonList(ruleBuilder.setByteCount(50l).setPacketCount(10l).build()));
+        epBuilder.setEpEpgToEpEpgStatistic(Collections.singletonList(epgBuilder.build()));
+        recordsBuilder.setEpToEpStatistic(Collections.singletonList(epBuilder.build()));
+
+        StatRecords read = manager.readStats();
+        Assert.assertEquals(recordsBuilder.build(), read);
+        Mockito.verifyZeroInteractions(rtx);
+    }
+
+    @Test
+    public void readStatsTestRetention() {
+        manager = new StatisticsManagerImpl(dataBroker, null, 1000);
+        MacAddress mac = new MacAddress("00:00:00:00:00:01");
+        L2BridgeDomainId l2C = new L2BridgeDomainId("l2C");
+        EndpointGroupId epg = new EndpointGroupId("epg");
+        EpEpgToEpEpgStatistic epgStat = new EpEpgToEpEpgStatisticBuilder().setSrcEpg(epg)
+            .setDstEpg(epg)
+            .setMatchedRuleStatistic(Collections.singletonList(new MatchedRuleStatisticBuilder()
+                .setContract(new ContractId("contract"))
+                .setSubject(new SubjectName("subject"))
+                .setMatchedRule(new RuleName("rule"))
+                .setByteCount(25l)
+                .setPacketCount(5l)
+                .build()))
+            .build();
+        EpToEpStatisticBuilder epBuilder = new EpToEpStatisticBuilder().setSrcMacAddress(mac)
+            .setDstMacAddress(mac)
+            .setSrcL2c(l2C)
+            .setDstL2c(l2C)
+            .setEpEpgToEpEpgStatistic(Collections.singletonList(epgStat));
+        long now = System.currentTimeMillis();
+
+        epBuilder.setTimestamp(BigInteger.valueOf(now - 5000));
+        manager.writeStat(new StatRecordsBuilder().setEpToEpStatistic(Collections.singletonList(epBuilder.build()))
+            .build());
+        Assert.assertTrue(manager.readStats().getEpToEpStatistic().isEmpty());
+
+        epBuilder.setTimestamp(BigInteger.valueOf(now));
+        manager.writeStat(new StatRecordsBuilder().setEpToEpStatistic(Collections.singletonList(epBuilder.build()))
+            .build());
+        List<EpToEpStatistic> read = manager.readStats().getEpToEpStatistic();
+        Assert.assertEquals(1, read.size());
+        Assert.assertEquals(Long.valueOf(25l), read.get(0)
+            .getEpEpgToEpEpgStatistic()
+            .get(0)
+            .getMatchedRuleStatistic()
+            .get(0)
+            .getByteCount());
+    }
+
+    @Test
+    public void queryStatsTest() {
+        ContractId contract = new ContractId("contract");
+        manager.writeStat(new StatRecordsBuilder().setEpToEpStatistic(Arrays.asList(
+                epToEpStatistic("00:00:00:00:00:01", contract, 10l),
+                epToEpStatistic("00:00:00:00:00:02", contract, 30l),
+                epToEpStatistic("00:00:00:00:00:03", contract, 20l),
+                epToEpStatistic("00:00:00:00:00:04", new ContractId("otherContract"), 40l))).build());
 
-        CheckedFuture<Optional<StatisticsStore>, ReadFailedException> future = Mockito.mock(CheckedFuture.class);
-        try {
-            Mockito.when(future.get())
-                .thenReturn(Optional.of(new StatisticsStoreBuilder().setStatisticRecord(stats).build()));
-            Mockito.when(rtx.read(LogicalDatastoreType.OPERATIONAL,
-                    InstanceIdentifier.builder(StatisticsStore.class).build()))
-                .thenReturn(future);
-            StatRecords read = manager.readStats();
-            Assert.assertEquals(recordsBuilder.build(), read);
-        } catch (Exception e) {
-        }
+        QueryStatisticsInputBuilder queryBuilder =
+                new QueryStatisticsInputBuilder().setContract(contract).setLimit(2l);
+        QueryStatisticsOutput page = manager.queryStats(queryBuilder.build());
+        List<EpToEpStatistic> epStats = page.getStatRecords().getEpToEpStatistic();
+        Assert.assertEquals(2, epStats.size());
+        Assert.assertEquals(new MacAddress("00:00:00:00:00:02"), epStats.get(0).getSrcMacAddress());
+        Assert.assertEquals(new MacAddress("00:00:00:00:00:03"), epStats.get(1).getSrcMacAddress());
+        Assert.assertNotNull(page.getNextCursor());
 
+        page = manager.queryStats(queryBuilder.setCursor(page.getNextCursor()).build());
+        epStats = page.getStatRecords().getEpToEpStatistic();
+        Assert.assertEquals(1, epStats.size());
+        Assert.assertEquals(new MacAddress("00:00:00:00:00:01"), epStats.get(0).getSrcMacAddress());
+        Assert.assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void queryStatsTestTenant() {
+        ContractId contract = new ContractId("contract");
+        TenantId tenant1 = new TenantId("tenant1");
+        TenantId tenant2 = new TenantId("tenant2");
+        manager.writeStat(new StatRecordsBuilder().setEpToEpStatistic(Arrays.asList(
+                new EpToEpStatisticBuilder(epToEpStatistic("00:00:00:00:00:01", contract, 10l))
+                    .setSrcTenant(tenant1).build(),
+                new EpToEpStatisticBuilder(epToEpStatistic("00:00:00:00:00:02", contract, 20l))
+                    .setSrcTenant(tenant2).build())).build());
+
+        List<EpToEpStatistic> epStats = manager.queryStats(new QueryStatisticsInputBuilder().setTenant(tenant1).build())
+            .getStatRecords()
+            .getEpToEpStatistic();
+        Assert.assertEquals(1, epStats.size());
+        Assert.assertEquals(new MacAddress("00:00:00:00:00:01"), epStats.get(0).getSrcMacAddress());
+
+        // series moves to the tenant of its newest sample
+        manager.writeStat(new StatRecordsBuilder().setEpToEpStatistic(Collections.singletonList(
+                new EpToEpStatisticBuilder(epToEpStatistic("00:00:00:00:00:01", contract, 10l))
+                    .setSrcTenant(tenant2).build())).build());
+        Assert.assertTrue(manager.queryStats(new QueryStatisticsInputBuilder().setTenant(tenant1).build())
+            .getStatRecords()
+            .getEpToEpStatistic()
+            .isEmpty());
+        Assert.assertEquals(2, manager.queryStats(new QueryStatisticsInputBuilder().setTenant(tenant2).build())
+            .getStatRecords()
+            .getEpToEpStatistic()
+            .size());
+    }
+
+    @Test
+    public void expireTest() {
+        ContractId contract = new ContractId("contract");
+        manager.writeStat(new StatRecordsBuilder()
+            .setEpToEpStatistic(Collections.singletonList(epToEpStatistic("00:00:00:00:00:01", contract, 10l)))
+            .build());
+        Assert.assertEquals(1, manager.queryStats(new QueryStatisticsInputBuilder().setContract(contract).build())
+            .getStatRecords()
+            .getEpToEpStatistic()
+            .size());
+
+        Assert.assertTrue(
+                manager.expire(System.currentTimeMillis() + StatisticsManagerImpl.DEFAULT_RETENTION_MILLIS + 1000));
+        Assert.assertTrue(manager.queryStats(new QueryStatisticsInputBuilder().setContract(contract).build())
+            .getStatRecords()
+            .getEpToEpStatistic()
+            .isEmpty());
+        Mockito.verify(wtx).delete(LogicalDatastoreType.OPERATIONAL,
+                IidFactory.statisticRecordIid(new StatisticRecordKey(new RecordId(0l))));
+    }
+
+    @Test
+    public void expireTestOutOfOrder() {
+        long now = System.currentTimeMillis();
+        ContractId contract = new ContractId("contract");
+        manager.writeStat(new StatRecordsBuilder()
+            .setEpToEpStatistic(Collections.singletonList(new EpToEpStatisticBuilder(
+                    epToEpStatistic("00:00:00:00:00:01", contract, 10l)).setTimestamp(BigInteger.valueOf(now))
+                .build()))
+            .build());
+        // written later, but older than the first record
+        manager.writeStat(new StatRecordsBuilder()
+            .setEpToEpStatistic(Collections.singletonList(new EpToEpStatisticBuilder(
+                    epToEpStatistic("00:00:00:00:00:02", contract, 10l)).setTimestamp(BigInteger.valueOf(now - 1000))
+                .build()))
+            .build());
+
+        Assert.assertTrue(manager.expire(now + StatisticsManagerImpl.DEFAULT_RETENTION_MILLIS - 500));
+        Mockito.verify(wtx).delete(LogicalDatastoreType.OPERATIONAL,
+                IidFactory.statisticRecordIid(new StatisticRecordKey(new RecordId(1l))));
+        Mockito.verify(wtx, Mockito.never()).delete(LogicalDatastoreType.OPERATIONAL,
+                IidFactory.statisticRecordIid(new StatisticRecordKey(new RecordId(0l))));
+    }
+
+    @Test
+    public void queryStatisticsTestMalformedCursor() throws Exception {
+        RpcResult<QueryStatisticsOutput> result =
+                manager.queryStatistics(new QueryStatisticsInputBuilder().setCursor("cursor").build()).get();
+        Assert.assertFalse(result.isSuccessful());
+    }
+
+    private static EpToEpStatistic epToEpStatistic(String srcMac, ContractId contract, long byteCount) {
+        L2BridgeDomainId l2C = new L2BridgeDomainId("l2C");
+        EndpointGroupId epg = new EndpointGroupId("epg");
+        MacAddress dstMac = new MacAddress("00:00:00:00:00:ff");
+        return new EpToEpStatisticBuilder().setSrcMacAddress(new MacAddress(srcMac))
+            .setDstMacAddress(dstMac)
+            .setSrcL2c(l2C)
+            .setDstL2c(l2C)
+            .setEpEpgToEpEpgStatistic(Collections.singletonList(new EpEpgToEpEpgStatisticBuilder().setSrcEpg(epg)
+                .setDstEpg(epg)
+                .setMatchedRuleStatistic(Collections.singletonList(new MatchedRuleStatisticBuilder()
+                    .setContract(contract)
+                    .setSubject(new SubjectName("subject"))
+                    .setMatchedRule(new RuleName("rule"))
+                    .setByteCount(byteCount)
+                    .setPacketCount(1l)
+                    .build()))
+                .build()))
+            .build();
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.statistics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
+
+public class StatisticSeriesTest {
+
+    private static final long MINUTE = 60000;
+    private static final long HOUR = 60 * MINUTE;
+
+    private StatisticSeries series;
+
+    @Before
+    public void init() {
+        StatisticSeriesKey key = new StatisticSeriesKey(new L2BridgeDomainId("l2c"),
+                new MacAddress("00:00:00:00:00:01"), new L2BridgeDomainId("l2c"), new MacAddress("00:00:00:00:00:02"),
+                new EndpointGroupId("srcEpg"), new EndpointGroupId("dstEpg"), new ContractId("contract"),
+                new SubjectName("subject"), new RuleName("rule"));
+        series = new StatisticSeries(key, 4, new long[] {MINUTE, HOUR}, HOUR);
+    }
+
+    @Test
+    public void sumTestRawSamples() {
+        series.add(1000, 10, 1, null, null, null, null);
+        series.add(2000, 20, 2, null, null, null, null);
+        series.add(3000, 40, 4, null, null, null, null);
+
+        StatisticSeries.Counters counters = series.sum(2000, 3000);
+        Assert.assertEquals(60, counters.getByteCount());
+        Assert.assertEquals(6, counters.getPacketCount());
+    }
+
+    @Test
+    public void sumTestRollupAfterRawSamplesOverwritten() {
+        for (int i = 0; i < 10; i++) {
+            series.add(i * 10000, 10, 1, null, null, null, null);
+        }
+        // raw samples cover only the last 4 samples, the minute rollup covers all of them
+        StatisticSeries.Counters counters = series.sum(0, Long.MAX_VALUE);
+        Assert.assertEquals(100, counters.getByteCount());
+        Assert.assertEquals(10, counters.getPacketCount());
+        counters = series.sum(MINUTE, Long.MAX_VALUE);
+        Assert.assertEquals(40, counters.getByteCount());
+        // the first minute bucket overlaps the interval and is summed whole
+        counters = series.sum(30000, Long.MAX_VALUE);
+        Assert.assertEquals(100, counters.getByteCount());
+    }
+
+    @Test
+    public void expireTest() {
+        series.add(1000, 10, 1, null, null, null, null);
+        series.add(2 * MINUTE, 20, 2, null, null, null, null);
+
+        Assert.assertFalse(series.expire(MINUTE));
+        Assert.assertEquals(20, series.sum(0, Long.MAX_VALUE).getByteCount());
+        Assert.assertTrue(series.expire(3 * MINUTE));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.gbp.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.dto.EpKey;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.UniqueId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.Mappings;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.FloatingIpAssociationMappings;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.GbpByNeutronMappings;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.floating.ip.association.mappings.InternalPortsByFloatingIpPorts;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.floating.ip.association.mappings.internal.ports.by.floating.ip.ports.InternalPortByFloatingIpPort;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.floating.ip.association.mappings.internal.ports.by.floating.ip.ports.InternalPortByFloatingIpPortKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.gbp.by.neutron.mappings.EndpointsByPorts;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.gbp.by.neutron.mappings.endpoints.by.ports.EndpointByPort;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.gbp.by.neutron.mappings.endpoints.by.ports.EndpointByPortKey;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+/**
+ * Index of floating IP associations. Resolves a port representing floating IP to the associated
+ * internal port with its IP address, to the L2 endpoint of the internal port and to the L3
+ * endpoint of the internal IP address without reading datastore.
+ * <p>
+ * Associations, endpoints of ports and L3 addresses of endpoints are maintained by data tree
+ * change listeners in OPERATIONAL datastore, so the index contains only committed data and
+ * callers have to read datastore when a value is missing. Ports representing floating IP by
+ * Neutron device ID are not stored in datastore; they are put to the index by neutron-mapper.
+ * <p>
+ * The index is not shared between bundles; neutron-mapper and neutron-ovsdb each create their
+ * own instance.
+ */
+public class FloatingIpAssociationIndex implements AutoCloseable {
+
+    private static final InstanceIdentifier<InternalPortByFloatingIpPort> ASSOCIATION_WILDCARD_IID =
+            InstanceIdentifier.builder(Mappings.class)
+                .child(FloatingIpAssociationMappings.class)
+                .child(InternalPortsByFloatingIpPorts.class)
+                .child(InternalPortByFloatingIpPort.class)
+                .build();
+    private static final InstanceIdentifier<EndpointByPort> ENDPOINT_BY_PORT_WILDCARD_IID =
+            InstanceIdentifier.builder(Mappings.class)
+                .child(GbpByNeutronMappings.class)
+                .child(EndpointsByPorts.class)
+                .child(EndpointByPort.class)
+                .build();
+    private static final InstanceIdentifier<Endpoint> ENDPOINT_WILDCARD_IID =
+            InstanceIdentifier.builder(Endpoints.class).child(Endpoint.class).build();
+    private static final InstanceIdentifier<EndpointL3> ENDPOINT_L3_WILDCARD_IID =
+            InstanceIdentifier.builder(Endpoints.class).child(EndpointL3.class).build();
+
+    private final ConcurrentMap<UniqueId, InternalPortByFloatingIpPort> associationByFloatingIpPort =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<UniqueId, EpKey> endpointByPort = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UniqueId> floatingIpPortByDeviceId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EpKey, List<L3Address>> l3AddressesByEndpoint = new ConcurrentHashMap<>();
+    private final Set<EndpointL3Key> l3Endpoints =
+            Collections.newSetFromMap(new ConcurrentHashMap<EndpointL3Key, Boolean>());
+    private final ListenerRegistration<?> associationRegistration;
+    private final ListenerRegistration<?> endpointByPortRegistration;
+    private final ListenerRegistration<?> endpointRegistration;
+    private final ListenerRegistration<?> endpointL3Registration;
+
+    public FloatingIpAssociationIndex(DataBroker dataProvider) {
+        associationRegistration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ASSOCIATION_WILDCARD_IID),
+                new DataTreeChangeListener<InternalPortByFloatingIpPort>() {
+
+                    @Override
+                    public void onDataTreeChanged(
+                            Collection<DataTreeModification<InternalPortByFloatingIpPort>> changes) {
+                        for (DataTreeModification<InternalPortByFloatingIpPort> change : changes) {
+                            UniqueId floatingIpPortId = change.getRootPath()
+                                .getRootIdentifier()
+                                .firstKeyOf(InternalPortByFloatingIpPort.class, InternalPortByFloatingIpPortKey.class)
+                                .getFloatingIpPortId();
+                            DataObjectModification<InternalPortByFloatingIpPort> association = change.getRootNode();
+                            if (association.getModificationType() == ModificationType.DELETE) {
+                                associationByFloatingIpPort.remove(floatingIpPortId);
+                            } else {
+                                associationByFloatingIpPort.put(floatingIpPortId, association.getDataAfter());
+                            }
+                        }
+                    }
+                });
+        endpointByPortRegistration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ENDPOINT_BY_PORT_WILDCARD_IID),
+                new DataTreeChangeListener<EndpointByPort>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<EndpointByPort>> changes) {
+                        for (DataTreeModification<EndpointByPort> change : changes) {
+                            UniqueId portId = change.getRootPath()
+                                .getRootIdentifier()
+                                .firstKeyOf(EndpointByPort.class, EndpointByPortKey.class)
+                                .getPortId();
+                            DataObjectModification<EndpointByPort> epByPort = change.getRootNode();
+                            if (epByPort.getModificationType() == ModificationType.DELETE) {
+                                endpointByPort.remove(portId);
+                            } else {
+                                EndpointByPort epByPortAfter = epByPort.getDataAfter();
+                                endpointByPort.put(portId,
+                                        new EpKey(epByPortAfter.getL2Context(), epByPortAfter.getMacAddress()));
+                            }
+                        }
+                    }
+                });
+        endpointRegistration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ENDPOINT_WILDCARD_IID),
+                new DataTreeChangeListener<Endpoint>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<Endpoint>> changes) {
+                        for (DataTreeModification<Endpoint> change : changes) {
+                            EndpointKey key = change.getRootPath()
+                                .getRootIdentifier()
+                                .firstKeyOf(Endpoint.class, EndpointKey.class);
+                            EpKey epKey = new EpKey(key.getL2Context(), key.getMacAddress());
+                            DataObjectModification<Endpoint> endpoint = change.getRootNode();
+                            List<L3Address> l3Addresses = endpoint.getModificationType() == ModificationType.DELETE
+                                    ? null : endpoint.getDataAfter().getL3Address();
+                            if (l3Addresses == null) {
+                                l3AddressesByEndpoint.remove(epKey);
+                            } else {
+                                l3AddressesByEndpoint.put(epKey, l3Addresses);
+                            }
+                        }
+                    }
+                });
+        endpointL3Registration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ENDPOINT_L3_WILDCARD_IID),
+                new DataTreeChangeListener<EndpointL3>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<EndpointL3>> changes) {
+                        for (DataTreeModification<EndpointL3> change : changes) {
+                            EndpointL3Key key = change.getRootPath()
+                                .getRootIdentifier()
+                                .firstKeyOf(EndpointL3.class, EndpointL3Key.class);
+                            if (change.getRootNode().getModificationType() == ModificationType.DELETE) {
+                                l3Endpoints.remove(key);
+                            } else {
+                                l3Endpoints.add(key);
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @return association of the port representing floating IP or {@code null} if the floating
+     *         IP is not associated or the association is not committed yet
+     */
+    public InternalPortByFloatingIpPort getAssociation(UniqueId floatingIpPortId) {
+        return associationByFloatingIpPort.get(floatingIpPortId);
+    }
+
+    /**
+     * @return key of L2 endpoint of the port or {@code null} if the endpoint is not known
+     */
+    public EpKey getEndpointByPort(UniqueId portId) {
+        return endpointByPort.get(portId);
+    }
+
+    /**
+     * @return key of L2 endpoint of the internal port associated with the port representing
+     *         floating IP or {@code null} if the association or the endpoint is not known
+     */
+    public EpKey getInternalEndpoint(UniqueId floatingIpPortId) {
+        InternalPortByFloatingIpPort association = associationByFloatingIpPort.get(floatingIpPortId);
+        if (association == null) {
+            return null;
+        }
+        return endpointByPort.get(association.getInternalPortId());
+    }
+
+    /**
+     * @return key of L3 endpoint of the IP address of the L2 endpoint or {@code null} if the L2
+     *         endpoint does not have the IP address or the L2 or L3 endpoint is not known
+     */
+    public EndpointL3Key getL3Endpoint(EpKey l2EpKey, IpAddress ipAddress) {
+        List<L3Address> l3Addresses = l3AddressesByEndpoint.get(l2EpKey);
+        if (l3Addresses == null) {
+            return null;
+        }
+        for (L3Address l3Address : l3Addresses) {
+            if (ipAddress.equals(l3Address.getIpAddress())) {
+                EndpointL3Key l3EpKey = new EndpointL3Key(l3Address.getIpAddress(), l3Address.getL3Context());
+                return l3Endpoints.contains(l3EpKey) ? l3EpKey : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Floating IP UUID is same as device ID of the port representing floating IP.
+     *
+     * @return ID of the port representing floating IP or {@code null} if the port does not exist
+     */
+    public UniqueId getFloatingIpPortIdByDeviceId(String deviceId) {
+        return floatingIpPortByDeviceId.get(deviceId);
+    }
+
+    public void floatingIpPortCreated(String deviceId, UniqueId floatingIpPortId) {
+        floatingIpPortByDeviceId.put(deviceId, floatingIpPortId);
+    }
+
+    public void floatingIpPortDeleted(String deviceId) {
+        floatingIpPortByDeviceId.remove(deviceId);
+    }
+
+    @Override
+    public void close() throws Exception {
+        associationRegistration.close();
+        endpointByPortRegistration.close();
+        endpointRegistration.close();
+        endpointL3Registration.close();
+        associationByFloatingIpPort.clear();
+        endpointByPort.clear();
+        floatingIpPortByDeviceId.clear();
+        l3AddressesByEndpoint.clear();
+        l3Endpoints.clear();
+    }
+}
@@ -15,15 +15,19 @@ import java.util.List;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.groupbasedpolicy.neutron.gbp.util.FloatingIpAssociationIndex;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronFloatingIpAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronNetworkAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronPortAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronRouterAware;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronStateImporter;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.NeutronSubnetAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.NeutronSecurityGroupAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.SecGroupDao;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule.NeutronSecurityRuleAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule.SecRuleDao;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.NeutronCallbackQueue;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.TenantCache;
 import org.opendaylight.neutron.spi.INeutronFloatingIPAware;
 import org.opendaylight.neutron.spi.INeutronNetworkAware;
 import org.opendaylight.neutron.spi.INeutronPortAware;
@@ -35,53 +39,89 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 public class NeutronMapper implements AutoCloseable {
 
     private final List<ServiceRegistration<?>> registrations = new ArrayList<ServiceRegistration<?>>();
+    private final TenantCache tenantCache;
+    private final FloatingIpAssociationIndex floatingIpIndex;
 
     public NeutronMapper(DataBroker dataProvider, RpcProviderRegistry rpcProvider, BundleContext context) {
         checkNotNull(dataProvider);
         checkNotNull(rpcProvider);
         checkNotNull(context);
         EndpointService epService = rpcProvider.getRpcService(EndpointService.class);
+        tenantCache = new TenantCache(dataProvider);
+        floatingIpIndex = new FloatingIpAssociationIndex(dataProvider);
         registerAwareProviders(dataProvider, epService, context);
     }
 
+    /**
+     * Neutron entities which exist already, e.g. created while the mapper was not running, are not
+     * announced to aware services, so they are imported. Aware services are registered before the
+     * import starts, so no Neutron change is lost. Notifications from Neutron are queued until the
+     * import finishes, so they never run concurrently with the import and never see the Neutron
+     * state imported just partially.
+     */
     private void registerAwareProviders(DataBroker dataProvider, EndpointService epService, BundleContext context) {
+        NeutronNetworkAware networkAware = new NeutronNetworkAware(dataProvider);
+        NeutronSubnetAware subnetAware = new NeutronSubnetAware(dataProvider);
+        SecGroupDao secGroupDao = new SecGroupDao();
+        SecRuleDao secRuleDao = new SecRuleDao();
+        NeutronSecurityRuleAware securityRuleAware = new NeutronSecurityRuleAware(dataProvider, secRuleDao, secGroupDao);
+        NeutronSecurityGroupAware securityGroupAware = new NeutronSecurityGroupAware(dataProvider, securityRuleAware, secGroupDao,
+                tenantCache);
+        NeutronPortAware portAware =
+                new NeutronPortAware(dataProvider, epService, securityRuleAware, securityGroupAware, tenantCache,
+                        floatingIpIndex);
+        NeutronRouterAware routerAware = new NeutronRouterAware(dataProvider, epService, securityRuleAware);
+        NeutronFloatingIpAware floatingIpAware = new NeutronFloatingIpAware(dataProvider, epService, floatingIpIndex);
+        final NeutronCallbackQueue callbackQueue = new NeutronCallbackQueue();
+
         ServiceRegistration<INeutronNetworkAware> neutronNetworkAwareRegistration =
-                context.registerService(INeutronNetworkAware.class, new NeutronNetworkAware(dataProvider), null);
+                context.registerService(INeutronNetworkAware.class,
+                        callbackQueue.wrap(INeutronNetworkAware.class, networkAware), null);
         registrations.add(neutronNetworkAwareRegistration);
 
         ServiceRegistration<INeutronSubnetAware> neutronSubnetAwareRegistration =
-                context.registerService(INeutronSubnetAware.class, new NeutronSubnetAware(dataProvider), null);
+                context.registerService(INeutronSubnetAware.class,
+                        callbackQueue.wrap(INeutronSubnetAware.class, subnetAware), null);
         registrations.add(neutronSubnetAwareRegistration);
 
-        SecGroupDao secGroupDao = new SecGroupDao();
-        SecRuleDao secRuleDao = new SecRuleDao();
-        NeutronSecurityRuleAware securityRuleAware = new NeutronSecurityRuleAware(dataProvider, secRuleDao, secGroupDao);
         ServiceRegistration<INeutronSecurityRuleAware> neutronSecurityRuleAwareRegistration =
-                context.registerService(INeutronSecurityRuleAware.class, securityRuleAware, null);
+                context.registerService(INeutronSecurityRuleAware.class,
+                        callbackQueue.wrap(INeutronSecurityRuleAware.class, securityRuleAware), null);
         registrations.add(neutronSecurityRuleAwareRegistration);
 
-        NeutronSecurityGroupAware securityGroupAware = new NeutronSecurityGroupAware(dataProvider, securityRuleAware, secGroupDao);
         ServiceRegistration<INeutronSecurityGroupAware> neutronSecurityGroupAwareRegistration =
-                context.registerService(INeutronSecurityGroupAware.class, securityGroupAware, null);
+                context.registerService(INeutronSecurityGroupAware.class,
+                        callbackQueue.wrap(INeutronSecurityGroupAware.class, securityGroupAware), null);
         registrations.add(neutronSecurityGroupAwareRegistration);
 
-        NeutronPortAware portAware =
-                new NeutronPortAware(dataProvider, epService, securityRuleAware, securityGroupAware);
         ServiceRegistration<INeutronPortAware> neutronPortAwareRegistration =
-                context.registerService(INeutronPortAware.class, portAware, null);
+                context.registerService(INeutronPortAware.class,
+                        callbackQueue.wrap(INeutronPortAware.class, portAware), null);
         registrations.add(neutronPortAwareRegistration);
 
-        NeutronRouterAware routerAware = new NeutronRouterAware(dataProvider, epService, securityRuleAware);
         ServiceRegistration<INeutronRouterAware> neutronRouterAwareRegistration =
-                context.registerService(INeutronRouterAware.class, routerAware, null);
+                context.registerService(INeutronRouterAware.class,
+                        callbackQueue.wrap(INeutronRouterAware.class, routerAware), null);
         registrations.add(neutronRouterAwareRegistration);
 
-        ServiceRegistration<INeutronFloatingIPAware> neutronFloatingIpAwareRegistration = context
-            .registerService(INeutronFloatingIPAware.class, new NeutronFloatingIpAware(dataProvider, epService), null);
+        ServiceRegistration<INeutronFloatingIPAware> neutronFloatingIpAwareRegistration =
+                context.registerService(INeutronFloatingIPAware.class,
+                        callbackQueue.wrap(INeutronFloatingIPAware.class, floatingIpAware), null);
         registrations.add(neutronFloatingIpAwareRegistration);
+
+        new NeutronStateImporter(dataProvider, networkAware, subnetAware, securityGroupAware, routerAware, portAware,
+                NeutronStateImporter.DEFAULT_BATCH_SIZE).importNeutronState().addListener(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        callbackQueue.open();
+                    }
+                }, MoreExecutors.sameThreadExecutor());
     }
 
     /**
@@ -92,6 +132,8 @@ public class NeutronMapper implements AutoCloseable {
         for (ServiceRegistration<?> registration : registrations) {
             registration.unregister();
         }
+        tenantCache.close();
+        floatingIpIndex.close();
     }
 
 }
@@ -10,9 +10,12 @@ package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.ExecutionException;
+
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.gbp.util.FloatingIpAssociationIndex;
 import org.opendaylight.groupbasedpolicy.neutron.gbp.util.NeutronGbpIidFactory;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.Utils;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
@@ -36,10 +39,13 @@ public class NeutronFloatingIpAware implements INeutronFloatingIPAware {
     public static final Logger LOG = LoggerFactory.getLogger(NeutronFloatingIpAware.class);
     private final DataBroker dataProvider;
     private final EndpointService epService;
+    private final FloatingIpAssociationIndex floatingIpIndex;
 
-    public NeutronFloatingIpAware(DataBroker dataProvider, EndpointService epService) {
+    public NeutronFloatingIpAware(DataBroker dataProvider, EndpointService epService,
+            FloatingIpAssociationIndex floatingIpIndex) {
         this.dataProvider = checkNotNull(dataProvider);
         this.epService = checkNotNull(epService);
+        this.floatingIpIndex = checkNotNull(floatingIpIndex);
     }
 
     @Override
@@ -57,7 +63,7 @@ public class NeutronFloatingIpAware implements INeutronFloatingIPAware {
     public int canUpdateFloatingIP(NeutronFloatingIP delta, NeutronFloatingIP original) {
         LOG.trace("canUpdateFloatingIP - delta: {} original: {}", delta, original);
         // floating IP UUID is same as device ID of a port representing floating IP
-        UniqueId floatingIpPortId = NeutronPortAware.getFloatingIpPortIdByDeviceId(original.getFloatingIPUUID());
+        UniqueId floatingIpPortId = floatingIpIndex.getFloatingIpPortIdByDeviceId(original.getFloatingIPUUID());
         if (floatingIpPortId == null) {
             LOG.warn("Illegal state - Port representing floating ip where floating IP uuid is {} does not exist.",
                     original.getFloatingIPUUID());
@@ -76,10 +82,18 @@ public class NeutronFloatingIpAware implements INeutronFloatingIPAware {
 
         if ((!oldFixedIPAddress.isEmpty() && newFixedIPAddress.isEmpty())
                 || (!oldPortUUID.isEmpty() && newPortUUID.isEmpty())) {
-            DataStoreHelper.removeIfExists(LogicalDatastoreType.OPERATIONAL,
-                    NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId), rwTx);
-            DataStoreHelper.removeIfExists(LogicalDatastoreType.OPERATIONAL,
-                    NeutronGbpIidFactory.floatingIpPortByInternalPortIid(new UniqueId(oldPortUUID)), rwTx);
+            if (floatingIpIndex.getAssociation(floatingIpPortId) != null) {
+                // committed association does not need to be read before it is deleted
+                rwTx.delete(LogicalDatastoreType.OPERATIONAL,
+                        NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId));
+                rwTx.delete(LogicalDatastoreType.OPERATIONAL,
+                        NeutronGbpIidFactory.floatingIpPortByInternalPortIid(new UniqueId(oldPortUUID)));
+            } else {
+                DataStoreHelper.removeIfExists(LogicalDatastoreType.OPERATIONAL,
+                        NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId), rwTx);
+                DataStoreHelper.removeIfExists(LogicalDatastoreType.OPERATIONAL,
+                        NeutronGbpIidFactory.floatingIpPortByInternalPortIid(new UniqueId(oldPortUUID)), rwTx);
+            }
             // TODO unregister EP representing floating ip port
         } else if (!newFixedIPAddress.isEmpty() && !newPortUUID.isEmpty()) {
             // workaround for https://bugs.opendaylight.org/show_bug.cgi?id=3368
@@ -120,7 +134,13 @@ public class NeutronFloatingIpAware implements INeutronFloatingIPAware {
         NeutronPort floatingIpPort = portInterface.getPort(floatingIpPortUUID);
         // TenantId tenantId = new TenantId(Utils.normalizeUuid());
         floatingIpPort.setTenantID(tenantUUID);
-        boolean isNeutronPortCreated = NeutronPortAware.addNeutronPort(floatingIpPort, rwTx, epService);
+        // status of the update has to be known before the Neutron callback returns
+        boolean isNeutronPortCreated = false;
+        try {
+            isNeutronPortCreated = NeutronPortAware.addNeutronPort(floatingIpPort, rwTx, epService).get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOG.error("registerFloatingIpPort failed. {}", floatingIpPort, e);
+        }
         if (!isNeutronPortCreated) {
             rwTx.cancel();
             return StatusCode.INTERNAL_SERVER_ERROR;
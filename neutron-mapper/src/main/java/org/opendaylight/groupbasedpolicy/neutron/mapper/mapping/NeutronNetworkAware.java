@@ -78,6 +78,15 @@ public class NeutronNetworkAware implements INeutronNetworkAware {
     public void neutronNetworkCreated(NeutronNetwork network) {
         LOG.trace("neutronNetworkCreated - {}", network);
         ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+        addNeutronNetwork(network, rwTx);
+        DataStoreHelper.submitToDs(rwTx);
+    }
+
+    /**
+     * @param rwTx GBP entities are stored to this transaction. This method NEVER submits or cancel
+     *        the transaction.
+     */
+    public void addNeutronNetwork(NeutronNetwork network, ReadWriteTransaction rwTx) {
         L2FloodDomainId l2FdId = new L2FloodDomainId(network.getID());
         TenantId tenantId = new TenantId(Utils.normalizeUuid(network.getTenantID()));
         Name name = null;
@@ -127,7 +136,6 @@ public class NeutronNetworkAware implements INeutronNetworkAware {
             addEpgExternalIfMissing(tenantId, rwTx);
             addExternalNetworkIfMissing(l2Fd.getId(), rwTx);
         }
-        DataStoreHelper.submitToDs(rwTx);
     }
 
     private void addExternalNetworkIfMissing(L2FloodDomainId l2FdId, ReadWriteTransaction rwTx) {
@@ -11,10 +11,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
@@ -22,6 +20,7 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.gbp.util.FloatingIpAssociationIndex;
 import org.opendaylight.groupbasedpolicy.neutron.gbp.util.NeutronGbpIidFactory;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.infrastructure.NetworkClient;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.infrastructure.NetworkService;
@@ -30,6 +29,7 @@ import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.NeutronSec
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule.NeutronSecurityRuleAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils.ForwardingCtx;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.TenantCache;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.Utils;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
@@ -79,7 +79,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gb
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.neutron.by.gbp.mappings.ports.by.endpoints.PortByEndpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.neutron.by.gbp.mappings.router._interface.ports.by.endpoints.RouterInterfacePortByEndpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.neutron.by.gbp.mappings.router.gateway.ports.by.endpoints.RouterGatewayPortByEndpoint;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.EndpointGroup;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextInputBuilder;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
@@ -92,6 +91,8 @@ import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class NeutronPortAware implements INeutronPortAware {
 
@@ -104,13 +105,18 @@ public class NeutronPortAware implements INeutronPortAware {
     private final EndpointService epService;
     private final NeutronSecurityRuleAware secRuleAware;
     private final NeutronSecurityGroupAware secGrpAware;
-    private final static Map<String, UniqueId> floatingIpPortByDeviceId = new HashMap<>();
+    private final TenantCache tenantCache;
+    private final FloatingIpAssociationIndex floatingIpIndex;
 
-    public NeutronPortAware(DataBroker dataProvider, EndpointService epService, NeutronSecurityRuleAware secRuleAware, NeutronSecurityGroupAware secGrpAware) {
+    public NeutronPortAware(DataBroker dataProvider, EndpointService epService, NeutronSecurityRuleAware secRuleAware,
+            NeutronSecurityGroupAware secGrpAware, TenantCache tenantCache,
+            FloatingIpAssociationIndex floatingIpIndex) {
         this.dataProvider = checkNotNull(dataProvider);
         this.epService = checkNotNull(epService);
         this.secRuleAware = checkNotNull(secRuleAware);
         this.secGrpAware = secGrpAware;
+        this.tenantCache = checkNotNull(tenantCache);
+        this.floatingIpIndex = checkNotNull(floatingIpIndex);
     }
 
     /**
@@ -146,18 +152,33 @@ public class NeutronPortAware implements INeutronPortAware {
         }
         if (isFloatingIpPort(port)) {
             LOG.trace("Port is floating ip - {} device id - {}", port.getID(), port.getDeviceID());
-            floatingIpPortByDeviceId.put(port.getDeviceID(), new UniqueId(port.getID()));
+            floatingIpIndex.floatingIpPortCreated(port.getDeviceID(), new UniqueId(port.getID()));
             return;
         }
         ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+        ListenableFuture<Boolean> isNeutronPortCreated = createNeutronPort(port, rwTx);
+        PortEndpointPipeline.submitWhenSuccessful(isNeutronPortCreated, rwTx);
+    }
+
+    /**
+     * Writes security groups of the port and Neutron-GBP mapping of the port to the transaction
+     * and registers endpoint representing the port. The port has to be a port with endpoint.
+     *
+     * @param rwTx GBP entities are stored to this transaction. This method NEVER submits or cancel
+     *        the transaction.
+     * @return {@code true} if the endpoint was registered; {@code false} if illegal state occurred -
+     *         the transaction may contain just partial result
+     * @see #isPortWithEndpoint(NeutronPort)
+     * @see PortEndpointPipeline
+     */
+    public ListenableFuture<Boolean> createNeutronPort(NeutronPort port, ReadWriteTransaction rwTx) {
         TenantId tenantId = new TenantId(Utils.normalizeUuid(port.getTenantID()));
         if (isDhcpPort(port)) {
             LOG.trace("Port is DHCP port. - {}", port.getID());
             Neutron_IPs firstIp = MappingUtils.getFirstIp(port.getFixedIPs());
             if (firstIp == null) {
                 LOG.warn("Illegal state - DHCP port does not have an IP address.");
-                rwTx.cancel();
-                return;
+                return Futures.immediateFuture(false);
             }
         } else {
             // this is here b/c stable/kilo sends sec-groups only with port
@@ -165,57 +186,59 @@ public class NeutronPortAware implements INeutronPortAware {
             if (secGroups != null) {
                 for (NeutronSecurityGroup secGroup : secGroups) {
                     EndpointGroupId epgId = new EndpointGroupId(secGroup.getSecurityGroupUUID());
-                    Optional<EndpointGroup> potentialEpg = DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
-                            IidFactory.endpointGroupIid(tenantId, epgId), rwTx);
-                    if (!potentialEpg.isPresent()) {
+                    // EPG can be created by this transaction already, it is not in the cache then
+                    boolean isEpgPresent = tenantCache.isEndpointGroupPresent(tenantId, epgId)
+                            || DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
+                                    IidFactory.endpointGroupIid(tenantId, epgId), rwTx).isPresent();
+                    if (!isEpgPresent) {
                         boolean isSecGroupCreated = secGrpAware.addNeutronSecurityGroup(secGroup, rwTx);
                         if (!isSecGroupCreated) {
-                            rwTx.cancel();
-                            return;
+                            return Futures.immediateFuture(false);
                         }
                     } else {
                         List<NeutronSecurityRule> secRules = secGroup.getSecurityRules();
                         if (secRules != null) {
                             for (NeutronSecurityRule secRule : secRules) {
-                                secRuleAware.addNeutronSecurityRule(secRule, rwTx);
+                                secRuleAware.addNeutronSecurityRuleIfNotMaterialized(secRule, rwTx);
                             }
                         }
                     }
                 }
             }
         }
-        boolean isNeutronPortCreated = addNeutronPort(port, rwTx, epService);
-        if (!isNeutronPortCreated) {
-            rwTx.cancel();
-            return;
-        }
-
-        DataStoreHelper.submitToDs(rwTx);
+        L2FloodDomainId l2FdId = new L2FloodDomainId(port.getNetworkUUID());
+        ForwardingCtx fwCtx = tenantCache.getForwardingCtx(tenantId, l2FdId);
+        return addNeutronPort(port, fwCtx, rwTx, epService);
     }
 
-    public static boolean addNeutronPort(NeutronPort port, ReadWriteTransaction rwTx, EndpointService epService) {
+    /**
+     * Writes Neutron-GBP mapping of the port to the transaction and registers endpoint
+     * representing the port. Registration is asynchronous, the transaction should be
+     * submitted only if the registration was successful. Forwarding context is read from
+     * the transaction, so it can be modified by the transaction already.
+     *
+     * @return {@code true} if the endpoint was registered
+     * @see PortEndpointPipeline
+     */
+    public static ListenableFuture<Boolean> addNeutronPort(NeutronPort port, ReadWriteTransaction rwTx,
+            EndpointService epService) {
         TenantId tenantId = new TenantId(Utils.normalizeUuid(port.getTenantID()));
         L2FloodDomainId l2FdId = new L2FloodDomainId(port.getNetworkUUID());
         ForwardingCtx fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rwTx);
+        return addNeutronPort(port, fwCtx, rwTx, epService);
+    }
+
+    private static ListenableFuture<Boolean> addNeutronPort(NeutronPort port, ForwardingCtx fwCtx,
+            ReadWriteTransaction rwTx, EndpointService epService) {
         boolean isFwCtxValid = validateForwardingCtx(fwCtx);
         if (!isFwCtxValid) {
-            return false;
+            return Futures.immediateFuture(false);
         }
         EndpointKey epKey = new EndpointKey(fwCtx.getL2BridgeDomain().getId(), new MacAddress(port.getMacAddress()));
         addNeutronGbpMapping(port, epKey, rwTx);
 
-        try {
-            RegisterEndpointInput registerEpRpcInput = createRegisterEndpointInput(port, fwCtx);
-            RpcResult<Void> rpcResult = epService.registerEndpoint(registerEpRpcInput).get();
-            if (!rpcResult.isSuccessful()) {
-                LOG.warn("Illegal state - RPC registerEndpoint failed. Input of RPC: {}", registerEpRpcInput);
-                return false;
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            LOG.error("addNeutronPort failed. {}", port, e);
-            return false;
-        }
-        return true;
+        RegisterEndpointInput registerEpRpcInput = createRegisterEndpointInput(port, fwCtx);
+        return PortEndpointPipeline.registerEndpoint(port.getID(), registerEpRpcInput, epService);
     }
 
     public static boolean addL3EndpointForExternalGateway(TenantId tenantId, L3ContextId l3ContextId,
@@ -365,17 +388,16 @@ public class NeutronPortAware implements INeutronPortAware {
             return;
         }
 
-        ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction();
         TenantId tenantId = new TenantId(Utils.normalizeUuid(port.getTenantID()));
         MacAddress macAddress = new MacAddress(port.getMacAddress());
         L2FloodDomainId l2FdId = new L2FloodDomainId(port.getNetworkUUID());
-        ForwardingCtx fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rTx);
+        ForwardingCtx fwCtx = tenantCache.getForwardingCtx(tenantId, l2FdId);
         boolean isFwCtxValid = validateForwardingCtx(fwCtx);
         if (!isFwCtxValid) {
-            rTx.close();
             return;
         }
 
+        ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction();
         Optional<Endpoint> potentionalEp = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
                 IidFactory.endpointIid(fwCtx.getL2BridgeDomain().getId(), macAddress), rTx);
         if (!potentionalEp.isPresent()) {
@@ -389,24 +411,7 @@ public class NeutronPortAware implements INeutronPortAware {
         if (isEpIpDifferentThanPortFixedIp(ep, port) || isEpgDifferentThanSecGrp(ep, port)) {
             UnregisterEndpointInput unregisterEpRpcInput = createUnregisterEndpointInput(ep);
             RegisterEndpointInput registerEpRpcInput = createRegisterEndpointInput(port, fwCtx);
-            try {
-                RpcResult<Void> rpcResult = epService.unregisterEndpoint(unregisterEpRpcInput).get();
-                if (!rpcResult.isSuccessful()) {
-                    LOG.warn("Illegal state - RPC unregisterEndpoint failed. Input of RPC: {}", unregisterEpRpcInput);
-                    rTx.close();
-                    return;
-                }
-                rpcResult = epService.registerEndpoint(registerEpRpcInput).get();
-                if (!rpcResult.isSuccessful()) {
-                    LOG.warn("Illegal state - RPC registerEndpoint failed. Input of RPC: {}", registerEpRpcInput);
-                    rTx.close();
-                    return;
-                }
-            } catch (InterruptedException | ExecutionException e) {
-                LOG.error("addPort - RPC invocation failed.", e);
-                rTx.close();
-                return;
-            }
+            PortEndpointPipeline.reregisterEndpoint(port.getID(), unregisterEpRpcInput, registerEpRpcInput, epService);
         }
         rTx.close();
     }
@@ -481,33 +486,24 @@ public class NeutronPortAware implements INeutronPortAware {
         }
         if (isFloatingIpPort(port)) {
             LOG.trace("Port is floating ip - {} device id - {}", port.getID(), port.getDeviceID());
-            floatingIpPortByDeviceId.remove(port.getDeviceID());
+            floatingIpIndex.floatingIpPortDeleted(port.getDeviceID());
         }
-        ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
         TenantId tenantId = new TenantId(Utils.normalizeUuid(port.getTenantID()));
         L2FloodDomainId l2FdId = new L2FloodDomainId(port.getNetworkUUID());
-        ForwardingCtx fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rwTx);
+        ForwardingCtx fwCtx = tenantCache.getForwardingCtx(tenantId, l2FdId);
         boolean isFwCtxValid = validateForwardingCtx(fwCtx);
         if (!isFwCtxValid) {
-            rwTx.cancel();
             return;
         }
 
+        ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+
         UnregisterEndpointInput unregisterEpRpcInput = createUnregisterEndpointInput(port, fwCtx);
-        boolean isEndpointUnregistered = false;
-        try {
-            isEndpointUnregistered = epService.unregisterEndpoint(unregisterEpRpcInput).get().isSuccessful();
-        } catch (InterruptedException | ExecutionException e) {
-            LOG.error("unregisterEndpoint - RPC invocation failed.", e);
-        }
-        if (isEndpointUnregistered) {
-            EndpointKey epKey = new EndpointKey(fwCtx.getL2BridgeDomain().getId(), new MacAddress(port.getMacAddress()));
-            deleteNeutronGbpMapping(port, epKey, rwTx);
-            DataStoreHelper.submitToDs(rwTx);
-        } else {
-            LOG.warn("Illegal state - RPC unregisterEndpoint failed. Input of RPC: {}", unregisterEpRpcInput);
-            rwTx.cancel();
-        }
+        EndpointKey epKey = new EndpointKey(fwCtx.getL2BridgeDomain().getId(), new MacAddress(port.getMacAddress()));
+        deleteNeutronGbpMapping(port, epKey, rwTx);
+        ListenableFuture<Boolean> isEndpointUnregistered = PortEndpointPipeline.unregisterEndpoint(port.getID(),
+                unregisterEpRpcInput, epService);
+        PortEndpointPipeline.submitWhenSuccessful(isEndpointUnregistered, rwTx);
     }
 
     private static void deleteNeutronGbpMapping(NeutronPort port, EndpointKey epKey, ReadWriteTransaction rwTx) {
@@ -624,6 +620,14 @@ public class NeutronPortAware implements INeutronPortAware {
         return new Name("tap" + port.getID().substring(0, 11));
     }
 
+    /**
+     * @return {@code false} if the port is router interface, router gateway or floating IP port -
+     *         endpoint of such port is not registered when the port is created
+     */
+    static boolean isPortWithEndpoint(NeutronPort port) {
+        return !isRouterInterfacePort(port) && !isRouterGatewayPort(port) && !isFloatingIpPort(port);
+    }
+
     private static boolean isDhcpPort(NeutronPort port) {
         return DEVICE_OWNER_DHCP.equals(port.getDeviceOwner());
     }
@@ -682,8 +686,4 @@ public class NeutronPortAware implements INeutronPortAware {
         return l3s;
     }
 
-    public static UniqueId getFloatingIpPortIdByDeviceId(String deviceId) {
-        return floatingIpPortByDeviceId.get(deviceId);
-    }
-
 }
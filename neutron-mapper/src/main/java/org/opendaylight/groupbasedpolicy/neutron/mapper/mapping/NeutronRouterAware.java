@@ -63,9 +63,13 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class NeutronRouterAware implements INeutronRouterAware {
 
@@ -165,6 +169,7 @@ public class NeutronRouterAware implements INeutronRouterAware {
                 }
             }
         }
+        List<ListenableFuture<Boolean>> subnetResults = new ArrayList<>();
         for (Neutron_IPs externalFixedIp : router.getExternalGatewayInfo().getExternalFixedIPs()) {
             NeutronPort routerPort = portInterface.getPort(router.getGatewayPortId());
             IpAddress ipAddress = Utils.createIpAddress(routerPort.getFixedIPs().get(0).getIpAddress());
@@ -183,14 +188,16 @@ public class NeutronRouterAware implements INeutronRouterAware {
                 routerPort.setTenantID(router.getTenantID());
             }
 
-            boolean isSuccessful = setNewL3ContextToEpsFromSubnet(tenantId, l3Context, subnet, rwTx);
-            if (!isSuccessful) {
+            ListenableFuture<Boolean> isSuccessful = setNewL3ContextToEpsFromSubnet(tenantId, l3Context, subnet,
+                    rwTx);
+            if (isSuccessful.isDone() && !Futures.getUnchecked(isSuccessful)) {
                 rwTx.cancel();
                 return;
             }
+            subnetResults.add(isSuccessful);
         }
 
-        DataStoreHelper.submitToDs(rwTx);
+        PortEndpointPipeline.submitWhenSuccessful(PortEndpointPipeline.allSuccessful(subnetResults), rwTx);
     }
 
     @Override
@@ -252,38 +259,67 @@ public class NeutronRouterAware implements INeutronRouterAware {
 
         ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
         TenantId tenantId = new TenantId(Utils.normalizeUuid(router.getTenantID()));
-        L3ContextId l3ContextIdFromRouterId = new L3ContextId(router.getID());
+        L3Context l3Context = getOrCreateL3ContextOfRouter(tenantId, router, rwTx);
+        NeutronPort routerPort = portInterface.getPort(routerInterface.getPortUUID());
+        Subnet subnet = writeSubnetWithVirtualRouterIp(tenantId, routerInterface, routerPort, rwTx);
+        if (subnet == null) {
+            rwTx.cancel();
+            return;
+        }
+
+        ListenableFuture<Boolean> isSuccessful = setNewL3ContextToEpsFromSubnet(tenantId, l3Context, subnet, rwTx);
+        PortEndpointPipeline.submitWhenSuccessful(isSuccessful, rwTx);
+    }
+
+    /**
+     * Writes L3 context of the router and moves the subnet of the router interface to the L3
+     * context. Endpoints of ports in the subnet are NOT registered again, so this can be used only
+     * before the ports are mapped.
+     *
+     * @param routerPort port representing the router interface
+     * @param rwTx GBP entities are stored to this transaction. This method NEVER submits or cancel
+     *        the transaction.
+     * @return {@code false} if illegal state occurred; {@code true} otherwise
+     * @see #neutronRouterInterfaceAttached(NeutronRouter, NeutronRouter_Interface)
+     */
+    public boolean addNeutronRouterInterface(NeutronRouter router, NeutronRouter_Interface routerInterface,
+            NeutronPort routerPort, ReadWriteTransaction rwTx) {
+        TenantId tenantId = new TenantId(Utils.normalizeUuid(router.getTenantID()));
+        L3Context l3Context = getOrCreateL3ContextOfRouter(tenantId, router, rwTx);
+        Subnet subnet = writeSubnetWithVirtualRouterIp(tenantId, routerInterface, routerPort, rwTx);
+        if (subnet == null) {
+            return false;
+        }
+        return setNewL3ContextToSubnet(tenantId, l3Context, subnet, rwTx) != null;
+    }
+
+    private static L3Context getOrCreateL3ContextOfRouter(TenantId tenantId, NeutronRouter router,
+            ReadWriteTransaction rwTx) {
         InstanceIdentifier<L3Context> l3ContextIidForRouterId = IidFactory.l3ContextIid(tenantId,
-                l3ContextIdFromRouterId);
+                new L3ContextId(router.getID()));
         Optional<L3Context> potentialL3ContextForRouter = DataStoreHelper.readFromDs(
                 LogicalDatastoreType.CONFIGURATION, l3ContextIidForRouterId, rwTx);
-        L3Context l3Context = null;
         if (potentialL3ContextForRouter.isPresent()) {
-            l3Context = potentialL3ContextForRouter.get();
-        } else { // add L3 context if missing
-            l3Context = createL3ContextFromRouter(router);
-            rwTx.put(LogicalDatastoreType.CONFIGURATION, l3ContextIidForRouterId, l3Context);
+            return potentialL3ContextForRouter.get();
         }
+        // add L3 context if missing
+        L3Context l3Context = createL3ContextFromRouter(router);
+        rwTx.put(LogicalDatastoreType.CONFIGURATION, l3ContextIidForRouterId, l3Context);
+        return l3Context;
+    }
 
+    private @Nullable Subnet writeSubnetWithVirtualRouterIp(TenantId tenantId,
+            NeutronRouter_Interface routerInterface, NeutronPort routerPort, ReadWriteTransaction rwTx) {
         // Based on Neutron Northbound - Port representing router interface
         // contains exactly on fixed IP
-        NeutronPort routerPort = portInterface.getPort(routerInterface.getPortUUID());
         SubnetId subnetId = new SubnetId(routerInterface.getSubnetUUID());
         IpAddress ipAddress = Utils.createIpAddress(routerPort.getFixedIPs().get(0).getIpAddress());
         Subnet subnet = resolveSubnetWithVirtualRouterIp(tenantId, subnetId, ipAddress, rwTx);
         if (subnet == null) {
-            rwTx.cancel();
-            return;
+            return null;
         }
         rwTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.subnetIid(tenantId, subnet.getId()), subnet);
-
-        boolean isSuccessful = setNewL3ContextToEpsFromSubnet(tenantId, l3Context, subnet, rwTx);
-        if (!isSuccessful) {
-            rwTx.cancel();
-            return;
-        }
-
-        DataStoreHelper.submitToDs(rwTx);
+        return subnet;
     }
 
     private static @Nonnull L3Context createL3ContextFromRouter(NeutronRouter router) {
@@ -312,43 +348,36 @@ public class NeutronRouterAware implements INeutronRouterAware {
     }
 
     /**
+     * Endpoints of ports in the subnet are registered asynchronously, the transaction
+     * should be submitted only if the result is {@code true}.
+     *
      * @return {@code false} if illegal state occurred; {@code true} otherwise
      */
-    public boolean setNewL3ContextToEpsFromSubnet(TenantId tenantId, L3Context l3Context, Subnet subnet,
-            ReadWriteTransaction rwTx) {
-        if (subnet.getParent() == null) {
-            LOG.warn("Illegal state - subnet {} does not have a parent.", subnet.getId().getValue());
-            return false;
-        }
-
-        L2FloodDomainId l2FdId = new L2FloodDomainId(subnet.getParent().getValue());
-        ForwardingCtx fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rwTx);
-        if (fwCtx.getL2BridgeDomain() == null) {
-            LOG.warn("Illegal state - l2-flood-domain {} does not have a parent.", l2FdId.getValue());
-            return false;
+    public ListenableFuture<Boolean> setNewL3ContextToEpsFromSubnet(TenantId tenantId, L3Context l3Context,
+            Subnet subnet, ReadWriteTransaction rwTx) {
+        ForwardingCtx fwCtx = setNewL3ContextToSubnet(tenantId, l3Context, subnet, rwTx);
+        if (fwCtx == null) {
+            return Futures.immediateFuture(false);
         }
 
-        L2BridgeDomain l2BridgeDomain = new L2BridgeDomainBuilder(fwCtx.getL2BridgeDomain()).setParent(
-                l3Context.getId()).build();
-        rwTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2BridgeDomainIid(tenantId, l2BridgeDomain.getId()),
-                l2BridgeDomain);
-
         NeutronCRUDInterfaces neutronCRUDInterface = new NeutronCRUDInterfaces().fetchINeutronSubnetCRUD(this);
         INeutronSubnetCRUD subnetInterface = neutronCRUDInterface.getSubnetInterface();
         if (subnetInterface == null) {
             LOG.warn("Illegal state - No provider for {}", INeutronSubnetCRUD.class.getName());
-            return false;
+            return Futures.immediateFuture(false);
         }
 
-        List<L3> l3Eps = new ArrayList<>();
+        final List<L3> l3Eps = new ArrayList<>();
+        List<ListenableFuture<Boolean>> portResults = new ArrayList<>();
         L3ContextId oldL3ContextId = fwCtx.getL3Context().getId();
         NeutronSubnet neutronSubnet = subnetInterface.getSubnet(subnet.getId().getValue());
         List<NeutronPort> portsInNeutronSubnet = neutronSubnet.getPortsInSubnet();
         for (NeutronPort port : portsInNeutronSubnet) {
-            boolean isPortAdded = NeutronPortAware.addNeutronPort(port, rwTx, epService);
-            if (!isPortAdded) {
-                return false;
+            ListenableFuture<Boolean> isPortAdded = NeutronPortAware.addNeutronPort(port, rwTx, epService);
+            if (isPortAdded.isDone() && !Futures.getUnchecked(isPortAdded)) {
+                return isPortAdded;
             }
+            portResults.add(isPortAdded);
             // TODO Li msunal this has to be rewrite when OFOverlay renderer
             // will support l3-endpoints.
             Neutron_IPs firstIp = MappingUtils.getFirstIp(port.getFixedIPs());
@@ -364,10 +393,44 @@ public class NeutronRouterAware implements INeutronRouterAware {
                     .build());
         }
 
-        if (!l3Eps.isEmpty()) {
-            epService.unregisterEndpoint(new UnregisterEndpointInputBuilder().setL3(l3Eps).build());
+        // old L3 endpoints are unregistered after the endpoints were registered in the new L3 context
+        return Futures.transform(PortEndpointPipeline.allSuccessful(portResults), new Function<Boolean, Boolean>() {
+
+            @Override
+            public Boolean apply(Boolean arePortsAdded) {
+                if (arePortsAdded && !l3Eps.isEmpty()) {
+                    epService.unregisterEndpoint(new UnregisterEndpointInputBuilder().setL3(l3Eps).build());
+                }
+                return arePortsAdded;
+            }
+        });
+    }
+
+    /**
+     * Sets the L3 context as a parent of L2 bridge domain of the subnet.
+     *
+     * @return forwarding context of the subnet before the change; {@code null} if illegal state
+     *         occurred
+     */
+    private static @Nullable ForwardingCtx setNewL3ContextToSubnet(TenantId tenantId, L3Context l3Context,
+            Subnet subnet, ReadWriteTransaction rwTx) {
+        if (subnet.getParent() == null) {
+            LOG.warn("Illegal state - subnet {} does not have a parent.", subnet.getId().getValue());
+            return null;
+        }
+
+        L2FloodDomainId l2FdId = new L2FloodDomainId(subnet.getParent().getValue());
+        ForwardingCtx fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rwTx);
+        if (fwCtx.getL2BridgeDomain() == null) {
+            LOG.warn("Illegal state - l2-flood-domain {} does not have a parent.", l2FdId.getValue());
+            return null;
         }
-        return true;
+
+        L2BridgeDomain l2BridgeDomain = new L2BridgeDomainBuilder(fwCtx.getL2BridgeDomain()).setParent(
+                l3Context.getId()).build();
+        rwTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2BridgeDomainIid(tenantId, l2BridgeDomain.getId()),
+                l2BridgeDomain);
+        return fwCtx;
     }
 
     @Override
@@ -387,7 +450,7 @@ public class NeutronRouterAware implements INeutronRouterAware {
             return;
         }
 
-        ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+        final ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
         TenantId tenantId = new TenantId(Utils.normalizeUuid(router.getTenantID()));
         L3ContextId l3ContextId = new L3ContextId(router.getID());
         SubnetId subnetId = new SubnetId(routerInterface.getSubnetUUID());
@@ -429,13 +492,30 @@ public class NeutronRouterAware implements INeutronRouterAware {
 
         NeutronSubnet neutronSubnet = subnetInterface.getSubnet(subnetId.getValue());
         List<NeutronPort> portsInNeutronSubnet = neutronSubnet.getPortsInSubnet();
+        List<ListenableFuture<Boolean>> portResults = new ArrayList<>();
         for (NeutronPort port : portsInNeutronSubnet) {
-            boolean isPortAdded = NeutronPortAware.addNeutronPort(port, rwTx, epService);
-            if (!isPortAdded) {
+            ListenableFuture<Boolean> isPortAdded = NeutronPortAware.addNeutronPort(port, rwTx, epService);
+            if (isPortAdded.isDone() && !Futures.getUnchecked(isPortAdded)) {
                 rwTx.cancel();
                 return;
             }
+            portResults.add(isPortAdded);
         }
+        Futures.addCallback(PortEndpointPipeline.allSuccessful(portResults), new FutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean arePortsAdded) {
+                if (!arePortsAdded) {
+                    rwTx.cancel();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Endpoint RPC failed, transaction is cancelled.", t);
+                rwTx.cancel();
+            }
+        });
     }
 
 }
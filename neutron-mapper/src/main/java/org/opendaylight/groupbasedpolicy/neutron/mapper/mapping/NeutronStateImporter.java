@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.NeutronSecurityGroupAware;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.Utils;
+import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
+import org.opendaylight.neutron.spi.INeutronNetworkCRUD;
+import org.opendaylight.neutron.spi.INeutronPortCRUD;
+import org.opendaylight.neutron.spi.INeutronRouterCRUD;
+import org.opendaylight.neutron.spi.INeutronSecurityGroupCRUD;
+import org.opendaylight.neutron.spi.INeutronSubnetCRUD;
+import org.opendaylight.neutron.spi.NeutronCRUDInterfaces;
+import org.opendaylight.neutron.spi.NeutronNetwork;
+import org.opendaylight.neutron.spi.NeutronPort;
+import org.opendaylight.neutron.spi.NeutronRouter;
+import org.opendaylight.neutron.spi.NeutronRouter_Interface;
+import org.opendaylight.neutron.spi.NeutronSecurityGroup;
+import org.opendaylight.neutron.spi.NeutronSubnet;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2FloodDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.Tenants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.Tenant;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.ForwardingContext;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2FloodDomain;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Maps the whole Neutron state to GBP at once, e.g. after controller restart. Instead of one
+ * transaction per Neutron entity, entities are written in batches:
+ * <ol>
+ * <li>networks, subnets, router interfaces and security groups - each batch is committed before
+ * the next one is started, so later entities can read the former ones</li>
+ * <li>ports - a batch is committed when endpoints of all ports in the batch were registered;
+ * ports of a batch which failed are created again one by one</li>
+ * <li>routers with external gateway - one by one, when all batches of ports were committed or
+ * their ports were created one by one</li>
+ * </ol>
+ * Networks which are mapped already are skipped, because GBP forwarding context of a network is
+ * created with generated IDs.
+ */
+public class NeutronStateImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NeutronStateImporter.class);
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final DataBroker dataProvider;
+    private final NeutronNetworkAware networkAware;
+    private final NeutronSubnetAware subnetAware;
+    private final NeutronSecurityGroupAware secGroupAware;
+    private final NeutronRouterAware routerAware;
+    private final NeutronPortAware portAware;
+    private final int batchSize;
+
+    public NeutronStateImporter(DataBroker dataProvider, NeutronNetworkAware networkAware,
+            NeutronSubnetAware subnetAware, NeutronSecurityGroupAware secGroupAware, NeutronRouterAware routerAware,
+            NeutronPortAware portAware, int batchSize) {
+        checkArgument(batchSize > 0, "Batch size has to be positive: %s", batchSize);
+        this.dataProvider = checkNotNull(dataProvider);
+        this.networkAware = checkNotNull(networkAware);
+        this.subnetAware = checkNotNull(subnetAware);
+        this.secGroupAware = checkNotNull(secGroupAware);
+        this.routerAware = checkNotNull(routerAware);
+        this.portAware = checkNotNull(portAware);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads Neutron state from Neutron CRUD providers and maps it to GBP. Nothing is imported if
+     * any of the providers is missing.
+     *
+     * @return future which is done when the import finished
+     */
+    public ListenableFuture<Void> importNeutronState() {
+        NeutronCRUDInterfaces neutronCRUDInterface = new NeutronCRUDInterfaces().fetchINeutronNetworkCRUD(this)
+            .fetchINeutronSubnetCRUD(this)
+            .fetchINeutronSecurityGroupCRUD(this)
+            .fetchINeutronRouterCRUD(this)
+            .fetchINeutronPortCRUD(this);
+        INeutronNetworkCRUD networkInterface = neutronCRUDInterface.getNetworkInterface();
+        INeutronSubnetCRUD subnetInterface = neutronCRUDInterface.getSubnetInterface();
+        INeutronSecurityGroupCRUD secGroupInterface = neutronCRUDInterface.getSecurityGroupInterface();
+        INeutronRouterCRUD routerInterface = neutronCRUDInterface.getRouterInterface();
+        INeutronPortCRUD portInterface = neutronCRUDInterface.getPortInterface();
+        if (networkInterface == null || subnetInterface == null || secGroupInterface == null
+                || routerInterface == null || portInterface == null) {
+            LOG.warn("Illegal state - Neutron state is not imported, a Neutron CRUD provider is missing.");
+            return Futures.immediateFuture(null);
+        }
+        return importNeutronState(networkInterface.getAllNetworks(), subnetInterface.getAllSubnets(),
+                secGroupInterface.getAllNeutronSecurityGroups(), routerInterface.getAllRouters(),
+                portInterface.getAllPorts());
+    }
+
+    ListenableFuture<Void> importNeutronState(Collection<NeutronNetwork> networks, Collection<NeutronSubnet> subnets,
+            Collection<NeutronSecurityGroup> secGroups, final Collection<NeutronRouter> routers,
+            Collection<NeutronPort> ports) {
+        LOG.info("Importing Neutron state - networks: {} subnets: {} security groups: {} routers: {} ports: {}",
+                networks.size(), subnets.size(), secGroups.size(), routers.size(), ports.size());
+        Map<TenantId, Tenant> tenants = readTenants();
+        Batch batch = new Batch();
+        for (NeutronNetwork network : networks) {
+            if (isNetworkMapped(network, tenants)) {
+                LOG.trace("Network {} is mapped already.", network.getID());
+                continue;
+            }
+            networkAware.addNeutronNetwork(network, batch.getTransaction());
+            batch.added();
+        }
+        batch.commit();
+        for (NeutronSubnet subnet : subnets) {
+            subnetAware.addNeutronSubnet(subnet, batch.getTransaction());
+            batch.added();
+        }
+        batch.commit();
+
+        Map<String, NeutronPort> portById = new HashMap<>();
+        for (NeutronPort port : ports) {
+            portById.put(port.getID(), port);
+        }
+        // forwarding context is changed by router interfaces before endpoints of ports are registered,
+        // so the endpoints do not have to be registered again
+        for (NeutronRouter router : routers) {
+            for (NeutronRouter_Interface routerIface : getInterfaces(router)) {
+                NeutronPort routerPort = portById.get(routerIface.getPortUUID());
+                if (routerPort == null) {
+                    LOG.warn("Illegal state - port {} of router interface does not exist.",
+                            routerIface.getPortUUID());
+                    continue;
+                }
+                if (!routerAware.addNeutronRouterInterface(router, routerIface, routerPort, batch.getTransaction())) {
+                    LOG.warn("Illegal state - router interface {} of router {} was not imported.",
+                            routerIface.getPortUUID(), router.getID());
+                }
+                batch.added();
+            }
+        }
+        for (NeutronSecurityGroup secGroup : secGroups) {
+            if (!secGroupAware.addNeutronSecurityGroup(secGroup, batch.getTransaction())) {
+                LOG.warn("Illegal state - security group {} was not imported completely.",
+                        secGroup.getSecurityGroupUUID());
+            }
+            batch.added();
+        }
+        batch.commit();
+
+        List<ListenableFuture<Void>> portImports = new ArrayList<>();
+        List<NeutronPort> portBatch = new ArrayList<>();
+        for (NeutronPort port : ports) {
+            if (!NeutronPortAware.isPortWithEndpoint(port)) {
+                portAware.neutronPortCreated(port);
+                continue;
+            }
+            portBatch.add(port);
+            if (portBatch.size() >= batchSize) {
+                portImports.add(importPorts(portBatch));
+                portBatch = new ArrayList<>();
+            }
+        }
+        if (!portBatch.isEmpty()) {
+            portImports.add(importPorts(portBatch));
+        }
+
+        // external gateway of a router is mapped to endpoints of ports, so ports have to be committed first
+        final SettableFuture<Void> imported = SettableFuture.create();
+        Futures.addCallback(Futures.successfulAsList(portImports), new FutureCallback<List<Void>>() {
+
+            @Override
+            public void onSuccess(List<Void> result) {
+                importRouterGateways(routers);
+                imported.set(null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Import of ports failed, routers with external gateway are imported anyway.", t);
+                importRouterGateways(routers);
+                imported.set(null);
+            }
+        });
+        return imported;
+    }
+
+    private void importRouterGateways(Collection<NeutronRouter> routers) {
+        for (NeutronRouter router : routers) {
+            if (router.getExternalGatewayInfo() != null) {
+                routerAware.neutronRouterUpdated(router);
+            }
+        }
+        LOG.info("Neutron state imported.");
+    }
+
+    private Map<TenantId, Tenant> readTenants() {
+        Optional<Tenants> potentialTenants;
+        try (ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction()) {
+            potentialTenants = DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
+                    InstanceIdentifier.builder(Tenants.class).build(), rTx);
+        }
+        if (!potentialTenants.isPresent() || potentialTenants.get().getTenant() == null) {
+            return Collections.emptyMap();
+        }
+        Map<TenantId, Tenant> tenants = new HashMap<>();
+        for (Tenant tenant : potentialTenants.get().getTenant()) {
+            tenants.put(tenant.getId(), tenant);
+        }
+        return tenants;
+    }
+
+    private static boolean isNetworkMapped(NeutronNetwork network, Map<TenantId, Tenant> tenants) {
+        Tenant tenant = tenants.get(new TenantId(Utils.normalizeUuid(network.getTenantID())));
+        if (tenant == null) {
+            return false;
+        }
+        ForwardingContext fwCtx = tenant.getForwardingContext();
+        if (fwCtx == null || fwCtx.getL2FloodDomain() == null) {
+            return false;
+        }
+        L2FloodDomainId l2FdId = new L2FloodDomainId(network.getID());
+        for (L2FloodDomain l2Fd : fwCtx.getL2FloodDomain()) {
+            if (l2FdId.equals(l2Fd.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Collection<NeutronRouter_Interface> getInterfaces(NeutronRouter router) {
+        Map<String, NeutronRouter_Interface> interfaces = router.getInterfaces();
+        if (interfaces == null) {
+            return Collections.emptyList();
+        }
+        return interfaces.values();
+    }
+
+    /**
+     * @return future which is done when the batch was committed or its ports were created one by
+     *         one; it never fails
+     */
+    private ListenableFuture<Void> importPorts(final List<NeutronPort> ports) {
+        final SettableFuture<Void> imported = SettableFuture.create();
+        final ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+        List<ListenableFuture<Boolean>> results = new ArrayList<>();
+        for (NeutronPort port : ports) {
+            results.add(portAware.createNeutronPort(port, rwTx));
+        }
+        Futures.addCallback(PortEndpointPipeline.allSuccessful(results), new FutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean areSuccessful) {
+                if (areSuccessful) {
+                    Futures.addCallback(rwTx.submit(), new FutureCallback<Void>() {
+
+                        @Override
+                        public void onSuccess(Void result) {
+                            imported.set(null);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            LOG.warn("Transaction commit failed to DS.", t);
+                            createPortsOneByOne(ports);
+                            imported.set(null);
+                        }
+                    });
+                } else {
+                    rwTx.cancel();
+                    createPortsOneByOne(ports);
+                    imported.set(null);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Endpoint RPC failed, transaction is cancelled.", t);
+                rwTx.cancel();
+                createPortsOneByOne(ports);
+                imported.set(null);
+            }
+        });
+        return imported;
+    }
+
+    private void createPortsOneByOne(List<NeutronPort> ports) {
+        LOG.info("Import of {} ports in a batch failed, ports are created one by one.", ports.size());
+        for (NeutronPort port : ports) {
+            portAware.neutronPortCreated(port);
+        }
+    }
+
+    /**
+     * Transaction which is committed when a number of entities were added to it
+     */
+    private class Batch {
+
+        private ReadWriteTransaction rwTx;
+        private int size;
+
+        ReadWriteTransaction getTransaction() {
+            if (rwTx == null) {
+                rwTx = dataProvider.newReadWriteTransaction();
+            }
+            return rwTx;
+        }
+
+        void added() {
+            size++;
+            if (size >= batchSize) {
+                commit();
+            }
+        }
+
+        void commit() {
+            if (rwTx == null) {
+                return;
+            }
+            LOG.trace("Committing batch of {} Neutron entities.", size);
+            DataStoreHelper.submitToDs(rwTx);
+            rwTx = null;
+            size = 0;
+        }
+    }
+}
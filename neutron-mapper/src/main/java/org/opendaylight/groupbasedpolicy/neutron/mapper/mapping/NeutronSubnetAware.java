@@ -63,13 +63,20 @@ public class NeutronSubnetAware implements INeutronSubnetAware {
     public void neutronSubnetCreated(NeutronSubnet neutronSubnet) {
         LOG.trace("neutronSubnetCreated - {}", neutronSubnet);
         ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
+        addNeutronSubnet(neutronSubnet, rwTx);
+        DataStoreHelper.submitToDs(rwTx);
+    }
+
+    /**
+     * @param rwTx GBP entities are stored to this transaction. This method NEVER submits or cancel
+     *        the transaction.
+     */
+    public void addNeutronSubnet(NeutronSubnet neutronSubnet, ReadWriteTransaction rwTx) {
         SubnetId subnetId = new SubnetId(Utils.normalizeUuid(neutronSubnet.getID()));
         TenantId tenantId = new TenantId(Utils.normalizeUuid(neutronSubnet.getTenantID()));
         Subnet subnet = createSubnet(neutronSubnet);
         rwTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.subnetIid(tenantId, subnetId), subnet, true);
-        DataStoreHelper.submitToDs(rwTx);
 
-        rwTx = dataProvider.newReadWriteTransaction();
         if (isExternalNetwork(subnet.getParent(), rwTx)) {
             LOG.trace("neutronSubnetCreated - adding L3 Endpoint");
             L2FloodDomainId l2FdId = new L2FloodDomainId(subnet.getParent().getValue());
@@ -78,7 +85,6 @@ public class NeutronSubnetAware implements INeutronSubnetAware {
             //Create L3Endpoint for defaultGateway and write to externalGateways to L3Endpoints in neutron-gbp datastore
             NetworkDomainId containment = new NetworkDomainId(neutronSubnet.getID());
             NeutronPortAware.addL3EndpointForExternalGateway(tenantId, fwCtx.getL3Context().getId(), defaultGateway, containment ,rwTx);
-            DataStoreHelper.submitToDs(rwTx);
         }
     }
 
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInput;
+import org.opendaylight.yangtools.yang.common.RpcResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.JdkFutureAdapters;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Invokes endpoint RPCs for Neutron ports without blocking the caller.
+ * RPCs of the same port are chained, so they are invoked in the order they
+ * were submitted; RPCs of different ports run concurrently.
+ * Result of each RPC is {@code true} if it was successful, failures are logged.
+ */
+public final class PortEndpointPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PortEndpointPipeline.class);
+
+    /**
+     * The last RPC submitted for a port. An entry is removed when the RPC
+     * finished and no other RPC was submitted for the port meanwhile.
+     */
+    private static final ConcurrentMap<String, ListenableFuture<Boolean>> lastRpcByPort = new ConcurrentHashMap<>();
+
+    private static final Function<List<Boolean>, Boolean> ALL_SUCCESSFUL = new Function<List<Boolean>, Boolean>() {
+
+        @Override
+        public Boolean apply(List<Boolean> results) {
+            return !results.contains(Boolean.FALSE);
+        }
+    };
+
+    private PortEndpointPipeline() {
+        throw new UnsupportedOperationException("Cannot create an instance.");
+    }
+
+    public static ListenableFuture<Boolean> registerEndpoint(String portId, final RegisterEndpointInput input,
+            final EndpointService epService) {
+        return submit(portId, new RpcInvocation("registerEndpoint", input) {
+
+            @Override
+            Future<RpcResult<Void>> invoke() {
+                return epService.registerEndpoint(input);
+            }
+        });
+    }
+
+    public static ListenableFuture<Boolean> unregisterEndpoint(String portId, final UnregisterEndpointInput input,
+            final EndpointService epService) {
+        return submit(portId, new RpcInvocation("unregisterEndpoint", input) {
+
+            @Override
+            Future<RpcResult<Void>> invoke() {
+                return epService.unregisterEndpoint(input);
+            }
+        });
+    }
+
+    /**
+     * Unregisters the endpoint and registers it again with new content. Registration
+     * is not invoked if unregistration failed.
+     *
+     * @return result of the registration
+     */
+    public static synchronized ListenableFuture<Boolean> reregisterEndpoint(String portId,
+            final UnregisterEndpointInput unregisterInput, final RegisterEndpointInput registerInput,
+            final EndpointService epService) {
+        ListenableFuture<Boolean> isUnregistered = unregisterEndpoint(portId, unregisterInput, epService);
+        return submit(portId, new RpcInvocation("registerEndpoint", registerInput, isUnregistered) {
+
+            @Override
+            Future<RpcResult<Void>> invoke() {
+                return epService.registerEndpoint(registerInput);
+            }
+        });
+    }
+
+    /**
+     * @param results results of RPCs submitted to the pipeline
+     * @return {@code true} when all of the RPCs were successful
+     */
+    public static ListenableFuture<Boolean> allSuccessful(List<ListenableFuture<Boolean>> results) {
+        return Futures.transform(Futures.allAsList(results), ALL_SUCCESSFUL);
+    }
+
+    /**
+     * Submits the transaction when the result is {@code true}, otherwise cancels it.
+     */
+    public static void submitWhenSuccessful(ListenableFuture<Boolean> result, final ReadWriteTransaction rwTx) {
+        Futures.addCallback(result, new FutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean isSuccessful) {
+                if (isSuccessful) {
+                    Futures.addCallback(rwTx.submit(), new FutureCallback<Void>() {
+
+                        @Override
+                        public void onSuccess(Void result) {}
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            LOG.warn("Transaction commit failed to DS.", t);
+                        }
+                    });
+                } else {
+                    rwTx.cancel();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Endpoint RPC failed, transaction is cancelled.", t);
+                rwTx.cancel();
+            }
+        });
+    }
+
+    private static synchronized ListenableFuture<Boolean> submit(final String portId,
+            final RpcInvocation invocation) {
+        final SettableFuture<Boolean> result = SettableFuture.create();
+        ListenableFuture<Boolean> previous = lastRpcByPort.put(portId, result);
+        Runnable invokeRpc = new Runnable() {
+
+            @Override
+            public void run() {
+                invocation.invokeInto(result);
+            }
+        };
+        if (previous == null) {
+            invokeRpc.run();
+        } else {
+            previous.addListener(invokeRpc, MoreExecutors.sameThreadExecutor());
+        }
+        result.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                lastRpcByPort.remove(portId, result);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    private static abstract class RpcInvocation {
+
+        private final String rpcName;
+        private final Object input;
+        private final ListenableFuture<Boolean> precondition;
+
+        RpcInvocation(String rpcName, Object input) {
+            this(rpcName, input, null);
+        }
+
+        /**
+         * @param precondition result of a previous RPC of the same port; the RPC is
+         *        invoked only if the previous one was successful
+         */
+        RpcInvocation(String rpcName, Object input, ListenableFuture<Boolean> precondition) {
+            this.rpcName = rpcName;
+            this.input = input;
+            this.precondition = precondition;
+        }
+
+        abstract Future<RpcResult<Void>> invoke();
+
+        void invokeInto(final SettableFuture<Boolean> result) {
+            if (precondition != null && !Futures.getUnchecked(precondition)) {
+                LOG.debug("RPC {} is not invoked because the previous RPC failed. Input of RPC: {}", rpcName,
+                        input);
+                result.set(false);
+                return;
+            }
+            ListenableFuture<RpcResult<Void>> rpcResult;
+            try {
+                rpcResult = JdkFutureAdapters.listenInPoolThread(invoke());
+            } catch (RuntimeException e) {
+                LOG.error("RPC {} invocation failed. Input of RPC: {}", rpcName, input, e);
+                result.set(false);
+                return;
+            }
+            Futures.addCallback(rpcResult, new FutureCallback<RpcResult<Void>>() {
+
+                @Override
+                public void onSuccess(RpcResult<Void> rpcResult) {
+                    if (!rpcResult.isSuccessful()) {
+                        LOG.warn("Illegal state - RPC {} failed. Input of RPC: {}", rpcName, input);
+                    }
+                    result.set(rpcResult.isSuccessful());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    LOG.error("RPC {} invocation failed. Input of RPC: {}", rpcName, input, t);
+                    result.set(false);
+                }
+            });
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.StatusCode;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule.NeutronSecurityRuleAware;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.TenantCache;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.Utils;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
@@ -50,12 +51,14 @@ public class NeutronSecurityGroupAware implements INeutronSecurityGroupAware {
     private final DataBroker dataProvider;
     private final NeutronSecurityRuleAware secRuleAware;
     private final SecGroupDao secGroupDao;
+    private final TenantCache tenantCache;
 
     public NeutronSecurityGroupAware(DataBroker dataProvider, NeutronSecurityRuleAware secRuleAware,
-            SecGroupDao secGroupDao) {
+            SecGroupDao secGroupDao, TenantCache tenantCache) {
         this.dataProvider = checkNotNull(dataProvider);
         this.secRuleAware = checkNotNull(secRuleAware);
         this.secGroupDao = checkNotNull(secGroupDao);
+        this.tenantCache = checkNotNull(tenantCache);
     }
 
     /**
@@ -113,7 +116,9 @@ public class NeutronSecurityGroupAware implements INeutronSecurityGroupAware {
         SortedSecurityGroupRules sortedSecGrpRules = new SortedSecurityGroupRules(secRules);
         ListMultimap<EndpointGroupId, NeutronSecurityRule> secRuleByRemoteSecGrpId = sortedSecGrpRules.secRuleByRemoteSecGrpId;
         for (EndpointGroupId consumerEpgId : secRuleByRemoteSecGrpId.keySet()) {
-            addEpgIfMissing(tenantId, consumerEpgId, rwTx);
+            if (!tenantCache.isEndpointGroupPresent(tenantId, consumerEpgId)) {
+                addEpgIfMissing(tenantId, consumerEpgId, rwTx);
+            }
             boolean areSecRulesAdded = addNeutronSecurityRule(secRuleByRemoteSecGrpId.get(consumerEpgId), rwTx);
             if (!areSecRulesAdded) {
                 return false;
@@ -218,6 +223,8 @@ public class NeutronSecurityGroupAware implements INeutronSecurityGroupAware {
         }
 
         DataStoreHelper.submitToDs(rwTx);
+        // do not wait for the listener, the group can be created again right away
+        tenantCache.invalidate(tenantId);
     }
 
     private boolean deleteNeutronSecurityRules(List<NeutronSecurityRule> secRules, ReadWriteTransaction rwTx) {
@@ -10,9 +10,11 @@ package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -43,11 +45,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
-import com.google.common.collect.Sets;
 
 public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
 
@@ -58,6 +60,10 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
     private final SecGroupDao secGroupDao;
     private final Multiset<InstanceIdentifier<ClassifierInstance>> createdClassifierInstances;
     private final Multiset<InstanceIdentifier<ActionInstance>> createdActionInstances;
+    /**
+     * Contracts of rules from {@link SecRuleDao} which are known to be committed to datastore
+     */
+    private final Set<ContractId> materializedContracts = new HashSet<>();
     final static String PROVIDED_BY = "provided_by-";
     final static String POSSIBLE_CONSUMER = "possible_consumer-";
 
@@ -117,16 +123,7 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
         SelectorName providerSelector = getSelectorNameWithConsumer(secRule);
         writeProviderNamedSelectorToEpg(providerSelector, contract.getId(), new EgKey(tenantId, providerEpgId), rwTx);
 
-        if (SecRuleEntityDecoder.getConsumerEpgId(secRule) != null) {
-            EndpointGroupId consumerEpgId = SecRuleEntityDecoder.getConsumerEpgId(secRule);
-            designContractsBetweenProviderAndConsumer(tenantId, providerEpgId, consumerEpgId, rwTx);
-            designContractsBetweenProviderAndConsumer(tenantId, consumerEpgId, providerEpgId, rwTx);
-        } else {
-            for (EndpointGroupId consumerEpgId : secRuleDao.getAllOwnerSecGrps()) {
-                designContractsBetweenProviderAndConsumer(tenantId, providerEpgId, consumerEpgId, rwTx);
-                designContractsBetweenProviderAndConsumer(tenantId, consumerEpgId, providerEpgId, rwTx);
-            }
-        }
+        designContractsOfSecRule(tenantId, secRule, rwTx);
 
         ClassifierInstance classifierInstance = singleRuleContract.getSingleClassifierRule().getClassifierInstance();
         createClassifierInstanceIfNotExists(tenantId, classifierInstance, rwTx);
@@ -134,6 +131,46 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
         return true;
     }
 
+    /**
+     * Adds the security rule unless it is materialized already - the rule is in
+     * {@link SecRuleDao} and its contract is committed to datastore. Contract, selectors and
+     * instances of a materialized rule are not written again, so replaying rules of a security
+     * group for each new port does not rewrite the same policy.
+     *
+     * @see #addNeutronSecurityRule(NeutronSecurityRule, ReadWriteTransaction)
+     */
+    public boolean addNeutronSecurityRuleIfNotMaterialized(NeutronSecurityRule secRule, ReadWriteTransaction rwTx) {
+        if (isSecRuleMaterialized(secRule)) {
+            LOG.trace("Security rule {} is materialized already.", secRule.getSecurityRuleUUID());
+            return true;
+        }
+        return addNeutronSecurityRule(secRule, rwTx);
+    }
+
+    @VisibleForTesting
+    boolean isSecRuleMaterialized(NeutronSecurityRule secRule) {
+        if (!secRuleDao.containsSecRule(secRule)) {
+            return false;
+        }
+        ContractId contractId = SecRuleEntityDecoder.getContractId(secRule);
+        if (materializedContracts.contains(contractId)) {
+            return true;
+        }
+        // the rule can be written by a transaction which is not committed yet or which was cancelled,
+        // so only a committed contract marks the rule as materialized
+        TenantId tenantId = SecRuleEntityDecoder.getTenantId(secRule);
+        Optional<Contract> potentialContract;
+        try (ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction()) {
+            potentialContract = DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
+                    IidFactory.contractIid(tenantId, contractId), rTx);
+        }
+        if (!potentialContract.isPresent()) {
+            return false;
+        }
+        materializedContracts.add(contractId);
+        return true;
+    }
+
     @VisibleForTesting
     static SingleRuleContract createSingleRuleContract(NeutronSecurityRule secRule, Description contractDescription) {
         if (Strings.isNullOrEmpty(secRule.getSecurityRuleRemoteIpPrefix())) {
@@ -142,39 +179,64 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
         return new SingleRuleContract(secRule, 1, contractDescription);
     }
 
+    /**
+     * Writes consumer named selectors which the rule causes. The rule is matched only against
+     * rules of opposite direction with compatible ethertype and protocol from {@link SecRuleDao}:
+     * <ul>
+     * <li>as a provider rule - its consumer selector is written to owner groups of rules
+     * containing the rule</li>
+     * <li>as a consumer rule - consumer selectors of rules within the rule are written to the
+     * owner group of the rule</li>
+     * </ul>
+     */
     @VisibleForTesting
-    void designContractsBetweenProviderAndConsumer(TenantId tenantId, EndpointGroupId provEpgId,
-            EndpointGroupId consEpgId, ReadWriteTransaction rwTx) {
-        Set<NeutronSecurityRule> provSecRules = getProvidedSecRulesBetween(provEpgId, consEpgId);
-        Set<NeutronSecurityRule> consSecRules = getProvidedSecRulesBetween(consEpgId, provEpgId);
-        for (NeutronSecurityRule provSecRule : provSecRules) {
-            if (isProviderSecRuleSuitableForConsumerSecRules(provSecRule, consSecRules)) {
-                SelectorName consumerSelector = getSelectorNameWithProvider(provSecRule);
-                ContractId contractId = SecRuleEntityDecoder.getContractId(provSecRule);
-                writeConsumerNamedSelectorToEpg(consumerSelector, contractId, new EgKey(tenantId, consEpgId), rwTx);
-            }
-            // TODO add case when port ranges overlap
+    void designContractsOfSecRule(TenantId tenantId, NeutronSecurityRule secRule, ReadWriteTransaction rwTx) {
+        SelectorName consumerSelector = getSelectorNameWithProvider(secRule);
+        ContractId contractId = SecRuleEntityDecoder.getContractId(secRule);
+        for (EndpointGroupId consEpgId : getConsumerEpgIdsOfProviderSecRule(secRule)) {
+            writeConsumerNamedSelectorToEpg(consumerSelector, contractId, new EgKey(tenantId, consEpgId), rwTx);
+        }
+        EgKey ownerEpgKey = new EgKey(tenantId, SecRuleEntityDecoder.getProviderEpgId(secRule));
+        for (NeutronSecurityRule provSecRule : getProviderSecRulesOfConsumerSecRule(secRule)) {
+            writeConsumerNamedSelectorToEpg(getSelectorNameWithProvider(provSecRule),
+                    SecRuleEntityDecoder.getContractId(provSecRule), ownerEpgKey, rwTx);
         }
+        // TODO add case when port ranges overlap
     }
 
+    /**
+     * @return owner groups of rules which consume the provider rule
+     */
     @VisibleForTesting
-    Set<NeutronSecurityRule> getProvidedSecRulesBetween(EndpointGroupId provEpgId, EndpointGroupId consEpgId) {
-        return Sets.union(secRuleDao.getSecRulesBySecGrpIdAndRemoteSecGrpId(provEpgId, consEpgId),
-                secRuleDao.getSecRulesWithoutRemoteSecGrpBySecGrpId(provEpgId));
+    Set<EndpointGroupId> getConsumerEpgIdsOfProviderSecRule(NeutronSecurityRule provSecRule) {
+        Set<EndpointGroupId> consEpgIds = new HashSet<>();
+        for (NeutronSecurityRule consSecRule : secRuleDao.getOppositeSecRulesContaining(provSecRule)) {
+            if (isProviderSecRuleSuitableForConsumerSecRule(provSecRule, consSecRule)) {
+                consEpgIds.add(SecRuleEntityDecoder.getProviderEpgId(consSecRule));
+            }
+        }
+        return consEpgIds;
     }
 
+    /**
+     * @return rules which are consumed by the consumer rule
+     */
     @VisibleForTesting
-    static boolean isProviderSecRuleSuitableForConsumerSecRules(NeutronSecurityRule provSecRule,
-            Set<NeutronSecurityRule> consSecRules) {
-        Direction directionProvSecRule = SecRuleEntityDecoder.getDirection(provSecRule);
-        for (NeutronSecurityRule consSecRule : consSecRules) {
-            Direction directionConsSecRule = SecRuleEntityDecoder.getDirection(consSecRule);
-            if (isDirectionOpposite(directionProvSecRule, directionConsSecRule)
-                    && isOneWithinTwo(provSecRule, consSecRule)) {
-                return true;
+    Set<NeutronSecurityRule> getProviderSecRulesOfConsumerSecRule(NeutronSecurityRule consSecRule) {
+        Set<NeutronSecurityRule> provSecRules = new HashSet<>();
+        for (NeutronSecurityRule provSecRule : secRuleDao.getOppositeSecRulesWithin(consSecRule)) {
+            if (isProviderSecRuleSuitableForConsumerSecRule(provSecRule, consSecRule)) {
+                provSecRules.add(provSecRule);
             }
         }
-        return false;
+        return provSecRules;
+    }
+
+    @VisibleForTesting
+    static boolean isProviderSecRuleSuitableForConsumerSecRule(NeutronSecurityRule provSecRule,
+            NeutronSecurityRule consSecRule) {
+        return isDirectionOpposite(SecRuleEntityDecoder.getDirection(provSecRule),
+                SecRuleEntityDecoder.getDirection(consSecRule)) && isOneWithinTwo(provSecRule, consSecRule);
     }
 
     private void writeProviderNamedSelectorToEpg(SelectorName providerSelector, ContractId contractId, EgKey epgKey,
@@ -259,19 +321,11 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
         SelectorName providerSelector = getSelectorNameWithConsumer(secRule);
         deleteProviderNamedSelectorFromEpg(providerSelector, new EgKey(tenantId, providerEpgId), rwTx);
 
-        if (SecRuleEntityDecoder.getConsumerEpgId(secRule) != null) {
-            EndpointGroupId consumerEpgId = SecRuleEntityDecoder.getConsumerEpgId(secRule);
-            undesignContractsBetweenProviderAndConsumer(tenantId, providerEpgId, consumerEpgId, secRule, rwTx);
-            undesignContractsBetweenProviderAndConsumer(tenantId, consumerEpgId, providerEpgId, secRule, rwTx);
-        } else {
-            for (EndpointGroupId consumerEpgId : secRuleDao.getAllOwnerSecGrps()) {
-                undesignContractsBetweenProviderAndConsumer(tenantId, providerEpgId, consumerEpgId, secRule, rwTx);
-                undesignContractsBetweenProviderAndConsumer(tenantId, consumerEpgId, providerEpgId, secRule, rwTx);
-            }
-        }
+        undesignContractsOfSecRule(tenantId, secRule, rwTx);
 
         secRuleDao.removeSecRule(secRule);
         ContractId contractId = SecRuleEntityDecoder.getContractId(secRule);
+        materializedContracts.remove(contractId);
         rwTx.delete(LogicalDatastoreType.CONFIGURATION, IidFactory.contractIid(tenantId, contractId));
 
         ClassifierInstance classifierInstance = SecRuleEntityDecoder.getClassifierInstance(secRule);
@@ -279,41 +333,23 @@ public class NeutronSecurityRuleAware implements INeutronSecurityRuleAware {
         return true;
     }
 
+    /**
+     * Deletes consumer named selectors which were caused by the rule. The rule has to be still
+     * in {@link SecRuleDao}.
+     *
+     * @see #designContractsOfSecRule(TenantId, NeutronSecurityRule, ReadWriteTransaction)
+     */
     @VisibleForTesting
-    void undesignContractsBetweenProviderAndConsumer(TenantId tenantId, EndpointGroupId provEpgId,
-            EndpointGroupId consEpgId, NeutronSecurityRule removedSecRule, ReadWriteTransaction rwTx) {
-        Set<NeutronSecurityRule> provSecRules = getProvidedSecRulesBetween(provEpgId, consEpgId);
-        Set<NeutronSecurityRule> consSecRules = getProvidedSecRulesBetween(consEpgId, provEpgId);
-        for (NeutronSecurityRule provSecRule : provSecRules) {
-            if (isProvidersSecRuleSuitableForConsumersSecRulesAndGoodToRemove(provSecRule, consSecRules, removedSecRule)) {
-                SelectorName consumerSelector = getSelectorNameWithProvider(provSecRule);
-                deleteConsumerNamedSelector(consumerSelector, new EgKey(tenantId, consEpgId), rwTx);
-            }
-            // TODO add case when port ranges overlap
+    void undesignContractsOfSecRule(TenantId tenantId, NeutronSecurityRule secRule, ReadWriteTransaction rwTx) {
+        SelectorName consumerSelector = getSelectorNameWithProvider(secRule);
+        for (EndpointGroupId consEpgId : getConsumerEpgIdsOfProviderSecRule(secRule)) {
+            deleteConsumerNamedSelector(consumerSelector, new EgKey(tenantId, consEpgId), rwTx);
         }
-    }
-
-    @VisibleForTesting
-    static boolean isProvidersSecRuleSuitableForConsumersSecRulesAndGoodToRemove(NeutronSecurityRule provSecRule,
-            Set<NeutronSecurityRule> consSecRules, NeutronSecurityRule removedSecRule) {
-        Direction directionProvSecRule = SecRuleEntityDecoder.getDirection(provSecRule);
-        for (NeutronSecurityRule consSecRule : consSecRules) {
-            if (isRuleIdEqual(removedSecRule, consSecRule) || isRuleIdEqual(removedSecRule, provSecRule)) {
-                Direction directionConsSecRule = SecRuleEntityDecoder.getDirection(consSecRule);
-                if (isDirectionOpposite(directionProvSecRule, directionConsSecRule)
-                        && isOneWithinTwo(provSecRule, consSecRule)) {
-                    return true;
-                }
-            }
+        EgKey ownerEpgKey = new EgKey(tenantId, SecRuleEntityDecoder.getProviderEpgId(secRule));
+        for (NeutronSecurityRule provSecRule : getProviderSecRulesOfConsumerSecRule(secRule)) {
+            deleteConsumerNamedSelector(getSelectorNameWithProvider(provSecRule), ownerEpgKey, rwTx);
         }
-        return false;
-    }
-
-    @VisibleForTesting
-    static boolean isRuleIdEqual(NeutronSecurityRule one, NeutronSecurityRule two) {
-        checkNotNull(one);
-        checkNotNull(two);
-        return one.getSecurityRuleUUID().equals(two.getSecurityRuleUUID());
+        // TODO add case when port ranges overlap
     }
 
     private void deleteProviderNamedSelectorFromEpg(SelectorName providerSelector, EgKey providerEpgKey,
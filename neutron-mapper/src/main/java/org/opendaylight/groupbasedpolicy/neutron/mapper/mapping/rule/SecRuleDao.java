@@ -8,14 +8,18 @@
 
 package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.NeutronUtils;
 import org.opendaylight.neutron.spi.NeutronSecurityRule;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.SetMultimap;
 
@@ -24,6 +28,8 @@ public class SecRuleDao {
     private final SetMultimap<EndpointGroupId, NeutronSecurityRule> secRulesByOwnerSecGrpId = HashMultimap.create();
     private final SetMultimap<OwnerAndRemoteOfSecRule, NeutronSecurityRule> secRulesByRemoteSecGrpId =
             HashMultimap.create();
+    private final SetMultimap<DirectionEtherTypeProtocolOfSecRule, NeutronSecurityRule>
+            secRulesByDirectionEtherTypeProtocol = HashMultimap.create();
 
     public void addSecRule(NeutronSecurityRule secRule) {
         Preconditions.checkNotNull(secRule);
@@ -31,6 +37,12 @@ public class SecRuleDao {
         EndpointGroupId remoteSecGrp = SecRuleEntityDecoder.getConsumerEpgId(secRule);
         secRulesByOwnerSecGrpId.put(ownerSecGrp, secRule);
         secRulesByRemoteSecGrpId.put(new OwnerAndRemoteOfSecRule(ownerSecGrp, remoteSecGrp), secRule);
+        secRulesByDirectionEtherTypeProtocol.put(new DirectionEtherTypeProtocolOfSecRule(secRule), secRule);
+    }
+
+    public boolean containsSecRule(NeutronSecurityRule secRule) {
+        Preconditions.checkNotNull(secRule);
+        return secRulesByOwnerSecGrpId.containsEntry(SecRuleEntityDecoder.getProviderEpgId(secRule), secRule);
     }
 
     public Set<NeutronSecurityRule> getSecRulesByOwnerSecGrpId(EndpointGroupId secGrpId) {
@@ -46,6 +58,42 @@ public class SecRuleDao {
         return secRulesByRemoteSecGrpId.get(new OwnerAndRemoteOfSecRule(ownerSecGrpId, null));
     }
 
+    /**
+     * @return rules with opposite direction to the direction of the given rule which have
+     *         unspecified ethertype and protocol or the same as the given rule - the given rule
+     *         can be within these rules
+     * @see SecRuleEntityDecoder#isEtherTypeOfOneWithinTwo(NeutronSecurityRule, NeutronSecurityRule)
+     * @see SecRuleEntityDecoder#isProtocolOfOneWithinTwo(NeutronSecurityRule, NeutronSecurityRule)
+     */
+    public Set<NeutronSecurityRule> getOppositeSecRulesContaining(NeutronSecurityRule secRule) {
+        DirectionEtherTypeProtocolOfSecRule key = new DirectionEtherTypeProtocolOfSecRule(secRule);
+        Set<NeutronSecurityRule> result = new HashSet<>();
+        for (DirectionEtherTypeProtocolOfSecRule oppositeKey : secRulesByDirectionEtherTypeProtocol.keySet()) {
+            if (oppositeKey.isOppositeTo(key) && oppositeKey.contains(key)) {
+                result.addAll(secRulesByDirectionEtherTypeProtocol.get(oppositeKey));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return rules with opposite direction to the direction of the given rule which have
+     *         ethertype and protocol within ethertype and protocol of the given rule - these rules
+     *         can be within the given rule
+     * @see SecRuleEntityDecoder#isEtherTypeOfOneWithinTwo(NeutronSecurityRule, NeutronSecurityRule)
+     * @see SecRuleEntityDecoder#isProtocolOfOneWithinTwo(NeutronSecurityRule, NeutronSecurityRule)
+     */
+    public Set<NeutronSecurityRule> getOppositeSecRulesWithin(NeutronSecurityRule secRule) {
+        DirectionEtherTypeProtocolOfSecRule key = new DirectionEtherTypeProtocolOfSecRule(secRule);
+        Set<NeutronSecurityRule> result = new HashSet<>();
+        for (DirectionEtherTypeProtocolOfSecRule oppositeKey : secRulesByDirectionEtherTypeProtocol.keySet()) {
+            if (oppositeKey.isOppositeTo(key) && key.contains(oppositeKey)) {
+                result.addAll(secRulesByDirectionEtherTypeProtocol.get(oppositeKey));
+            }
+        }
+        return result;
+    }
+
     public Set<EndpointGroupId> getAllOwnerSecGrps() {
         return secRulesByOwnerSecGrpId.keySet();
     }
@@ -56,6 +104,7 @@ public class SecRuleDao {
         EndpointGroupId remoteSecGrp = SecRuleEntityDecoder.getConsumerEpgId(secRule);
         secRulesByOwnerSecGrpId.remove(ownerSecGrp, secRule);
         secRulesByRemoteSecGrpId.remove(new OwnerAndRemoteOfSecRule(ownerSecGrp, remoteSecGrp), secRule);
+        secRulesByDirectionEtherTypeProtocol.remove(new DirectionEtherTypeProtocolOfSecRule(secRule), secRule);
     }
 
     static class OwnerAndRemoteOfSecRule {
@@ -101,4 +150,54 @@ public class SecRuleDao {
 
     }
 
+    /**
+     * Values are kept as they are in the rule, so rules with unsupported direction, ethertype or
+     * protocol can be stored as well. Unspecified ethertype or protocol is {@code null}.
+     */
+    static class DirectionEtherTypeProtocolOfSecRule {
+
+        private final String direction;
+        private final String etherType;
+        private final String protocol;
+
+        private DirectionEtherTypeProtocolOfSecRule(NeutronSecurityRule secRule) {
+            this.direction = secRule.getSecurityRuleDirection();
+            this.etherType = Strings.emptyToNull(secRule.getSecurityRuleEthertype());
+            this.protocol = Strings.emptyToNull(secRule.getSecurityRuleProtocol());
+        }
+
+        boolean isOppositeTo(DirectionEtherTypeProtocolOfSecRule other) {
+            return (NeutronUtils.INGRESS.equals(direction) && NeutronUtils.EGRESS.equals(other.direction))
+                    || (NeutronUtils.EGRESS.equals(direction) && NeutronUtils.INGRESS.equals(other.direction));
+        }
+
+        /**
+         * @return {@code true} if ethertype and protocol of the other are within ethertype and
+         *         protocol of this
+         */
+        boolean contains(DirectionEtherTypeProtocolOfSecRule other) {
+            return (etherType == null || etherType.equals(other.etherType))
+                    && (protocol == null || protocol.equals(other.protocol));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(direction, etherType, protocol);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            DirectionEtherTypeProtocolOfSecRule other = (DirectionEtherTypeProtocolOfSecRule) obj;
+            return Objects.equal(direction, other.direction) && Objects.equal(etherType, other.etherType)
+                    && Objects.equal(protocol, other.protocol);
+        }
+
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds back Neutron notifications while the Neutron state is imported. Aware services are
+ * registered before the import starts, so no Neutron change is lost. Notifications, i.e. methods
+ * of an aware service without result, which come before {@link #open()} are queued and delivered
+ * in order of arrival when the queue is opened. Checks with result, e.g.
+ * {@code canCreatePort}, are always called immediately because Neutron waits for them.
+ */
+public class NeutronCallbackQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NeutronCallbackQueue.class);
+
+    // guarded by this
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private boolean open;
+
+    /**
+     * @param awareInterface Neutron aware interface which is registered as a service
+     * @param aware implementation receiving calls of the returned aware service
+     * @return aware service which queues notifications until {@link #open()} is called
+     */
+    public <T> T wrap(Class<T> awareInterface, final T aware) {
+        checkNotNull(aware);
+        return awareInterface.cast(Proxy.newProxyInstance(awareInterface.getClassLoader(),
+                new Class<?>[] {awareInterface}, new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+                        if (method.getReturnType() != void.class || method.getDeclaringClass() == Object.class) {
+                            return invokeOn(aware, method, args);
+                        }
+                        deliver(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                try {
+                                    invokeOn(aware, method, args);
+                                } catch (Throwable t) {
+                                    LOG.error("Neutron notification {} failed.", method.getName(), t);
+                                }
+                            }
+                        });
+                        return null;
+                    }
+                }));
+    }
+
+    /**
+     * Delivers queued notifications and stops queueing. Notifications which come while the queue
+     * is drained are delivered after the queued ones.
+     */
+    public void open() {
+        while (true) {
+            Runnable notification;
+            synchronized (this) {
+                notification = pending.poll();
+                if (notification == null) {
+                    open = true;
+                    return;
+                }
+            }
+            notification.run();
+        }
+    }
+
+    private void deliver(Runnable notification) {
+        synchronized (this) {
+            if (!open) {
+                pending.add(notification);
+                return;
+            }
+        }
+        notification.run();
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils.ForwardingCtx;
+import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
+import org.opendaylight.groupbasedpolicy.util.IidFactory;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2FloodDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.Tenants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.Tenant;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.TenantKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.ForwardingContext;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.Policy;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.EndpointGroup;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.EndpointGroupKey;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.base.Optional;
+
+/**
+ * Read-through cache of forwarding contexts and endpoint groups of tenants in CONFIGURATION
+ * datastore. Only committed data is cached; entries of a tenant are invalidated by data tree
+ * change listeners when its forwarding context or endpoint groups change.
+ * <p>
+ * Callers which modify forwarding context in their transaction have to read it from the
+ * transaction instead of this cache.
+ */
+public class TenantCache implements AutoCloseable {
+
+    private static final InstanceIdentifier<ForwardingContext> FORWARDING_CONTEXT_WILDCARD_IID =
+            InstanceIdentifier.builder(Tenants.class).child(Tenant.class).child(ForwardingContext.class).build();
+    private static final InstanceIdentifier<EndpointGroup> EPG_WILDCARD_IID = InstanceIdentifier.builder(Tenants.class)
+        .child(Tenant.class)
+        .child(Policy.class)
+        .child(EndpointGroup.class)
+        .build();
+
+    private final DataBroker dataProvider;
+    private final ConcurrentMap<TenantId, TenantEntry> entryByTenant = new ConcurrentHashMap<>();
+    private final ListenerRegistration<?> forwardingContextRegistration;
+    private final ListenerRegistration<?> epgRegistration;
+
+    public TenantCache(DataBroker dataProvider) {
+        this.dataProvider = checkNotNull(dataProvider);
+        forwardingContextRegistration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.CONFIGURATION, FORWARDING_CONTEXT_WILDCARD_IID),
+                new DataTreeChangeListener<ForwardingContext>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<ForwardingContext>> changes) {
+                        for (DataTreeModification<ForwardingContext> change : changes) {
+                            getEntry(getTenantId(change.getRootPath().getRootIdentifier())).invalidateFwCtxs();
+                        }
+                    }
+                });
+        epgRegistration = dataProvider.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.CONFIGURATION, EPG_WILDCARD_IID),
+                new DataTreeChangeListener<EndpointGroup>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<EndpointGroup>> changes) {
+                        for (DataTreeModification<EndpointGroup> change : changes) {
+                            InstanceIdentifier<EndpointGroup> epgIid = change.getRootPath().getRootIdentifier();
+                            TenantEntry entry = getEntry(getTenantId(epgIid));
+                            EndpointGroupId epgId = epgIid.firstKeyOf(EndpointGroup.class, EndpointGroupKey.class)
+                                .getId();
+                            // present groups are cached by reads only, so a late notification
+                            // of a write cannot bring back a deleted group
+                            if (change.getRootNode().getModificationType() == ModificationType.DELETE) {
+                                entry.epgDeleted(epgId);
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Returns forwarding context of the flood domain. Only complete contexts are cached,
+     * so a context whose parts are not created yet is read again next time.
+     *
+     * @see MappingUtils#createForwardingContext(TenantId, L2FloodDomainId,
+     *      org.opendaylight.controller.md.sal.binding.api.ReadTransaction)
+     */
+    public ForwardingCtx getForwardingCtx(TenantId tenantId, L2FloodDomainId l2FdId) {
+        TenantEntry entry = getEntry(tenantId);
+        ForwardingCtx fwCtx = entry.getFwCtx(l2FdId);
+        if (fwCtx != null) {
+            return fwCtx;
+        }
+        long generation = entry.getGeneration();
+        try (ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction()) {
+            fwCtx = MappingUtils.createForwardingContext(tenantId, l2FdId, rTx);
+        }
+        if (fwCtx.getL2FloodDomain() != null && fwCtx.getL2BridgeDomain() != null && fwCtx.getL3Context() != null) {
+            entry.putFwCtx(l2FdId, fwCtx, generation);
+        }
+        return fwCtx;
+    }
+
+    /**
+     * @return {@code true} if the endpoint group exists in committed data; {@code false} if it
+     *         does not exist or it is created by a transaction which was not committed yet
+     */
+    public boolean isEndpointGroupPresent(TenantId tenantId, EndpointGroupId epgId) {
+        TenantEntry entry = getEntry(tenantId);
+        if (entry.isEpgPresent(epgId)) {
+            return true;
+        }
+        long generation = entry.getGeneration();
+        Optional<EndpointGroup> potentialEpg;
+        try (ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction()) {
+            potentialEpg = DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
+                    IidFactory.endpointGroupIid(tenantId, epgId), rTx);
+        }
+        if (!potentialEpg.isPresent()) {
+            return false;
+        }
+        entry.putEpg(epgId, generation);
+        return true;
+    }
+
+    /**
+     * Drops cached data of the tenant. Changes are picked up by data tree change listeners,
+     * this is needed only when the change has to be visible before the listeners are notified.
+     */
+    public void invalidate(TenantId tenantId) {
+        getEntry(tenantId).invalidate();
+    }
+
+    private TenantEntry getEntry(TenantId tenantId) {
+        TenantEntry entry = entryByTenant.get(tenantId);
+        if (entry == null) {
+            entry = new TenantEntry();
+            TenantEntry existing = entryByTenant.putIfAbsent(tenantId, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    private static TenantId getTenantId(InstanceIdentifier<?> iid) {
+        return iid.firstKeyOf(Tenant.class, TenantKey.class).getId();
+    }
+
+    @Override
+    public void close() throws Exception {
+        forwardingContextRegistration.close();
+        epgRegistration.close();
+        entryByTenant.clear();
+    }
+
+    /**
+     * Cached data of one tenant. Generation is increased by every change of the tenant, so
+     * a value read before the change is not cached after the change invalidated the entry.
+     */
+    private static class TenantEntry {
+
+        private final Map<L2FloodDomainId, ForwardingCtx> fwCtxByL2Fd = new HashMap<>();
+        private final Set<EndpointGroupId> epgs = new HashSet<>();
+        private long generation = 0;
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized ForwardingCtx getFwCtx(L2FloodDomainId l2FdId) {
+            return fwCtxByL2Fd.get(l2FdId);
+        }
+
+        synchronized void putFwCtx(L2FloodDomainId l2FdId, ForwardingCtx fwCtx, long readGeneration) {
+            if (readGeneration == generation) {
+                fwCtxByL2Fd.put(l2FdId, fwCtx);
+            }
+        }
+
+        synchronized void invalidateFwCtxs() {
+            generation++;
+            fwCtxByL2Fd.clear();
+        }
+
+        synchronized void invalidate() {
+            generation++;
+            fwCtxByL2Fd.clear();
+            epgs.clear();
+        }
+
+        synchronized boolean isEpgPresent(EndpointGroupId epgId) {
+            return epgs.contains(epgId);
+        }
+
+        synchronized void putEpg(EndpointGroupId epgId, long readGeneration) {
+            if (readGeneration == generation) {
+                epgs.add(epgId);
+            }
+        }
+
+        synchronized void epgDeleted(EndpointGroupId epgId) {
+            generation++;
+            epgs.remove(epgId);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.gbp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.dto.EpKey;
+import org.opendaylight.groupbasedpolicy.util.IidFactory;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L3ContextId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.UniqueId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3AddressBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Builder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.floating.ip.association.mappings.internal.ports.by.floating.ip.ports.InternalPortByFloatingIpPort;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.floating.ip.association.mappings.internal.ports.by.floating.ip.ports.InternalPortByFloatingIpPortBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.gbp.by.neutron.mappings.endpoints.by.ports.EndpointByPort;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.neutron.gbp.mapper.rev150513.mappings.gbp.by.neutron.mappings.endpoints.by.ports.EndpointByPortBuilder;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class FloatingIpAssociationIndexTest {
+
+    private final UniqueId floatingIpPortId = new UniqueId("00000000-0000-0000-0000-000000000001");
+    private final UniqueId internalPortId = new UniqueId("00000000-0000-0000-0000-000000000002");
+    private final L2BridgeDomainId l2BdId = new L2BridgeDomainId("00000000-0000-0000-0000-000000000003");
+    private final MacAddress mac = new MacAddress("00:00:00:00:00:01");
+    private final L3ContextId l3ContextId = new L3ContextId("00000000-0000-0000-0000-000000000004");
+    private final IpAddress ipAddress = new IpAddress(new Ipv4Address("10.0.0.1"));
+
+    private DataBroker dataBroker;
+    private ListenerRegistration<?> registration;
+    private FloatingIpAssociationIndex index;
+    private DataTreeChangeListener<InternalPortByFloatingIpPort> associationListener;
+    private DataTreeChangeListener<EndpointByPort> endpointByPortListener;
+    private DataTreeChangeListener<Endpoint> endpointListener;
+    private DataTreeChangeListener<EndpointL3> endpointL3Listener;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void init() {
+        dataBroker = mock(DataBroker.class);
+        registration = mock(ListenerRegistration.class);
+        when(dataBroker.registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                any(DataTreeChangeListener.class))).thenReturn((ListenerRegistration) registration);
+        index = new FloatingIpAssociationIndex(dataBroker);
+
+        ArgumentCaptor<DataTreeChangeListener> listeners = ArgumentCaptor.forClass(DataTreeChangeListener.class);
+        verify(dataBroker, times(4)).registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                listeners.capture());
+        associationListener = listeners.getAllValues().get(0);
+        endpointByPortListener = listeners.getAllValues().get(1);
+        endpointListener = listeners.getAllValues().get(2);
+        endpointL3Listener = listeners.getAllValues().get(3);
+    }
+
+    @Test
+    public void testGetInternalEndpoint() {
+        InternalPortByFloatingIpPort association = new InternalPortByFloatingIpPortBuilder()
+            .setFloatingIpPortId(floatingIpPortId)
+            .setInternalPortId(internalPortId)
+            .build();
+        associationListener.onDataTreeChanged(Collections.singletonList(
+                change(NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId), ModificationType.WRITE,
+                        association)));
+        assertNull(index.getInternalEndpoint(floatingIpPortId));
+
+        EndpointByPort epByPort =
+                new EndpointByPortBuilder().setPortId(internalPortId).setL2Context(l2BdId).setMacAddress(mac).build();
+        endpointByPortListener.onDataTreeChanged(Collections.singletonList(
+                change(NeutronGbpIidFactory.endpointByPortIid(internalPortId), ModificationType.WRITE, epByPort)));
+
+        assertEquals(association, index.getAssociation(floatingIpPortId));
+        EpKey epKey = index.getInternalEndpoint(floatingIpPortId);
+        assertEquals(l2BdId, epKey.getL2Context());
+        assertEquals(mac, epKey.getMacAddress());
+    }
+
+    @Test
+    public void testGetAssociation_deleted() {
+        InternalPortByFloatingIpPort association = new InternalPortByFloatingIpPortBuilder()
+            .setFloatingIpPortId(floatingIpPortId)
+            .setInternalPortId(internalPortId)
+            .build();
+        associationListener.onDataTreeChanged(Collections.singletonList(
+                change(NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId), ModificationType.WRITE,
+                        association)));
+        associationListener.onDataTreeChanged(Collections.singletonList(
+                change(NeutronGbpIidFactory.internalPortByFloatingIpPortIid(floatingIpPortId),
+                        ModificationType.DELETE, (InternalPortByFloatingIpPort) null)));
+
+        assertNull(index.getAssociation(floatingIpPortId));
+    }
+
+    @Test
+    public void testGetL3Endpoint() {
+        EpKey l2EpKey = new EpKey(l2BdId, mac);
+        Endpoint endpoint = new EndpointBuilder().setL2Context(l2BdId)
+            .setMacAddress(mac)
+            .setL3Address(Collections.singletonList(
+                    new L3AddressBuilder().setL3Context(l3ContextId).setIpAddress(ipAddress).build()))
+            .build();
+        endpointListener.onDataTreeChanged(Collections.singletonList(
+                change(IidFactory.endpointIid(l2BdId, mac), ModificationType.WRITE, endpoint)));
+        assertNull(index.getL3Endpoint(l2EpKey, ipAddress));
+
+        EndpointL3 endpointL3 = new EndpointL3Builder().setL3Context(l3ContextId).setIpAddress(ipAddress).build();
+        endpointL3Listener.onDataTreeChanged(Collections.singletonList(
+                change(IidFactory.l3EndpointIid(l3ContextId, ipAddress), ModificationType.WRITE, endpointL3)));
+        assertEquals(new EndpointL3Key(ipAddress, l3ContextId), index.getL3Endpoint(l2EpKey, ipAddress));
+        assertNull(index.getL3Endpoint(l2EpKey, new IpAddress(new Ipv4Address("10.0.0.2"))));
+
+        endpointListener.onDataTreeChanged(Collections.singletonList(
+                change(IidFactory.endpointIid(l2BdId, mac), ModificationType.DELETE, (Endpoint) null)));
+        assertNull(index.getL3Endpoint(l2EpKey, ipAddress));
+    }
+
+    @Test
+    public void testGetFloatingIpPortIdByDeviceId() {
+        index.floatingIpPortCreated("device", floatingIpPortId);
+        assertEquals(floatingIpPortId, index.getFloatingIpPortIdByDeviceId("device"));
+
+        index.floatingIpPortDeleted("device");
+        assertNull(index.getFloatingIpPortIdByDeviceId("device"));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        index.close();
+        verify(registration, times(4)).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends DataObject> DataTreeModification<T> change(InstanceIdentifier<T> iid,
+            ModificationType type, T dataAfter) {
+        DataTreeModification<T> change = mock(DataTreeModification.class);
+        DataObjectModification<T> modification = mock(DataObjectModification.class);
+        when(change.getRootPath()).thenReturn(new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, iid));
+        when(change.getRootNode()).thenReturn(modification);
+        when(modification.getModificationType()).thenReturn(type);
+        when(modification.getDataAfter()).thenReturn(dataAfter);
+        return change;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.NeutronSecurityGroupAware;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.test.GbpDataBrokerTest;
+import org.opendaylight.groupbasedpolicy.util.IidFactory;
+import org.opendaylight.neutron.spi.NeutronNetwork;
+import org.opendaylight.neutron.spi.NeutronPort;
+import org.opendaylight.neutron.spi.NeutronRouter;
+import org.opendaylight.neutron.spi.NeutronRouter_NetworkReference;
+import org.opendaylight.neutron.spi.NeutronSecurityGroup;
+import org.opendaylight.neutron.spi.NeutronSubnet;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2FloodDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2FloodDomainBuilder;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class NeutronStateImporterTest extends GbpDataBrokerTest {
+
+    private static final String TENANT_ID = "00000000-0000-0000-0000-000000000001";
+
+    private NeutronNetworkAware networkAware;
+    private NeutronSubnetAware subnetAware;
+    private NeutronSecurityGroupAware secGroupAware;
+    private NeutronRouterAware routerAware;
+    private NeutronPortAware portAware;
+    private NeutronStateImporter importer;
+
+    @Before
+    public void init() {
+        networkAware = mock(NeutronNetworkAware.class);
+        subnetAware = mock(NeutronSubnetAware.class);
+        secGroupAware = mock(NeutronSecurityGroupAware.class);
+        routerAware = mock(NeutronRouterAware.class);
+        portAware = mock(NeutronPortAware.class);
+        importer = new NeutronStateImporter(getDataBroker(), networkAware, subnetAware, secGroupAware, routerAware,
+                portAware, 1);
+    }
+
+    @Test
+    public void testImportNeutronState_mappedNetworkIsSkipped() throws Exception {
+        NeutronNetwork mappedNetwork = network("00000000-0000-0000-0000-000000000002");
+        NeutronNetwork newNetwork = network("00000000-0000-0000-0000-000000000003");
+        L2FloodDomainId l2FdId = new L2FloodDomainId(mappedNetwork.getID());
+        WriteTransaction wTx = getDataBroker().newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2FloodDomainIid(new TenantId(TENANT_ID), l2FdId),
+                new L2FloodDomainBuilder().setId(l2FdId).build(), true);
+        wTx.submit().get();
+        NeutronSubnet subnet = new NeutronSubnet();
+        NeutronSecurityGroup secGroup = new NeutronSecurityGroup();
+
+        importer.importNeutronState(Arrays.asList(mappedNetwork, newNetwork), Collections.singletonList(subnet),
+                Collections.singletonList(secGroup), Collections.<NeutronRouter>emptyList(),
+                Collections.<NeutronPort>emptyList());
+
+        verify(networkAware, never()).addNeutronNetwork(eq(mappedNetwork), any(ReadWriteTransaction.class));
+        verify(networkAware).addNeutronNetwork(eq(newNetwork), any(ReadWriteTransaction.class));
+        verify(subnetAware).addNeutronSubnet(eq(subnet), any(ReadWriteTransaction.class));
+        verify(secGroupAware).addNeutronSecurityGroup(eq(secGroup), any(ReadWriteTransaction.class));
+    }
+
+    @Test
+    public void testImportNeutronState_ports() throws Exception {
+        NeutronPort routerIfacePort = port("00000000-0000-0000-0000-000000000004", "network:router_interface");
+        NeutronPort registeredPort = port("00000000-0000-0000-0000-000000000005", "compute:nova");
+        NeutronPort failedPort = port("00000000-0000-0000-0000-000000000006", "compute:nova");
+        when(portAware.createNeutronPort(eq(registeredPort), any(ReadWriteTransaction.class)))
+            .thenReturn(Futures.immediateFuture(true));
+        when(portAware.createNeutronPort(eq(failedPort), any(ReadWriteTransaction.class)))
+            .thenReturn(Futures.immediateFuture(false));
+
+        importer.importNeutronState(Collections.<NeutronNetwork>emptyList(), Collections.<NeutronSubnet>emptyList(),
+                Collections.<NeutronSecurityGroup>emptyList(), Collections.<NeutronRouter>emptyList(),
+                Arrays.asList(routerIfacePort, registeredPort, failedPort));
+
+        verify(portAware).neutronPortCreated(routerIfacePort);
+        verify(portAware, never()).createNeutronPort(eq(routerIfacePort), any(ReadWriteTransaction.class));
+        verify(portAware, never()).neutronPortCreated(registeredPort);
+        verify(portAware).neutronPortCreated(failedPort);
+    }
+
+    @Test
+    public void testImportNeutronState_routerGatewayAfterPorts() throws Exception {
+        NeutronPort port = port("00000000-0000-0000-0000-000000000007", "compute:nova");
+        SettableFuture<Boolean> portCreated = SettableFuture.create();
+        when(portAware.createNeutronPort(eq(port), any(ReadWriteTransaction.class))).thenReturn(portCreated);
+        NeutronRouter router = new NeutronRouter();
+        router.setID("00000000-0000-0000-0000-000000000008");
+        router.setTenantID(TENANT_ID);
+        router.setExternalGatewayInfo(new NeutronRouter_NetworkReference());
+
+        ListenableFuture<Void> imported = importer.importNeutronState(Collections.<NeutronNetwork>emptyList(),
+                Collections.<NeutronSubnet>emptyList(), Collections.<NeutronSecurityGroup>emptyList(),
+                Collections.singletonList(router), Collections.singletonList(port));
+
+        verify(routerAware, never()).neutronRouterUpdated(router);
+        assertFalse(imported.isDone());
+
+        portCreated.set(false);
+
+        verify(routerAware).neutronRouterUpdated(router);
+        assertTrue(imported.isDone());
+    }
+
+    private static NeutronNetwork network(String id) {
+        NeutronNetwork network = new NeutronNetwork();
+        network.setID(id);
+        network.setTenantID(TENANT_ID);
+        return network;
+    }
+
+    private static NeutronPort port(String id, String deviceOwner) {
+        NeutronPort port = new NeutronPort();
+        port.setID(id);
+        port.setTenantID(TENANT_ID);
+        port.setDeviceOwner(deviceOwner);
+        return port;
+    }
+}
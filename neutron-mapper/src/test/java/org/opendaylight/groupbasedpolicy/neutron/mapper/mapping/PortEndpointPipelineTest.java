@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.UnregisterEndpointInputBuilder;
+import org.opendaylight.yangtools.yang.common.RpcResult;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class PortEndpointPipelineTest {
+
+    private EndpointService epService;
+    private RegisterEndpointInput registerInput;
+    private UnregisterEndpointInput unregisterInput;
+    private SettableFuture<RpcResult<Void>> registerResult;
+    private SettableFuture<RpcResult<Void>> unregisterResult;
+
+    @Before
+    public void init() {
+        epService = mock(EndpointService.class);
+        registerInput = new RegisterEndpointInputBuilder().build();
+        unregisterInput = new UnregisterEndpointInputBuilder().build();
+        registerResult = SettableFuture.create();
+        unregisterResult = SettableFuture.create();
+        when(epService.registerEndpoint(registerInput)).thenReturn(registerResult);
+        when(epService.unregisterEndpoint(unregisterInput)).thenReturn(unregisterResult);
+    }
+
+    @Test
+    public void testRpcsOfPortAreSerialized() throws Exception {
+        ListenableFuture<Boolean> isRegistered =
+                PortEndpointPipeline.registerEndpoint("port1", registerInput, epService);
+        ListenableFuture<Boolean> isUnregistered =
+                PortEndpointPipeline.unregisterEndpoint("port1", unregisterInput, epService);
+        verify(epService).registerEndpoint(registerInput);
+        verify(epService, never()).unregisterEndpoint(unregisterInput);
+
+        registerResult.set(RpcResultBuilder.<Void>success().build());
+        Assert.assertTrue(isRegistered.get());
+        verify(epService).unregisterEndpoint(unregisterInput);
+        Assert.assertFalse(isUnregistered.isDone());
+
+        unregisterResult.set(RpcResultBuilder.<Void>success().build());
+        Assert.assertTrue(isUnregistered.get());
+    }
+
+    @Test
+    public void testRpcsOfDifferentPortsAreConcurrent() throws Exception {
+        PortEndpointPipeline.registerEndpoint("port2", registerInput, epService);
+        PortEndpointPipeline.unregisterEndpoint("port3", unregisterInput, epService);
+        verify(epService).registerEndpoint(registerInput);
+        verify(epService).unregisterEndpoint(unregisterInput);
+    }
+
+    @Test
+    public void testReregisterEndpoint_unregisterFailed() throws Exception {
+        ListenableFuture<Boolean> isRegistered =
+                PortEndpointPipeline.reregisterEndpoint("port4", unregisterInput, registerInput, epService);
+        unregisterResult.set(RpcResultBuilder.<Void>failed().build());
+
+        Assert.assertFalse(isRegistered.get());
+        verify(epService, never()).registerEndpoint(registerInput);
+    }
+
+    @Test
+    public void testAllSuccessful() throws Exception {
+        ListenableFuture<Boolean> isRegistered =
+                PortEndpointPipeline.registerEndpoint("port5", registerInput, epService);
+        ListenableFuture<Boolean> isUnregistered =
+                PortEndpointPipeline.unregisterEndpoint("port6", unregisterInput, epService);
+        ListenableFuture<Boolean> result =
+                PortEndpointPipeline.allSuccessful(Arrays.asList(isRegistered, isUnregistered));
+        registerResult.set(RpcResultBuilder.<Void>success().build());
+        Assert.assertFalse(result.isDone());
+
+        unregisterResult.set(RpcResultBuilder.<Void>failed().build());
+        Assert.assertFalse(result.get());
+    }
+}
@@ -12,6 +12,7 @@ import org.opendaylight.groupbasedpolicy.neutron.mapper.test.NeutronEntityFactor
 import org.opendaylight.groupbasedpolicy.neutron.mapper.test.PolicyAssert;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.util.NeutronUtils;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.TenantCache;
 import org.opendaylight.neutron.spi.NeutronSecurityGroup;
 import org.opendaylight.neutron.spi.NeutronSecurityRule;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
@@ -31,7 +32,8 @@ public class NeutronSecurityGroupAwareDataStoreTest extends GbpDataBrokerTest {
         SecRuleDao secRuleDao = new SecRuleDao();
         SecGroupDao secGroupDao = new SecGroupDao();
         NeutronSecurityRuleAware ruleAware = new NeutronSecurityRuleAware(dataBroker, secRuleDao, secGroupDao);
-        NeutronSecurityGroupAware groupAware = new NeutronSecurityGroupAware(dataBroker, ruleAware, secGroupDao);
+        NeutronSecurityGroupAware groupAware = new NeutronSecurityGroupAware(dataBroker, ruleAware, secGroupDao,
+                new TenantCache(dataBroker));
 
         final String tenantId = "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa";
         final String secGroupId1 = "bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb";
@@ -93,7 +95,8 @@ public class NeutronSecurityGroupAwareDataStoreTest extends GbpDataBrokerTest {
         SecRuleDao secRuleDao = new SecRuleDao();
         SecGroupDao secGroupDao = new SecGroupDao();
         NeutronSecurityRuleAware ruleAware = new NeutronSecurityRuleAware(dataBroker, secRuleDao, secGroupDao);
-        NeutronSecurityGroupAware groupAware = new NeutronSecurityGroupAware(dataBroker, ruleAware, secGroupDao);
+        NeutronSecurityGroupAware groupAware = new NeutronSecurityGroupAware(dataBroker, ruleAware, secGroupDao,
+                new TenantCache(dataBroker));
 
         final String tenantId = "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa";
         final String secGroupId1 = "bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb";
@@ -198,16 +201,18 @@ public class NeutronSecurityGroupAwareDataStoreTest extends GbpDataBrokerTest {
         SecRuleDao secRuleDao = new SecRuleDao();
         SecGroupDao secGroupDao = new SecGroupDao();
         NeutronSecurityRuleAware ruleAware = new NeutronSecurityRuleAware(dataBroker, secRuleDao, secGroupDao);
-        assertExceptionInConstructor(null, ruleAware, secGroupDao);
-        assertExceptionInConstructor(dataBroker, null, secGroupDao);
-        assertExceptionInConstructor(dataBroker, ruleAware, null);
-        assertExceptionInConstructor(null, null, null);
+        TenantCache tenantCache = new TenantCache(dataBroker);
+        assertExceptionInConstructor(null, ruleAware, secGroupDao, tenantCache);
+        assertExceptionInConstructor(dataBroker, null, secGroupDao, tenantCache);
+        assertExceptionInConstructor(dataBroker, ruleAware, null, tenantCache);
+        assertExceptionInConstructor(dataBroker, ruleAware, secGroupDao, null);
+        assertExceptionInConstructor(null, null, null, null);
     }
 
     private void assertExceptionInConstructor(DataBroker dataBroker, NeutronSecurityRuleAware secRuleAware,
-            SecGroupDao secGroupDao) {
+            SecGroupDao secGroupDao, TenantCache tenantCache) {
         try {
-            new NeutronSecurityGroupAware(dataBroker, secRuleAware, secGroupDao);
+            new NeutronSecurityGroupAware(dataBroker, secRuleAware, secGroupDao, tenantCache);
             fail(NullPointerException.class.getName() + " expected");
         } catch (NullPointerException ex) {
             // do nothing
@@ -1,7 +1,10 @@
 package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
@@ -401,6 +404,35 @@ public class NeutronSecurityRuleAwareDataStoreTest extends GbpDataBrokerTest {
         PolicyAssert.assertContract(contract, defaultOutIpv6);
     }
 
+    @Test
+    public final void testAddNeutronSecurityRuleIfNotMaterialized() throws Exception {
+        DataBroker dataBroker = getDataBroker();
+        SecRuleDao secRuleDao = new SecRuleDao();
+        SecGroupDao secGroupDao = new SecGroupDao();
+        NeutronSecurityRuleAware ruleAware = new NeutronSecurityRuleAware(dataBroker, secRuleDao, secGroupDao);
+        String tenant = "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa";
+        NeutronSecurityRule secRule = NeutronEntityFactory.securityRuleWithEtherType(
+                "dddddddd-dddd-dddd-dddd-dddddddddddd", tenant, NeutronUtils.IPv4, NeutronUtils.INGRESS,
+                "bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb", null);
+
+        ReadWriteTransaction rwTx = dataBroker.newReadWriteTransaction();
+        ruleAware.addNeutronSecurityRuleIfNotMaterialized(secRule, rwTx);
+        rwTx.cancel();
+        assertFalse(ruleAware.isSecRuleMaterialized(secRule));
+
+        rwTx = dataBroker.newReadWriteTransaction();
+        ruleAware.addNeutronSecurityRuleIfNotMaterialized(secRule, rwTx);
+        rwTx.submit().get();
+        assertTrue(ruleAware.isSecRuleMaterialized(secRule));
+
+        ReadWriteTransaction replayTx = mock(ReadWriteTransaction.class);
+        assertTrue(ruleAware.addNeutronSecurityRuleIfNotMaterialized(secRule, replayTx));
+        verifyZeroInteractions(replayTx);
+
+        ruleAware.deleteNeutronSecurityRule(secRule, dataBroker.newReadWriteTransaction());
+        assertFalse(ruleAware.isSecRuleMaterialized(secRule));
+    }
+
     @Test
     public void testConstructor_invalidArgument() throws Exception {
         DataBroker dataBroker = getDataBroker();
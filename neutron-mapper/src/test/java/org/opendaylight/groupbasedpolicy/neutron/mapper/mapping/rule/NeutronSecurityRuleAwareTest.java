@@ -4,17 +4,32 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.StatusCode;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.group.SecGroupDao;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.test.ConfigDataStoreReader;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.test.GbpDataBrokerTest;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.test.NeutronEntityFactory;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.test.PolicyAssert;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.NeutronUtils;
 import org.opendaylight.neutron.spi.NeutronSecurityRule;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.HasDirection.Direction;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.Contract;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.endpoint.group.ConsumerNamedSelector;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.collect.ImmutableSet;
 
 public class NeutronSecurityRuleAwareTest extends GbpDataBrokerTest {
 
@@ -74,6 +89,52 @@ public class NeutronSecurityRuleAwareTest extends GbpDataBrokerTest {
         PolicyAssert.assertContractNotExists(dataProvider, RULE_TENANT_ID, RULE_ID);
     }
 
+    @Test
+    public void testDesignContractsOfSecRule_thousandSecGroups() {
+        SecRuleDao secRuleDao = new SecRuleDao();
+        NeutronSecurityRuleAware ruleAware =
+                new NeutronSecurityRuleAware(mock(DataBroker.class), secRuleDao, new SecGroupDao());
+        for (int i = 0; i < 1000; i++) {
+            addDefaultSecRules(secRuleDao, i);
+        }
+        // group 0 accepts ingress traffic from all groups
+        NeutronSecurityRule inFromAll = NeutronEntityFactory.securityRuleWithEtherType(ruleId(0, 3), RULE_TENANT_ID,
+                NeutronUtils.IPv4, NeutronUtils.INGRESS, groupId(0), null);
+        secRuleDao.addSecRule(inFromAll);
+        NeutronSecurityRule[] newGroupRules = addDefaultSecRules(secRuleDao, 1000);
+        NeutronSecurityRule newGroupOut = newGroupRules[0];
+        NeutronSecurityRule newGroupIn = newGroupRules[1];
+
+        assertEquals(ImmutableSet.of(new EndpointGroupId(groupId(1000)), new EndpointGroupId(groupId(0))),
+                ruleAware.getConsumerEpgIdsOfProviderSecRule(newGroupOut));
+        assertEquals(ImmutableSet.of(newGroupIn, inFromAll),
+                ruleAware.getProviderSecRulesOfConsumerSecRule(newGroupOut));
+        assertEquals(ImmutableSet.of(newGroupOut), ruleAware.getProviderSecRulesOfConsumerSecRule(newGroupIn));
+
+        ReadWriteTransaction rwTx = mock(ReadWriteTransaction.class);
+        ruleAware.designContractsOfSecRule(new TenantId(RULE_TENANT_ID), newGroupOut, rwTx);
+        verify(rwTx, times(4)).put(eq(LogicalDatastoreType.CONFIGURATION), any(InstanceIdentifier.class),
+                any(ConsumerNamedSelector.class), eq(true));
+    }
+
+    private static NeutronSecurityRule[] addDefaultSecRules(SecRuleDao secRuleDao, int group) {
+        NeutronSecurityRule out = NeutronEntityFactory.securityRuleWithEtherType(ruleId(group, 1), RULE_TENANT_ID,
+                NeutronUtils.IPv4, NeutronUtils.EGRESS, groupId(group), null);
+        NeutronSecurityRule in = NeutronEntityFactory.securityRuleWithEtherType(ruleId(group, 2), RULE_TENANT_ID,
+                NeutronUtils.IPv4, NeutronUtils.INGRESS, groupId(group), groupId(group));
+        secRuleDao.addSecRule(out);
+        secRuleDao.addSecRule(in);
+        return new NeutronSecurityRule[] {out, in};
+    }
+
+    private static String groupId(int group) {
+        return String.format("%08d-0000-0000-0000-000000000000", group);
+    }
+
+    private static String ruleId(int group, int rule) {
+        return String.format("%08d-0000-0000-0000-%012d", group, rule);
+    }
+
     //create neutron security rule
     private NeutronSecurityRule buildNeutronSecurityRule() {
         NeutronSecurityRule neutronSecurityRule = new NeutronSecurityRule();
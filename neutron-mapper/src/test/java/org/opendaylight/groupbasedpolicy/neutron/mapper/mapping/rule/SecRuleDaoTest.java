@@ -1,6 +1,7 @@
 package org.opendaylight.groupbasedpolicy.neutron.mapper.mapping.rule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -11,6 +12,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opendaylight.groupbasedpolicy.neutron.mapper.test.NeutronEntityFactory;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.NeutronUtils;
 import org.opendaylight.neutron.spi.NeutronSecurityRule;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
 
@@ -158,6 +160,51 @@ public class SecRuleDaoTest {
         secRuleDao.addSecRule(null);
     }
 
+    @Test
+    public void testContainsSecRule() {
+        NeutronSecurityRule secRule = NeutronEntityFactory.securityRuleWithGroupIds(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa", "bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb",
+                "cccccccc-cccc-cccc-cccc-cccccccccccc", null);
+        assertFalse(secRuleDao.containsSecRule(secRule));
+        secRuleDao.addSecRule(secRule);
+        assertTrue(secRuleDao.containsSecRule(secRule));
+        secRuleDao.removeSecRule(secRule);
+        assertFalse(secRuleDao.containsSecRule(secRule));
+    }
+
+    @Test
+    public void testGetOppositeSecRules() {
+        final String tenant = "bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb";
+        final String secGrpId = "cccccccc-cccc-cccc-cccc-cccccccccccc";
+        NeutronSecurityRule outIpv4 = NeutronEntityFactory.securityRuleWithEtherType(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1", tenant, NeutronUtils.IPv4, NeutronUtils.EGRESS, secGrpId, null);
+        NeutronSecurityRule outIpv4Tcp = NeutronEntityFactory.securityRuleWithEtherType(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa2", tenant, NeutronUtils.IPv4, NeutronUtils.EGRESS, secGrpId, null);
+        outIpv4Tcp.setSecurityRuleProtocol(NeutronUtils.TCP);
+        NeutronSecurityRule outIpv6 = NeutronEntityFactory.securityRuleWithEtherType(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa3", tenant, NeutronUtils.IPv6, NeutronUtils.EGRESS, secGrpId, null);
+        NeutronSecurityRule inIpv4 = NeutronEntityFactory.securityRuleWithEtherType(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa4", tenant, NeutronUtils.IPv4, NeutronUtils.INGRESS,
+                secGrpId, null);
+        NeutronSecurityRule inIpv4Tcp = NeutronEntityFactory.securityRuleWithEtherType(
+                "aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa5", tenant, NeutronUtils.IPv4, NeutronUtils.INGRESS,
+                secGrpId, null);
+        inIpv4Tcp.setSecurityRuleProtocol(NeutronUtils.TCP);
+        secRuleDao.addSecRule(outIpv4);
+        secRuleDao.addSecRule(outIpv4Tcp);
+        secRuleDao.addSecRule(outIpv6);
+        secRuleDao.addSecRule(inIpv4Tcp);
+
+        assertSecRules(secRuleDao.getOppositeSecRulesContaining(inIpv4Tcp), outIpv4, outIpv4Tcp);
+        assertSecRules(secRuleDao.getOppositeSecRulesWithin(inIpv4Tcp), outIpv4Tcp);
+        assertSecRules(secRuleDao.getOppositeSecRulesContaining(inIpv4), outIpv4);
+        assertSecRules(secRuleDao.getOppositeSecRulesWithin(inIpv4), outIpv4, outIpv4Tcp);
+        assertSecRules(secRuleDao.getOppositeSecRulesContaining(outIpv6));
+
+        secRuleDao.removeSecRule(outIpv4);
+        assertSecRules(secRuleDao.getOppositeSecRulesContaining(inIpv4Tcp), outIpv4Tcp);
+    }
+
     @Test
     public void testRemoveNonExistingSecRule() {
         NeutronSecurityRule secRule = NeutronEntityFactory.securityRuleWithGroupIds(
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.mapper.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.opendaylight.neutron.spi.INeutronPortAware;
+import org.opendaylight.neutron.spi.NeutronPort;
+
+public class NeutronCallbackQueueTest {
+
+    private NeutronCallbackQueue queue;
+    private INeutronPortAware portAware;
+    private INeutronPortAware wrappedPortAware;
+
+    @Before
+    public void init() {
+        queue = new NeutronCallbackQueue();
+        portAware = mock(INeutronPortAware.class);
+        wrappedPortAware = queue.wrap(INeutronPortAware.class, portAware);
+    }
+
+    @Test
+    public void testWrap_checkIsNotQueued() {
+        NeutronPort port = new NeutronPort();
+        when(portAware.canCreatePort(port)).thenReturn(200);
+
+        assertEquals(200, wrappedPortAware.canCreatePort(port));
+        verify(portAware).canCreatePort(port);
+    }
+
+    @Test
+    public void testWrap_notificationsAreQueuedUntilOpen() {
+        NeutronPort createdPort = port("00000000-0000-0000-0000-000000000001");
+        NeutronPort updatedPort = port("00000000-0000-0000-0000-000000000002");
+        NeutronPort lateCreatedPort = port("00000000-0000-0000-0000-000000000003");
+
+        wrappedPortAware.neutronPortCreated(createdPort);
+        wrappedPortAware.neutronPortUpdated(updatedPort);
+        verify(portAware, never()).neutronPortCreated(createdPort);
+        verify(portAware, never()).neutronPortUpdated(updatedPort);
+
+        queue.open();
+        InOrder inOrder = inOrder(portAware);
+        inOrder.verify(portAware).neutronPortCreated(createdPort);
+        inOrder.verify(portAware).neutronPortUpdated(updatedPort);
+
+        wrappedPortAware.neutronPortCreated(lateCreatedPort);
+        verify(portAware).neutronPortCreated(lateCreatedPort);
+    }
+
+    private static NeutronPort port(String id) {
+        NeutronPort port = new NeutronPort();
+        port.setID(id);
+        return port;
+    }
+}
@@ -0,0 +1,100 @@
+package org.opendaylight.groupbasedpolicy.neutron.mapper.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.test.GbpDataBrokerTest;
+import org.opendaylight.groupbasedpolicy.neutron.mapper.util.MappingUtils.ForwardingCtx;
+import org.opendaylight.groupbasedpolicy.util.IidFactory;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2FloodDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L3ContextId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2BridgeDomainBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2FloodDomainBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L3ContextBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.EndpointGroupBuilder;
+
+public class TenantCacheTest extends GbpDataBrokerTest {
+
+    private final TenantId tenantId = new TenantId("00000000-0000-0000-0000-000000000001");
+    private final L2FloodDomainId l2FdId = new L2FloodDomainId("00000000-0000-0000-0000-000000000002");
+    private final L2BridgeDomainId l2BdId = new L2BridgeDomainId("00000000-0000-0000-0000-000000000003");
+    private final L3ContextId l3ContextId = new L3ContextId("00000000-0000-0000-0000-000000000004");
+    private final EndpointGroupId epgId = new EndpointGroupId("00000000-0000-0000-0000-000000000005");
+    private DataBroker dataBroker;
+    private TenantCache tenantCache;
+
+    @Before
+    public void init() {
+        dataBroker = getDataBroker();
+        tenantCache = new TenantCache(dataBroker);
+    }
+
+    @After
+    public void close() throws Exception {
+        tenantCache.close();
+    }
+
+    @Test
+    public void testGetForwardingCtx_incompleteIsNotCached() throws Exception {
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2FloodDomainIid(tenantId, l2FdId),
+                new L2FloodDomainBuilder().setId(l2FdId).setParent(l2BdId).build(), true);
+        wTx.submit().get();
+        assertNull(tenantCache.getForwardingCtx(tenantId, l2FdId).getL2BridgeDomain());
+
+        writeBridgeDomainAndL3Context();
+        ForwardingCtx fwCtx = tenantCache.getForwardingCtx(tenantId, l2FdId);
+        assertEquals(l2BdId, fwCtx.getL2BridgeDomain().getId());
+        assertEquals(l3ContextId, fwCtx.getL3Context().getId());
+    }
+
+    @Test
+    public void testGetForwardingCtx_invalidate() throws Exception {
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2FloodDomainIid(tenantId, l2FdId),
+                new L2FloodDomainBuilder().setId(l2FdId).setParent(l2BdId).build(), true);
+        wTx.submit().get();
+        writeBridgeDomainAndL3Context();
+        ForwardingCtx fwCtx = tenantCache.getForwardingCtx(tenantId, l2FdId);
+
+        tenantCache.invalidate(tenantId);
+        assertFalse(fwCtx == tenantCache.getForwardingCtx(tenantId, l2FdId));
+    }
+
+    @Test
+    public void testIsEndpointGroupPresent() throws Exception {
+        assertFalse(tenantCache.isEndpointGroupPresent(tenantId, epgId));
+
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.endpointGroupIid(tenantId, epgId),
+                new EndpointGroupBuilder().setId(epgId).build(), true);
+        wTx.submit().get();
+        assertTrue(tenantCache.isEndpointGroupPresent(tenantId, epgId));
+
+        wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.delete(LogicalDatastoreType.CONFIGURATION, IidFactory.endpointGroupIid(tenantId, epgId));
+        wTx.submit().get();
+        tenantCache.invalidate(tenantId);
+        assertFalse(tenantCache.isEndpointGroupPresent(tenantId, epgId));
+    }
+
+    private void writeBridgeDomainAndL3Context() throws Exception {
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l2BridgeDomainIid(tenantId, l2BdId),
+                new L2BridgeDomainBuilder().setId(l2BdId).setParent(l3ContextId).build(), true);
+        wTx.put(LogicalDatastoreType.CONFIGURATION, IidFactory.l3ContextIid(tenantId, l3ContextId),
+                new L3ContextBuilder().setId(l3ContextId).build(), true);
+        wTx.submit().get();
+    }
+}
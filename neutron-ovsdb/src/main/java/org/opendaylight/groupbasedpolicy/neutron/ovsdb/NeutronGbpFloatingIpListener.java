@@ -15,11 +15,12 @@ import java.util.Map.Entry;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
-import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.groupbasedpolicy.dto.EpKey;
+import org.opendaylight.groupbasedpolicy.neutron.gbp.util.FloatingIpAssociationIndex;
 import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.NeutronOvsdbIidFactory;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
@@ -28,7 +29,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Builder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddressBuilder;
@@ -47,9 +47,11 @@ public class NeutronGbpFloatingIpListener implements DataChangeListener, AutoClo
     private static final Logger LOG = LoggerFactory.getLogger(NeutronGbpFloatingIpListener.class);
     private final ListenerRegistration<DataChangeListener> gbpFloatingIpListener;
     private final DataBroker dataBroker;
+    private final FloatingIpAssociationIndex floatingIpIndex;
 
-    public NeutronGbpFloatingIpListener(DataBroker dataBroker) {
+    public NeutronGbpFloatingIpListener(DataBroker dataBroker, FloatingIpAssociationIndex floatingIpIndex) {
         this.dataBroker = checkNotNull(dataBroker);
+        this.floatingIpIndex = checkNotNull(floatingIpIndex);
          gbpFloatingIpListener = dataBroker.registerDataChangeListener(LogicalDatastoreType.OPERATIONAL,
                 NeutronOvsdbIidFactory.neutronGbpInternalPortByFloatingIpIidWildcard(), this, DataChangeScope.BASE);
         LOG.trace("NeutronGbpFloatingIpListener started");
@@ -91,61 +93,77 @@ public class NeutronGbpFloatingIpListener implements DataChangeListener, AutoClo
         IpAddress natAddress = internalPortByFloatingIp.getFloatingIpPortIpAddress();
         IpAddress ipAddress = internalPortByFloatingIp.getInternalPortIpAddress();
 
-        ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction();
-        Optional<EndpointByPort> optEndpointByPort = DataStoreHelper.readFromDs(
-                LogicalDatastoreType.OPERATIONAL,
-                NeutronOvsdbIidFactory.endpointByPortIid(internalPortByFloatingIp.getInternalPortId()), rTx);
-        if (optEndpointByPort.isPresent()) {
-            EpKey l2EpKey = new EpKey(optEndpointByPort.get().getL2Context(), optEndpointByPort.get().getMacAddress());
-            updateEndpointNat(l2EpKey, ipAddress, natAddress);
-        } else {
-            LOG.error("processEpByFloatingIp: Couldn't find EP associated with {}.", internalPortByFloatingIp);
+        EpKey l2EpKey = floatingIpIndex.getEndpointByPort(internalPortByFloatingIp.getInternalPortId());
+        if (l2EpKey == null) {
+            // endpoint of the internal port is not indexed yet
+            ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction();
+            Optional<EndpointByPort> optEndpointByPort = DataStoreHelper.readFromDs(
+                    LogicalDatastoreType.OPERATIONAL,
+                    NeutronOvsdbIidFactory.endpointByPortIid(internalPortByFloatingIp.getInternalPortId()), rTx);
+            rTx.close();
+            if (!optEndpointByPort.isPresent()) {
+                LOG.error("processEpByFloatingIp: Couldn't find EP associated with {}.", internalPortByFloatingIp);
+                return;
+            }
+            l2EpKey = new EpKey(optEndpointByPort.get().getL2Context(), optEndpointByPort.get().getMacAddress());
+        }
+        EndpointL3Key l3EpKey = floatingIpIndex.getL3Endpoint(l2EpKey, ipAddress);
+        if (l3EpKey == null) {
+            // endpoints are not indexed yet
+            l3EpKey = readL3EndpointKey(l2EpKey, ipAddress);
+            if (l3EpKey == null) {
+                return;
+            }
         }
+        updateEndpointNat(l3EpKey, natAddress);
     }
 
-    private void updateEndpointNat(EpKey l2EpKey, IpAddress ipAddress, IpAddress natAddress) {
-        Endpoint l2Ep;
-        EndpointL3 l3Ep;
+    private EndpointL3Key readL3EndpointKey(EpKey l2EpKey, IpAddress ipAddress) {
         EndpointL3Key l3EpKey = null;
 
-        ReadWriteTransaction rwTx = dataBroker.newReadWriteTransaction();
-
-        Optional<Endpoint> optL2Ep = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
-                IidFactory.endpointIid((L2BridgeDomainId) l2EpKey.getL2Context(), l2EpKey.getMacAddress()), rwTx);
-        if (optL2Ep.isPresent()) {
-            l2Ep = optL2Ep.get();
-        } else {
-            LOG.error("updateEndpointNat: No Endpoint {} ", l2EpKey);
-            return;
-        }
-
-        if (l2Ep.getL3Address() == null) {
-            LOG.error("updateEndpointNat: L2Ep {} had no IP address to translate to.", l2Ep);
-            return;
-        }
+        ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction();
+        try {
+            Optional<Endpoint> optL2Ep = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
+                    IidFactory.endpointIid((L2BridgeDomainId) l2EpKey.getL2Context(), l2EpKey.getMacAddress()), rTx);
+            if (!optL2Ep.isPresent()) {
+                LOG.error("readL3EndpointKey: No Endpoint {} ", l2EpKey);
+                return null;
+            }
+            Endpoint l2Ep = optL2Ep.get();
+            if (l2Ep.getL3Address() == null) {
+                LOG.error("readL3EndpointKey: L2Ep {} had no IP address to translate to.", l2Ep);
+                return null;
+            }
 
-        for (L3Address l3Address : l2Ep.getL3Address()) {
-            if (l3Address.getIpAddress().equals(ipAddress)) {
-                l3EpKey = new EndpointL3Key(l3Address.getIpAddress(), l3Address.getL3Context());
-                break;
+            for (L3Address l3Address : l2Ep.getL3Address()) {
+                if (l3Address.getIpAddress().equals(ipAddress)) {
+                    l3EpKey = new EndpointL3Key(l3Address.getIpAddress(), l3Address.getL3Context());
+                    break;
+                }
             }
-        }
-        if (l3EpKey == null) {
-            return;
-        }
-        Optional<EndpointL3> optL3Ep = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
-                IidFactory.l3EndpointIid(l3EpKey.getL3Context(), l3EpKey.getIpAddress()), rwTx);
-        if (optL3Ep.isPresent()) {
-            l3Ep = optL3Ep.get();
-            NatAddress nat = new NatAddressBuilder().setNatAddress(natAddress).build();
-
-            EndpointL3 updatedEpL3 = new EndpointL3Builder(l3Ep).addAugmentation(NatAddress.class, nat).build();
-
-            rwTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.l3EndpointIid(l3EpKey.getL3Context(), l3EpKey.getIpAddress()), updatedEpL3,true);
-            boolean writeResult = DataStoreHelper.submitToDs(rwTx);
-            if(!writeResult) {
-                LOG.trace("updateEndpointNat: Could not write {} to datastore.",updatedEpL3.getKey());
+            if (l3EpKey == null) {
+                return null;
             }
+            Optional<EndpointL3> optL3Ep = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
+                    IidFactory.l3EndpointIid(l3EpKey), rTx);
+            return optL3Ep.isPresent() ? l3EpKey : null;
+        } finally {
+            rTx.close();
+        }
+    }
+
+    /**
+     * Writes just the NAT augmentation, so a concurrent change of the L3 endpoint is not
+     * overwritten. The L3 endpoint is not created if it was deleted meanwhile; the write fails.
+     */
+    private void updateEndpointNat(EndpointL3Key l3EpKey, IpAddress natAddress) {
+        NatAddress nat = new NatAddressBuilder().setNatAddress(natAddress).build();
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        wTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.l3EndpointIid(l3EpKey).augmentation(NatAddress.class),
+                nat);
+        boolean writeResult = DataStoreHelper.submitToDs(wTx);
+        if (!writeResult) {
+            LOG.trace("updateEndpointNat: Could not write NAT address of {} to datastore.", l3EpKey);
         }
     }
 
@@ -15,6 +15,8 @@ import java.util.List;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.groupbasedpolicy.neutron.gbp.util.FloatingIpAssociationIndex;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.BridgeCache;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
@@ -25,6 +27,8 @@ public class NeutronOvsdb implements AutoCloseable {
     private final TerminationPointDataChangeListener tpListener;
     private final NodeDataChangeListener nodeListener;
     private final NeutronGbpFloatingIpListener neutronGbpFloatingIpListener;
+    private final BridgeCache bridgeCache;
+    private final FloatingIpAssociationIndex floatingIpIndex;
 
     public NeutronOvsdb(DataBroker dataProvider, RpcProviderRegistry rpcProvider, BundleContext context) {
         checkNotNull(dataProvider);
@@ -32,9 +36,11 @@ public class NeutronOvsdb implements AutoCloseable {
         checkNotNull(context);
 
         EndpointService epService = rpcProvider.getRpcService(EndpointService.class);
-        tpListener = new TerminationPointDataChangeListener(dataProvider, epService);
-        nodeListener = new NodeDataChangeListener(dataProvider);
-        neutronGbpFloatingIpListener = new NeutronGbpFloatingIpListener(dataProvider);
+        bridgeCache = new BridgeCache(dataProvider);
+        tpListener = new TerminationPointDataChangeListener(dataProvider, epService, bridgeCache);
+        nodeListener = new NodeDataChangeListener(dataProvider, bridgeCache);
+        floatingIpIndex = new FloatingIpAssociationIndex(dataProvider);
+        neutronGbpFloatingIpListener = new NeutronGbpFloatingIpListener(dataProvider, floatingIpIndex);
     }
 
     /**
@@ -45,6 +51,10 @@ public class NeutronOvsdb implements AutoCloseable {
         for (ServiceRegistration<?> registration : registrations) {
             registration.unregister();
         }
+        tpListener.close();
+        bridgeCache.close();
+        neutronGbpFloatingIpListener.close();
+        floatingIpIndex.close();
     }
 
 }
@@ -25,6 +25,7 @@ import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.BridgeCache;
 import org.opendaylight.ovsdb.southbound.SouthboundConstants;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.nodes.node.ExternalInterfaces;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorId;
@@ -54,9 +55,11 @@ public class NodeDataChangeListener implements DataChangeListener, AutoCloseable
     private static final String INVENTORY_PREFIX = "openflow:";
     private final ListenerRegistration<DataChangeListener> registration;
     private static DataBroker dataBroker;
+    private final BridgeCache bridgeCache;
 
-    public NodeDataChangeListener(DataBroker dataBroker) {
+    public NodeDataChangeListener(DataBroker dataBroker, BridgeCache bridgeCache) {
         this.dataBroker = checkNotNull(dataBroker);
+        this.bridgeCache = checkNotNull(bridgeCache);
         registration = dataBroker.registerDataChangeListener(LogicalDatastoreType.OPERATIONAL, ovsdbNodeAugmentationIid(SouthboundConstants.OVSDB_TOPOLOGY_ID), this,
                 DataChangeScope.ONE);
         LOG.trace("NodeDataChangeListener started");
@@ -80,6 +83,7 @@ public class NodeDataChangeListener implements DataChangeListener, AutoCloseable
             if (entry.getValue() instanceof OvsdbNodeAugmentation) {
                 OvsdbNodeAugmentation ovsdbNode = (OvsdbNodeAugmentation) entry.getValue();
                 InstanceIdentifier<OvsdbNodeAugmentation> key = (InstanceIdentifier<OvsdbNodeAugmentation>) entry.getKey();
+                bridgeCache.ovsdbNodeChanged(key.firstIdentifierOf(Node.class));
                 InstanceIdentifier<ExternalInterfaces> extInterfacesIid = processNodeNotification(ovsdbNode);
                 if (extInterfacesIid != null) {
                     nodeIdByExtInterface.put(key, extInterfacesIid);
@@ -93,6 +97,7 @@ public class NodeDataChangeListener implements DataChangeListener, AutoCloseable
         for (Entry<InstanceIdentifier<?>, DataObject> entry : change.getUpdatedData().entrySet()) {
             if (entry.getValue() instanceof OvsdbNodeAugmentation) {
                 OvsdbNodeAugmentation ovsdbNode = (OvsdbNodeAugmentation) entry.getValue();
+                bridgeCache.ovsdbNodeChanged(entry.getKey().firstIdentifierOf(Node.class));
                 if (Strings.isNullOrEmpty(getProviderMapping(ovsdbNode))) {
                     removeExternalInterfaces((InstanceIdentifier<OvsdbNodeAugmentation>) entry.getKey());
                 }
@@ -104,6 +109,7 @@ public class NodeDataChangeListener implements DataChangeListener, AutoCloseable
          */
         for (InstanceIdentifier<?> iid : change.getRemovedPaths()) {
             if (iid.getTargetType().equals(OvsdbNodeAugmentation.class)) {
+                bridgeCache.ovsdbNodeChanged(iid.firstIdentifierOf(Node.class));
                 if (nodeIdByExtInterface.get(iid) != null) {
                     removeExternalInterfaces((InstanceIdentifier<OvsdbNodeAugmentation>) iid);
                 }
@@ -14,34 +14,34 @@ import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.NodeDataChangeList
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.EndpointHelper.lookupEndpoint;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.EndpointHelper.updateEndpointRemoveLocation;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.EndpointHelper.updateEndpointWithLocation;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.checkOfOverlayConfig;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.getInventoryNodeConnectorIdString;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.getInventoryNodeIdString;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.removeTunnelsOfOverlayConfig;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.updateOfOverlayConfig;
 import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.NeutronHelper.getEpKeyFromNeutronMapper;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.createTunnelPort;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.getManagerNode;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.getOvsdbBridgeFromTerminationPoint;
-import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.getTopologyNode;
-import static org.opendaylight.groupbasedpolicy.util.DataStoreHelper.readFromDs;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
-import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
-import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.BridgeCache;
+import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.ovsdb.southbound.SouthboundConstants;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.UniqueId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
@@ -57,33 +57,57 @@ import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
 import org.opendaylight.yangtools.concepts.ListenerRegistration;
-import org.opendaylight.yangtools.yang.binding.DataObject;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-public class TerminationPointDataChangeListener implements DataChangeListener, AutoCloseable {
+/**
+ * Updates endpoint locations and tunnel configuration when OVSDB termination points change.
+ * Changes are processed by a fixed number of workers. All changes of a bridge are handled by
+ * the same worker, so they are processed in the order they were notified. Changes of a bridge
+ * waiting for the worker are coalesced, only the latest change of each termination point is
+ * kept. Pending changes are therefore bounded by the number of termination points and the
+ * notifying thread never waits for a worker. Endpoint location updates of the pending changes of
+ * a bridge are written in one transaction.
+ */
+public class TerminationPointDataChangeListener
+        implements DataTreeChangeListener<OvsdbTerminationPointAugmentation>, AutoCloseable {
 
     private static final String NEUTRON_EXTERNAL_ID_KEY = "iface-id";
-    private final ListenerRegistration<DataChangeListener> registration;
+    private static final int WORKER_COUNT = 4;
+    private final ListenerRegistration<?> registration;
     private final DataBroker dataBroker;
     private final EndpointService epService;
     private static final Logger LOG = LoggerFactory.getLogger(TerminationPointDataChangeListener.class);
     private final List<AbstractTunnelType> requiredTunnelTypes;
+    private final List<ExecutorService> workers;
+    // latest changes of termination points by bridge, a bridge is present while its worker task is queued
+    private final Map<InstanceIdentifier<Node>, Map<InstanceIdentifier<OvsdbTerminationPointAugmentation>, DataTreeModification<OvsdbTerminationPointAugmentation>>> pendingChanges =
+            new HashMap<>();
+    private final BridgeCache bridgeCache;
+    private final TunnelPortProvisioner tunnelPortProvisioner;
+    private final TerminationPointNodeIndex nodeIdByTerminPoint = new TerminationPointNodeIndex();
 
-    public TerminationPointDataChangeListener(DataBroker dataBroker, EndpointService epService) {
+    public TerminationPointDataChangeListener(DataBroker dataBroker, EndpointService epService,
+            BridgeCache bridgeCache) {
         this.dataBroker = checkNotNull(dataBroker);
         this.epService = checkNotNull(epService);
+        this.bridgeCache = checkNotNull(bridgeCache);
         InstanceIdentifier<OvsdbTerminationPointAugmentation> iid = InstanceIdentifier.create(NetworkTopology.class)
             .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
             .child(Node.class)
             .child(TerminationPoint.class)
             .augmentation(OvsdbTerminationPointAugmentation.class);
-        registration =
-                dataBroker.registerDataChangeListener(LogicalDatastoreType.OPERATIONAL, iid, this, DataChangeScope.ONE);
         requiredTunnelTypes = createSupportedTunnelsList();
+        tunnelPortProvisioner = new TunnelPortProvisioner(dataBroker, requiredTunnelTypes);
+        workers = createWorkers();
+        try (ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction()) {
+            nodeIdByTerminPoint.rebuild(rTx);
+        }
+        registration = dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, iid), this);
     }
 
     private List<AbstractTunnelType> createSupportedTunnelsList() {
@@ -93,92 +117,171 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
         return Collections.unmodifiableList(required);
     }
 
+    private static List<ExecutorService> createWorkers() {
+        List<ExecutorService> workers = new ArrayList<>();
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            workers.add(Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("neutron-ovsdb-tp-" + i).setDaemon(true).build()));
+        }
+        return Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * Unregisters the listener and waits until workers process changes which were already
+     * notified.
+     */
     @Override
     public void close() throws Exception {
         registration.close();
+        tunnelPortProvisioner.close();
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("Termination point changes were not processed before timeout.");
+                worker.shutdownNow();
+            }
+        }
     }
 
-    /*
-     * When vSwitch is deleted, we loose data in operational DS to determine Iid of
-     * corresponding NodeId.
-     */
-    private static final Map<InstanceIdentifier<OvsdbTerminationPointAugmentation>, NodeId> nodeIdByTerminPoint =
-            new HashMap<>();
-
     @Override
-    public void onDataChanged(AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
-
-        /*
-         * TerminationPoint notifications with OVSDB augmentations
-         * vSwitch ports. Iterate through the list of new ports.
-         */
-        for (Entry<InstanceIdentifier<?>, DataObject> entry : change.getCreatedData().entrySet()) {
-            if (entry.getValue() instanceof OvsdbTerminationPointAugmentation) {
-                OvsdbTerminationPointAugmentation ovsdbTp = (OvsdbTerminationPointAugmentation) entry.getValue();
-                @SuppressWarnings("unchecked")
+    public void onDataTreeChanged(Collection<DataTreeModification<OvsdbTerminationPointAugmentation>> changes) {
+        List<InstanceIdentifier<Node>> bridgesToSchedule = new ArrayList<>();
+        synchronized (pendingChanges) {
+            for (DataTreeModification<OvsdbTerminationPointAugmentation> change : changes) {
                 InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid =
-                        (InstanceIdentifier<OvsdbTerminationPointAugmentation>) entry.getKey();
-                OvsdbBridgeAugmentation ovsdbBridge = getOvsdbBridgeFromTerminationPoint(ovsdbTpIid, dataBroker);
-                nodeIdByTerminPoint.put(ovsdbTpIid,
-                        new NodeId(getInventoryNodeIdString(ovsdbBridge, ovsdbTpIid, dataBroker)));
-                processOvsdbBridge(ovsdbBridge, ovsdbTp, ovsdbTpIid);
+                        change.getRootPath().getRootIdentifier();
+                InstanceIdentifier<Node> bridgeIid = ovsdbTpIid.firstIdentifierOf(Node.class);
+                Map<InstanceIdentifier<OvsdbTerminationPointAugmentation>, DataTreeModification<OvsdbTerminationPointAugmentation>> bridgeChanges =
+                        pendingChanges.get(bridgeIid);
+                if (bridgeChanges == null) {
+                    bridgeChanges = new LinkedHashMap<>();
+                    pendingChanges.put(bridgeIid, bridgeChanges);
+                    bridgesToSchedule.add(bridgeIid);
+                }
+                // the latest change of the termination point takes the position of the latest notification
+                bridgeChanges.remove(ovsdbTpIid);
+                bridgeChanges.put(ovsdbTpIid, change);
+            }
+        }
+        for (final InstanceIdentifier<Node> bridgeIid : bridgesToSchedule) {
+            try {
+                getWorker(bridgeIid).execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        processBridgeChanges(bridgeIid, takePendingChanges(bridgeIid));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                List<DataTreeModification<OvsdbTerminationPointAugmentation>> droppedChanges =
+                        takePendingChanges(bridgeIid);
+                LOG.warn("{} changes of termination points on bridge {} were dropped, the listener is closed.",
+                        droppedChanges.size(), bridgeIid);
             }
         }
+    }
 
-        /*
-         * Updates
-         */
-        for (Entry<InstanceIdentifier<?>, DataObject> entry : change.getUpdatedData().entrySet()) {
-            if (entry.getValue() instanceof OvsdbTerminationPointAugmentation) {
-                OvsdbTerminationPointAugmentation ovsdbTp = (OvsdbTerminationPointAugmentation) entry.getValue();
-                @SuppressWarnings("unchecked")
-                InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid =
-                        (InstanceIdentifier<OvsdbTerminationPointAugmentation>) entry.getKey();
-                OvsdbBridgeAugmentation ovsdbBridge = getOvsdbBridgeFromTerminationPoint(ovsdbTpIid, dataBroker);
-                processOvsdbBridge(ovsdbBridge, ovsdbTp, ovsdbTpIid);
+    /**
+     * Removes pending changes of the bridge, changes notified later are processed by a new task of
+     * the worker.
+     */
+    private List<DataTreeModification<OvsdbTerminationPointAugmentation>> takePendingChanges(
+            InstanceIdentifier<Node> bridgeIid) {
+        synchronized (pendingChanges) {
+            Map<InstanceIdentifier<OvsdbTerminationPointAugmentation>, DataTreeModification<OvsdbTerminationPointAugmentation>> bridgeChanges =
+                    pendingChanges.remove(bridgeIid);
+            if (bridgeChanges == null) {
+                return Collections.emptyList();
             }
+            return new ArrayList<>(bridgeChanges.values());
         }
+    }
 
-        /*
-         * Deletions
-         */
-        for (InstanceIdentifier<?> iid : change.getRemovedPaths()) {
-            DataObject old = change.getOriginalData().get(iid);
-            if (old instanceof OvsdbTerminationPointAugmentation) {
-                OvsdbTerminationPointAugmentation ovsdbTp = (OvsdbTerminationPointAugmentation) old;
-                @SuppressWarnings("unchecked")
-                InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid =
-                        (InstanceIdentifier<OvsdbTerminationPointAugmentation>) iid;
-                processRemovedTp(nodeIdByTerminPoint.get(ovsdbTpIid), ovsdbTp, ovsdbTpIid);
+    private ExecutorService getWorker(InstanceIdentifier<Node> bridgeIid) {
+        return workers.get((bridgeIid.hashCode() & Integer.MAX_VALUE) % workers.size());
+    }
+
+    /**
+     * Processes changes of termination points of one bridge. Endpoint locations are updated in
+     * one transaction which is submitted after all changes were processed.
+     */
+    private void processBridgeChanges(InstanceIdentifier<Node> bridgeIid,
+            List<DataTreeModification<OvsdbTerminationPointAugmentation>> changes) {
+        ReadWriteTransaction rwTx = dataBroker.newReadWriteTransaction();
+        boolean isEpUpdated = false;
+        OvsdbBridgeAugmentation ovsdbBridge = null;
+        for (DataTreeModification<OvsdbTerminationPointAugmentation> change : changes) {
+            InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid = change.getRootPath().getRootIdentifier();
+            DataObjectModification<OvsdbTerminationPointAugmentation> tpModification = change.getRootNode();
+            try {
+                switch (tpModification.getModificationType()) {
+                    case WRITE:
+                    case SUBTREE_MODIFIED:
+                        if (ovsdbBridge == null) {
+                            ovsdbBridge = bridgeCache.getBridge(bridgeIid);
+                        }
+                        if (ovsdbBridge == null) {
+                            LOG.debug("Bridge {} of TerminationPoint {} does not exist.", bridgeIid, ovsdbTpIid);
+                            continue;
+                        }
+                        if (!nodeIdByTerminPoint.contains(ovsdbTpIid)) {
+                            String nodeIdString = bridgeCache.getInventoryNodeId(bridgeIid);
+                            if (nodeIdString != null) {
+                                nodeIdByTerminPoint.put(ovsdbTpIid, new NodeId(nodeIdString));
+                            }
+                        }
+                        isEpUpdated |= processOvsdbBridge(ovsdbBridge, tpModification.getDataAfter(), ovsdbTpIid,
+                                rwTx);
+                        break;
+                    case DELETE:
+                        isEpUpdated |= processRemovedTp(nodeIdByTerminPoint.remove(ovsdbTpIid),
+                                tpModification.getDataBefore(), ovsdbTpIid, rwTx);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Failed to process change of TerminationPoint {}", ovsdbTpIid, e);
             }
         }
+        if (isEpUpdated) {
+            DataStoreHelper.submitToDs(rwTx);
+        } else {
+            rwTx.cancel();
+        }
+        LOG.debug("Processed {} changes of termination points on bridge {}, {} termination points indexed.",
+                changes.size(), bridgeIid, nodeIdByTerminPoint.size());
     }
 
-    private void processOvsdbBridge(OvsdbBridgeAugmentation ovsdbBridge, OvsdbTerminationPointAugmentation ovsdbTp,
-            InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid) {
+    /**
+     * @param rwTx location of endpoint is stored to this transaction. This method NEVER submits or
+     *        cancels the transaction.
+     * @return {@code true} if location of endpoint was stored to the transaction
+     */
+    private boolean processOvsdbBridge(OvsdbBridgeAugmentation ovsdbBridge, OvsdbTerminationPointAugmentation ovsdbTp,
+            InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid, ReadWriteTransaction rwTx) {
 
         checkNotNull(ovsdbBridge);
         if (ovsdbBridge.getBridgeName().getValue().equals(ovsdbTp.getName())) {
             LOG.debug("Termination Point {} same as Bridge {}. Not processing", ovsdbTp.getName(),
                     ovsdbBridge.getBridgeName().getValue());
-            return;
+            return false;
         }
 
-        String nodeIdString = getInventoryNodeIdString(ovsdbBridge, ovsdbTpIid, dataBroker);
+        InstanceIdentifier<Node> nodeIid = ovsdbTpIid.firstIdentifierOf(Node.class);
+        String nodeIdString = bridgeCache.getInventoryNodeId(nodeIid);
         if (nodeIdString == null) {
             LOG.debug("nodeIdString for TerminationPoint {} was null", ovsdbTp);
-            return;
+            return false;
         }
         String nodeConnectorIdString = getInventoryNodeConnectorIdString(nodeIdString, ovsdbTp, ovsdbTpIid, dataBroker);
         if (nodeConnectorIdString == null) {
             LOG.debug("nodeConnectorIdString for TerminationPoint {} was null", ovsdbTp);
-            return;
+            return false;
         }
 
-        InstanceIdentifier<Node> nodeIid = ovsdbTpIid.firstIdentifierOf(Node.class);
         String externalId = getNeutronPortUuid(ovsdbTp);
         Endpoint ep = null;
-        IpAddress hostIp = getIpFromOvsdb(ovsdbBridge);
 
         /*
          * Ports created by Nova have an external_id field
@@ -195,7 +298,7 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
             EndpointKey epKey = getEpKeyFromNeutronMapper(new UniqueId(externalId), dataBroker);
             if (epKey == null) {
                 LOG.debug("TerminationPoint {} with external ID {} is not in Neutron Map", ovsdbTp, externalId);
-                return;
+                return false;
             }
             ReadOnlyTransaction transaction = dataBroker.newReadOnlyTransaction();
             ep = lookupEndpoint(epKey, transaction);
@@ -203,7 +306,7 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
                 LOG.warn(
                         "TerminationPoint {} with external ID {} is in Neutron Map, but corresponding Endpoint {} isn't in Endpoint Repository",
                         ovsdbTp, externalId, epKey);
-                return;
+                return false;
             }
             /*
              * Look up the Node in Inventory that corresponds to the
@@ -211,14 +314,13 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
              * and see if it already is configured with a complete
              * OfOverlay augmentation. If it hasn't, go see if the
              * tunnel ports exist, and if not, go and create them.
+             * Bridges whose tunnel ports are already present are
+             * skipped, the configuration is completed by notifications
+             * of the tunnel ports.
              */
-            if (checkOfOverlayConfig(nodeIdString, requiredTunnelTypes, dataBroker) != true) {
-                checkNotNull(nodeIid);
-                /*
-                 * Check to see if we need to create a
-                 * tunnel port on the parent node
-                 */
-                createTunnelPorts(nodeIid, dataBroker);
+            if (!tunnelPortProvisioner.isProvisioned(nodeIid)
+                    && !bridgeCache.isTunnelsConfigured(nodeIid, requiredTunnelTypes)) {
+                tunnelPortProvisioner.provisionTunnelPorts(nodeIid);
             }
         } else {
             LOG.debug("TerminationPoint {} had no external ID, not processing for external ID.", ovsdbTp);
@@ -231,15 +333,9 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
          * hence
          * not process as IF/ELSE externalID.
          */
-        ReadOnlyTransaction transaction = dataBroker.newReadOnlyTransaction();
-        Optional<Node> node = readFromDs(LogicalDatastoreType.OPERATIONAL, nodeIid, transaction);
-        if (node.isPresent() && node.get().getAugmentation(OvsdbNodeAugmentation.class) != null) {
-            OvsdbNodeAugmentation ovsdbNodeAug = node.get().getAugmentation(OvsdbNodeAugmentation.class);
-            if (getProviderMapping(ovsdbNodeAug) != null) {
-                processNodeNotification(ovsdbNodeAug);
-
-            }
-        } else {
+        OvsdbNodeAugmentation ovsdbNodeAug = bridgeCache.getOvsdbNode(nodeIid);
+        if (ovsdbNodeAug != null && getProviderMapping(ovsdbNodeAug) != null) {
+            processNodeNotification(ovsdbNodeAug);
         }
         /*
          * This may be a notification for a tunnel we just created.
@@ -248,12 +344,14 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
          */
         AbstractTunnelType tunnel = getTunnelType(ovsdbTp, requiredTunnelTypes);
         if (tunnel != null) {
-            updateOfOverlayConfig(hostIp, nodeIdString, nodeConnectorIdString, tunnel, dataBroker);
+            updateOfOverlayConfig(bridgeCache.getManagerIp(nodeIid), nodeIdString, nodeConnectorIdString, tunnel,
+                    dataBroker);
         }
         if (externalId != null) {
-            ReadWriteTransaction rwTx = dataBroker.newReadWriteTransaction();
             updateEndpointWithLocation(ep, nodeIdString, nodeConnectorIdString, rwTx);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -261,31 +359,43 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
      * removes attached tunnels (namely Vxlan-type) from OVSDB bridge;
      * else removes location info from TP
      *
-     * @param nodeId {@link NodeId}
+     * @param nodeId {@link NodeId}, {@code null} if inventory node of the TP is not known
      * @param ovsdbTp {@link OvsdbTerminationPointAugmentation}
      * @param ovsdbTpIid termination point's IID {@link InstanceIdentifier}
+     * @param rwTx location of endpoint is removed in this transaction. This method NEVER submits or
+     *        cancels the transaction.
+     * @return {@code true} if location of endpoint was removed in the transaction
      */
-    private void processRemovedTp(NodeId nodeId, OvsdbTerminationPointAugmentation ovsdbTp,
-            InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid) {
+    private boolean processRemovedTp(NodeId nodeId, OvsdbTerminationPointAugmentation ovsdbTp,
+            InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid, ReadWriteTransaction rwTx) {
         if (isTunnelPort(ovsdbTp, requiredTunnelTypes)) {
-            removeTunnelsOfOverlayConfig(nodeId.getValue(), requiredTunnelTypes, dataBroker);
-        } else {
-            deleteLocationForTp(ovsdbTp);
+            InstanceIdentifier<Node> nodeIid = ovsdbTpIid.firstIdentifierOf(Node.class);
+            if (nodeId != null) {
+                removeTunnelsOfOverlayConfig(nodeId.getValue(), requiredTunnelTypes, dataBroker);
+            } else {
+                LOG.debug("Inventory node of removed tunnel port {} is not known.", ovsdbTpIid);
+            }
+            bridgeCache.invalidateTunnelsConfigured(nodeIid);
+            tunnelPortProvisioner.tunnelPortRemoved(nodeIid);
+            return false;
         }
+        return deleteLocationForTp(ovsdbTp, rwTx);
     }
 
     /**
      * Delete location on EP for given TP
      *
      * @param ovsdbTp {@link OvsdbTerminationPointAugmentation}
+     * @param rwTx location of endpoint is removed in this transaction
+     * @return {@code true} if location of endpoint was removed in the transaction
      */
-    private void deleteLocationForTp(OvsdbTerminationPointAugmentation ovsdbTp) {
+    private boolean deleteLocationForTp(OvsdbTerminationPointAugmentation ovsdbTp, ReadWriteTransaction rwTx) {
         String externalId = getNeutronPortUuid(ovsdbTp);
         if (externalId != null) {
             EndpointKey epKey = getEpKeyFromNeutronMapper(new UniqueId(externalId), dataBroker);
             if (epKey == null) {
                 LOG.debug("TerminationPoint {} with external ID {} is not in Neutron Map.", ovsdbTp, externalId);
-                return;
+                return false;
             }
             ReadOnlyTransaction readOnlyTransaction = dataBroker.newReadOnlyTransaction();
             Endpoint ep = lookupEndpoint(epKey, readOnlyTransaction);
@@ -294,12 +404,13 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
                 LOG.warn(
                         "TerminationPoint {} with external ID {} is in Neutron Map, but corresponding Endpoint {} isn't in Endpoint Repository.",
                         ovsdbTp, externalId, epKey);
-                return;
+                return false;
             }
-            updateEndpointRemoveLocation(ep, dataBroker.newReadWriteTransaction());
-        } else {
-            LOG.debug("TerminationPoint {} has no external ID, not processing.", ovsdbTp);
+            updateEndpointRemoveLocation(ep, rwTx);
+            return true;
         }
+        LOG.debug("TerminationPoint {} has no external ID, not processing.", ovsdbTp);
+        return false;
     }
 
     /**
@@ -364,65 +475,4 @@ public class TerminationPointDataChangeListener implements DataChangeListener, A
         }
         return null;
     }
-
-    /**
-     * Check to see if all tunnel ports are present, and if not,
-     * create them.
-     *
-     * @param nodeIid {@link InstanceIdentifier}
-     * @param dataBroker {@link DataBroker}
-     */
-    private void createTunnelPorts(InstanceIdentifier<Node> nodeIid, DataBroker dataBroker) {
-
-        Node node = getTopologyNode(nodeIid, dataBroker);
-        checkNotNull(node);
-
-        if (node.getAugmentation(OvsdbBridgeAugmentation.class) == null) {
-            LOG.trace("Node {} is not an OVSDB manageable node", nodeIid);
-            return;
-        }
-
-        /*
-         * See if this Topology Node has the required tunnel ports,
-         * and if not, go and create them
-         */
-        for (AbstractTunnelType tunnelType : requiredTunnelTypes) {
-            boolean tunnelPresent = false;
-            for (TerminationPoint tp : node.getTerminationPoint()) {
-                OvsdbTerminationPointAugmentation tpAug = tp.getAugmentation(OvsdbTerminationPointAugmentation.class);
-
-                checkNotNull(tpAug);
-
-                if (tunnelType.isValidTunnelPort(tpAug)) {
-                    tunnelPresent = true;
-                    break;
-                }
-            }
-            if (!tunnelPresent) {
-                createTunnelPort(nodeIid, node, tunnelType, dataBroker);
-            }
-        }
-    }
-
-    /**
-     * Get the IP address of the host that owns the {@link OvsdbBridgeAugmentation}.
-     *
-     * @param ovsdbBridge The OVSDB bridge node
-     * @return The IP address of the host that the bridge is on
-     */
-    private IpAddress getIpFromOvsdb(OvsdbBridgeAugmentation ovsdbBridge) {
-        /*
-         * The manager Node referenced by this node has the
-         * IP address.
-         */
-        OvsdbNodeAugmentation managerNode = getManagerNode(ovsdbBridge, dataBroker);
-
-        if (managerNode == null)
-            return null;
-
-        if (managerNode.getConnectionInfo() != null) {
-            return managerNode.getConnectionInfo().getRemoteIp();
-        }
-        return null;
-    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
+
+import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.InventoryHelper.getInventoryNodeIdString;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.binding.api.ReadTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+/**
+ * Inventory {@link NodeId} of bridges by their OVSDB termination points. When a bridge is
+ * deleted, its data needed to determine the inventory node are lost from operational DS, so the
+ * node of a removed termination point is resolved from this index. Entries are removed together
+ * with termination points, so the index holds only termination points which exist.
+ */
+class TerminationPointNodeIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TerminationPointNodeIndex.class);
+    private static final InstanceIdentifier<Topology> OVSDB_TOPOLOGY_IID = InstanceIdentifier
+        .create(NetworkTopology.class).child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID));
+    private final ConcurrentMap<InstanceIdentifier<OvsdbTerminationPointAugmentation>, NodeId> nodeIdByTerminPoint =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Indexes termination points of all bridges in OVSDB topology in operational DS.
+     *
+     * @param rTx transaction used to read the topology. This method NEVER closes the
+     *        transaction.
+     */
+    void rebuild(ReadTransaction rTx) {
+        Optional<Topology> potentialTopology =
+                DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL, OVSDB_TOPOLOGY_IID, rTx);
+        if (!potentialTopology.isPresent() || potentialTopology.get().getNode() == null) {
+            return;
+        }
+        for (Node node : potentialTopology.get().getNode()) {
+            OvsdbBridgeAugmentation bridge = node.getAugmentation(OvsdbBridgeAugmentation.class);
+            if (bridge == null || bridge.getDatapathId() == null || node.getTerminationPoint() == null) {
+                continue;
+            }
+            String nodeIdString = getInventoryNodeIdString(bridge.getDatapathId());
+            if (nodeIdString == null) {
+                continue;
+            }
+            NodeId nodeId = new NodeId(nodeIdString);
+            InstanceIdentifier<Node> nodeIid = OVSDB_TOPOLOGY_IID.child(Node.class, node.getKey());
+            for (TerminationPoint tp : node.getTerminationPoint()) {
+                if (tp.getAugmentation(OvsdbTerminationPointAugmentation.class) != null) {
+                    nodeIdByTerminPoint.putIfAbsent(nodeIid.child(TerminationPoint.class, tp.getKey())
+                        .augmentation(OvsdbTerminationPointAugmentation.class), nodeId);
+                }
+            }
+        }
+        LOG.debug("Indexed {} termination points of OVSDB bridges.", nodeIdByTerminPoint.size());
+    }
+
+    boolean contains(InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid) {
+        return nodeIdByTerminPoint.containsKey(ovsdbTpIid);
+    }
+
+    void put(InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid, NodeId nodeId) {
+        nodeIdByTerminPoint.put(ovsdbTpIid, nodeId);
+    }
+
+    /**
+     * @return inventory node of the removed termination point or {@code null} if the
+     *         termination point was not indexed
+     */
+    NodeId remove(InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid) {
+        NodeId nodeId = nodeIdByTerminPoint.remove(ovsdbTpIid);
+        LOG.trace("Termination point {} removed from index, {} termination points indexed.", ovsdbTpIid,
+                nodeIdByTerminPoint.size());
+        return nodeId;
+    }
+
+    /**
+     * @return number of indexed termination points
+     */
+    int size() {
+        return nodeIdByTerminPoint.size();
+    }
+}
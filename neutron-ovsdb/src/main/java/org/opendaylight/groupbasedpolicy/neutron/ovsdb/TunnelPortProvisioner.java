@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.createTunnelPort;
+import static org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.OvsdbHelper.getTopologyNode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates missing tunnel ports on OVSDB bridges. A bridge is provisioned once all its tunnel ports
+ * are present in OPERATIONAL datastore; provisioned bridges are not checked again until
+ * {@link #tunnelPortRemoved(InstanceIdentifier)} is called for them or the bridge is deleted.
+ * Tunnel ports written to CONFIGURATION datastore are checked again on next provisioning of the
+ * bridge, so a bridge whose tunnel ports were never created is not skipped.
+ * <p>
+ * Provisioning of one bridge never runs concurrently: {@link TerminationPointDataChangeListener}
+ * processes all changes of a bridge by the same single-thread worker.
+ */
+class TunnelPortProvisioner implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TunnelPortProvisioner.class);
+    private static final InstanceIdentifier<OvsdbBridgeAugmentation> BRIDGE_WILDCARD_IID =
+            InstanceIdentifier.create(NetworkTopology.class)
+                .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+                .child(Node.class)
+                .augmentation(OvsdbBridgeAugmentation.class);
+
+    private final DataBroker dataBroker;
+    private final List<AbstractTunnelType> requiredTunnelTypes;
+    private final Set<InstanceIdentifier<Node>> provisionedBridges =
+            Collections.newSetFromMap(new ConcurrentHashMap<InstanceIdentifier<Node>, Boolean>());
+    private final ListenerRegistration<?> bridgeRegistration;
+
+    TunnelPortProvisioner(DataBroker dataBroker, List<AbstractTunnelType> requiredTunnelTypes) {
+        this.dataBroker = checkNotNull(dataBroker);
+        this.requiredTunnelTypes = checkNotNull(requiredTunnelTypes);
+        bridgeRegistration = dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, BRIDGE_WILDCARD_IID),
+                new DataTreeChangeListener<OvsdbBridgeAugmentation>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<OvsdbBridgeAugmentation>> changes) {
+                        for (DataTreeModification<OvsdbBridgeAugmentation> change : changes) {
+                            if (change.getRootNode().getModificationType() == ModificationType.DELETE) {
+                                provisionedBridges.remove(
+                                        change.getRootPath().getRootIdentifier().firstIdentifierOf(Node.class));
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @return {@code true} if all tunnel ports of the bridge were present in OPERATIONAL datastore
+     *         and none of them was removed since then
+     */
+    boolean isProvisioned(InstanceIdentifier<Node> bridgeIid) {
+        return provisionedBridges.contains(bridgeIid);
+    }
+
+    /**
+     * Creates tunnel ports which are missing on the bridge. The bridge is marked as provisioned
+     * only if all required tunnel ports exist.
+     *
+     * @param bridgeIid bridge in OVSDB topology
+     * @return {@code true} if all required tunnel ports exist or were written to CONFIGURATION
+     *         datastore
+     */
+    boolean provisionTunnelPorts(InstanceIdentifier<Node> bridgeIid) {
+        if (provisionedBridges.contains(bridgeIid)) {
+            return true;
+        }
+        return createTunnelPorts(bridgeIid);
+    }
+
+    /**
+     * Tunnel ports of the bridge are checked again on next provisioning.
+     */
+    void tunnelPortRemoved(InstanceIdentifier<Node> bridgeIid) {
+        provisionedBridges.remove(bridgeIid);
+    }
+
+    @Override
+    public void close() throws Exception {
+        bridgeRegistration.close();
+    }
+
+    /**
+     * Check to see if all tunnel ports are present, and if not,
+     * create them.
+     *
+     * @param bridgeIid {@link InstanceIdentifier}
+     * @return {@code true} if all tunnel ports are present or were created
+     */
+    private boolean createTunnelPorts(InstanceIdentifier<Node> bridgeIid) {
+
+        Node node = getTopologyNode(bridgeIid, dataBroker);
+        if (node == null) {
+            LOG.debug("Bridge {} does not exist, tunnel ports are not created.", bridgeIid);
+            return false;
+        }
+
+        if (node.getAugmentation(OvsdbBridgeAugmentation.class) == null) {
+            LOG.trace("Node {} is not an OVSDB manageable node", bridgeIid);
+            return false;
+        }
+
+        List<TerminationPoint> tps = node.getTerminationPoint();
+        if (tps == null) {
+            tps = Collections.emptyList();
+        }
+
+        /*
+         * See if this Topology Node has the required tunnel ports,
+         * and if not, go and create them
+         */
+        boolean allTunnelsPresent = true;
+        boolean isProvisioned = true;
+        for (AbstractTunnelType tunnelType : requiredTunnelTypes) {
+            boolean tunnelPresent = false;
+            for (TerminationPoint tp : tps) {
+                OvsdbTerminationPointAugmentation tpAug = tp.getAugmentation(OvsdbTerminationPointAugmentation.class);
+
+                checkNotNull(tpAug);
+
+                if (tunnelType.isValidTunnelPort(tpAug)) {
+                    tunnelPresent = true;
+                    break;
+                }
+            }
+            if (!tunnelPresent) {
+                allTunnelsPresent = false;
+                isProvisioned &= createTunnelPort(bridgeIid, node, tunnelType, dataBroker);
+            }
+        }
+        if (allTunnelsPresent) {
+            provisionedBridges.add(bridgeIid);
+        }
+        return isProvisioned;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.opendaylight.groupbasedpolicy.util.DataStoreHelper.readFromDs;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.AbstractTunnelType;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbNodeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+
+/**
+ * Read-through cache of OVSDB bridge data used when termination points of the bridge are
+ * processed: bridge augmentation, inventory node ID derived from its datapath ID, IP address of
+ * its manager, OVSDB node augmentation of the bridge node and whether tunnels of the
+ * inventory node are configured.
+ * <p>
+ * An entry is invalidated when the bridge augmentation changes and removed when the bridge is
+ * deleted. Manager IP and OVSDB node
+ * augmentation are invalidated by {@link #ovsdbNodeChanged(InstanceIdentifier)}, tunnel
+ * configuration by {@link #invalidateTunnelsConfigured(InstanceIdentifier)}.
+ */
+public class BridgeCache implements AutoCloseable {
+
+    private static final InstanceIdentifier<OvsdbBridgeAugmentation> BRIDGE_WILDCARD_IID =
+            InstanceIdentifier.create(NetworkTopology.class)
+                .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+                .child(Node.class)
+                .augmentation(OvsdbBridgeAugmentation.class);
+
+    private final DataBroker dataBroker;
+    private final ConcurrentMap<InstanceIdentifier<Node>, BridgeEntry> entryByBridge = new ConcurrentHashMap<>();
+    private final ListenerRegistration<?> bridgeRegistration;
+
+    public BridgeCache(DataBroker dataBroker) {
+        this.dataBroker = checkNotNull(dataBroker);
+        bridgeRegistration = dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, BRIDGE_WILDCARD_IID),
+                new DataTreeChangeListener<OvsdbBridgeAugmentation>() {
+
+                    @Override
+                    public void onDataTreeChanged(Collection<DataTreeModification<OvsdbBridgeAugmentation>> changes) {
+                        for (DataTreeModification<OvsdbBridgeAugmentation> change : changes) {
+                            InstanceIdentifier<Node> bridgeIid =
+                                    change.getRootPath().getRootIdentifier().firstIdentifierOf(Node.class);
+                            BridgeEntry entry;
+                            if (change.getRootNode().getModificationType() == ModificationType.DELETE) {
+                                entry = entryByBridge.remove(bridgeIid);
+                            } else {
+                                entry = entryByBridge.get(bridgeIid);
+                            }
+                            // a reader holding the entry must not cache what it read before the change
+                            if (entry != null) {
+                                entry.invalidate();
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @param bridgeIid IID of topology node of the bridge
+     * @return the bridge augmentation, null if the bridge does not exist
+     */
+    public OvsdbBridgeAugmentation getBridge(InstanceIdentifier<Node> bridgeIid) {
+        BridgeEntry entry = getEntry(bridgeIid);
+        OvsdbBridgeAugmentation bridge = entry.getBridge();
+        if (bridge != null) {
+            return bridge;
+        }
+        long generation = entry.getGeneration();
+        Optional<OvsdbBridgeAugmentation> potentialBridge;
+        try (ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction()) {
+            potentialBridge = readFromDs(LogicalDatastoreType.OPERATIONAL,
+                    bridgeIid.augmentation(OvsdbBridgeAugmentation.class), rTx);
+        }
+        if (!potentialBridge.isPresent()) {
+            return null;
+        }
+        bridge = potentialBridge.get();
+        String nodeIdString = null;
+        if (bridge.getDatapathId() != null) {
+            nodeIdString = InventoryHelper.getInventoryNodeIdString(bridge.getDatapathId());
+        }
+        entry.putBridge(bridge, nodeIdString, generation);
+        return bridge;
+    }
+
+    /**
+     * @param bridgeIid IID of topology node of the bridge
+     * @return string representation of inventory node ID of the bridge, null if the bridge does
+     *         not exist or it has no datapath ID yet
+     */
+    public String getInventoryNodeId(InstanceIdentifier<Node> bridgeIid) {
+        OvsdbBridgeAugmentation bridge = getBridge(bridgeIid);
+        if (bridge == null || bridge.getDatapathId() == null) {
+            return null;
+        }
+        String nodeIdString = getEntry(bridgeIid).getInventoryNodeId();
+        if (nodeIdString != null) {
+            return nodeIdString;
+        }
+        return InventoryHelper.getInventoryNodeIdString(bridge.getDatapathId());
+    }
+
+    /**
+     * @param bridgeIid IID of topology node of the bridge
+     * @return IP address of the host managing the bridge, null if it is not known
+     */
+    public IpAddress getManagerIp(InstanceIdentifier<Node> bridgeIid) {
+        BridgeEntry entry = getEntry(bridgeIid);
+        IpAddress managerIp = entry.getManagerIp();
+        if (managerIp != null) {
+            return managerIp;
+        }
+        long generation = entry.getGeneration();
+        OvsdbBridgeAugmentation bridge = getBridge(bridgeIid);
+        if (bridge == null) {
+            return null;
+        }
+        OvsdbNodeAugmentation managerNode = OvsdbHelper.getManagerNode(bridge, dataBroker);
+        if (managerNode == null || managerNode.getConnectionInfo() == null) {
+            return null;
+        }
+        managerIp = managerNode.getConnectionInfo().getRemoteIp();
+        if (managerIp != null) {
+            entry.putManagerIp(managerIp, generation);
+        }
+        return managerIp;
+    }
+
+    /**
+     * @param bridgeIid IID of topology node of the bridge
+     * @return OVSDB node augmentation of the bridge node, null if it is not present
+     */
+    public OvsdbNodeAugmentation getOvsdbNode(InstanceIdentifier<Node> bridgeIid) {
+        BridgeEntry entry = getEntry(bridgeIid);
+        Optional<OvsdbNodeAugmentation> ovsdbNode = entry.getOvsdbNode();
+        if (ovsdbNode != null) {
+            return ovsdbNode.orNull();
+        }
+        long generation = entry.getGeneration();
+        Optional<Node> node;
+        try (ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction()) {
+            node = readFromDs(LogicalDatastoreType.OPERATIONAL, bridgeIid, rTx);
+        }
+        if (!node.isPresent()) {
+            return null;
+        }
+        ovsdbNode = Optional.fromNullable(node.get().getAugmentation(OvsdbNodeAugmentation.class));
+        entry.putOvsdbNode(ovsdbNode, generation);
+        return ovsdbNode.orNull();
+    }
+
+    /**
+     * Only a positive result is cached, so the configuration is read again until all required
+     * tunnels are present.
+     *
+     * @param bridgeIid IID of topology node of the bridge
+     * @return {@code true} if OfOverlay configuration of inventory node of the bridge contains all
+     *         required tunnel types
+     * @see InventoryHelper#checkOfOverlayConfig(String, List, DataBroker)
+     */
+    public boolean isTunnelsConfigured(InstanceIdentifier<Node> bridgeIid,
+            List<AbstractTunnelType> requiredTunnelTypes) {
+        BridgeEntry entry = getEntry(bridgeIid);
+        if (entry.isTunnelsConfigured()) {
+            return true;
+        }
+        long generation = entry.getGeneration();
+        String nodeIdString = getInventoryNodeId(bridgeIid);
+        if (nodeIdString == null) {
+            return false;
+        }
+        if (!InventoryHelper.checkOfOverlayConfig(nodeIdString, requiredTunnelTypes, dataBroker)) {
+            return false;
+        }
+        entry.putTunnelsConfigured(generation);
+        return true;
+    }
+
+    /**
+     * Invalidates tunnel configuration state of the bridge, e.g. when a tunnel port is removed.
+     */
+    public void invalidateTunnelsConfigured(InstanceIdentifier<Node> bridgeIid) {
+        BridgeEntry entry = entryByBridge.get(bridgeIid);
+        if (entry != null) {
+            entry.invalidateTunnelsConfigured();
+        }
+    }
+
+    /**
+     * Invalidates data depending on the OVSDB node: its own OVSDB node augmentation and manager
+     * IP of bridges it manages.
+     *
+     * @param nodeIid IID of topology node with OVSDB node augmentation
+     */
+    public void ovsdbNodeChanged(InstanceIdentifier<Node> nodeIid) {
+        BridgeEntry nodeEntry = entryByBridge.get(nodeIid);
+        if (nodeEntry != null) {
+            nodeEntry.invalidateOvsdbNode();
+        }
+        for (BridgeEntry entry : entryByBridge.values()) {
+            entry.invalidateManagerIpIfManagedBy(nodeIid);
+        }
+    }
+
+    @VisibleForTesting
+    boolean isCached(InstanceIdentifier<Node> bridgeIid) {
+        return entryByBridge.containsKey(bridgeIid);
+    }
+
+    private BridgeEntry getEntry(InstanceIdentifier<Node> bridgeIid) {
+        BridgeEntry entry = entryByBridge.get(bridgeIid);
+        if (entry == null) {
+            entry = new BridgeEntry();
+            BridgeEntry existing = entryByBridge.putIfAbsent(bridgeIid, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() throws Exception {
+        bridgeRegistration.close();
+        entryByBridge.clear();
+    }
+
+    /**
+     * Cached data of one bridge. Generation is increased by every invalidation, so a value read
+     * before the invalidation is not cached after it.
+     */
+    private static class BridgeEntry {
+
+        private OvsdbBridgeAugmentation bridge;
+        private String inventoryNodeId;
+        private IpAddress managerIp;
+        private Optional<OvsdbNodeAugmentation> ovsdbNode;
+        private boolean tunnelsConfigured;
+        private long generation = 0;
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized OvsdbBridgeAugmentation getBridge() {
+            return bridge;
+        }
+
+        synchronized String getInventoryNodeId() {
+            return inventoryNodeId;
+        }
+
+        synchronized void putBridge(OvsdbBridgeAugmentation bridge, String inventoryNodeId, long readGeneration) {
+            if (readGeneration == generation) {
+                this.bridge = bridge;
+                this.inventoryNodeId = inventoryNodeId;
+            }
+        }
+
+        synchronized IpAddress getManagerIp() {
+            return managerIp;
+        }
+
+        synchronized void putManagerIp(IpAddress managerIp, long readGeneration) {
+            if (readGeneration == generation) {
+                this.managerIp = managerIp;
+            }
+        }
+
+        synchronized void invalidateManagerIpIfManagedBy(InstanceIdentifier<Node> nodeIid) {
+            if (bridge != null && bridge.getManagedBy() != null
+                    && nodeIid.equals(bridge.getManagedBy().getValue())) {
+                generation++;
+                managerIp = null;
+            }
+        }
+
+        synchronized Optional<OvsdbNodeAugmentation> getOvsdbNode() {
+            return ovsdbNode;
+        }
+
+        synchronized void putOvsdbNode(Optional<OvsdbNodeAugmentation> ovsdbNode, long readGeneration) {
+            if (readGeneration == generation) {
+                this.ovsdbNode = ovsdbNode;
+            }
+        }
+
+        synchronized void invalidateOvsdbNode() {
+            generation++;
+            ovsdbNode = null;
+        }
+
+        synchronized boolean isTunnelsConfigured() {
+            return tunnelsConfigured;
+        }
+
+        synchronized void putTunnelsConfigured(long readGeneration) {
+            if (readGeneration == generation) {
+                tunnelsConfigured = true;
+            }
+        }
+
+        synchronized void invalidateTunnelsConfigured() {
+            generation++;
+            tunnelsConfigured = false;
+        }
+
+        synchronized void invalidate() {
+            generation++;
+            bridge = null;
+            inventoryNodeId = null;
+            managerIp = null;
+            ovsdbNode = null;
+            tunnelsConfigured = false;
+        }
+    }
+}
@@ -14,7 +14,6 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
-import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
@@ -57,7 +56,8 @@ public class EndpointHelper {
      * @param endpoint               the network endpoint
      * @param nodeIdString           the string representation of the inventory NodeId
      * @param nodeConnectorIdString  the string representation of the inventory NodeConnectorId
-     * @param rwTx                   a reference to ReadWriteTransaction object
+     * @param rwTx                   a reference to ReadWriteTransaction object. This method NEVER
+     *                               submits or cancels the transaction.
      */
     public static void updateEndpointWithLocation(Endpoint endpoint, String nodeIdString,
         String nodeConnectorIdString, ReadWriteTransaction rwTx) {
@@ -77,15 +77,20 @@ public class EndpointHelper {
         epBuilder.addAugmentation(OfOverlayContext.class, ofcBuilder.build());
         Endpoint newEp = epBuilder.build();
         rwTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.endpointIid(newEp.getL2Context(), newEp.getMacAddress()), newEp);
-        DataStoreHelper.submitToDs(rwTx);
     }
 
+    /**
+     * Removes location from an {@link Endpoint}.
+     *
+     * @param endpoint the network endpoint
+     * @param rwTx     a reference to ReadWriteTransaction object. This method NEVER submits or
+     *                 cancels the transaction.
+     */
     public static void updateEndpointRemoveLocation(Endpoint endpoint, ReadWriteTransaction rwTx) {
         EndpointBuilder epBuilder = new EndpointBuilder(endpoint);
         Endpoint newEp = epBuilder.build();
         epBuilder.removeAugmentation(OfOverlayContext.class);
         rwTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.endpointIid(newEp.getL2Context(), newEp.getMacAddress()), newEp);
-        DataStoreHelper.submitToDs(rwTx);
     }
 
 }
@@ -87,7 +87,18 @@ public class InventoryHelper {
                 return null;
             }
         }
-        Long macLong = getLongFromDpid(ovsdbBridge.getDatapathId().getValue());
+        return getInventoryNodeIdString(dpid);
+    }
+
+    /**
+     * Construct a String that can be used to create a {@link NodeId} from
+     * the Datapath ID of an OVSDB bridge.
+     *
+     * @param dpid The Datapath ID of the bridge
+     * @return String representation of the Inventory NodeId, null if it fails
+     */
+    public static String getInventoryNodeIdString(DatapathId dpid) {
+        Long macLong = getLongFromDpid(dpid.getValue());
         String nodeIdString = "openflow:" + String.valueOf(macLong);
         if (StringUtils.countMatches(nodeIdString, ":") != 1) {
             LOG.error("{} is not correct format for NodeId.", nodeIdString);
@@ -229,20 +229,23 @@ public class OvsdbHelper {
      * @param node the inventory node
      * @param tunnelType the tunnel type
      * @param dataBroker the {@link DataBroker}
+     * @return {@code true} if the tunnel port was written to CONFIGURATION datastore
      */
-    public static void createTunnelPort(InstanceIdentifier<Node> nodeIid,
+    public static boolean createTunnelPort(InstanceIdentifier<Node> nodeIid,
             Node node, AbstractTunnelType tunnelType, DataBroker dataBroker) {
         ReadWriteTransaction transaction = dataBroker.newReadWriteTransaction();
         OvsdbBridgeAugmentation bridge = node.getAugmentation(OvsdbBridgeAugmentation.class);
         if (bridge == null) {
             LOG.warn("No OvsdbBridgeAugmentationfor Node {}", node);
-            return;
+            transaction.cancel();
+            return false;
         }
 
         OvsdbNodeAugmentation managerNode = getManagerNode(bridge, dataBroker);
         if(managerNode == null) {
             LOG.warn("Couldn't create tunnel port for Node {}, no manager", node);
-            return;
+            transaction.cancel();
+            return false;
         }
         List<Options> options = tunnelType.getOptions();
         OvsdbTerminationPointAugmentation ovsdbTp =
@@ -253,7 +256,7 @@ public class OvsdbHelper {
         Node configNode = getNode(node, tps,ovsdbBridgeAugmentation);
         LOG.info("About to write nodeId {} node {}",nodeIid,configNode);
         transaction.merge(LogicalDatastoreType.CONFIGURATION, nodeIid, configNode);
-        submitToDs(transaction);
+        return submitToDs(transaction);
     }
 
 
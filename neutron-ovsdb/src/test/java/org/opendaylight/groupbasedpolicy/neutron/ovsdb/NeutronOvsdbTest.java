@@ -8,16 +8,29 @@
 
 package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.osgi.framework.BundleContext;
 
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+
 public class NeutronOvsdbTest {
 
     private NeutronOvsdb neutronOvsdb;
@@ -26,9 +39,19 @@ public class NeutronOvsdbTest {
     private RpcProviderRegistry rpcProvider;
     private BundleContext context;
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     @Before
     public void initialise() {
         dataProvider = mock(DataBroker.class);
+        ListenerRegistration registration = mock(ListenerRegistration.class);
+        when(dataProvider.registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                any(DataTreeChangeListener.class))).thenReturn(registration);
+        when(dataProvider.registerDataChangeListener(any(LogicalDatastoreType.class), any(InstanceIdentifier.class),
+                any(DataChangeListener.class), any(DataChangeScope.class))).thenReturn(registration);
+        ReadOnlyTransaction readTransaction = mock(ReadOnlyTransaction.class);
+        when(dataProvider.newReadOnlyTransaction()).thenReturn(readTransaction);
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.absent()));
         rpcProvider = mock(RpcProviderRegistry.class);
         context = mock(BundleContext.class);
 
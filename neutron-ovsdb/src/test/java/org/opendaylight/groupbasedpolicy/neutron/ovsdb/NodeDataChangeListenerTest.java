@@ -31,6 +31,7 @@ import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
 import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.BridgeCache;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.nodes.node.ExternalInterfaces;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
@@ -65,6 +66,7 @@ public class NodeDataChangeListenerTest {
     private OvsdbNodeAugmentation dataObject;
     private ReadOnlyTransaction readOnlyTransaction;
     private ReadWriteTransaction readWriteTransaction;
+    private BridgeCache bridgeCache;
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Before
@@ -134,7 +136,8 @@ public class NodeDataChangeListenerTest {
         when(deleteFuture.checkedGet()).thenReturn(deleteOptional);
         when(deleteOptional.isPresent()).thenReturn(true);
 
-        listener = new NodeDataChangeListener(dataBroker);
+        bridgeCache = mock(BridgeCache.class);
+        listener = new NodeDataChangeListener(dataBroker, bridgeCache);
     }
 
     @Test
@@ -158,6 +161,7 @@ public class NodeDataChangeListenerTest {
         when((dataObject).getOpenvswitchOtherConfigs()).thenReturn(null);
         listener.onDataChanged(change);
         Assert.assertFalse(NodeDataChangeListener.nodeIdByExtInterface.containsKey(identifier));
+        verify(bridgeCache).ovsdbNodeChanged(identifier.firstIdentifierOf(Node.class));
     }
 
     @Test
@@ -9,29 +9,33 @@
 package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
-import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
-import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
 import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.util.BridgeCache;
 import org.opendaylight.ovsdb.southbound.SouthboundConstants;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
@@ -47,16 +51,20 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.re
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.ovsdb.port._interface.attributes.InterfaceExternalIds;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.TpId;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeKey;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPointKey;
 import org.opendaylight.yangtools.concepts.ListenerRegistration;
-import org.opendaylight.yangtools.yang.binding.DataObject;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
 
 public class TerminationPointDataChangeListenerTest {
 
@@ -64,11 +72,9 @@ public class TerminationPointDataChangeListenerTest {
 
     private DataBroker dataBroker;
     private EndpointService epService;
-    private ListenerRegistration<DataChangeListener> registration;
-    private AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change;
-
-    private Map<InstanceIdentifier<?>, DataObject> dataMap;
-    private Set<InstanceIdentifier<?>> dataSet;
+    private ListenerRegistration<?> registration;
+    private DataTreeModification<OvsdbTerminationPointAugmentation> change;
+    private DataObjectModification<OvsdbTerminationPointAugmentation> tpModification;
     private Node node;
 
     private CheckedFuture<Optional<OvsdbBridgeAugmentation>, ReadFailedException> ovsdbBridgeFuture;
@@ -87,10 +93,8 @@ public class TerminationPointDataChangeListenerTest {
         dataBroker = mock(DataBroker.class);
         epService = mock(EndpointService.class);
         registration = mock(ListenerRegistration.class);
-        when(
-                dataBroker.registerDataChangeListener(any(LogicalDatastoreType.class), any(InstanceIdentifier.class),
-                        any(DataChangeListener.class), any(DataChangeScope.class))).thenReturn(registration);
-        change = mock(AsyncDataChangeEvent.class);
+        when(dataBroker.registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                any(DataTreeChangeListener.class))).thenReturn((ListenerRegistration) registration);
 
         InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid = InstanceIdentifier.create(
                 NetworkTopology.class)
@@ -105,9 +109,11 @@ public class TerminationPointDataChangeListenerTest {
         when(externalId.getExternalIdKey()).thenReturn("iface-id");
         when(externalId.getExternalIdValue()).thenReturn(UUID.randomUUID().toString());
 
-        dataMap = new HashMap<InstanceIdentifier<?>, DataObject>();
-        dataMap.put(ovsdbTpIid, ovsdbTp);
-        dataSet = new HashSet<InstanceIdentifier<?>>(Arrays.asList(ovsdbTpIid));
+        change = mock(DataTreeModification.class);
+        tpModification = mock(DataObjectModification.class);
+        when(change.getRootPath()).thenReturn(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ovsdbTpIid));
+        when(change.getRootNode()).thenReturn(tpModification);
 
         readTransaction = mock(ReadOnlyTransaction.class);
         when(dataBroker.newReadOnlyTransaction()).thenReturn(readTransaction);
@@ -172,19 +178,24 @@ public class TerminationPointDataChangeListenerTest {
         OfOverlayNodeConfig ofOverlayNodeConfig = mock(OfOverlayNodeConfig.class);
         when(ofOverlayNodeConfigOptional.get()).thenReturn(ofOverlayNodeConfig);
 
-        listener = new TerminationPointDataChangeListener(dataBroker, epService);
+        // OVSDB topology read when the listener is created
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.absent()));
+
+        listener = new TerminationPointDataChangeListener(dataBroker, epService, new BridgeCache(dataBroker));
     }
 
     @Test
     public void constructorTest() throws Exception {
         listener.close();
-        verify(registration).close();
+        verify(registration, times(2)).close();
     }
 
     @SuppressWarnings("unchecked")
     @Test
-    public void onDataChangedTestCreation() {
-        when(change.getCreatedData()).thenReturn(dataMap);
+    public void onDataTreeChangedTestCreation() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.WRITE);
+        when(tpModification.getDataAfter()).thenReturn(ovsdbTp);
         when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 ovsdbBridgeFuture)
             .thenReturn(endpointFuture)
@@ -193,26 +204,32 @@ public class TerminationPointDataChangeListenerTest {
         when(readWriteTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 endpointByPortFuture).thenReturn(ofOverlayNodeConfigFuture);
 
-        listener.onDataChanged(change);
+        listener.onDataTreeChanged(Collections.singletonList(change));
+        listener.close();
         verify(readWriteTransaction).submit();
     }
 
     @SuppressWarnings("unchecked")
     @Test
-    public void onDataChangedTestCreationExternalIdNull() {
-        when(change.getCreatedData()).thenReturn(dataMap);
+    public void onDataTreeChangedTestCreationExternalIdNull() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.WRITE);
+        when(tpModification.getDataAfter()).thenReturn(ovsdbTp);
         when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 ovsdbBridgeFuture).thenReturn(nodeFuture);
         when(ovsdbTp.getInterfaceExternalIds()).thenReturn(null);
 
-        listener.onDataChanged(change);
+        listener.onDataTreeChanged(Collections.singletonList(change));
+        listener.close();
         verify(readWriteTransaction, never()).submit();
+        verify(readWriteTransaction).cancel();
     }
 
     @SuppressWarnings("unchecked")
     @Test
-    public void onDataChangedTestUpdate() {
-        when(change.getUpdatedData()).thenReturn(dataMap);
+    public void onDataTreeChangedTestUpdate() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.SUBTREE_MODIFIED);
+        when(tpModification.getDataBefore()).thenReturn(ovsdbTp);
+        when(tpModification.getDataAfter()).thenReturn(ovsdbTp);
         when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 ovsdbBridgeFuture)
             .thenReturn(endpointFuture)
@@ -220,21 +237,94 @@ public class TerminationPointDataChangeListenerTest {
         when(readWriteTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 endpointByPortFuture).thenReturn(ofOverlayNodeConfigFuture);
 
-        listener.onDataChanged(change);
+        listener.onDataTreeChanged(Collections.singletonList(change));
+        listener.close();
         verify(readWriteTransaction).submit();
     }
 
     @SuppressWarnings("unchecked")
     @Test
-    public void onDataChangedTestRemoval() {
-        when(change.getRemovedPaths()).thenReturn(dataSet);
-        when(change.getOriginalData()).thenReturn(dataMap);
+    public void onDataTreeChangedTestUpdatesOfBridgeInOneTransaction() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.SUBTREE_MODIFIED);
+        when(tpModification.getDataBefore()).thenReturn(ovsdbTp);
+        when(tpModification.getDataAfter()).thenReturn(ovsdbTp);
+        stubReadsByTargetType();
+
+        listener.onDataTreeChanged(Arrays.asList(tpChange("tp1"), tpChange("tp2")));
+        listener.close();
+        verify(readWriteTransaction, times(2)).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(Endpoint.class));
+        verify(readWriteTransaction).submit();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void onDataTreeChangedTestPendingChangesOfTpCoalesced() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.SUBTREE_MODIFIED);
+        when(tpModification.getDataBefore()).thenReturn(ovsdbTp);
+        when(tpModification.getDataAfter()).thenReturn(ovsdbTp);
+        stubReadsByTargetType();
+        DataTreeModification<OvsdbTerminationPointAugmentation> tpChange = tpChange("tp1");
+
+        listener.onDataTreeChanged(Arrays.asList(tpChange, tpChange));
+        listener.close();
+        verify(readWriteTransaction).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(Endpoint.class));
+        verify(readWriteTransaction).submit();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void onDataTreeChangedTestRemoval() throws Exception {
+        when(tpModification.getModificationType()).thenReturn(ModificationType.DELETE);
+        when(tpModification.getDataBefore()).thenReturn(ovsdbTp);
         when(readWriteTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 endpointByPortFuture);
         when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
                 endpointFuture);
 
-        listener.onDataChanged(change);
+        listener.onDataTreeChanged(Collections.singletonList(change));
+        listener.close();
         verify(readWriteTransaction).submit();
     }
+
+    @SuppressWarnings("unchecked")
+    private void stubReadsByTargetType() {
+        Answer<Object> readByTargetType = new Answer<Object>() {
+
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Class<?> targetType = ((InstanceIdentifier<?>) invocation.getArguments()[1]).getTargetType();
+                if (OvsdbBridgeAugmentation.class.equals(targetType)) {
+                    return ovsdbBridgeFuture;
+                } else if (Endpoint.class.equals(targetType)) {
+                    return endpointFuture;
+                } else if (Node.class.equals(targetType)) {
+                    return nodeFuture;
+                } else if (EndpointByPort.class.equals(targetType)) {
+                    return endpointByPortFuture;
+                }
+                return ofOverlayNodeConfigFuture;
+            }
+        };
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenAnswer(readByTargetType);
+        when(readWriteTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenAnswer(readByTargetType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataTreeModification<OvsdbTerminationPointAugmentation> tpChange(String tpId) {
+        InstanceIdentifier<OvsdbTerminationPointAugmentation> ovsdbTpIid = InstanceIdentifier.create(
+                NetworkTopology.class)
+            .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+            .child(Node.class, new NodeKey(new NodeId("bridge")))
+            .child(TerminationPoint.class, new TerminationPointKey(new TpId(tpId)))
+            .augmentation(OvsdbTerminationPointAugmentation.class);
+        DataTreeModification<OvsdbTerminationPointAugmentation> tpChange = mock(DataTreeModification.class);
+        when(tpChange.getRootPath()).thenReturn(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL, ovsdbTpIid));
+        when(tpChange.getRootNode()).thenReturn(tpModification);
+        return tpChange;
+    }
 }
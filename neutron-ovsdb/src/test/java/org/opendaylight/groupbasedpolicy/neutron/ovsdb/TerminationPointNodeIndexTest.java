@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbNodeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbNodeAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.TpId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPointBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPointKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+
+public class TerminationPointNodeIndexTest {
+
+    private static final NodeKey BRIDGE_KEY =
+            new NodeKey(new org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId(
+                    "ovsdb://uuid/bridge/br-int"));
+    private static final TerminationPointKey TP_KEY = new TerminationPointKey(new TpId("tap0"));
+
+    private final InstanceIdentifier<OvsdbTerminationPointAugmentation> tpIid = InstanceIdentifier
+        .create(NetworkTopology.class)
+        .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+        .child(Node.class, BRIDGE_KEY)
+        .child(TerminationPoint.class, TP_KEY)
+        .augmentation(OvsdbTerminationPointAugmentation.class);
+
+    private ReadOnlyTransaction rTx;
+    private TerminationPointNodeIndex index;
+
+    @Before
+    public void init() {
+        rTx = mock(ReadOnlyTransaction.class);
+        index = new TerminationPointNodeIndex();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRebuild() {
+        TerminationPoint tp = new TerminationPointBuilder().setKey(TP_KEY)
+            .addAugmentation(OvsdbTerminationPointAugmentation.class,
+                    new OvsdbTerminationPointAugmentationBuilder().setName("tap0").build())
+            .build();
+        Node bridge = new NodeBuilder().setKey(BRIDGE_KEY)
+            .addAugmentation(OvsdbBridgeAugmentation.class,
+                    new OvsdbBridgeAugmentationBuilder().setDatapathId(new DatapathId("00:00:00:00:00:00:00:01"))
+                        .build())
+            .setTerminationPoint(Collections.singletonList(tp))
+            .build();
+        Node ovsdbNode = new NodeBuilder().setKey(new NodeKey(
+                new org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId(
+                        "ovsdb://uuid")))
+            .addAugmentation(OvsdbNodeAugmentation.class, new OvsdbNodeAugmentationBuilder().build())
+            .build();
+        Topology topology = new TopologyBuilder().setKey(new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+            .setNode(Arrays.asList(bridge, ovsdbNode))
+            .build();
+        when(rTx.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.of(topology)));
+
+        index.rebuild(rTx);
+
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(new NodeId("openflow:1"), index.remove(tpIid));
+        Assert.assertEquals(0, index.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRebuild_topologyAbsent() {
+        when(rTx.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.absent()));
+
+        index.rebuild(rTx);
+
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testPutRemove() {
+        index.put(tpIid, new NodeId("openflow:1"));
+        Assert.assertTrue(index.contains(tpIid));
+        Assert.assertEquals(1, index.size());
+
+        Assert.assertEquals(new NodeId("openflow:1"), index.remove(tpIid));
+        Assert.assertFalse(index.contains(tpIid));
+        Assert.assertNull(index.remove(tpIid));
+        Assert.assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+
+public class TunnelPortProvisionerTest {
+
+    private final InstanceIdentifier<Node> bridgeIid = InstanceIdentifier.create(NetworkTopology.class)
+        .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+        .child(Node.class, new NodeKey(new NodeId("ovsdb://uuid/bridge/br-int")));
+
+    private DataBroker dataBroker;
+    private ReadOnlyTransaction readTransaction;
+    private Node node;
+    private ListenerRegistration<?> registration;
+    private TunnelPortProvisioner provisioner;
+    private DataTreeChangeListener<OvsdbBridgeAugmentation> bridgeListener;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void init() {
+        dataBroker = mock(DataBroker.class);
+        registration = mock(ListenerRegistration.class);
+        when(dataBroker.registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                any(DataTreeChangeListener.class))).thenReturn((ListenerRegistration) registration);
+        readTransaction = mock(ReadOnlyTransaction.class);
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(readTransaction);
+
+        OvsdbTerminationPointAugmentation tunnelTpAug = mock(OvsdbTerminationPointAugmentation.class);
+        TerminationPoint tunnelTp = mock(TerminationPoint.class);
+        when(tunnelTp.getAugmentation(OvsdbTerminationPointAugmentation.class)).thenReturn(tunnelTpAug);
+        node = mock(Node.class);
+        when(node.getAugmentation(OvsdbBridgeAugmentation.class)).thenReturn(mock(OvsdbBridgeAugmentation.class));
+        when(node.getTerminationPoint()).thenReturn(Collections.singletonList(tunnelTp));
+        AbstractTunnelType tunnelType = mock(AbstractTunnelType.class);
+        when(tunnelType.isValidTunnelPort(tunnelTpAug)).thenReturn(true);
+
+        provisioner = new TunnelPortProvisioner(dataBroker, Collections.singletonList(tunnelType));
+
+        ArgumentCaptor<DataTreeChangeListener> listener = ArgumentCaptor.forClass(DataTreeChangeListener.class);
+        verify(dataBroker).registerDataTreeChangeListener(any(DataTreeIdentifier.class), listener.capture());
+        bridgeListener = listener.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProvisionTunnelPorts_provisionedBridgeIsSkipped() {
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<Node>, ReadFailedException>immediateCheckedFuture(Optional.of(node)));
+
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+        Assert.assertTrue(provisioner.provisionTunnelPorts(bridgeIid));
+        Assert.assertTrue(provisioner.isProvisioned(bridgeIid));
+        Assert.assertTrue(provisioner.provisionTunnelPorts(bridgeIid));
+        verify(readTransaction, times(1)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+
+        provisioner.tunnelPortRemoved(bridgeIid);
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+        Assert.assertTrue(provisioner.provisionTunnelPorts(bridgeIid));
+        verify(readTransaction, times(2)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProvisionTunnelPorts_notManageableNodeIsNotProvisioned() {
+        when(node.getAugmentation(OvsdbBridgeAugmentation.class)).thenReturn(null);
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<Node>, ReadFailedException>immediateCheckedFuture(Optional.of(node)));
+
+        Assert.assertFalse(provisioner.provisionTunnelPorts(bridgeIid));
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProvisionTunnelPorts_deletedBridgeIsForgotten() {
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<Node>, ReadFailedException>immediateCheckedFuture(Optional.of(node)));
+        Assert.assertTrue(provisioner.provisionTunnelPorts(bridgeIid));
+
+        bridgeListener.onDataTreeChanged(Collections.singletonList(bridgeChange(ModificationType.SUBTREE_MODIFIED)));
+        Assert.assertTrue(provisioner.isProvisioned(bridgeIid));
+
+        bridgeListener.onDataTreeChanged(Collections.singletonList(bridgeChange(ModificationType.DELETE)));
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProvisionTunnelPorts_absentBridgeIsNotProvisioned() {
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<Node>, ReadFailedException>immediateCheckedFuture(Optional.<Node>absent()));
+
+        Assert.assertFalse(provisioner.provisionTunnelPorts(bridgeIid));
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProvisionTunnelPorts_bridgeWithMissingTunnelPortIsNotProvisioned() {
+        ReadWriteTransaction rwTx = mock(ReadWriteTransaction.class);
+        when(dataBroker.newReadWriteTransaction()).thenReturn(rwTx);
+        when(node.getTerminationPoint()).thenReturn(null);
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<Node>, ReadFailedException>immediateCheckedFuture(Optional.of(node)));
+
+        // bridge without manager, tunnel port is not written
+        Assert.assertFalse(provisioner.provisionTunnelPorts(bridgeIid));
+        Assert.assertFalse(provisioner.isProvisioned(bridgeIid));
+        verify(rwTx).cancel();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        provisioner.close();
+        verify(registration).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataTreeModification<OvsdbBridgeAugmentation> bridgeChange(ModificationType type) {
+        DataTreeModification<OvsdbBridgeAugmentation> change = mock(DataTreeModification.class);
+        DataObjectModification<OvsdbBridgeAugmentation> modification = mock(DataObjectModification.class);
+        when(change.getRootPath()).thenReturn(new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                bridgeIid.augmentation(OvsdbBridgeAugmentation.class)));
+        when(change.getRootNode()).thenReturn(modification);
+        when(modification.getModificationType()).thenReturn(type);
+        return change;
+    }
+}
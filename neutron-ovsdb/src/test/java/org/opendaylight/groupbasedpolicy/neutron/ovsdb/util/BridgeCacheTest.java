@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.neutron.ovsdb.util;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.AbstractTunnelType;
+import org.opendaylight.groupbasedpolicy.neutron.ovsdb.VxlanTunnelType;
+import org.opendaylight.ovsdb.southbound.SouthboundConstants;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayNodeConfig;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.nodes.node.Tunnel;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.Topology;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.TopologyKey;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeKey;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+
+public class BridgeCacheTest {
+
+    private final InstanceIdentifier<Node> bridgeIid = InstanceIdentifier.create(NetworkTopology.class)
+        .child(Topology.class, new TopologyKey(SouthboundConstants.OVSDB_TOPOLOGY_ID))
+        .child(Node.class, new NodeKey(new NodeId("ovsdb://uuid/bridge/br-int")));
+    private final List<AbstractTunnelType> requiredTunnelTypes =
+            Collections.<AbstractTunnelType>singletonList(new VxlanTunnelType());
+
+    private DataBroker dataBroker;
+    private ReadOnlyTransaction readTransaction;
+    private ReadWriteTransaction readWriteTransaction;
+    private ListenerRegistration<?> registration;
+    private BridgeCache bridgeCache;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void init() throws Exception {
+        dataBroker = mock(DataBroker.class);
+        registration = mock(ListenerRegistration.class);
+        when(dataBroker.registerDataTreeChangeListener(any(DataTreeIdentifier.class),
+                any(DataTreeChangeListener.class))).thenReturn((ListenerRegistration) registration);
+        readTransaction = mock(ReadOnlyTransaction.class);
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(readTransaction);
+        readWriteTransaction = mock(ReadWriteTransaction.class);
+        when(dataBroker.newReadWriteTransaction()).thenReturn(readWriteTransaction);
+
+        OvsdbBridgeAugmentation bridge = mock(OvsdbBridgeAugmentation.class);
+        DatapathId dpid = mock(DatapathId.class);
+        when(bridge.getDatapathId()).thenReturn(dpid);
+        when(dpid.getValue()).thenReturn("FF:FF:FF:FF:FF:FF:FF:FF");
+        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.of(bridge)));
+
+        bridgeCache = new BridgeCache(dataBroker);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGetInventoryNodeId_bridgeIsCached() {
+        Assert.assertEquals("openflow:281474976710655", bridgeCache.getInventoryNodeId(bridgeIid));
+        Assert.assertEquals("openflow:281474976710655", bridgeCache.getInventoryNodeId(bridgeIid));
+        verify(readTransaction, times(1)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    public void testGetBridge_invalidatedByBridgeChange() {
+        ArgumentCaptor<DataTreeChangeListener> listener = ArgumentCaptor.forClass(DataTreeChangeListener.class);
+        verify(dataBroker).registerDataTreeChangeListener(any(DataTreeIdentifier.class), listener.capture());
+        bridgeCache.getBridge(bridgeIid);
+
+        listener.getValue().onDataTreeChanged(Collections.singletonList(bridgeChange(ModificationType.WRITE)));
+        bridgeCache.getBridge(bridgeIid);
+        verify(readTransaction, times(2)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    public void testGetBridge_evictedByBridgeDelete() {
+        ArgumentCaptor<DataTreeChangeListener> listener = ArgumentCaptor.forClass(DataTreeChangeListener.class);
+        verify(dataBroker).registerDataTreeChangeListener(any(DataTreeIdentifier.class), listener.capture());
+        bridgeCache.getBridge(bridgeIid);
+        Assert.assertTrue(bridgeCache.isCached(bridgeIid));
+
+        listener.getValue().onDataTreeChanged(Collections.singletonList(bridgeChange(ModificationType.DELETE)));
+        Assert.assertFalse(bridgeCache.isCached(bridgeIid));
+        bridgeCache.ovsdbNodeChanged(bridgeIid);
+        bridgeCache.invalidateTunnelsConfigured(bridgeIid);
+        Assert.assertFalse(bridgeCache.isCached(bridgeIid));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    public void testIsTunnelsConfigured() {
+        OfOverlayNodeConfig config = mock(OfOverlayNodeConfig.class);
+        Tunnel tunnel = mock(Tunnel.class);
+        when(tunnel.getTunnelType()).thenReturn((Class) requiredTunnelTypes.get(0).getTunnelType());
+        when(readWriteTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.<Optional<?>, ReadFailedException>immediateCheckedFuture(Optional.of(config)));
+
+        Assert.assertFalse(bridgeCache.isTunnelsConfigured(bridgeIid, requiredTunnelTypes));
+        when(config.getTunnel()).thenReturn(Collections.singletonList(tunnel));
+        Assert.assertTrue(bridgeCache.isTunnelsConfigured(bridgeIid, requiredTunnelTypes));
+        Assert.assertTrue(bridgeCache.isTunnelsConfigured(bridgeIid, requiredTunnelTypes));
+        verify(readWriteTransaction, times(2)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+
+        bridgeCache.invalidateTunnelsConfigured(bridgeIid);
+        Assert.assertTrue(bridgeCache.isTunnelsConfigured(bridgeIid, requiredTunnelTypes));
+        verify(readWriteTransaction, times(3)).read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataTreeModification<OvsdbBridgeAugmentation> bridgeChange(ModificationType modificationType) {
+        DataTreeModification<OvsdbBridgeAugmentation> change = mock(DataTreeModification.class);
+        DataObjectModification<OvsdbBridgeAugmentation> rootNode = mock(DataObjectModification.class);
+        when(change.getRootPath()).thenReturn(new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                bridgeIid.augmentation(OvsdbBridgeAugmentation.class)));
+        when(change.getRootNode()).thenReturn(rootNode);
+        when(rootNode.getModificationType()).thenReturn(modificationType);
+        return change;
+    }
+}
@@ -9,7 +9,9 @@
 package org.opendaylight.groupbasedpolicy.neutron.ovsdb.util;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -74,18 +76,24 @@ public class EndpointHelperTest {
         Assert.assertNull(result);
     }
 
+    @SuppressWarnings("unchecked")
     @Test
     public void updateEndpointWithLocationTest() throws Exception {
         String nodeIdString = "nodeIdString";
         String nodeConnectorIdString = "nodeConnectorIdString";
         EndpointHelper.updateEndpointWithLocation(endpoint, nodeIdString, nodeConnectorIdString, writeTransaction);
-        verify(submitFuture).checkedGet();
+        verify(writeTransaction).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(Endpoint.class));
+        verify(writeTransaction, never()).submit();
     }
 
+    @SuppressWarnings("unchecked")
     @Test
     public void updateEndpointRemoveLocationTest() throws Exception {
         EndpointHelper.updateEndpointRemoveLocation(endpoint, writeTransaction);
-        verify(submitFuture).checkedGet();
+        verify(writeTransaction).put(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class),
+                any(Endpoint.class));
+        verify(writeTransaction, never()).submit();
     }
 
 }
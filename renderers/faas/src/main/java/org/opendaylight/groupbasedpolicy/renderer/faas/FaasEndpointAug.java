@@ -15,11 +15,14 @@ import org.opendaylight.groupbasedpolicy.api.EpRendererAugmentationRegistry;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.faas.faas.endpoint.rev151009.FaasEndpointContext;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.faas.faas.endpoint.rev151009.FaasEndpointContextBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.faas.faas.endpoint.rev151009.FaasEndpointContextInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.faas.faas.endpoint.rev151009.FaasEndpointContextInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.faas.faas.endpoint.rev151009.FaasEndpointContextRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterEndpointInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.RegisterL3PrefixEndpointInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yangtools.yang.binding.Augmentation;
 
 public class FaasEndpointAug implements EpRendererAugmentation, AutoCloseable {
@@ -59,6 +62,17 @@ public class FaasEndpointAug implements EpRendererAugmentation, AutoCloseable {
         return null;
     }
 
+    @Override
+    public Map.Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> buildRegisterEndpointInputAugmentation(
+            EndpointRegistration registration) {
+        FaasEndpointContextRegistration pix = registration.getAugmentation(FaasEndpointContextRegistration.class);
+        if (pix == null) {
+            return null;
+        }
+        return new SimpleImmutableEntry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>>(
+                FaasEndpointContextInput.class, new FaasEndpointContextInputBuilder(pix).build());
+    }
+
     @Override
     public void close() throws Exception {
         epRendererAugmentationRegistry.unregister(this);
@@ -18,9 +18,12 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.iovisor.rev151030.IovisorModuleAugmentation;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.iovisor.rev151030.IovisorModuleAugmentationBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.iovisor.rev151030.IovisorModuleAugmentationInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.iovisor.rev151030.IovisorModuleAugmentationInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.iovisor.rev151030.IovisorModuleAugmentationRegistration;
 import org.opendaylight.yangtools.yang.binding.Augmentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,4 +70,17 @@ public class IovisorEndpointAug implements EpRendererAugmentation, AutoCloseable
         LOG.info("IovisorRenderer does not Augment EndpointL3Prefix class");
         return null;
     }
+
+    @Override
+    public Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> buildRegisterEndpointInputAugmentation(
+            EndpointRegistration registration) {
+        IovisorModuleAugmentationRegistration iomAugRegistration =
+                registration.getAugmentation(IovisorModuleAugmentationRegistration.class);
+        if (iomAugRegistration == null) {
+            return null;
+        }
+        return new SimpleImmutableEntry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>>(
+                IovisorModuleAugmentationInput.class,
+                new IovisorModuleAugmentationInputBuilder(iomAugRegistration).build());
+    }
 }
@@ -8,7 +8,7 @@
 
 package org.opendaylight.controller.config.yang.config.ofoverlay_provider.impl;
 
-
+import org.opendaylight.controller.config.api.JmxAttributeValidationException;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OFOverlayRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,7 +27,9 @@ public class OFOverlayProviderModule extends org.opendaylight.controller.config.
 
     @Override
     public void customValidation() {
-        // add custom validation form module attributes here.
+        JmxAttributeValidationException.checkCondition(
+                getFlowStatisticsShardIndex() < getFlowStatisticsShardCount(),
+                "must be lower than flow-statistics-shard-count", flowStatisticsShardIndexJmxAttribute);
     }
 
     @Override
@@ -38,7 +40,11 @@ public class OFOverlayProviderModule extends org.opendaylight.controller.config.
                                      getNotificationAdapterDependency(),
                                      getEpRendererAugmentationRegistryDependency(),
                                      getPolicyValidatorRegistryDependency(),
-                                     getGbpOfoverlayTableOffset().shortValue());
+                                     getStatisticsManagerDependency(),
+                                     getGbpOfoverlayTableOffset().shortValue(),
+                                     getFlowStatisticsPollInterval(),
+                                     getFlowStatisticsShardCount(),
+                                     getFlowStatisticsShardIndex());
     }
 
 }
@@ -28,6 +28,7 @@ import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.groupbasedpolicy.api.EpRendererAugmentationRegistry;
 import org.opendaylight.groupbasedpolicy.api.PolicyValidatorRegistry;
+import org.opendaylight.groupbasedpolicy.api.StatisticsManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.OfOverlayAug;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.OfOverlayL3NatAug;
@@ -36,6 +37,7 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.Action;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.ActionDefinitionListener;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.ClassifierDefinitionListener;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.SubjectFeatures;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.statistics.FlowStatisticsCollector;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ActionDefinitionId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayConfig;
@@ -68,6 +70,7 @@ public class OFOverlayRenderer implements AutoCloseable, DataChangeListener {
     private ActionDefinitionListener actionDefinitionListener;
     private final OfOverlayAug ofOverlayAug;
     private final OfOverlayL3NatAug ofOverlayL3NatAug;
+    private final FlowStatisticsCollector flowStatisticsCollector;
 
     private final ScheduledExecutorService executor;
 
@@ -81,7 +84,11 @@ public class OFOverlayRenderer implements AutoCloseable, DataChangeListener {
                              NotificationService notificationService,
                              EpRendererAugmentationRegistry epRendererAugmentationRegistry,
                              PolicyValidatorRegistry policyValidatorRegistry,
-                             final short tableOffset) {
+                             StatisticsManager statisticsManager,
+                             final short tableOffset,
+                             long flowStatisticsPollInterval,
+                             int flowStatisticsShardCount,
+                             int flowStatisticsShardIndex) {
         super();
         this.dataBroker = dataProvider;
         int numCPU = Runtime.getRuntime().availableProcessors();
@@ -104,6 +111,13 @@ public class OFOverlayRenderer implements AutoCloseable, DataChangeListener {
                 endpointManager,
                 executor,
                 tableOffset);
+        if (statisticsManager != null) {
+            flowStatisticsCollector = new FlowStatisticsCollector(dataProvider, switchManager, policyManager,
+                    statisticsManager, executor, flowStatisticsPollInterval, flowStatisticsShardCount,
+                    flowStatisticsShardIndex);
+        } else {
+            flowStatisticsCollector = null;
+        }
         ofOverlayAug = new OfOverlayAug(dataProvider, epRendererAugmentationRegistry);
         ofOverlayL3NatAug = new OfOverlayL3NatAug(epRendererAugmentationRegistry);
         Optional<OfOverlayConfig> config = readConfig();
@@ -133,6 +147,7 @@ public class OFOverlayRenderer implements AutoCloseable, DataChangeListener {
         if (ofOverlayAug != null) ofOverlayAug.close();
         if (ofOverlayL3NatAug != null) ofOverlayL3NatAug.close();
         if (policyManager != null) policyManager.close();
+        if (flowStatisticsCollector != null) flowStatisticsCollector.close();
     }
 
     // ******************
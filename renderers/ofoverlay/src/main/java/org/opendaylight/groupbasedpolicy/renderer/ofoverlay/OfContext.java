@@ -13,14 +13,18 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.dto.EpKey;
 import org.opendaylight.groupbasedpolicy.dto.IndexedTenant;
 import org.opendaylight.groupbasedpolicy.dto.PolicyInfo;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointIndexSnapshot;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.OrdinalFactory.EndpointFwdCtxOrdinals;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.InheritanceUtils;
@@ -43,8 +47,10 @@ public class OfContext {
     private final PolicyManager policyManager;
     private final SwitchManager switchManager;
     private final EndpointManager epManager;
+    private final EndpointIndexSnapshot endpointIndex;
     private final Map<TenantId, IndexedTenant> resolvedTenants = new HashMap<>();
     private PolicyInfo policyInfo;
+    private final Map<EpKey, EndpointFwdCtxOrdinals> epFwdCtxOrdinals = new ConcurrentHashMap<>();
 
     private final ScheduledExecutorService executor;
 
@@ -54,6 +60,7 @@ public class OfContext {
         this.policyManager = policyManager;
         this.switchManager = switchManager;
         this.epManager = endpointManager;
+        this.endpointIndex = endpointManager.getIndexSnapshot();
         this.executor = executor;
         if (dataBroker == null) {
             LOG.error("DataBroker is null. Cannot read resolved tenants and resolved policy from DS.");
@@ -109,6 +116,17 @@ public class OfContext {
         return this.epManager;
     }
 
+    /**
+     * Get the endpoint indexes as they were when this context was created.
+     * All flow tables synced with this context see the same endpoints on
+     * nodes and in groups.
+     *
+     * @return the {@link EndpointIndexSnapshot} of this context
+     */
+    public EndpointIndexSnapshot getEndpointIndex() {
+        return this.endpointIndex;
+    }
+
     public DataBroker getDataBroker() {
         return this.dataBroker;
     }
@@ -127,6 +145,17 @@ public class OfContext {
         return policyInfo;
     }
 
+    /**
+     * Get forwarding context ordinals already computed for endpoints. Ordinals are computed from
+     * tenants and policy of this context, so they are shared by all flow tables synced with this
+     * context and dropped together with it.
+     *
+     * @return mutable map of computed ordinals by endpoint
+     */
+    public Map<EpKey, EndpointFwdCtxOrdinals> getEndpointFwdCtxOrdinals() {
+        return this.epFwdCtxOrdinals;
+    }
+
     public ScheduledExecutorService getExecutor() {
         return this.executor;
     }
@@ -13,8 +13,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
@@ -25,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
 import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification.ModificationType;
 import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
@@ -41,6 +44,7 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.IngressNatMappe
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.OfTable;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.PolicyEnforcer;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.PortSecurity;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.SourceMapper;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchListener;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
@@ -49,6 +53,7 @@ import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.groupbasedpolicy.util.SingletonTask;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayConfig.LearningMode;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.renderer.rev151103.renderers.renderer.interests.followed.tenants.followed.tenant.FollowedEndpointGroup;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.renderer.rev151103.renderers.renderer.interests.followed.tenants.followed.tenant.FollowedEndpointGroupBuilder;
@@ -63,7 +68,10 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -98,6 +106,7 @@ public class PolicyManager
     private final ScheduledExecutorService executor;
     private final SingletonTask flowUpdateTask;
     private final DataBroker dataBroker;
+    private final RuleCookieFactory ruleCookieFactory = new RuleCookieFactory();
 
     /**
      * The delay before triggering the flow update task in response to an
@@ -105,6 +114,15 @@ public class PolicyManager
      */
     private final static int FLOW_UPDATE_DELAY = 250;
 
+    /**
+     * Followed endpoint groups and tenants as they should be in datastore,
+     * and changes not written yet. Guarded by followedEgKeys.
+     */
+    private final Set<EgKey> followedEgKeys = new HashSet<>();
+    private final Multiset<TenantId> followedTenants = HashMultiset.create();
+    private final Set<EgKey> pendingFollowedEgKeys = new HashSet<>();
+    private final Set<EgKey> pendingUnfollowedEgKeys = new HashSet<>();
+
     public PolicyManager(DataBroker dataBroker,
                          SwitchManager switchManager,
                          EndpointManager endpointManager,
@@ -261,6 +279,14 @@ public class PolicyManager
         return (short)(tableOffset+TABLEID_POLICY_ENFORCER);
     }
 
+    /**
+     * @return cookies of flows in policy enforcer table, forgotten when the
+     *         resolved policy the flows were created for is removed
+     */
+    public RuleCookieFactory getRuleCookieFactory() {
+        return ruleCookieFactory;
+    }
+
 
     public short getTABLEID_EGRESS_NAT() {
         return (short)(tableOffset+TABLEID_EGRESS_NAT);
@@ -308,16 +334,21 @@ public class PolicyManager
 
     @Override
     public void groupEndpointUpdated(EgKey egKey, EpKey epKey) {
-        // TODO a renderer should remove followed-EPG and followed-tenant at some point
-        if (dataBroker == null) {
-            LOG.error("DataBroker is null. Cannot write followed-epg {}", epKey);
-            return;
+        boolean hasEndpoints = endpointManager.hasEndpointsInGroup(egKey);
+        synchronized (followedEgKeys) {
+            if (hasEndpoints && followedEgKeys.add(egKey)) {
+                followedTenants.add(egKey.getTenantId());
+                // still in datastore if its removal was not written yet
+                if (!pendingUnfollowedEgKeys.remove(egKey)) {
+                    pendingFollowedEgKeys.add(egKey);
+                }
+            } else if (!hasEndpoints && followedEgKeys.remove(egKey)) {
+                followedTenants.remove(egKey.getTenantId());
+                if (!pendingFollowedEgKeys.remove(egKey)) {
+                    pendingUnfollowedEgKeys.add(egKey);
+                }
+            }
         }
-        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
-        FollowedEndpointGroup followedEpg = new FollowedEndpointGroupBuilder().setId(egKey.getEgId()).build();
-        wTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.followedEndpointgroupIid(OFOverlayRenderer.RENDERER_NAME,
-                egKey.getTenantId(), egKey.getEgId()), followedEpg, true);
-        DataStoreHelper.submitToDs(wTx);
         scheduleUpdate();
     }
 
@@ -327,6 +358,16 @@ public class PolicyManager
 
     @Override
     public void onDataTreeChanged(Collection<DataTreeModification<ResolvedPolicy>> changes) {
+        for (DataTreeModification<ResolvedPolicy> change : changes) {
+            if (change.getRootNode().getModificationType() == ModificationType.DELETE) {
+                ResolvedPolicy removed = change.getRootNode().getDataBefore();
+                if (removed != null) {
+                    ruleCookieFactory.removeRules(
+                            new EgKey(removed.getConsumerTenantId(), removed.getConsumerEpgId()),
+                            new EgKey(removed.getProviderTenantId(), removed.getProviderEpgId()));
+                }
+            }
+        }
         scheduleUpdate();
     }
 
@@ -346,6 +387,68 @@ public class PolicyManager
     // Implementation
     // **************
 
+    /**
+     * Write followed endpoint groups collected since the last call in one
+     * transaction. An endpoint group is followed while it has an endpoint
+     * on some node, a tenant while any of its endpoint groups is followed.
+     */
+    void writeFollowedInterests() {
+        if (dataBroker == null) {
+            LOG.error("DataBroker is null. Cannot write followed endpoint groups.");
+            return;
+        }
+        Set<EgKey> follow;
+        Set<EgKey> unfollow;
+        Set<TenantId> unfollowTenants = new HashSet<>();
+        synchronized (followedEgKeys) {
+            if (pendingFollowedEgKeys.isEmpty() && pendingUnfollowedEgKeys.isEmpty()) {
+                return;
+            }
+            follow = ImmutableSet.copyOf(pendingFollowedEgKeys);
+            unfollow = ImmutableSet.copyOf(pendingUnfollowedEgKeys);
+            pendingFollowedEgKeys.clear();
+            pendingUnfollowedEgKeys.clear();
+            for (EgKey egKey : unfollow) {
+                if (!followedTenants.contains(egKey.getTenantId())) {
+                    unfollowTenants.add(egKey.getTenantId());
+                }
+            }
+        }
+
+        WriteTransaction wTx = dataBroker.newWriteOnlyTransaction();
+        for (EgKey egKey : follow) {
+            FollowedEndpointGroup followedEpg = new FollowedEndpointGroupBuilder().setId(egKey.getEgId()).build();
+            wTx.put(LogicalDatastoreType.OPERATIONAL, IidFactory.followedEndpointgroupIid(
+                    OFOverlayRenderer.RENDERER_NAME, egKey.getTenantId(), egKey.getEgId()), followedEpg, true);
+        }
+        for (TenantId tenantId : unfollowTenants) {
+            wTx.delete(LogicalDatastoreType.OPERATIONAL,
+                    IidFactory.followedTenantIid(OFOverlayRenderer.RENDERER_NAME, tenantId));
+        }
+        for (EgKey egKey : unfollow) {
+            if (!unfollowTenants.contains(egKey.getTenantId())) {
+                wTx.delete(LogicalDatastoreType.OPERATIONAL, IidFactory.followedEndpointgroupIid(
+                        OFOverlayRenderer.RENDERER_NAME, egKey.getTenantId(), egKey.getEgId()));
+            }
+        }
+        LOG.debug("Writing followed endpoint groups: {} followed, {} unfollowed", follow.size(), unfollow.size());
+        if (!DataStoreHelper.submitToDs(wTx)) {
+            // retry with the next update unless superseded in the meantime
+            synchronized (followedEgKeys) {
+                for (EgKey egKey : follow) {
+                    if (followedEgKeys.contains(egKey) && !pendingUnfollowedEgKeys.contains(egKey)) {
+                        pendingFollowedEgKeys.add(egKey);
+                    }
+                }
+                for (EgKey egKey : unfollow) {
+                    if (!followedEgKeys.contains(egKey) && !pendingFollowedEgKeys.contains(egKey)) {
+                        pendingUnfollowedEgKeys.add(egKey);
+                    }
+                }
+            }
+        }
+    }
+
     private void scheduleUpdate() {
         if (switchManager != null) {
             LOG.trace("Scheduling flow update task");
@@ -397,6 +500,8 @@ public class PolicyManager
         public void run() {
             LOG.debug("Beginning flow update task");
 
+            writeFollowedInterests();
+
             CompletionService<Void> ecs
                 = new ExecutorCompletionService<>(executor);
 
@@ -11,13 +11,21 @@ package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.arp;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.net.util.SubnetUtils;
 import org.apache.commons.net.util.SubnetUtils.SubnetInfo;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
@@ -26,6 +34,7 @@ import org.opendaylight.controller.md.sal.binding.api.ReadTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
 import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.openflowplugin.api.OFConstants;
@@ -33,7 +42,6 @@ import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNodeConnector;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
@@ -72,7 +80,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayL3Context;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayNodeConfig;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.nodes.node.ExternalInterfaces;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2BridgeDomain;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L2FloodDomain;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.Subnet;
@@ -94,18 +101,17 @@ import org.opendaylight.yangtools.yang.common.RpcResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSetMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.JdkFutureAdapters;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
 
 public class ArpTasker implements PacketProcessingListener {
 
@@ -114,10 +120,32 @@ public class ArpTasker implements PacketProcessingListener {
     private static final String ARP_REPLY_TO_CONTROLLER_FLOW_NAME = "arpReplyToController";
     private static final int ARP_REPLY_TO_CONTROLLER_FLOW_PRIORITY = 10000;
     private static final Instruction SEND_TO_CONTROLLER_INSTRUCTION;
+    // how long a MAC learned from an ARP reply is used without asking again
+    static final long ARP_CACHE_TTL_SECONDS = 60;
+    // how long to wait for an ARP reply before the request is given up
+    static final long ARP_REQUEST_TIMEOUT_SECONDS = 5;
+    // ARP requests sent to external networks per second, over all nodes
+    static final double ARP_PROBES_PER_SECOND = 20;
+    // attempts to get a reply, including the ones delayed by rate limit
+    static final int ARP_REQUEST_MAX_ATTEMPTS = 3;
+    // delay before the second attempt, doubled for every further attempt
+    static final long ARP_RETRY_DELAY_MILLIS = 1000;
     private final ArpSender arpSender;
     private final SalFlowService flowService;
     private final DataBroker dataProvider;
-    private final ListMultimap<String, Pair<RemoveFlowInput, EndpointL3Key>> requestInfoByKey = Multimaps.synchronizedListMultimap(ArrayListMultimap.<String, Pair<RemoveFlowInput, EndpointL3Key>>create());
+    private final ScheduledExecutorService executor;
+    private final SwitchManager switchManager;
+    private final ConcurrentMap<String, ArpRequest> requestsByKey = new ConcurrentHashMap<>();
+    private final Cache<String, MacAddress> macByKey = CacheBuilder.newBuilder()
+        .expireAfterWrite(ARP_CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+        .build();
+    private final RateLimiter probeLimiter;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong rateLimitedRequests = new AtomicLong();
+    private final AtomicLong timedOutRequests = new AtomicLong();
+    private final AtomicLong abandonedRequests = new AtomicLong();
 
     static {
         ApplyActions applyActions = new ApplyActionsBuilder().setAction(
@@ -127,8 +155,18 @@ public class ArpTasker implements PacketProcessingListener {
             .build();
     }
 
-    public ArpTasker(RpcProviderRegistry rpcRegistry, DataBroker dataProvider) {
+    public ArpTasker(RpcProviderRegistry rpcRegistry, DataBroker dataProvider, ScheduledExecutorService executor,
+            SwitchManager switchManager) {
+        this(rpcRegistry, dataProvider, executor, switchManager, RateLimiter.create(ARP_PROBES_PER_SECOND));
+    }
+
+    @VisibleForTesting
+    ArpTasker(RpcProviderRegistry rpcRegistry, DataBroker dataProvider, ScheduledExecutorService executor,
+            SwitchManager switchManager, RateLimiter probeLimiter) {
+        this.probeLimiter = checkNotNull(probeLimiter);
         this.dataProvider = checkNotNull(dataProvider);
+        this.executor = checkNotNull(executor);
+        this.switchManager = checkNotNull(switchManager);
         checkNotNull(rpcRegistry);
         PacketProcessingService packetProcessingService = rpcRegistry.getRpcService(PacketProcessingService.class);
         if (packetProcessingService != null) {
@@ -166,12 +204,22 @@ public class ArpTasker implements PacketProcessingListener {
         }
         Ipv4Address spa = ArpUtils.bytesToIp(arp.getSenderProtocolAddress());
         MacAddress sha = ArpUtils.bytesToMac(arp.getSenderHardwareAddress());
-        List<Pair<RemoveFlowInput, EndpointL3Key>> removeFlowInputsAndL3EpKeys = requestInfoByKey.get(createKey(nodeKey.getId(), spa));
-        for (Pair<RemoveFlowInput, EndpointL3Key> removeFlowInputAndL3EpKey : removeFlowInputsAndL3EpKeys) {
-            flowService.removeFlow(removeFlowInputAndL3EpKey.getLeft());
+        String key = createKey(nodeKey.getId(), spa);
+        ArpRequest request = requestsByKey.remove(key);
+        if (request == null) {
+            LOG.trace("No ARP request is waiting for a reply from {} on node {}", spa.getValue(),
+                    nodeKey.getId().getValue());
+            return;
         }
-        // each L3EpKey on right-side part of Pair is same
-        final EndpointL3Key l3EpKey = removeFlowInputsAndL3EpKeys.get(0).getRight();
+        macByKey.put(key, sha);
+        Set<EndpointL3Key> l3EpKeys = request.complete();
+        removeArpFlows(request);
+        for (EndpointL3Key l3EpKey : l3EpKeys) {
+            addMacToL3Ep(l3EpKey, sha);
+        }
+    }
+
+    private void addMacToL3Ep(EndpointL3Key l3EpKey, MacAddress sha) {
         ReadWriteTransaction rwTx = dataProvider.newReadWriteTransaction();
         InstanceIdentifier<EndpointL3> l3EpIid = IidFactory.l3EndpointIid(l3EpKey.getL3Context(),
                 l3EpKey.getIpAddress());
@@ -230,10 +278,15 @@ public class ArpTasker implements PacketProcessingListener {
      * {@link EndpointL3#getKey()}.<br>
      * {@link EndpointL3#getNetworkContainment()} has to point to a {@link Subnet}.<br>
      * ARP Request is sent from all node connectors obtaining from
-     * {@link OfOverlayNodeConfig#getExternalInterfaces()}<br>
+     * {@link OfOverlayNodeConfig#getExternalInterfaces()} as known to {@link SwitchManager}<br>
      * MAC address obtained from ARP reply is added to the given L3 endpoint (if still exits).<br>
      * Also an {@link Endpoint} is created based on MAC If the subnet from network containment point
-     * to {@link L2BridgeDomain} directly or throught {@link L2FloodDomain}.
+     * to {@link L2BridgeDomain} directly or throught {@link L2FloodDomain}.<br>
+     * MAC obtained from ARP reply is cached for {@link #ARP_CACHE_TTL_SECONDS}. While an ARP
+     * request for the IP is in flight on a node, no other request for the IP is sent from that
+     * node. ARP requests over {@link #ARP_PROBES_PER_SECOND} are delayed, and a request without
+     * reply in {@link #ARP_REQUEST_TIMEOUT_SECONDS} is sent again. Both are retried with
+     * exponential backoff, up to {@link #ARP_REQUEST_MAX_ATTEMPTS} attempts in total.
      *
      * @param l3Ep the L3 endpoint which needs to have an MAC address
      */
@@ -243,13 +296,23 @@ public class ArpTasker implements PacketProcessingListener {
             LOG.debug("L3 endpoint {} does not contain IPv4 address.", l3Ep.getKey());
             return;
         }
-        ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction();
-        final SetMultimap<Node, Pair<InstanceIdentifier<NodeConnector>, MacAddress>> extNcWithMacByNode = readNodesWithExternalIfaces(rTx);
+        final Map<NodeId, Map<InstanceIdentifier<NodeConnector>, MacAddress>> extNcWithMacByNode =
+                switchManager.getExternalNodeConnectorsWithMac();
         if (extNcWithMacByNode.isEmpty()) {
             LOG.debug("No node with external interface was found.");
-            rTx.close();
             return;
         }
+        for (NodeId nodeId : extNcWithMacByNode.keySet()) {
+            MacAddress cachedMac = macByKey.getIfPresent(createKey(nodeId, tpa));
+            if (cachedMac != null) {
+                cacheHits.incrementAndGet();
+                LOG.trace("MAC {} for IP {} was found in ARP cache.", cachedMac.getValue(), tpa.getValue());
+                addMacToL3Ep(l3Ep.getKey(), cachedMac);
+                return;
+            }
+        }
+        cacheMisses.incrementAndGet();
+        ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction();
         final Ipv4Address senderIpAddress = createSenderIpAddress(l3Ep, rTx);
         if (senderIpAddress == null) {
             LOG.warn("Cannot create sender IPv4 address for L3 endpoint {}", l3Ep);
@@ -258,58 +321,89 @@ public class ArpTasker implements PacketProcessingListener {
         }
         rTx.close();
 
-        for (final Node node : extNcWithMacByNode.keySet()) {
-            final InstanceIdentifier<Node> nodeIid = InstanceIdentifier.builder(Nodes.class)
-                .child(Node.class, node.getKey())
-                .build();
-            final NodeRef nodeRef = new NodeRef(nodeIid);
-            List<ListenableFuture<RpcResult<AddFlowOutput>>> arpFlowResultFutures = new ArrayList<>();
-            List<Pair<RemoveFlowInput, EndpointL3Key>> flowsForRemove = new ArrayList<>();
-            for (final Pair<InstanceIdentifier<NodeConnector>, MacAddress> extNcIidAndMac : extNcWithMacByNode.get(node)) {
-                final ArpMessageAddress senderAddress = new ArpMessageAddress(extNcIidAndMac.getRight(),
-                        senderIpAddress);
-                NodeConnectorId ncId = extNcIidAndMac.getLeft().firstKeyOf(NodeConnector.class, NodeConnectorKey.class).getId();
-                final Flow arpReplyToControllerFlow = createArpReplyToControllerFlow(senderAddress, tpa, ncId);
-                flowsForRemove.add(new ImmutablePair<>(new RemoveFlowInputBuilder(arpReplyToControllerFlow).setNode(
-                        nodeRef).build(), l3Ep.getKey()));
-                final InstanceIdentifier<Flow> flowIid = createFlowIid(arpReplyToControllerFlow, nodeIid);
-                Future<RpcResult<AddFlowOutput>> futureAddFlowResult = flowService.addFlow(new AddFlowInputBuilder(
-                        arpReplyToControllerFlow).setFlowRef(new FlowRef(flowIid)).setNode(nodeRef).build());
-                arpFlowResultFutures.add(JdkFutureAdapters.listenInPoolThread(futureAddFlowResult));
+        for (NodeId nodeId : extNcWithMacByNode.keySet()) {
+            String key = createKey(nodeId, tpa);
+            ArpRequest request = startRequest(key, l3Ep.getKey());
+            if (request == null) {
+                continue;
             }
-            requestInfoByKey.putAll(createKey(node.getId(), tpa), flowsForRemove);
-            ListenableFuture<List<RpcResult<AddFlowOutput>>> futureArpFlowResults = Futures.allAsList(arpFlowResultFutures);
-            Futures.addCallback(futureArpFlowResults, new FutureCallback<List<RpcResult<AddFlowOutput>>>() {
+            new ArpProbe(nodeId, extNcWithMacByNode.get(nodeId), tpa, senderIpAddress, key, request).run();
+        }
+    }
 
-                @Override
-                public void onSuccess(List<RpcResult<AddFlowOutput>> result) {
-                    for (RpcResult<AddFlowOutput> addFlowResult : result) {
-                        if (!addFlowResult.isSuccessful()) {
-                            LOG.warn("An ARP Reply to Controller flow was not created on node {} \nErrors: {}",
-                                    node.getId().getValue(), addFlowResult.getErrors());
-                            continue;
-                        }
-                    }
-                    LOG.debug("ARP Reply to Controller flows were created on node {}", node.getId().getValue());
-                    for (final Pair<InstanceIdentifier<NodeConnector>, MacAddress> extNcIidAndMac : extNcWithMacByNode.get(node)) {
-                        final ArpMessageAddress senderAddress = new ArpMessageAddress(extNcIidAndMac.getRight(),
-                                senderIpAddress);
-                        ListenableFuture<RpcResult<Void>> futureSendArpResult = arpSender.sendArp(senderAddress, tpa,
-                                extNcIidAndMac.getLeft());
-                        Futures.addCallback(futureSendArpResult, logResult(tpa, extNcIidAndMac.getLeft()));
-                    }
-                }
+    /**
+     * Registers the L3 endpoint as waiting for a reply to ARP request identified by the key.
+     *
+     * @param key identifies node and requested IP
+     * @param l3EpKey the L3 endpoint waiting for MAC
+     * @return the new request if ARP request has to be sent, {@code null} if the endpoint joined a
+     *         request which is already in flight
+     */
+    private @Nullable ArpRequest startRequest(String key, EndpointL3Key l3EpKey) {
+        ArpRequest request = new ArpRequest(l3EpKey);
+        while (true) {
+            ArpRequest inFlight = requestsByKey.putIfAbsent(key, request);
+            if (inFlight == null) {
+                return request;
+            }
+            if (inFlight.addL3EpKey(l3EpKey)) {
+                coalescedRequests.incrementAndGet();
+                LOG.trace("ARP request {} is already in flight.", key);
+                return null;
+            }
+            // the request in flight has just been completed
+            requestsByKey.remove(key, inFlight);
+        }
+    }
 
-                @Override
-                public void onFailure(Throwable t) {
-                    LOG.error(
-                            "Illegal state - Installation of ARP flows on node {} failed. Node can contain just some ARP flows.",
-                            node.getId(), t);
-                }
-            });
+    private void removeArpFlows(ArpRequest request) {
+        for (RemoveFlowInput flowForRemove : request.getFlowsForRemove()) {
+            flowService.removeFlow(flowForRemove);
         }
     }
 
+    /**
+     * @return number of L3 endpoints which got MAC from ARP cache
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return number of L3 endpoints which did not find MAC in ARP cache
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * @return number of L3 endpoints which joined an ARP request already in flight
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * @return number of ARP request attempts which were delayed because of rate limit
+     */
+    public long getRateLimitedRequests() {
+        return rateLimitedRequests.get();
+    }
+
+    /**
+     * @return number of ARP request attempts which did not get a reply in time
+     */
+    public long getTimedOutRequests() {
+        return timedOutRequests.get();
+    }
+
+    /**
+     * @return number of ARP requests given up after {@link #ARP_REQUEST_MAX_ATTEMPTS} attempts
+     */
+    public long getAbandonedRequests() {
+        return abandonedRequests.get();
+    }
+
     private static @Nullable Ipv4Address getIPv4Addresses(EndpointL3 l3ep) {
         IpAddress ipAddress = l3ep.getKey().getIpAddress();
         if (ipAddress.getIpv4Address() == null) {
@@ -318,48 +412,6 @@ public class ArpTasker implements PacketProcessingListener {
         return ipAddress.getIpv4Address();
     }
 
-    private SetMultimap<Node, Pair<InstanceIdentifier<NodeConnector>, MacAddress>> readNodesWithExternalIfaces(
-            ReadTransaction rTx) {
-        Optional<Nodes> potentialNodes = DataStoreHelper.readFromDs(LogicalDatastoreType.CONFIGURATION,
-                InstanceIdentifier.builder(Nodes.class).build(), rTx);
-        if (!potentialNodes.isPresent() || potentialNodes.get().getNode() == null) {
-            return ImmutableSetMultimap.of();
-        }
-        List<Node> nodes = potentialNodes.get().getNode();
-        SetMultimap<Node, Pair<InstanceIdentifier<NodeConnector>, MacAddress>> extIfacesByNode = HashMultimap.create();
-        for (Node node : nodes) {
-            OfOverlayNodeConfig ofOverlayNode = node.getAugmentation(OfOverlayNodeConfig.class);
-            if (ofOverlayNode != null) {
-                List<ExternalInterfaces> externalIfaces = ofOverlayNode.getExternalInterfaces();
-                if (externalIfaces != null) {
-                    for (ExternalInterfaces extIface : externalIfaces) {
-                        NodeConnectorId externalNc = extIface.getNodeConnectorId();
-                        InstanceIdentifier<NodeConnector> extNcIid = InstanceIdentifier.builder(Nodes.class)
-                            .child(Node.class, node.getKey())
-                            .child(NodeConnector.class, new NodeConnectorKey(externalNc))
-                            .build();
-                        Optional<NodeConnector> potentialExtNcFromOper = DataStoreHelper.readFromDs(
-                                LogicalDatastoreType.OPERATIONAL, extNcIid, rTx);
-                        if (!potentialExtNcFromOper.isPresent()) {
-                            LOG.debug("Node connector {} does not exit in OPER DS. Node from CONF: {}",
-                                    externalNc.getValue(), node);
-                            continue;
-                        }
-                        FlowCapableNodeConnector externalFcNc = potentialExtNcFromOper.get().getAugmentation(
-                                FlowCapableNodeConnector.class);
-                        if (externalFcNc == null || externalFcNc.getHardwareAddress() == null) {
-                            LOG.debug("Hardware address does not exist on node connector {}", externalNc.getValue());
-                            LOG.trace("Node connector from OPER DS {}", potentialExtNcFromOper.get());
-                            continue;
-                        }
-                        extIfacesByNode.put(node, new ImmutablePair<>(extNcIid, externalFcNc.getHardwareAddress()));
-                    }
-                }
-            }
-        }
-        return extIfacesByNode;
-    }
-
     private @Nullable Ipv4Address createSenderIpAddress(EndpointL3 l3Ep, ReadTransaction rTx) {
         Subnet subnetOfL3Ep = readSubnet(l3Ep, rTx);
         if (subnetOfL3Ep == null) {
@@ -450,4 +502,202 @@ public class ArpTasker implements PacketProcessingListener {
         return node.getValue() + "_" + "_" + ip.getValue();
     }
 
+    /**
+     * Sends ARP request for the IP on one node. Installs the ARP reply to controller flows on the
+     * first attempt which passes the rate limit, and sends the ARP request from all external
+     * interfaces of the node on every attempt. An attempt which is rate limited or times out is
+     * scheduled again until the request completes or runs out of attempts.
+     */
+    private final class ArpProbe implements Runnable {
+
+        private final NodeId nodeId;
+        private final InstanceIdentifier<Node> nodeIid;
+        private final Map<InstanceIdentifier<NodeConnector>, MacAddress> extNcWithMac;
+        private final Ipv4Address tpa;
+        private final Ipv4Address senderIpAddress;
+        private final String key;
+        private final ArpRequest request;
+        private volatile boolean flowsInstalled = false;
+
+        ArpProbe(NodeId nodeId, Map<InstanceIdentifier<NodeConnector>, MacAddress> extNcWithMac, Ipv4Address tpa,
+                Ipv4Address senderIpAddress, String key, ArpRequest request) {
+            this.nodeId = nodeId;
+            this.nodeIid = InstanceIdentifier.builder(Nodes.class).child(Node.class, new NodeKey(nodeId)).build();
+            this.extNcWithMac = extNcWithMac;
+            this.tpa = tpa;
+            this.senderIpAddress = senderIpAddress;
+            this.key = key;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            if (!request.startAttempt()) {
+                return;
+            }
+            if (!probeLimiter.tryAcquire(extNcWithMac.size())) {
+                rateLimitedRequests.incrementAndGet();
+                LOG.debug("ARP request for IP {} on node {} was delayed because of rate limit.", tpa.getValue(),
+                        nodeId.getValue());
+                retryLater();
+                return;
+            }
+            if (flowsInstalled) {
+                sendArpRequests();
+            } else {
+                flowsInstalled = true;
+                installArpFlowsAndSendArpRequests();
+            }
+            request.schedule(executor.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (request.isCompleted()) {
+                        return;
+                    }
+                    timedOutRequests.incrementAndGet();
+                    LOG.debug("ARP request for IP {} on node {} timed out.", tpa.getValue(), nodeId.getValue());
+                    retryLater();
+                }
+            }, ARP_REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        private void retryLater() {
+            int attempts = request.getAttempts();
+            if (attempts >= ARP_REQUEST_MAX_ATTEMPTS) {
+                if (requestsByKey.remove(key, request)) {
+                    abandonedRequests.incrementAndGet();
+                    LOG.debug("ARP request for IP {} on node {} was given up after {} attempts.", tpa.getValue(),
+                            nodeId.getValue(), attempts);
+                    request.complete();
+                    removeArpFlows(request);
+                }
+                return;
+            }
+            request.schedule(executor.schedule(this, ARP_RETRY_DELAY_MILLIS << (attempts - 1), TimeUnit.MILLISECONDS));
+        }
+
+        private void installArpFlowsAndSendArpRequests() {
+            NodeRef nodeRef = new NodeRef(nodeIid);
+            List<ListenableFuture<RpcResult<AddFlowOutput>>> arpFlowResultFutures = new ArrayList<>();
+            for (Entry<InstanceIdentifier<NodeConnector>, MacAddress> extNcIidAndMac : extNcWithMac.entrySet()) {
+                final ArpMessageAddress senderAddress = new ArpMessageAddress(extNcIidAndMac.getValue(),
+                        senderIpAddress);
+                NodeConnectorId ncId = extNcIidAndMac.getKey().firstKeyOf(NodeConnector.class, NodeConnectorKey.class).getId();
+                final Flow arpReplyToControllerFlow = createArpReplyToControllerFlow(senderAddress, tpa, ncId);
+                request.addFlowForRemove(new RemoveFlowInputBuilder(arpReplyToControllerFlow).setNode(nodeRef).build());
+                final InstanceIdentifier<Flow> flowIid = createFlowIid(arpReplyToControllerFlow, nodeIid);
+                Future<RpcResult<AddFlowOutput>> futureAddFlowResult = flowService.addFlow(new AddFlowInputBuilder(
+                        arpReplyToControllerFlow).setFlowRef(new FlowRef(flowIid)).setNode(nodeRef).build());
+                arpFlowResultFutures.add(JdkFutureAdapters.listenInPoolThread(futureAddFlowResult));
+            }
+            ListenableFuture<List<RpcResult<AddFlowOutput>>> futureArpFlowResults = Futures.allAsList(arpFlowResultFutures);
+            Futures.addCallback(futureArpFlowResults, new FutureCallback<List<RpcResult<AddFlowOutput>>>() {
+
+                @Override
+                public void onSuccess(List<RpcResult<AddFlowOutput>> result) {
+                    for (RpcResult<AddFlowOutput> addFlowResult : result) {
+                        if (!addFlowResult.isSuccessful()) {
+                            LOG.warn("An ARP Reply to Controller flow was not created on node {} \nErrors: {}",
+                                    nodeId.getValue(), addFlowResult.getErrors());
+                            continue;
+                        }
+                    }
+                    LOG.debug("ARP Reply to Controller flows were created on node {}", nodeId.getValue());
+                    sendArpRequests();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    LOG.error(
+                            "Illegal state - Installation of ARP flows on node {} failed. Node can contain just some ARP flows.",
+                            nodeId.getValue(), t);
+                }
+            });
+        }
+
+        private void sendArpRequests() {
+            for (Entry<InstanceIdentifier<NodeConnector>, MacAddress> extNcIidAndMac : extNcWithMac.entrySet()) {
+                ArpMessageAddress senderAddress = new ArpMessageAddress(extNcIidAndMac.getValue(), senderIpAddress);
+                ListenableFuture<RpcResult<Void>> futureSendArpResult = arpSender.sendArp(senderAddress, tpa,
+                        extNcIidAndMac.getKey());
+                Futures.addCallback(futureSendArpResult, logResult(tpa, extNcIidAndMac.getKey()));
+            }
+        }
+    }
+
+    /**
+     * ARP request sent on one node, with the L3 endpoints waiting for its reply and the flows
+     * installed for it
+     */
+    private static final class ArpRequest {
+
+        private final Set<EndpointL3Key> l3EpKeys = new HashSet<>();
+        private final List<RemoveFlowInput> flowsForRemove = new ArrayList<>();
+        private ScheduledFuture<?> scheduled;
+        private int attempts = 0;
+        private boolean completed = false;
+
+        ArpRequest(EndpointL3Key l3EpKey) {
+            l3EpKeys.add(l3EpKey);
+        }
+
+        synchronized boolean addL3EpKey(EndpointL3Key l3EpKey) {
+            if (completed) {
+                return false;
+            }
+            l3EpKeys.add(l3EpKey);
+            return true;
+        }
+
+        synchronized void addFlowForRemove(RemoveFlowInput flowForRemove) {
+            flowsForRemove.add(flowForRemove);
+        }
+
+        synchronized List<RemoveFlowInput> getFlowsForRemove() {
+            return ImmutableList.copyOf(flowsForRemove);
+        }
+
+        /**
+         * @return {@code false} if the request is completed already and no attempt should be made
+         */
+        synchronized boolean startAttempt() {
+            if (completed) {
+                return false;
+            }
+            attempts++;
+            return true;
+        }
+
+        synchronized int getAttempts() {
+            return attempts;
+        }
+
+        synchronized boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * @param scheduled the timeout or retry of the current attempt, cancelled on completion
+         */
+        synchronized void schedule(ScheduledFuture<?> scheduled) {
+            if (completed) {
+                scheduled.cancel(false);
+            } else {
+                this.scheduled = scheduled;
+            }
+        }
+
+        /**
+         * @return the L3 endpoints waiting for the reply; no endpoint can join the request afterwards
+         */
+        synchronized Set<EndpointL3Key> complete() {
+            completed = true;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            return ImmutableSet.copyOf(l3EpKeys);
+        }
+    }
+
 }
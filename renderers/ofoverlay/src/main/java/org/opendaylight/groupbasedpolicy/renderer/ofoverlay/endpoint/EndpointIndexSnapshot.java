@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.opendaylight.groupbasedpolicy.dto.EgKey;
+import org.opendaylight.groupbasedpolicy.dto.EpKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+
+/**
+ * Immutable view of the endpoint indexes maintained by
+ * {@link EndpointManager}. A snapshot is consistent across all its indexes,
+ * so a reader holding one sees the same endpoints on nodes and in groups
+ * no matter how many endpoint updates arrive in the meantime.
+ */
+@Immutable
+public class EndpointIndexSnapshot {
+
+    static final EndpointIndexSnapshot EMPTY = new EndpointIndexSnapshot(0,
+            Collections.<NodeId, Set<EpKey>>emptyMap(), Collections.<NodeId, Map<EgKey, Set<EpKey>>>emptyMap(),
+            Collections.<EgKey, Set<EpKey>>emptyMap(), Collections.<EpKey, Endpoint>emptyMap());
+
+    private final long version;
+    private final ImmutableMap<NodeId, ImmutableList<Endpoint>> endpointsByNode;
+    private final ImmutableMap<NodeId, ImmutableMap<EgKey, ImmutableList<Endpoint>>> endpointsByGroupByNode;
+    private final ImmutableMap<EgKey, ImmutableList<Endpoint>> endpointsByGroup;
+    private final ImmutableSetMultimap<EgKey, NodeId> nodesByGroup;
+
+    EndpointIndexSnapshot(long version, Map<NodeId, ? extends Set<EpKey>> endpointsByNode,
+            Map<NodeId, ? extends Map<EgKey, Set<EpKey>>> endpointsByGroupByNode,
+            Map<EgKey, ? extends Set<EpKey>> endpointsByGroup, Map<EpKey, Endpoint> endpoints) {
+        this.version = version;
+
+        ImmutableMap.Builder<NodeId, ImmutableList<Endpoint>> byNode = ImmutableMap.builder();
+        for (Map.Entry<NodeId, ? extends Set<EpKey>> entry : endpointsByNode.entrySet()) {
+            byNode.put(entry.getKey(), resolve(entry.getValue(), endpoints));
+        }
+        this.endpointsByNode = byNode.build();
+
+        ImmutableMap.Builder<NodeId, ImmutableMap<EgKey, ImmutableList<Endpoint>>> byGroupByNode =
+                ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<EgKey, NodeId> groupNodes = ImmutableSetMultimap.builder();
+        for (Map.Entry<NodeId, ? extends Map<EgKey, Set<EpKey>>> nodeEntry : endpointsByGroupByNode.entrySet()) {
+            ImmutableMap.Builder<EgKey, ImmutableList<Endpoint>> nodeGroups = ImmutableMap.builder();
+            for (Map.Entry<EgKey, Set<EpKey>> groupEntry : nodeEntry.getValue().entrySet()) {
+                nodeGroups.put(groupEntry.getKey(), resolve(groupEntry.getValue(), endpoints));
+                groupNodes.put(groupEntry.getKey(), nodeEntry.getKey());
+            }
+            byGroupByNode.put(nodeEntry.getKey(), nodeGroups.build());
+        }
+        this.endpointsByGroupByNode = byGroupByNode.build();
+        this.nodesByGroup = groupNodes.build();
+
+        ImmutableMap.Builder<EgKey, ImmutableList<Endpoint>> byGroup = ImmutableMap.builder();
+        for (Map.Entry<EgKey, ? extends Set<EpKey>> entry : endpointsByGroup.entrySet()) {
+            byGroup.put(entry.getKey(), resolve(entry.getValue(), endpoints));
+        }
+        this.endpointsByGroup = byGroup.build();
+    }
+
+    private static ImmutableList<Endpoint> resolve(Set<EpKey> epKeys, Map<EpKey, Endpoint> endpoints) {
+        ImmutableList.Builder<Endpoint> result = ImmutableList.builder();
+        for (EpKey epKey : epKeys) {
+            Endpoint ep = endpoints.get(epKey);
+            if (ep != null) {
+                result.add(ep);
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * @return version of the indexes, increasing with every published snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param nodeId - the node ID to look up
+     * @return endpoint groups having an endpoint on the node
+     */
+    public Set<EgKey> getGroupsForNode(NodeId nodeId) {
+        ImmutableMap<EgKey, ImmutableList<Endpoint>> nodeEps = endpointsByGroupByNode.get(nodeId);
+        if (nodeEps == null)
+            return Collections.emptySet();
+        return nodeEps.keySet();
+    }
+
+    /**
+     * @param egKey - the endpoint group to look up
+     * @return nodes having an endpoint of the group
+     */
+    public Set<NodeId> getNodesForGroup(EgKey egKey) {
+        return nodesByGroup.get(egKey);
+    }
+
+    /**
+     * @param nodeId - the node ID to look up
+     * @param eg - the group to look up
+     * @return the endpoints of the group on the node
+     */
+    public Collection<Endpoint> getEndpointsForNode(NodeId nodeId, EgKey eg) {
+        ImmutableMap<EgKey, ImmutableList<Endpoint>> nodeEps = endpointsByGroupByNode.get(nodeId);
+        if (nodeEps == null)
+            return Collections.emptyList();
+        Collection<Endpoint> ebn = nodeEps.get(eg);
+        if (ebn == null)
+            return Collections.emptyList();
+        return ebn;
+    }
+
+    /**
+     * @param nodeId - the node ID to look up
+     * @return the endpoints on the node
+     */
+    public Collection<Endpoint> getEndpointsForNode(NodeId nodeId) {
+        Collection<Endpoint> ebn = endpointsByNode.get(nodeId);
+        if (ebn == null)
+            return Collections.emptyList();
+        return ebn;
+    }
+
+    /**
+     * @param eg - the group to look up
+     * @return the endpoints in the group
+     */
+    public Collection<Endpoint> getEndpointsForGroup(EgKey eg) {
+        Collection<Endpoint> ebg = endpointsByGroup.get(eg);
+        if (ebg == null)
+            return Collections.emptyList();
+        return ebg;
+    }
+}
@@ -13,7 +13,6 @@ import static org.opendaylight.groupbasedpolicy.util.DataStoreHelper.readFromDs;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -22,12 +21,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
-import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
@@ -37,14 +37,14 @@ import org.opendaylight.groupbasedpolicy.dto.IndexedTenant;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.EndpointListener;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.arp.ArpTasker;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
-import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
 import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.groupbasedpolicy.util.SetUtils;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ConditionName;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L3ContextId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointFields;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3AddressBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3AddressKey;
@@ -52,8 +52,9 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3PrefixKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayConfig;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContext;
@@ -68,14 +69,12 @@ import org.opendaylight.yangtools.concepts.ListenerRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 
 /**
  * Keep track of endpoints on the system. Maintain an index of endpoints and
@@ -89,6 +88,7 @@ import com.google.common.collect.Sets;
 public class EndpointManager implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(EndpointManager.class);
+    private static final int SNAPSHOT_BUILD_ATTEMPTS = 3;
     private final EndpointManagerListener endpointListener;
     private final ConcurrentMap<EpKey, Endpoint> endpoints = new ConcurrentHashMap<>();
     private final ConcurrentMap<EpKey, Endpoint> externalEndpointsWithoutLocation = new ConcurrentHashMap<>();
@@ -96,18 +96,21 @@ public class EndpointManager implements AutoCloseable {
             new ConcurrentHashMap<>();
     private final ConcurrentMap<NodeId, Set<EpKey>> endpointsByNode = new ConcurrentHashMap<>();
     private final ConcurrentMap<EgKey, Set<EpKey>> endpointsByGroup = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointL3Key, EndpointL3> l3Endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointL3Key, EndpointL3> l3EndpointsWithNat = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndpointKey, EndpointL3> l3EpWithNatByL2Key = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, ConcurrentMap<EndpointL3PrefixKey, EndpointL3Prefix>> endpointsL3PrefixByTenant =
+            new ConcurrentHashMap<>();
     private final ScheduledExecutorService executor;
     private final DataBroker dataProvider;
     private final ArpTasker arpTasker;
     private final ListenerRegistration<ArpTasker> notificationListenerRegistration;
     private List<EndpointListener> listeners = new CopyOnWriteArrayList<>();
-    private Function<EpKey, Endpoint> indexTransform = new Function<EpKey, Endpoint>() {
-
-        @Override
-        public Endpoint apply(EpKey input) {
-            return endpoints.get(input);
-        }
-    };
+    // writers change the indexes above under this monitor and bump the count before and after,
+    // so it is odd while a change is in progress; readers only use the published snapshot
+    private final AtomicLong indexModCount = new AtomicLong();
+    private final AtomicReference<EndpointIndexSnapshot> indexSnapshot =
+            new AtomicReference<>(EndpointIndexSnapshot.EMPTY);
 
     public EndpointManager(DataBroker dataProvider, RpcProviderRegistry rpcRegistry,
             NotificationService notificationService, ScheduledExecutorService executor, SwitchManager switchManager) {
@@ -115,7 +118,7 @@ public class EndpointManager implements AutoCloseable {
         this.dataProvider = dataProvider;
         if (rpcRegistry != null) {
             if (notificationService != null && dataProvider != null) {
-                this.arpTasker = new ArpTasker(rpcRegistry, dataProvider);
+                this.arpTasker = new ArpTasker(rpcRegistry, dataProvider, executor, switchManager);
                 notificationListenerRegistration = notificationService.registerNotificationListener(arpTasker);
             } else {
                 LOG.info("Missing service {}", NotificationService.class.getSimpleName());
@@ -144,17 +147,70 @@ public class EndpointManager implements AutoCloseable {
         listeners.add(listener);
     }
 
+    /**
+     * Get a consistent view of the endpoint indexes. The snapshot is rebuilt
+     * at most once after a batch of endpoint updates, otherwise the current
+     * one is returned. Usually neither case takes the monitor of endpoint
+     * processing: a rebuild copies the concurrent indexes and is published
+     * only if no endpoint was processed meanwhile. If endpoint processing
+     * keeps interfering, the snapshot is built under the monitor, so the
+     * returned snapshot is never older than the indexes at the time of the
+     * call.
+     *
+     * @return the current {@link EndpointIndexSnapshot}
+     */
+    public EndpointIndexSnapshot getIndexSnapshot() {
+        EndpointIndexSnapshot current = indexSnapshot.get();
+        for (int attempt = 0; attempt < SNAPSHOT_BUILD_ATTEMPTS; attempt++) {
+            long modCount = indexModCount.get();
+            if (current.getVersion() == modCount) {
+                return current;
+            }
+            if ((modCount & 1) != 0) {
+                // endpoint processing in progress
+                Thread.yield();
+                continue;
+            }
+            EndpointIndexSnapshot built = new EndpointIndexSnapshot(modCount, endpointsByNode,
+                    endpointsByGroupByNode, endpointsByGroup, endpoints);
+            if (indexModCount.get() == modCount) {
+                publishIndexSnapshot(built);
+                return built;
+            }
+            current = indexSnapshot.get();
+        }
+        LOG.debug("Endpoint indexes changed while building a snapshot, building it under the monitor");
+        synchronized (this) {
+            long modCount = indexModCount.get();
+            current = indexSnapshot.get();
+            if (current.getVersion() == modCount) {
+                return current;
+            }
+            EndpointIndexSnapshot built = new EndpointIndexSnapshot(modCount, endpointsByNode,
+                    endpointsByGroupByNode, endpointsByGroup, endpoints);
+            publishIndexSnapshot(built);
+            return built;
+        }
+    }
+
+    private void publishIndexSnapshot(EndpointIndexSnapshot snapshot) {
+        EndpointIndexSnapshot current = indexSnapshot.get();
+        while (current.getVersion() < snapshot.getVersion()) {
+            if (indexSnapshot.compareAndSet(current, snapshot)) {
+                return;
+            }
+            current = indexSnapshot.get();
+        }
+    }
+
     /**
      * Get a collection of endpoints attached to a particular switch
      *
      * @param nodeId - the nodeId of the switch to get endpoints for
      * @return a collection of {@link Endpoint} objects.
      */
-    public synchronized Set<EgKey> getGroupsForNode(NodeId nodeId) {
-        Map<EgKey, Set<EpKey>> nodeEps = endpointsByGroupByNode.get(nodeId);
-        if (nodeEps == null)
-            return Collections.emptySet();
-        return ImmutableSet.copyOf(nodeEps.keySet());
+    public Set<EgKey> getGroupsForNode(NodeId nodeId) {
+        return getIndexSnapshot().getGroupsForNode(nodeId);
     }
 
     /**
@@ -163,16 +219,8 @@ public class EndpointManager implements AutoCloseable {
      * @param egKey - the egKey of the endpoint group to get nodes for
      * @return a collection of {@link NodeId} objects.
      */
-    public synchronized Set<NodeId> getNodesForGroup(final EgKey egKey) {
-        return ImmutableSet.copyOf(Sets.filter(endpointsByGroupByNode.keySet(), new Predicate<NodeId>() {
-
-            @Override
-            public boolean apply(NodeId input) {
-                Map<EgKey, Set<EpKey>> nodeEps = endpointsByGroupByNode.get(input);
-                return (nodeEps != null && nodeEps.containsKey(egKey));
-            }
-
-        }));
+    public Set<NodeId> getNodesForGroup(final EgKey egKey) {
+        return getIndexSnapshot().getNodesForGroup(egKey);
     }
 
     /**
@@ -182,17 +230,8 @@ public class EndpointManager implements AutoCloseable {
      * @param eg - the group to look up
      * @return the endpoints
      */
-    public synchronized Collection<Endpoint> getEndpointsForNode(NodeId nodeId, EgKey eg) {
-        // TODO: alagalah Create method findEndpointsByNode() that uses
-        // data store
-
-        Map<EgKey, Set<EpKey>> nodeEps = endpointsByGroupByNode.get(nodeId);
-        if (nodeEps == null)
-            return Collections.emptyList();
-        Collection<EpKey> ebn = nodeEps.get(eg);
-        if (ebn == null)
-            return Collections.emptyList();
-        return ImmutableList.copyOf(Collections2.transform(ebn, indexTransform));
+    public Collection<Endpoint> getEndpointsForNode(NodeId nodeId, EgKey eg) {
+        return getIndexSnapshot().getEndpointsForNode(nodeId, eg);
     }
 
     /**
@@ -201,14 +240,8 @@ public class EndpointManager implements AutoCloseable {
      * @param nodeId - the node ID to look up
      * @return the endpoints
      */
-    public synchronized Collection<Endpoint> getEndpointsForNode(final NodeId nodeId) {
-        // TODO: alagalah Create method findEndpointsByNode() that uses
-        // data store. See commented code below.
-
-        Collection<EpKey> ebn = endpointsByNode.get(nodeId);
-        if (ebn == null)
-            return Collections.emptyList();
-        return ImmutableList.copyOf(Collections2.transform(ebn, indexTransform));
+    public Collection<Endpoint> getEndpointsForNode(final NodeId nodeId) {
+        return getIndexSnapshot().getEndpointsForNode(nodeId);
     }
 
     /**
@@ -221,17 +254,62 @@ public class EndpointManager implements AutoCloseable {
         return endpoints.get(epKey);
     }
 
+    /**
+     * Get the L3 endpoint with the given L3 context and IP address, e.g. a gateway
+     * of an L3 prefix endpoint or a router port
+     *
+     * @param l3Context - the L3 context of the endpoint
+     * @param ipAddress - the IP address of the endpoint
+     * @return the {@link EndpointL3} or {@code null} if it does not exist
+     */
+    public EndpointL3 getL3Endpoint(L3ContextId l3Context, IpAddress ipAddress) {
+        if (l3Context == null || ipAddress == null) {
+            return null;
+        }
+        return l3Endpoints.get(new EndpointL3Key(ipAddress, l3Context));
+    }
+
+    /**
+     * Get the L2 endpoint the given L3 endpoint is bound to. Endpoints without
+     * location are considered as well.
+     *
+     * @param l3Ep - the L3 endpoint
+     * @return the {@link Endpoint} or {@code null} if it does not exist
+     */
+    public Endpoint getL2EndpointFromL3(EndpointL3 l3Ep) {
+        if (l3Ep.getL2Context() == null || l3Ep.getMacAddress() == null) {
+            return null;
+        }
+        EpKey epKey = new EpKey(l3Ep.getL2Context(), l3Ep.getMacAddress());
+        Endpoint ep = endpoints.get(epKey);
+        if (ep == null) {
+            ep = externalEndpointsWithoutLocation.get(epKey);
+        }
+        return ep;
+    }
+
     /**
      * Get a collection of endpoints in a particular endpoint group
      *
      * @param eg - Endpoint group key (contains endpoint group and tenant ID)
      * @return a collection of {@link Endpoint} objects.
      */
-    public synchronized Collection<Endpoint> getEndpointsForGroup(EgKey eg) {
-        Collection<EpKey> ebg = endpointsByGroup.get(eg);
-        if (ebg == null)
-            return Collections.emptyList();
-        return ImmutableList.copyOf(Collections2.transform(ebg, indexTransform));
+    public Collection<Endpoint> getEndpointsForGroup(EgKey eg) {
+        return getIndexSnapshot().getEndpointsForGroup(eg);
+    }
+
+    /**
+     * Check whether an endpoint group has an endpoint on any node. Unlike the
+     * snapshot getters this reads the working index, so it is cheap and
+     * reflects the change being notified when called from an
+     * {@link EndpointListener}.
+     *
+     * @param eg - Endpoint group key (contains endpoint group and tenant ID)
+     * @return {@code true} if the group has a located endpoint
+     */
+    public boolean hasEndpointsInGroup(EgKey eg) {
+        Set<EpKey> eps = endpointsByGroup.get(eg);
+        return eps != null && !eps.isEmpty();
     }
 
     /**
@@ -271,6 +349,13 @@ public class EndpointManager implements AutoCloseable {
      * @param newL3Ep the new L3 endpoint
      */
     protected synchronized void processL3Endpoint(EndpointL3 oldL3Ep, EndpointL3 newL3Ep) {
+        if (oldL3Ep != null) {
+            unindexL3Endpoint(oldL3Ep);
+        }
+        if (newL3Ep != null) {
+            indexL3Endpoint(newL3Ep);
+        }
+
         // TODO Bug 3543
         // create L3 endpoint
         if (oldL3Ep == null && newL3Ep != null) {
@@ -288,6 +373,68 @@ public class EndpointManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Character of input parameters will determine action - create, update or delete
+     * L3Prefix Endpoint
+     *
+     * @param oldL3PrefixEp the old L3 prefix endpoint
+     * @param newL3PrefixEp the new L3 prefix endpoint
+     */
+    protected synchronized void processL3PrefixEndpoint(EndpointL3Prefix oldL3PrefixEp,
+            EndpointL3Prefix newL3PrefixEp) {
+        if (oldL3PrefixEp != null && oldL3PrefixEp.getTenant() != null) {
+            ConcurrentMap<EndpointL3PrefixKey, EndpointL3Prefix> tenantPrefixEps =
+                    endpointsL3PrefixByTenant.get(oldL3PrefixEp.getTenant());
+            if (tenantPrefixEps != null) {
+                tenantPrefixEps.remove(getL3PrefixEpKey(oldL3PrefixEp));
+                if (tenantPrefixEps.isEmpty()) {
+                    endpointsL3PrefixByTenant.remove(oldL3PrefixEp.getTenant());
+                }
+            }
+        }
+        if (newL3PrefixEp != null) {
+            if (newL3PrefixEp.getTenant() == null || newL3PrefixEp.getIpPrefix() == null
+                    || newL3PrefixEp.getL3Context() == null) {
+                LOG.error("{} is not a valid L3 Prefix Endpoint", newL3PrefixEp);
+                return;
+            }
+            ConcurrentMap<EndpointL3PrefixKey, EndpointL3Prefix> tenantPrefixEps =
+                    endpointsL3PrefixByTenant.get(newL3PrefixEp.getTenant());
+            if (tenantPrefixEps == null) {
+                tenantPrefixEps = new ConcurrentHashMap<>();
+                endpointsL3PrefixByTenant.put(newL3PrefixEp.getTenant(), tenantPrefixEps);
+            }
+            tenantPrefixEps.put(getL3PrefixEpKey(newL3PrefixEp), newL3PrefixEp);
+        }
+    }
+
+    private void indexL3Endpoint(EndpointL3 l3Ep) {
+        EndpointL3Key l3EpKey = getL3EpKey(l3Ep);
+        if (l3EpKey == null) {
+            return;
+        }
+        l3Endpoints.put(l3EpKey, l3Ep);
+        if (hasNatAddress(l3Ep)) {
+            l3EndpointsWithNat.put(l3EpKey, l3Ep);
+            if (l3Ep.getL2Context() != null && l3Ep.getMacAddress() != null) {
+                l3EpWithNatByL2Key.put(new EndpointKey(l3Ep.getL2Context(), l3Ep.getMacAddress()), l3Ep);
+            }
+        }
+    }
+
+    private void unindexL3Endpoint(EndpointL3 l3Ep) {
+        EndpointL3Key l3EpKey = getL3EpKey(l3Ep);
+        if (l3EpKey == null) {
+            return;
+        }
+        l3Endpoints.remove(l3EpKey);
+        EndpointL3 oldNatL3Ep = l3EndpointsWithNat.remove(l3EpKey);
+        if (oldNatL3Ep != null && oldNatL3Ep.getL2Context() != null && oldNatL3Ep.getMacAddress() != null) {
+            l3EpWithNatByL2Key.remove(new EndpointKey(oldNatL3Ep.getL2Context(), oldNatL3Ep.getMacAddress()),
+                    oldNatL3Ep);
+        }
+    }
+
     /**
      * Character of input parameters will determine action - create, update or delete Endpoint
      *
@@ -309,67 +456,72 @@ public class EndpointManager implements AutoCloseable {
         boolean notifyOldEg = false;
         boolean notifyNewEg = false;
 
-        // create endpoint
-        if (oldEp == null && newEp != null) {
-            if (newLoc != null) {
-                createEndpoint(newLoc, newEpKey, newEpgIds, tenantId);
-                endpoints.put(newEpKey, newEp);
-                notifyEndpointUpdated(newEpKey);
-                notifyNewLoc = true;
-                notifyNewEg = true;
-            } else {
-                externalEndpointsWithoutLocation.put(newEpKey, newEp);
+        indexModCount.incrementAndGet();
+        try {
+            // create endpoint
+            if (oldEp == null && newEp != null) {
+                if (newLoc != null) {
+                    createEndpoint(newLoc, newEpKey, newEpgIds, tenantId);
+                    endpoints.put(newEpKey, newEp);
+                    notifyEndpointUpdated(newEpKey);
+                    notifyNewLoc = true;
+                    notifyNewEg = true;
+                } else {
+                    externalEndpointsWithoutLocation.put(newEpKey, newEp);
+                }
             }
-        }
 
-        // update endpoint
-        else if (oldEp != null && newEp != null && oldEpKey != null && newEpKey != null) {
-            // endpoint is not external anymore
-            if (newLoc != null && oldLoc == null) {
-                createEndpoint(newLoc, newEpKey, newEpgIds, tenantId);
-                externalEndpointsWithoutLocation.remove(oldEpKey);
-                endpoints.put(newEpKey, newEp);
-                notifyEndpointUpdated(newEpKey);
-                notifyNewLoc = true;
-                notifyNewEg = true;
-            }
-            // endpoint changed to external
-            else if (newLoc == null && oldLoc != null) {
-                removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
-                externalEndpointsWithoutLocation.put(newEpKey, newEp);
-                endpoints.remove(oldEpKey);
-                notifyEndpointUpdated(oldEpKey);
-                notifyOldLoc = true;
-                notifyOldEg = true;
-            // endpoint might have changed location, EPGs or it's properties
-            } else if (newLoc != null && oldLoc != null) {
-                    // endpoit changed location
-                    if (!(oldLoc.getValue().equals(newLoc.getValue()))) {
-                        notifyOldLoc = true;
-                        notifyNewLoc = true;
-                    }
-                    // endpoint changed EPGs
-                    if (!oldEpgIds.equals(newEpgIds)) {
-                        notifyOldEg = true;
-                        notifyNewEg = true;
-                    }
-                    removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
+            // update endpoint
+            else if (oldEp != null && newEp != null && oldEpKey != null && newEpKey != null) {
+                // endpoint is not external anymore
+                if (newLoc != null && oldLoc == null) {
                     createEndpoint(newLoc, newEpKey, newEpgIds, tenantId);
+                    externalEndpointsWithoutLocation.remove(oldEpKey);
+                    endpoints.put(newEpKey, newEp);
                     notifyEndpointUpdated(newEpKey);
+                    notifyNewLoc = true;
+                    notifyNewEg = true;
+                }
+                // endpoint changed to external
+                else if (newLoc == null && oldLoc != null) {
+                    removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
+                    externalEndpointsWithoutLocation.put(newEpKey, newEp);
+                    endpoints.remove(oldEpKey);
+                    notifyEndpointUpdated(oldEpKey);
+                    notifyOldLoc = true;
+                    notifyOldEg = true;
+                // endpoint might have changed location, EPGs or it's properties
+                } else if (newLoc != null && oldLoc != null) {
+                        // endpoit changed location
+                        if (!(oldLoc.getValue().equals(newLoc.getValue()))) {
+                            notifyOldLoc = true;
+                            notifyNewLoc = true;
+                        }
+                        // endpoint changed EPGs
+                        if (!oldEpgIds.equals(newEpgIds)) {
+                            notifyOldEg = true;
+                            notifyNewEg = true;
+                        }
+                        removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
+                        createEndpoint(newLoc, newEpKey, newEpgIds, tenantId);
+                        notifyEndpointUpdated(newEpKey);
+                }
             }
-        }
 
-        // remove endpoint
-        else if (oldEp != null && newEp == null) {
-            if (oldLoc != null) {
-                removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
-                endpoints.remove(oldEpKey);
-                notifyEndpointUpdated(oldEpKey);
-                notifyOldLoc = true;
-                notifyOldEg = true;
-            } else {
-                externalEndpointsWithoutLocation.remove(oldEpKey);
+            // remove endpoint
+            else if (oldEp != null && newEp == null) {
+                if (oldLoc != null) {
+                    removeEndpoint(oldEp, oldLoc, oldEpKey, oldEpgIds);
+                    endpoints.remove(oldEpKey);
+                    notifyEndpointUpdated(oldEpKey);
+                    notifyOldLoc = true;
+                    notifyOldEg = true;
+                } else {
+                    externalEndpointsWithoutLocation.remove(oldEpKey);
+                }
             }
+        } finally {
+            indexModCount.incrementAndGet();
         }
 
         // notifications
@@ -392,7 +544,7 @@ public class EndpointManager implements AutoCloseable {
     private void createEndpoint(NodeId newLoc, EpKey newEpKey, Set<EndpointGroupId> newEpgIds, TenantId tenantId) {
         // Update endpointsByNode
         if (endpointsByNode.get(newLoc) == null) {
-            Set<EpKey> epsNode = new HashSet<>();
+            Set<EpKey> epsNode = Collections.newSetFromMap(new ConcurrentHashMap<EpKey, Boolean>());
             epsNode.add(newEpKey);
             endpointsByNode.put(newLoc, epsNode);
             SwitchManager.activatingSwitch(newLoc);
@@ -410,7 +562,7 @@ public class EndpointManager implements AutoCloseable {
             // endpointsByGroup
             Set<EpKey> geps = endpointsByGroup.get(newEgKey);
             if (geps == null) {
-                geps = new HashSet<>();
+                geps = Collections.newSetFromMap(new ConcurrentHashMap<EpKey, Boolean>());
             }
             geps.add(newEpKey);
             endpointsByGroup.put(newEgKey, geps);
@@ -572,65 +724,13 @@ public class EndpointManager implements AutoCloseable {
     }
 
     /**
-     * Get the endpoints container from data store.
-     * Note: There are maps maintained by listener when higher performance is required.
-     *
-     * @return the
-     *         {@link org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints}
-     */
-    protected Endpoints getEndpointsFromDataStore() {
-        /*
-         * XXX: alagalah I wanted to avoid adding another Map. Due to not being able to
-         * get to the granularity of the L3PrefixEndpoint List within the Endpoints container
-         * in the data store, we have to pull all the Endpoints. If this causes performance issues
-         * we may have to revisit a Map in updateEndpoint but note, this Endpoint doesn't have a
-         * location
-         * and hence we would have to process it outside the null location check.
-         */
-        if (dataProvider == null) {
-            LOG.error("Null DataProvider in EndpointManager getEndpointsL3Prefix");
-            return null;
-        }
-        ReadOnlyTransaction rTx = dataProvider.newReadOnlyTransaction();
-        Optional<Endpoints> endpoints =
-                DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL, IidFactory.endpointsIidWildcard(), rTx);
-        if (!endpoints.isPresent()) {
-            LOG.warn("No Endpoints present in data store.");
-            return null;
-        }
-        return endpoints.get();
-    }
-
-    /**
-     * Return all L3Endpoints from data store.
+     * Return all L3Endpoints. The collection is maintained by {@link EndpointManagerListener}.
      *
-     * @return the
-     *         {@link org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3}
      * @return {@link Collection} of the {@link EndpointL3}.
      *   Empty {@link Collection} if no {@link EndpointL3} is found.
      */
     protected Collection<EndpointL3> getL3Endpoints() {
-        Endpoints endpoints = getEndpointsFromDataStore();
-        if (endpoints == null || endpoints.getEndpointL3() == null) {
-            LOG.warn("No L3  Endpoints present in data store.");
-            return null;
-        }
-        return endpoints.getEndpointL3();
-    }
-
-    /**
-     * Return all L3Prefix Endpoints from data store.
-     *
-     * @return the
-     *         {@link org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix}
-     */
-    private Collection<EndpointL3Prefix> getEndpointsL3Prefix() {
-        Endpoints endpoints = getEndpointsFromDataStore();
-        if (endpoints == null || endpoints.getEndpointL3Prefix() == null) {
-            LOG.warn("No L3 Prefix Endpoints present in data store.");
-            return null;
-        }
-        return endpoints.getEndpointL3Prefix();
+        return ImmutableSet.copyOf(l3Endpoints.values());
     }
 
     /**
@@ -643,19 +743,11 @@ public class EndpointManager implements AutoCloseable {
      *         {@link org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix}
      */
     public Collection<EndpointL3Prefix> getEndpointsL3PrefixForTenant(final TenantId tenantId) {
-        Collection<EndpointL3Prefix> l3PrefixEndpoints = getEndpointsL3Prefix();
-        if (l3PrefixEndpoints == null) {
-            // Log message already generated in getEndpointsL3Prefix()
-            return null;
+        Map<EndpointL3PrefixKey, EndpointL3Prefix> tenantPrefixEps = endpointsL3PrefixByTenant.get(tenantId);
+        if (tenantPrefixEps == null) {
+            return Collections.emptySet();
         }
-        return ImmutableSet.copyOf(Collections2.filter(l3PrefixEndpoints, new Predicate<EndpointL3Prefix>() {
-
-            @Override
-            public boolean apply(EndpointL3Prefix input) {
-                return (input.getTenant().equals(tenantId));
-            }
-
-        }));
+        return ImmutableSet.copyOf(tenantPrefixEps.values());
     }
 
     /**
@@ -665,22 +757,7 @@ public class EndpointManager implements AutoCloseable {
      *         {@link org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3}
      */
     public Collection<EndpointL3> getL3EndpointsWithNat() {
-        Collection<EndpointL3> l3Endpoints = getL3Endpoints();
-        if (l3Endpoints == null) {
-            return null;
-        }
-        l3Endpoints = Collections2.filter(l3Endpoints, new Predicate<EndpointL3>() {
-
-            @Override
-            public boolean apply(EndpointL3 input) {
-                return !((input.getAugmentation(NatAddress.class) == null)
-                        || (input.getAugmentation(NatAddress.class).getNatAddress() == null));
-            }
-        });
-        if (l3Endpoints == null) {
-            return Collections.emptySet();
-        }
-        return ImmutableSet.copyOf(l3Endpoints);
+        return ImmutableSet.copyOf(l3EndpointsWithNat.values());
     }
 
     /**
@@ -830,23 +907,23 @@ public class EndpointManager implements AutoCloseable {
     }
 
     protected Map<EndpointKey, EndpointL3> getL3EpWithNatByL2Key() {
-        Map<EndpointKey, EndpointL3> l3EpByL2EpKey = new HashMap<>();
+        return ImmutableMap.copyOf(l3EpWithNatByL2Key);
+    }
 
-        Collection<EndpointL3> l3Eps = getL3EndpointsWithNat();
-        if (l3Eps == null) {
-            l3EpByL2EpKey = Collections.emptyMap();
-            return l3EpByL2EpKey;
-        }
-        for (EndpointL3 l3Ep : l3Eps) {
-            if (l3Ep.getL2Context() != null && l3Ep.getMacAddress() != null) {
-                EndpointKey epKey = new EndpointKey(l3Ep.getL2Context(), l3Ep.getMacAddress());
-                l3EpByL2EpKey.put(epKey, l3Ep);
-            }
-        }
-        if (l3EpByL2EpKey.isEmpty()) {
-            l3EpByL2EpKey = Collections.emptyMap();
+    private static boolean hasNatAddress(EndpointL3 l3Ep) {
+        NatAddress natAddress = l3Ep.getAugmentation(NatAddress.class);
+        return natAddress != null && natAddress.getNatAddress() != null;
+    }
+
+    private static EndpointL3Key getL3EpKey(EndpointL3 l3Ep) {
+        if (l3Ep.getIpAddress() == null || l3Ep.getL3Context() == null) {
+            return null;
         }
-        return l3EpByL2EpKey;
+        return new EndpointL3Key(l3Ep.getIpAddress(), l3Ep.getL3Context());
+    }
+
+    private static EndpointL3PrefixKey getL3PrefixEpKey(EndpointL3Prefix l3PrefixEp) {
+        return new EndpointL3PrefixKey(l3PrefixEp.getIpPrefix(), l3PrefixEp.getL3Context());
     }
 
     public EgKey getEgKey(Endpoint endpoint) {
@@ -45,8 +45,7 @@ public class EndpointManagerListener implements DataChangeListener, AutoCloseabl
             } else if (dao instanceof EndpointL3) {
                 endpointManager.processL3Endpoint(null, (EndpointL3) dao);
             } else if (dao instanceof EndpointL3Prefix) {
-                //noinspection UnnecessaryContinue
-                continue;
+                endpointManager.processL3PrefixEndpoint(null, (EndpointL3Prefix) dao);
             }
         }
         //Update
@@ -59,8 +58,8 @@ public class EndpointManagerListener implements DataChangeListener, AutoCloseabl
                 EndpointL3 oldEp3 = (EndpointL3) change.getOriginalData().get(entry.getKey());
                 endpointManager.processL3Endpoint(oldEp3, (EndpointL3) entry.getValue());
             } else if (entry.getValue() instanceof EndpointL3Prefix) {
-                //noinspection UnnecessaryContinue
-                continue;
+                EndpointL3Prefix oldL3PrefixEp = (EndpointL3Prefix) change.getOriginalData().get(entry.getKey());
+                endpointManager.processL3PrefixEndpoint(oldL3PrefixEp, (EndpointL3Prefix) entry.getValue());
             }
         }
         //Remove
@@ -74,8 +73,7 @@ public class EndpointManagerListener implements DataChangeListener, AutoCloseabl
             } else if (old instanceof EndpointL3) {
                 endpointManager.processL3Endpoint((EndpointL3) old, null);
             } else if (old instanceof EndpointL3Prefix) {
-                //noinspection UnnecessaryContinue
-                continue;
+                endpointManager.processL3PrefixEndpoint((EndpointL3Prefix) old, null);
             }
         }
     }
@@ -20,9 +20,12 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContext;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContextRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayL3Context;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayL3ContextBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
@@ -83,6 +86,17 @@ public class OfOverlayAug implements EpRendererAugmentation, AutoCloseable {
         return null;
     }
 
+    @Override
+    public Map.Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> buildRegisterEndpointInputAugmentation(
+            EndpointRegistration registration) {
+        OfOverlayContextRegistration ictx = registration.getAugmentation(OfOverlayContextRegistration.class);
+        if (ictx != null) {
+            return new SimpleImmutableEntry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>>(
+                    OfOverlayContextInput.class, new OfOverlayContextInputBuilder(ictx).build());
+        }
+        return null;
+    }
+
     private OfOverlayContextBuilder checkAugmentation(RegisterEndpointInput input) {
         OfOverlayContextInput ictx = input.getAugmentation(OfOverlayContextInput.class);
         if (ictx == null) {
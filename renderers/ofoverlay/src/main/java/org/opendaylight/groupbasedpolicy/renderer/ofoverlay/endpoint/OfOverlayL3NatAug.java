@@ -18,9 +18,12 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.register.endpoints.input.EndpointRegistration;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddressBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddressInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddressInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.l3endpoint.rev151217.NatAddressRegistration;
 import org.opendaylight.yangtools.yang.binding.Augmentation;
 
 public class OfOverlayL3NatAug implements EpRendererAugmentation, AutoCloseable {
@@ -56,6 +59,17 @@ public class OfOverlayL3NatAug implements EpRendererAugmentation, AutoCloseable
         return null;
     }
 
+    @Override
+    public Map.Entry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>> buildRegisterEndpointInputAugmentation(
+            EndpointRegistration registration) {
+        if (registration.getAugmentation(NatAddressRegistration.class) != null) {
+            return new SimpleImmutableEntry<Class<? extends Augmentation<RegisterEndpointInput>>, Augmentation<RegisterEndpointInput>>(
+                    NatAddressInput.class,
+                    new NatAddressInputBuilder(registration.getAugmentation(NatAddressRegistration.class)).build());
+        }
+        return null;
+    }
+
     @Override
     public void close() throws Exception {
         this.epRendererAugmentationRegistry.unregister(this);
@@ -32,7 +32,6 @@ import static org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtil
 import static org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils.outputAction;
 import static org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils.setDlDstAction;
 import static org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils.setDlSrcAction;
-import static org.opendaylight.groupbasedpolicy.util.DataStoreHelper.readFromDs;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -46,8 +45,6 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 
-import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
-import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.groupbasedpolicy.dto.EgKey;
 import org.opendaylight.groupbasedpolicy.dto.EpKey;
 import org.opendaylight.groupbasedpolicy.dto.IndexedTenant;
@@ -56,8 +53,6 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfWriter;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils.RegMatch;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.OrdinalFactory.EndpointFwdCtxOrdinals;
-import org.opendaylight.groupbasedpolicy.util.IidFactory;
-import org.opendaylight.groupbasedpolicy.util.TenantUtils;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Prefix;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv6Prefix;
@@ -74,15 +69,12 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instru
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.NetworkDomainId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.fields.L3Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoint.l3.prefix.fields.EndpointL3Gateways;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayContext;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.Tenant;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.ForwardingContext;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.L3Context;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.Subnet;
@@ -101,11 +93,9 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowjava.nx.match.rev14
 import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowjava.nx.match.rev140421.NxmNxReg6;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowjava.nx.match.rev140421.NxmNxReg7;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.overlay.rev150105.TunnelTypeVxlan;
-import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.SetMultimap;
@@ -154,7 +144,13 @@ public class DestinationMapper extends FlowTable {
         SetMultimap<EpKey, EpKey> visitedEps = HashMultimap.create();
         Set<EndpointFwdCtxOrdinals> epOrdSet = new HashSet<>();
 
-        for (Endpoint srcEp : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        /*
+         * Local subnets depend only on the node, so they are resolved once and shared
+         * by all endpoint and L3 prefix flows of this node.
+         */
+        List<Subnet> localSubnets = getLocalSubnets(nodeId);
+
+        for (Endpoint srcEp : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             Set<EndpointGroupId> srcEpgIds = new HashSet<>();
             if (srcEp.getEndpointGroup() != null)
                 srcEpgIds.add(srcEp.getEndpointGroup());
@@ -165,16 +161,18 @@ public class DestinationMapper extends FlowTable {
                 EgKey epg = new EgKey(srcEp.getTenant(), epgId);
                 Set<EgKey> peers = Sets.union(Collections.singleton(epg), ctx.getCurrentPolicy().getPeers(epg));
                 for (EgKey peer : peers) {
-                    for (Endpoint peerEp : ctx.getEndpointManager().getEndpointsForGroup(peer)) {
+                    for (Endpoint peerEp : ctx.getEndpointIndex().getEndpointsForGroup(peer)) {
                         currentTenant = peerEp.getTenant();
-                        subnetsByTenant.put(currentTenant, getSubnets(currentTenant));
+                        if (!subnetsByTenant.containsKey(currentTenant)) {
+                            subnetsByTenant.put(currentTenant, getSubnets(currentTenant));
+                        }
                         EpKey srcEpKey = new EpKey(srcEp.getL2Context(), srcEp.getMacAddress());
                         EpKey peerEpKey = new EpKey(peerEp.getL2Context(), peerEp.getMacAddress());
 
                         if (visitedEps.get(srcEpKey) != null && visitedEps.get(srcEpKey).contains(peerEpKey)) {
                             continue;
                         }
-                        syncEP(ofWriter, nodeId, srcEp, peerEp);
+                        syncEP(ofWriter, nodeId, srcEp, peerEp, localSubnets);
                         visitedEps.put(srcEpKey, peerEpKey);
 
                         // Process subnets and flood-domains for epPeer
@@ -220,13 +218,9 @@ public class DestinationMapper extends FlowTable {
 
         // L3 Prefix Endpoint handling
         Collection<EndpointL3Prefix> prefixEps = ctx.getEndpointManager().getEndpointsL3PrefixForTenant(currentTenant);
-        if (prefixEps != null) {
+        if (prefixEps != null && localSubnets != null) {
             LOG.trace("DestinationMapper - Processing L3PrefixEndpoints");
             for (EndpointL3Prefix prefixEp : prefixEps) {
-                List<Subnet> localSubnets = getLocalSubnets(nodeId);
-                if (localSubnets == null) {
-                    continue;
-                }
                 for (Subnet localSubnet: localSubnets) {
                     Flow prefixFlow = createL3PrefixFlow(prefixEp, nodeId, localSubnet);
                     if (prefixFlow != null) {
@@ -254,27 +248,22 @@ public class DestinationMapper extends FlowTable {
          * - goto_table: POLENF (will check there for external on EP)
          */
 
-        ReadOnlyTransaction rTx = ctx.getDataBroker().newReadOnlyTransaction();
         // TODO Bug #3440 Target: Be - should support for more than first gateway.
         EndpointL3Gateways l3Gateway = prefixEp.getEndpointL3Gateways().get(0);
-        Optional<EndpointL3> optL3Ep = readFromDs(LogicalDatastoreType.OPERATIONAL,
-                IidFactory.l3EndpointIid(l3Gateway.getL3Context(), l3Gateway.getIpAddress()), rTx);
-        if (!optL3Ep.isPresent()) {
+        EndpointL3 l3Ep = ctx.getEndpointManager().getL3Endpoint(l3Gateway.getL3Context(), l3Gateway.getIpAddress());
+        if (l3Ep == null) {
             LOG.error("createL3PrefixFlow - L3Endpoint gateway {} for L3Prefix {} not found.", l3Gateway, prefixEp);
             return null;
         }
-        EndpointL3 l3Ep = optL3Ep.get();
         if (l3Ep.getL2Context() == null || l3Ep.getMacAddress() == null) {
             LOG.debug("L3 endpoint representing L3 gateway does not contain L2-context or MAC address. {}", l3Ep);
             return null;
         }
-        Optional<Endpoint> optL2Ep = readFromDs(LogicalDatastoreType.OPERATIONAL,
-                IidFactory.endpointIid(l3Ep.getL2Context(), l3Ep.getMacAddress()), rTx);
-        if (!optL2Ep.isPresent()) {
+        Endpoint l2Ep = ctx.getEndpointManager().getL2EndpointFromL3(l3Ep);
+        if (l2Ep == null) {
             LOG.error("createL3PrefixFlow - L2Endpoint for L3Gateway {} not found.", l3Ep);
             return null;
         }
-        Endpoint l2Ep = optL2Ep.get();
         EndpointFwdCtxOrdinals epFwdCtxOrds = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, l2Ep);
         if (epFwdCtxOrds == null) {
             LOG.debug("getEndpointFwdCtxOrdinals is null for EP {}", l2Ep);
@@ -428,26 +417,11 @@ public class DestinationMapper extends FlowTable {
 
         MacAddress defaultMacAddress = ROUTER_MAC;
 
-        EndpointL3Key l3Key = new EndpointL3Key(ipAddress, l3c.getId());
-        InstanceIdentifier<EndpointL3> endpointsIid = InstanceIdentifier.builder(Endpoints.class)
-            .child(EndpointL3.class, l3Key)
-            .build();
-        ReadOnlyTransaction t = ctx.getDataBroker().newReadOnlyTransaction();
-
-        Optional<EndpointL3> r;
-        try {
-            r = t.read(LogicalDatastoreType.OPERATIONAL, endpointsIid).get();
-            if (!r.isPresent())
-                return defaultMacAddress;
-            EndpointL3 epL3 = r.get();
-            if (epL3.getMacAddress() == null) {
-                return defaultMacAddress;
-            } else {
-                return epL3.getMacAddress();
-            }
-        } catch (Exception e) {
-            LOG.error("Error reading EndpointL3 {}.{}", l3c, ipAddress, e);
-            return null;
+        EndpointL3 epL3 = ctx.getEndpointManager().getL3Endpoint(l3c.getId(), ipAddress);
+        if (epL3 == null || epL3.getMacAddress() == null) {
+            return defaultMacAddress;
+        } else {
+            return epL3.getMacAddress();
         }
     }
 
@@ -565,7 +539,7 @@ public class DestinationMapper extends FlowTable {
         return flowb.build();
     }
 
-    private void syncEP(OfWriter ofWriter, NodeId nodeId, Endpoint srcEp, Endpoint destEp)
+    private void syncEP(OfWriter ofWriter, NodeId nodeId, Endpoint srcEp, Endpoint destEp, List<Subnet> localSubnets)
             throws Exception {
 
         if (ctx.getTenant(srcEp.getTenant()) == null
@@ -608,7 +582,6 @@ public class DestinationMapper extends FlowTable {
          * done locally! YAY! Instead of being shovelled L2 style across network
          * ala Helium.
          */
-        List<Subnet> localSubnets = getLocalSubnets(nodeId);
         if (localSubnets == null) {
             LOG.error("No subnets could be found locally for node: {}", nodeId);
             return;
@@ -1109,24 +1082,13 @@ public class DestinationMapper extends FlowTable {
             return null;
         }
 
-        ReadOnlyTransaction t = ctx.getDataBroker().newReadOnlyTransaction();
-        InstanceIdentifier<Tenant> tiid = TenantUtils.tenantIid(tenantId);
-        Optional<Tenant> tenantInfo;
-        try {
-            tenantInfo = t.read(LogicalDatastoreType.CONFIGURATION, tiid).get();
-        } catch (Exception e) {
-            LOG.error("Could not read Tenant {}", tenantId, e);
-            return null;
-        } finally {
-            t.close();
-        }
-
-        if (!tenantInfo.isPresent()) {
-            LOG.warn("Tenant {} not found", tenantId);
+        IndexedTenant indexedTenant = ctx.getTenant(tenantId);
+        if (indexedTenant == null || indexedTenant.getTenant() == null) {
+            LOG.debug("Tenant {} is null, cannot get subnets", tenantId);
             return null;
         }
 
-        ForwardingContext fwCtx = tenantInfo.get().getForwardingContext();
+        ForwardingContext fwCtx = indexedTenant.getTenant().getForwardingContext();
         if (fwCtx == null || fwCtx.getSubnet() == null) {
             return new HashSet<>();
         }
@@ -1136,7 +1098,7 @@ public class DestinationMapper extends FlowTable {
     // Need a method to get subnets for EPs attached to the node locally
     // to set the source Mac address for the router interface.
     private List<Subnet> getLocalSubnets(NodeId nodeId) {
-        Collection<Endpoint> endpointsForNode = ctx.getEndpointManager().getEndpointsForNode(nodeId);
+        Collection<Endpoint> endpointsForNode = ctx.getEndpointIndex().getEndpointsForNode(nodeId);
 
         List<Subnet> localSubnets = new ArrayList<Subnet>();
 
@@ -110,7 +110,7 @@ public class ExternalMapper extends FlowTable {
          * for applying VLAN tag is generated. The flow matches against REG5 holding
          * the L2FloodDomain and REG7 holding value of an external interface.
          */
-        for (Endpoint ep : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint ep : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             L2FloodDomain l2Fd = ctx.getTenant(ep.getTenant()).resolveL2FloodDomain(ep.getNetworkContainment());
             Segmentation segmentation = l2Fd.getAugmentation(Segmentation.class);
             if (segmentation == null) {
@@ -87,7 +87,7 @@ public class GroupTable extends OfTable {
         if (fcn == null)
             return;
 
-        for (Endpoint localEp : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint localEp : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             EndpointFwdCtxOrdinals localEpFwdCtxOrds =
                     OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, localEp);
             if (localEpFwdCtxOrds == null) {
@@ -101,7 +101,7 @@ public class GroupTable extends OfTable {
                 ofWriter.writeGroup(nodeId, gid);
             }
 
-            for (EgKey epg : ctx.getEndpointManager().getGroupsForNode(nodeId)) {
+            for (EgKey epg : ctx.getEndpointIndex().getGroupsForNode(nodeId)) {
 
                 // we'll use the fdId with the high bit set for remote bucket
                 // and just the local port number for local bucket
@@ -192,15 +192,15 @@ public class GroupTable extends OfTable {
      */
     private Set<NodeId> findPeerNodesForGroup(EgKey sourceEpgKey) {
         Set<NodeId> nodes = new HashSet<NodeId>();
-        nodes.addAll(ctx.getEndpointManager().getNodesForGroup(sourceEpgKey));
+        nodes.addAll(ctx.getEndpointIndex().getNodesForGroup(sourceEpgKey));
         for (EgKey dstEpgs : ctx.getCurrentPolicy().getPeers(sourceEpgKey)) {
-            nodes.addAll(ctx.getEndpointManager().getNodesForGroup(dstEpgs));
+            nodes.addAll(ctx.getEndpointIndex().getNodesForGroup(dstEpgs));
         }
         return nodes;
     }
 
     private boolean isFloodDomainOnNode(int fdId, NodeId node) throws Exception {
-        for (Endpoint ep : ctx.getEndpointManager().getEndpointsForNode(node)) {
+        for (Endpoint ep : ctx.getEndpointIndex().getEndpointsForNode(node)) {
             int epFdId = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, ep).getFdId();
             if (fdId == epFdId) {
                 return true;
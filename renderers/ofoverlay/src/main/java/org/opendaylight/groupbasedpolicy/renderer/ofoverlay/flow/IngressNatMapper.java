@@ -102,7 +102,7 @@ public class IngressNatMapper extends FlowTable {
 
         // TODO Bug 3546 - Difficult: External port is unrelated to Tenant, L3C, L2BD..
 
-        Collection<Endpoint> endpointsForNode = ctx.getEndpointManager().getEndpointsForNode(nodeId);
+        Collection<Endpoint> endpointsForNode = ctx.getEndpointIndex().getEndpointsForNode(nodeId);
         Collection<EndpointL3> l3Endpoints = ctx.getEndpointManager().getL3EndpointsWithNat();
         for (EndpointL3 l3Ep : l3Endpoints) {
             if (l3Ep.getL2Context() != null && l3Ep.getMacAddress() !=null ) {
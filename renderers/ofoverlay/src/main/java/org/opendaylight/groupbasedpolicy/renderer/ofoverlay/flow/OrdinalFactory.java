@@ -8,6 +8,7 @@
 package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
@@ -169,6 +170,17 @@ public class OrdinalFactory {
         return ord.intValue();
     }
 
+    /**
+     * Get forwarding context ordinals of the given endpoint. Ordinals are cached in the
+     * {@link OfContext}, which holds one tenant and policy snapshot per flow update, so all tables
+     * and all nodes of a flow update share the cached ordinals. Cached ordinals are recomputed
+     * when the endpoint instance differs from the one they were computed from.
+     *
+     * @param ctx the {@link OfContext}
+     * @param ep the {@link Endpoint}
+     * @return the ordinals or {@code null} if tenant of the endpoint is not resolved
+     * @throws Exception throws all exception
+     */
     public static final EndpointFwdCtxOrdinals getEndpointFwdCtxOrdinals(OfContext ctx,
             Endpoint ep) throws Exception {
         IndexedTenant tenant = ctx.getTenant(ep.getTenant());
@@ -176,7 +188,15 @@ public class OrdinalFactory {
             LOG.debug("Tenant {} is null", ep.getTenant());
             return null;
         }
-        return new EndpointFwdCtxOrdinals(ep, ctx);
+        Map<EpKey, EndpointFwdCtxOrdinals> epFwdCtxOrdinals = ctx.getEndpointFwdCtxOrdinals();
+        EpKey epKey = new EpKey(ep.getL2Context(), ep.getMacAddress());
+        EndpointFwdCtxOrdinals ordinals = epFwdCtxOrdinals.get(epKey);
+        if (ordinals != null && ordinals.isComputedFrom(ep)) {
+            return ordinals;
+        }
+        ordinals = new EndpointFwdCtxOrdinals(ep, ctx);
+        epFwdCtxOrdinals.put(epKey, ordinals);
+        return ordinals;
     }
 
     // TODO alagalah Li: Move to either OrdinalFactory or EndpointManager
@@ -185,9 +205,11 @@ public class OrdinalFactory {
         private NetworkDomainId networkContainment;
         private EpKey ep;
         private int epgId = 0, bdId = 0, fdId = 0, l3Id = 0, cgId = 0, tunnelId = 0;
+        private final Endpoint endpoint;
 
         private EndpointFwdCtxOrdinals(Endpoint ep, OfContext ctx) throws Exception {
             this.ep = new EpKey(ep.getL2Context(), ep.getMacAddress());
+            this.endpoint = ep;
 
             IndexedTenant tenant = ctx.getTenant(ep.getTenant());
 
@@ -234,6 +256,10 @@ public class OrdinalFactory {
 
         }
 
+        private boolean isComputedFrom(Endpoint ep) {
+            return this.endpoint == ep;
+        }
+
         public int getTunnelId() {
             return tunnelId;
         }
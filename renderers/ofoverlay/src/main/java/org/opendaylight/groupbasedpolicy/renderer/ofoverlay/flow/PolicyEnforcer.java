@@ -39,6 +39,7 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfWriter;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils.RegMatch;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.OrdinalFactory.EndpointFwdCtxOrdinals;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory.RuleFlow;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.Action;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.AllowAction;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.sf.ChainAction;
@@ -147,13 +148,13 @@ public class PolicyEnforcer extends FlowTable {
         // Used for ARP flows
         Set<Integer> fdIds = new HashSet<>();
 
-        for (Endpoint sourceEp : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint sourceEp : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             for (EgKey sourceEpgKey : ctx.getEndpointManager().getEgKeysForEndpoint(sourceEp)) {
                 Set<EgKey> peers = ctx.getCurrentPolicy().getPeers(sourceEpgKey);
                 for (EgKey destinationEpgKey : peers) {
 
                     Set<Endpoint> destinationEndpoints = new HashSet<>();
-                    destinationEndpoints.addAll(ctx.getEndpointManager().getEndpointsForGroup(destinationEpgKey));
+                    destinationEndpoints.addAll(ctx.getEndpointIndex().getEndpointsForGroup(destinationEpgKey));
                     destinationEndpoints.addAll(ctx.getEndpointManager().getExtEpsNoLocForGroup(destinationEpgKey));
                     for (Endpoint destinationEp : destinationEndpoints) {
 
@@ -272,9 +273,11 @@ public class PolicyEnforcer extends FlowTable {
                             List<ActionBuilder> actions = createActions(ofWriter, netElements, direction,
                                     policyPair, tenant, ruleWithActions, false);
 
-                            // Compose flows
-                            createFlows(inMatches, actions, netElements, ofWriter, priority);
-                            createFlows(outMatches, actions, netElements, ofWriter, priority);
+                            // Compose flows. Consumer is the destination endpoint here
+                            createFlows(inMatches, actions, netElements, ofWriter, priority,
+                                    createRuleFlow(netElements, false, rg, rule));
+                            createFlows(outMatches, actions, netElements, ofWriter, priority,
+                                    createRuleFlow(netElements, true, rg, rule));
 
                             priority -= 1;
 
@@ -537,8 +540,10 @@ public class PolicyEnforcer extends FlowTable {
                         List<ActionBuilder> outActions = createActions(ofWriter, netElements, Direction.Out, policyPair, tenant,
                                 rule, isReverted);
 
-                        createFlows(inMatches, inActions, netElements, ofWriter, priority);
-                        createFlows(outMatches, outActions, netElements, ofWriter, priority);
+                        createFlows(inMatches, inActions, netElements, ofWriter, priority,
+                                createRuleFlow(netElements, true, rg, rule));
+                        createFlows(outMatches, outActions, netElements, ofWriter, priority,
+                                createRuleFlow(netElements, false, rg, rule));
 
                         if (direction.equals(Direction.In)) {
                             reversePathFlowsCreated = true;
@@ -559,7 +564,7 @@ public class PolicyEnforcer extends FlowTable {
     }
 
     private void allowSameEpg(NodeId nodeId, OfWriter ofWriter) throws Exception {
-        for (Endpoint sourceEp : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint sourceEp : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             for (EgKey sourceEpgKey : ctx.getEndpointManager().getEgKeysForEndpoint(sourceEp)) {
 
                 IndexedTenant tenant = ctx.getTenant(sourceEpgKey.getTenantId());
@@ -572,7 +577,7 @@ public class PolicyEnforcer extends FlowTable {
                     IntraGroupPolicy igp = group.getIntraGroupPolicy();
 
                     if (igp == null || igp.equals(IntraGroupPolicy.Allow)) {
-                        for (Endpoint dstEp : ctx.getEndpointManager().getEndpointsForGroup(sourceEpgKey)) {
+                        for (Endpoint dstEp : ctx.getEndpointIndex().getEndpointsForGroup(sourceEpgKey)) {
                             EndpointFwdCtxOrdinals srcEpFwdCxtOrdinals =
                                     OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, sourceEp);
                             if (srcEpFwdCxtOrdinals == null) {
@@ -820,12 +825,27 @@ public class PolicyEnforcer extends FlowTable {
         }
     }
 
+    /**
+     * @param fromSrcEp {@code true} if traffic matched by the flows goes from the source endpoint of network
+     *        elements, {@code false} if it goes from the destination endpoint
+     */
+    private RuleFlow createRuleFlow(NetworkElements netElements, boolean fromSrcEp, RuleGroup ruleGroup, Rule rule) {
+        if (fromSrcEp) {
+            return new RuleFlow(netElements.getSrcEp(), netElements.getDstEp(), netElements.getSrcEpg(),
+                    netElements.getDstEpg(), ruleGroup, rule);
+        }
+        return new RuleFlow(netElements.getDstEp(), netElements.getSrcEp(), netElements.getDstEpg(),
+                netElements.getSrcEpg(), ruleGroup, rule);
+    }
+
     private void createFlows(List<MatchBuilder> flowMatchBuilders, List<ActionBuilder> actionBuilderList, NetworkElements netElements,
-                             OfWriter ofWriter, int priority) {
+                             OfWriter ofWriter, int priority, RuleFlow ruleFlow) {
         FlowBuilder flow = base().setPriority(priority);
         if(flowMatchBuilders == null) {
             return;
         }
+        // cookie maps statistics of the flow back to the rule
+        flow.setCookie(ctx.getPolicyManager().getRuleCookieFactory().getCookie(ruleFlow));
         for (MatchBuilder mb : flowMatchBuilders) {
             Match match = mb.build();
             FlowId flowId = FlowIdUtils.newFlowId(TABLE_ID, "cg", match);
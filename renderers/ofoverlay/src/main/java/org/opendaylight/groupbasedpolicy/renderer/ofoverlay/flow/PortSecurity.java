@@ -85,7 +85,7 @@ public class PortSecurity extends FlowTable {
         ofWriter.writeFlow(nodeId, TABLE_ID, dropFlow(Integer.valueOf(112), FlowUtils.IPv6, TABLE_ID));
 
         Set<TenantId> tenantIds = new HashSet<>();
-        for (Endpoint ep : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint ep : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             OfOverlayContext ofc = ep.getAugmentation(OfOverlayContext.class);
             if (ofc == null || ofc.getNodeConnectorId() == null) {
                 LOG.info("Endpoint {} does not contain node-connector-id. OFOverlay ignores the endpoint.",
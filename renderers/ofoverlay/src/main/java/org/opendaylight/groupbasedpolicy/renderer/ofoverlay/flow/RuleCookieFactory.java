@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.opendaylight.groupbasedpolicy.dto.EgKey;
+import org.opendaylight.groupbasedpolicy.dto.RuleGroup;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ActionName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ClassifierName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.has.action.refs.ActionRef;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.has.classifier.refs.ClassifierRef;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.contract.subject.Rule;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Cookies of flows in {@link PolicyEnforcer} table identify the rule the flow
+ * was created for. Upper 32 bits of such cookie are {@link #RULE_COOKIE_PREFIX},
+ * lower 32 bits are an ordinal of the rule between a source and a destination
+ * endpoint group.
+ * <p>
+ * One instance is owned by {@link org.opendaylight.groupbasedpolicy.renderer.ofoverlay.PolicyManager}.
+ * Rules between two endpoint groups are forgotten when the resolved policy
+ * between the groups is removed; their ordinals are reused by rules created later.
+ */
+public class RuleCookieFactory {
+
+    public static final long RULE_COOKIE_PREFIX = 0x4742500000000000L;
+    private static final long RULE_COOKIE_PREFIX_MASK = 0xffffffff00000000L;
+    private static final long RULE_ORDINAL_MASK = 0x00000000ffffffffL;
+
+    // guarded by this
+    private int nextRuleOrdinal = 1;
+    private final Queue<Integer> freeOrdinals = new ArrayDeque<>();
+    private final Map<List<Object>, Integer> ordinalByRule = new HashMap<>();
+
+    /**
+     * The latest {@link RuleFlow} registered for an ordinal, read without lock
+     * by {@link #getRuleFlow(FlowCookie)}
+     */
+    private final ConcurrentMap<Integer, RuleFlow> ruleFlowByOrdinal = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cookie for flows of the rule. The same rule between the same endpoint
+     * groups always gets the same cookie, so flows do not change when other endpoints
+     * of the groups resolve them.
+     *
+     * @param ruleFlow the rule the flow is created for
+     * @return cookie identifying the rule
+     */
+    public synchronized FlowCookie getCookie(RuleFlow ruleFlow) {
+        List<Object> rule = Arrays.<Object>asList(ruleFlow.getSrcEpg(), ruleFlow.getDstEpg(), ruleFlow.getContract(),
+                ruleFlow.getSubject(), ruleFlow.getRule());
+        Integer ordinal = ordinalByRule.get(rule);
+        if (ordinal == null) {
+            ordinal = freeOrdinals.poll();
+            if (ordinal == null) {
+                ordinal = nextRuleOrdinal++;
+            }
+            ordinalByRule.put(rule, ordinal);
+        }
+        ruleFlowByOrdinal.put(ordinal, ruleFlow);
+        // ordinal must not sign-extend over the prefix
+        return new FlowCookie(BigInteger.valueOf(RULE_COOKIE_PREFIX | (ordinal & RULE_ORDINAL_MASK)));
+    }
+
+    /**
+     * @param cookie cookie of a flow
+     * @return the rule identified by the cookie, or {@code null} when the cookie
+     *         was not created by {@link #getCookie(RuleFlow)}
+     */
+    public RuleFlow getRuleFlow(FlowCookie cookie) {
+        if (cookie == null || cookie.getValue() == null) {
+            return null;
+        }
+        long value = cookie.getValue().longValue();
+        if ((value & RULE_COOKIE_PREFIX_MASK) != RULE_COOKIE_PREFIX) {
+            return null;
+        }
+        return ruleFlowByOrdinal.get((int) value);
+    }
+
+    /**
+     * Forgets rules between the endpoint groups in both directions. Ordinals of
+     * the rules are reused by rules created later.
+     *
+     * @param epg1 one endpoint group of a resolved policy
+     * @param epg2 the other endpoint group of the resolved policy
+     */
+    public synchronized void removeRules(EgKey epg1, EgKey epg2) {
+        Iterator<Entry<List<Object>, Integer>> iterator = ordinalByRule.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<List<Object>, Integer> entry = iterator.next();
+            Object srcEpg = entry.getKey().get(0);
+            Object dstEpg = entry.getKey().get(1);
+            if ((epg1.equals(srcEpg) && epg2.equals(dstEpg)) || (epg2.equals(srcEpg) && epg1.equals(dstEpg))) {
+                iterator.remove();
+                ruleFlowByOrdinal.remove(entry.getValue());
+                freeOrdinals.add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Rule of a contract applied to traffic from a source to a destination endpoint group.
+     * Flows of the rule are shared by all endpoints of the groups; the endpoints are the
+     * ones whose resolution created the flows last.
+     */
+    @Immutable
+    public static class RuleFlow {
+
+        private final L2BridgeDomainId srcL2c;
+        private final MacAddress srcMac;
+        private final TenantId srcTenant;
+        private final L2BridgeDomainId dstL2c;
+        private final MacAddress dstMac;
+        private final TenantId dstTenant;
+        private final EgKey srcEpg;
+        private final EgKey dstEpg;
+        private final ContractId contract;
+        private final SubjectName subject;
+        private final RuleName rule;
+        private final List<ClassifierName> classifiers;
+        private final List<ActionName> actions;
+
+        public RuleFlow(Endpoint srcEp, Endpoint dstEp, EgKey srcEpg, EgKey dstEpg, RuleGroup ruleGroup, Rule rule) {
+            this.srcL2c = srcEp.getL2Context();
+            this.srcMac = srcEp.getMacAddress();
+            this.srcTenant = srcEp.getTenant();
+            this.dstL2c = dstEp.getL2Context();
+            this.dstMac = dstEp.getMacAddress();
+            this.dstTenant = dstEp.getTenant();
+            this.srcEpg = srcEpg;
+            this.dstEpg = dstEpg;
+            this.contract = ruleGroup.getRelatedContract() != null ? ruleGroup.getRelatedContract().getId() : null;
+            this.subject = ruleGroup.getRelatedSubject();
+            this.rule = rule.getName();
+            List<ClassifierName> classifierNames = new ArrayList<>();
+            if (rule.getClassifierRef() != null) {
+                for (ClassifierRef classifierRef : rule.getClassifierRef()) {
+                    classifierNames.add(classifierRef.getName());
+                }
+            }
+            this.classifiers = ImmutableList.copyOf(classifierNames);
+            List<ActionName> actionNames = new ArrayList<>();
+            if (rule.getActionRef() != null) {
+                for (ActionRef actionRef : rule.getActionRef()) {
+                    actionNames.add(actionRef.getName());
+                }
+            }
+            this.actions = ImmutableList.copyOf(actionNames);
+        }
+
+        public L2BridgeDomainId getSrcL2c() {
+            return srcL2c;
+        }
+
+        public MacAddress getSrcMac() {
+            return srcMac;
+        }
+
+        public TenantId getSrcTenant() {
+            return srcTenant;
+        }
+
+        public L2BridgeDomainId getDstL2c() {
+            return dstL2c;
+        }
+
+        public MacAddress getDstMac() {
+            return dstMac;
+        }
+
+        public TenantId getDstTenant() {
+            return dstTenant;
+        }
+
+        public EgKey getSrcEpg() {
+            return srcEpg;
+        }
+
+        public EgKey getDstEpg() {
+            return dstEpg;
+        }
+
+        public ContractId getContract() {
+            return contract;
+        }
+
+        public SubjectName getSubject() {
+            return subject;
+        }
+
+        public RuleName getRule() {
+            return rule;
+        }
+
+        public List<ClassifierName> getClassifiers() {
+            return classifiers;
+        }
+
+        public List<ActionName> getActions() {
+            return actions;
+        }
+
+        @Override
+        public String toString() {
+            return "RuleFlow [srcEpg=" + srcEpg + ", dstEpg=" + dstEpg + ", contract=" + contract + ", subject="
+                    + subject + ", rule=" + rule + "]";
+        }
+    }
+}
@@ -47,6 +47,8 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.overlay.
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
 /**
@@ -60,6 +62,16 @@ public class SourceMapper extends FlowTable {
     // TODO Li alagalah Improve UT coverage for this class.
     public static short TABLE_ID;
 
+    /**
+     * Remote tunnel and broadcast flows already written during this flow update. A new
+     * {@link SourceMapper} is created for each flow update, so these live for one update
+     * across all nodes.
+     */
+    private final Set<RemoteTunnelKey> writtenTunnelFlows = new HashSet<>();
+    private final SetMultimap<NodeId, Integer> writtenBroadcastFlows = HashMultimap.create();
+    private int generatedRemoteTunnelFlows = 0;
+    private int uniqueRemoteTunnelFlows = 0;
+
     public SourceMapper(OfContext ctx, short tableId) {
         super(ctx);
         TABLE_ID = tableId;
@@ -76,7 +88,7 @@ public class SourceMapper extends FlowTable {
         ofWriter.writeFlow(nodeId, TABLE_ID, dropFlow(Integer.valueOf(1), null, TABLE_ID));
 
         // Handle case where packets from from External
-        for (Endpoint ep : ctx.getEndpointManager().getEndpointsForNode(nodeId)) {
+        for (Endpoint ep : ctx.getEndpointIndex().getEndpointsForNode(nodeId)) {
             IndexedTenant tenant = ctx.getTenant(ep.getTenant());
             if (tenant == null)
                 continue;
@@ -102,6 +114,22 @@ public class SourceMapper extends FlowTable {
                 syncEP(ofWriter, nodeId, ep, ofc.getNodeConnectorId(), epFwdCtxOrds);
             }
         }
+        LOG.debug("SourceMapper remote tunnel flows after sync of node {}: generated {}, unique {}", nodeId.getValue(),
+                generatedRemoteTunnelFlows, uniqueRemoteTunnelFlows);
+    }
+
+    /**
+     * @return number of remote tunnel and broadcast flows the endpoints synced so far asked for
+     */
+    public int getGeneratedRemoteTunnelFlows() {
+        return generatedRemoteTunnelFlows;
+    }
+
+    /**
+     * @return number of distinct remote tunnel and broadcast flows actually written
+     */
+    public int getUniqueRemoteTunnelFlows() {
+        return uniqueRemoteTunnelFlows;
     }
 
     private void createRemoteTunnels(OfWriter ofWriter, NodeId nodeId, Endpoint ep, EndpointFwdCtxOrdinals epFwdCtxOrds)
@@ -123,7 +151,7 @@ public class SourceMapper extends FlowTable {
         for (EgKey epg : epgs) {
             Set<EgKey> peers = Sets.union(Collections.singleton(epg), ctx.getCurrentPolicy().getPeers(epg));
             for (EgKey peer : peers) {
-                for (NodeId remoteNodeId : ctx.getEndpointManager().getNodesForGroup(peer)) {
+                for (NodeId remoteNodeId : ctx.getEndpointIndex().getNodesForGroup(peer)) {
 
                     // Please do not check for remote v local nodeID, we need local to local tunnels
                     // in the case of chaining - The Great Dr Sunal.
@@ -133,8 +161,18 @@ public class SourceMapper extends FlowTable {
                                 nodeId.getValue(), remoteNodeId.getValue());
                         continue;
                     }
-                    ofWriter.writeFlow(remoteNodeId, TABLE_ID, createTunnelFlow(tunPort, epFwdCtxOrds));
-                    ofWriter.writeFlow(remoteNodeId, TABLE_ID, createBroadcastFlow(tunPort, epFwdCtxOrds));
+                    // Endpoints sharing forwarding context need the same flows on a remote node,
+                    // so every distinct flow is built and written only once per flow update
+                    generatedRemoteTunnelFlows += 2;
+                    if (writtenTunnelFlows.add(new RemoteTunnelKey(remoteNodeId, epFwdCtxOrds.getTunnelId(),
+                            epFwdCtxOrds.getFdId()))) {
+                        ofWriter.writeFlow(remoteNodeId, TABLE_ID, createTunnelFlow(tunPort, epFwdCtxOrds));
+                        uniqueRemoteTunnelFlows++;
+                    }
+                    if (writtenBroadcastFlows.put(remoteNodeId, epFwdCtxOrds.getFdId())) {
+                        ofWriter.writeFlow(remoteNodeId, TABLE_ID, createBroadcastFlow(tunPort, epFwdCtxOrds));
+                        uniqueRemoteTunnelFlows++;
+                    }
                 }
             }
         }
@@ -239,4 +277,46 @@ public class SourceMapper extends FlowTable {
         ofWriter.writeFlow(nodeId, TABLE_ID, flowb.build());
     }
 
+    private static final class RemoteTunnelKey {
+
+        private final NodeId remoteNodeId;
+        private final int tunnelId;
+        private final int fdId;
+
+        RemoteTunnelKey(NodeId remoteNodeId, int tunnelId, int fdId) {
+            this.remoteNodeId = remoteNodeId;
+            this.tunnelId = tunnelId;
+            this.fdId = fdId;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((remoteNodeId == null) ? 0 : remoteNodeId.hashCode());
+            result = prime * result + tunnelId;
+            result = prime * result + fdId;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            RemoteTunnelKey other = (RemoteTunnelKey) obj;
+            if (tunnelId != other.tunnelId || fdId != other.fdId)
+                return false;
+            if (remoteNodeId == null) {
+                if (other.remoteNodeId != null)
+                    return false;
+            } else if (!remoteNodeId.equals(other.remoteNodeId))
+                return false;
+            return true;
+        }
+    }
+
 }
@@ -19,6 +19,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nullable;
@@ -27,6 +29,7 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfContext;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchListener;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNodeConnector;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayConfig.EncapsulationFormat;
@@ -53,6 +56,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
@@ -66,6 +70,8 @@ public class SwitchManager implements AutoCloseable {
 
     protected static Map<NodeId, SwitchState> switches = new HashMap<>();
     protected List<SwitchListener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<NodeId, Map<InstanceIdentifier<NodeConnector>, MacAddress>> externalNcsWithMacByNode =
+            new ConcurrentHashMap<>();
 
     private final FlowCapableNodeListener nodeListener;
     private final OfOverlayNodeListener ofOverlayNodeListener;
@@ -144,6 +150,18 @@ public class SwitchManager implements AutoCloseable {
         return ImmutableSet.copyOf(state.externalPorts);
     }
 
+    /**
+     * Get external node connectors which are present in operational inventory together with
+     * their hardware address. Only nodes having at least one such node connector are included.
+     * The result is served from the state maintained by node and node connector listeners, no
+     * datastore read is done.
+     *
+     * @return immutable map of external node connectors and their hardware address by node
+     */
+    public Map<NodeId, Map<InstanceIdentifier<NodeConnector>, MacAddress>> getExternalNodeConnectorsWithMac() {
+        return ImmutableMap.copyOf(externalNcsWithMacByNode);
+    }
+
     public Set<Long> getExternalPortNumbers(NodeId nodeId) {
         Set<Long> extPortNumbers = new HashSet<>();
         for(NodeConnectorId nc : getExternalPorts(nodeId)) {
@@ -251,6 +269,11 @@ public class SwitchManager implements AutoCloseable {
     }
 
     private void handleSwitchState(SwitchState state, SwitchStatus oldStatus) {
+        if (state.externalNcsWithMac.isEmpty()) {
+            externalNcsWithMacByNode.remove(state.nodeId);
+        } else {
+            externalNcsWithMacByNode.put(state.nodeId, state.externalNcsWithMac);
+        }
         if (oldStatus == SwitchStatus.READY && state.status != SwitchStatus.READY) {
             LOG.info("Switch {} removed", state.nodeId.getValue());
             notifySwitchRemoved(state.nodeId);
@@ -316,6 +339,7 @@ public class SwitchManager implements AutoCloseable {
 
         Map<Class<? extends TunnelTypeBase>, TunnelBuilder> tunnelBuilderByType = new HashMap<>();
         Set<NodeConnectorId> externalPorts = new HashSet<>();
+        Map<InstanceIdentifier<NodeConnector>, MacAddress> externalNcsWithMac = ImmutableMap.of();
 
         SwitchStatus status;
 
@@ -366,8 +390,13 @@ public class SwitchManager implements AutoCloseable {
                     }
                 }
             }
+            ImmutableMap.Builder<InstanceIdentifier<NodeConnector>, MacAddress> extNcsWithMac = ImmutableMap.builder();
             for (Entry<InstanceIdentifier<NodeConnector>, FlowCapableNodeConnector> fcncByNcIidEntry : fcncByNcIid.entrySet()) {
                 FlowCapableNodeConnector fcnc = fcncByNcIidEntry.getValue();
+                if (fcnc.getHardwareAddress() != null && externalPorts.contains(
+                        fcncByNcIidEntry.getKey().firstKeyOf(NodeConnector.class, NodeConnectorKey.class).getId())) {
+                    extNcsWithMac.put(fcncByNcIidEntry.getKey(), fcnc.getHardwareAddress());
+                }
                 if (fcnc.getName() == null) {
                     continue;
                 }
@@ -389,6 +418,7 @@ public class SwitchManager implements AutoCloseable {
                     tunnelBuilder.setNodeConnectorId(ncId);
                 }
             }
+            externalNcsWithMac = extNcsWithMac.build();
         }
 
         private void updateStatus() {
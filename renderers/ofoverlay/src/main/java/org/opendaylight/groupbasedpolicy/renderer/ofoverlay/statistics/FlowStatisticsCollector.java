@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.statistics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.groupbasedpolicy.api.StatisticsManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.PolicyManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory.RuleFlow;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
+import org.opendaylight.groupbasedpolicy.util.DataStoreHelper;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.Counter64;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.statistics.rev130819.FlowStatisticsData;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.statistics.rev130819.flow.statistics.FlowStatistics;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecordsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatisticKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+/**
+ * Periodically reads statistics of flows in the policy enforcer table from
+ * the operational OpenFlow inventory and writes how much traffic each rule
+ * matched since the previous poll to {@link StatisticsManager}.
+ * <p>
+ * Flows are mapped back to rules by cookies from {@link RuleCookieFactory}.
+ * Counters of a switch seen for the first time, e.g. after restart, only
+ * become the baseline of the next poll; traffic counted before is not written.
+ * Statistics of all flows of the switches in the shard are written in one
+ * {@link StatisticsManager#writeStat} call per poll. Switches are split into
+ * shards by hash of their node ID, so that several instances can share them.
+ */
+public class FlowStatisticsCollector implements Runnable, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlowStatisticsCollector.class);
+
+    private final DataBroker dataBroker;
+    private final SwitchManager switchManager;
+    private final PolicyManager policyManager;
+    private final RuleCookieFactory ruleCookieFactory;
+    private final StatisticsManager statisticsManager;
+    private final int shardCount;
+    private final int shardIndex;
+    private final ScheduledFuture<?> pollTask;
+    // counters of flows at the previous poll, accessed only from the poll task
+    private final Map<NodeId, Map<FlowId, long[]>> lastCountersByNode = new HashMap<>();
+
+    /**
+     * @param pollIntervalSeconds how often flow statistics are read
+     * @param shardCount number of shards switches are split into
+     * @param shardIndex the shard whose switches are polled, from 0 to {@code shardCount - 1}
+     */
+    public FlowStatisticsCollector(DataBroker dataBroker, SwitchManager switchManager, PolicyManager policyManager,
+            StatisticsManager statisticsManager, ScheduledExecutorService executor, long pollIntervalSeconds,
+            int shardCount, int shardIndex) {
+        checkArgument(pollIntervalSeconds > 0, "Poll interval must be positive.");
+        checkArgument(shardCount > 0, "Shard count must be positive.");
+        checkArgument(shardIndex >= 0 && shardIndex < shardCount, "Shard index must be lower than shard count.");
+        this.dataBroker = dataBroker;
+        this.switchManager = switchManager;
+        this.policyManager = policyManager;
+        this.ruleCookieFactory = policyManager.getRuleCookieFactory();
+        this.statisticsManager = statisticsManager;
+        this.shardCount = shardCount;
+        this.shardIndex = shardIndex;
+        pollTask = executor.scheduleWithFixedDelay(this, pollIntervalSeconds, pollIntervalSeconds, TimeUnit.SECONDS);
+        LOG.debug("Collecting flow statistics every {}s from shard {} of {}", pollIntervalSeconds, shardIndex,
+                shardCount);
+    }
+
+    @Override
+    public void run() {
+        try {
+            collect();
+        } catch (Exception e) {
+            // an exception would cancel further polls
+            LOG.warn("Collecting flow statistics failed.", e);
+        }
+    }
+
+    private void collect() {
+        long timestamp = System.currentTimeMillis();
+        short tableId = policyManager.getTABLEID_POLICY_ENFORCER();
+        Map<FlowCookie, RuleDelta> deltasByCookie = new HashMap<>();
+        Set<NodeId> polledNodes = new HashSet<>();
+        ReadOnlyTransaction rTx = dataBroker.newReadOnlyTransaction();
+        try {
+            for (NodeId nodeId : switchManager.getReadySwitches()) {
+                if (!isInShard(nodeId)) {
+                    continue;
+                }
+                polledNodes.add(nodeId);
+                Optional<Table> table = DataStoreHelper.readFromDs(LogicalDatastoreType.OPERATIONAL,
+                        FlowUtils.createTablePath(nodeId, tableId), rTx);
+                if (table.isPresent()) {
+                    addDeltas(nodeId, table.get(), deltasByCookie);
+                }
+            }
+        } finally {
+            rTx.close();
+        }
+        lastCountersByNode.keySet().retainAll(polledNodes);
+        if (deltasByCookie.isEmpty()) {
+            return;
+        }
+        LOG.trace("Writing statistics of {} rules", deltasByCookie.size());
+        statisticsManager.writeStat(new StatRecordsBuilder()
+            .setEpToEpStatistic(createEpStatistics(deltasByCookie.values(), timestamp))
+            .build());
+    }
+
+    private boolean isInShard(NodeId nodeId) {
+        return ((nodeId.getValue().hashCode() % shardCount) + shardCount) % shardCount == shardIndex;
+    }
+
+    /**
+     * Adds differences of flow counters since the previous poll to the rules of the flows.
+     * When a counter decreased, the flow was replaced and its whole count is added. Nothing
+     * is added on the first poll of the node, its counters are just remembered.
+     */
+    private void addDeltas(NodeId nodeId, Table table, Map<FlowCookie, RuleDelta> deltasByCookie) {
+        Map<FlowId, long[]> lastCounters = lastCountersByNode.get(nodeId);
+        Map<FlowId, long[]> counters = new HashMap<>();
+        if (table.getFlow() != null) {
+            for (Flow flow : table.getFlow()) {
+                RuleFlow ruleFlow = ruleCookieFactory.getRuleFlow(flow.getCookie());
+                FlowStatisticsData statsData = flow.getAugmentation(FlowStatisticsData.class);
+                if (ruleFlow == null || statsData == null || statsData.getFlowStatistics() == null) {
+                    continue;
+                }
+                FlowStatistics stats = statsData.getFlowStatistics();
+                long[] current = {toLong(stats.getByteCount()), toLong(stats.getPacketCount())};
+                counters.put(flow.getId(), current);
+                if (lastCounters == null) {
+                    continue;
+                }
+                long[] last = lastCounters.get(flow.getId());
+                long[] delta = current.clone();
+                if (last != null && current[0] >= last[0] && current[1] >= last[1]) {
+                    delta[0] -= last[0];
+                    delta[1] -= last[1];
+                }
+                if (delta[0] == 0 && delta[1] == 0) {
+                    continue;
+                }
+                RuleDelta ruleDelta = deltasByCookie.get(flow.getCookie());
+                if (ruleDelta == null) {
+                    ruleDelta = new RuleDelta(ruleFlow);
+                    deltasByCookie.put(flow.getCookie(), ruleDelta);
+                }
+                ruleDelta.byteCount += delta[0];
+                ruleDelta.packetCount += delta[1];
+            }
+        }
+        lastCountersByNode.put(nodeId, counters);
+    }
+
+    private static long toLong(Counter64 counter) {
+        return counter == null || counter.getValue() == null ? 0 : counter.getValue().longValue();
+    }
+
+    private static List<EpToEpStatistic> createEpStatistics(Collection<RuleDelta> ruleDeltas, long timestamp) {
+        Map<EpToEpStatisticKey, EpToEpStatisticBuilder> epStatByKey = new HashMap<>();
+        Map<EpToEpStatisticKey, Map<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>>> ruleStatsByEpgKeyByEpKey =
+                new HashMap<>();
+        for (RuleDelta ruleDelta : ruleDeltas) {
+            RuleFlow ruleFlow = ruleDelta.ruleFlow;
+            EpToEpStatisticKey epKey = new EpToEpStatisticKey(ruleFlow.getDstL2c(), ruleFlow.getDstMac(),
+                    ruleFlow.getSrcL2c(), ruleFlow.getSrcMac());
+            if (!epStatByKey.containsKey(epKey)) {
+                epStatByKey.put(epKey, new EpToEpStatisticBuilder().setKey(epKey)
+                    .setSrcMacAddress(ruleFlow.getSrcMac())
+                    .setSrcL2c(ruleFlow.getSrcL2c())
+                    .setSrcTenant(ruleFlow.getSrcTenant())
+                    .setDstMacAddress(ruleFlow.getDstMac())
+                    .setDstL2c(ruleFlow.getDstL2c())
+                    .setDstTenant(ruleFlow.getDstTenant())
+                    .setTimestamp(BigInteger.valueOf(timestamp)));
+                ruleStatsByEpgKeyByEpKey.put(epKey, new HashMap<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>>());
+            }
+            Map<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>> ruleStatsByEpgKey =
+                    ruleStatsByEpgKeyByEpKey.get(epKey);
+            EpEpgToEpEpgStatisticKey epgKey =
+                    new EpEpgToEpEpgStatisticKey(ruleFlow.getDstEpg().getEgId(), ruleFlow.getSrcEpg().getEgId());
+            List<MatchedRuleStatistic> ruleStats = ruleStatsByEpgKey.get(epgKey);
+            if (ruleStats == null) {
+                ruleStats = new ArrayList<>();
+                ruleStatsByEpgKey.put(epgKey, ruleStats);
+            }
+            ruleStats.add(new MatchedRuleStatisticBuilder()
+                .setKey(new MatchedRuleStatisticKey(ruleFlow.getContract(), ruleFlow.getRule(), ruleFlow.getSubject()))
+                .setContract(ruleFlow.getContract())
+                .setSubject(ruleFlow.getSubject())
+                .setMatchedRule(ruleFlow.getRule())
+                .setClassifier(ruleFlow.getClassifiers())
+                .setAction(ruleFlow.getActions())
+                .setByteCount(ruleDelta.byteCount)
+                .setPacketCount(ruleDelta.packetCount)
+                .build());
+        }
+        List<EpToEpStatistic> epStats = new ArrayList<>(epStatByKey.size());
+        for (Map.Entry<EpToEpStatisticKey, EpToEpStatisticBuilder> epStat : epStatByKey.entrySet()) {
+            List<EpEpgToEpEpgStatistic> epgStats = new ArrayList<>();
+            for (Map.Entry<EpEpgToEpEpgStatisticKey, List<MatchedRuleStatistic>> epgStat : ruleStatsByEpgKeyByEpKey
+                .get(epStat.getKey())
+                .entrySet()) {
+                epgStats.add(new EpEpgToEpEpgStatisticBuilder().setKey(epgStat.getKey())
+                    .setSrcEpg(epgStat.getKey().getSrcEpg())
+                    .setDstEpg(epgStat.getKey().getDstEpg())
+                    .setMatchedRuleStatistic(epgStat.getValue())
+                    .build());
+            }
+            epStats.add(epStat.getValue().setEpEpgToEpEpgStatistic(epgStats).build());
+        }
+        return epStats;
+    }
+
+    @Override
+    public void close() {
+        pollTask.cancel(false);
+    }
+
+    /**
+     * Traffic matched by flows of a rule since the previous poll
+     */
+    private static final class RuleDelta {
+
+        private final RuleFlow ruleFlow;
+        private long byteCount = 0;
+        private long packetCount = 0;
+
+        RuleDelta(RuleFlow ruleFlow) {
+            this.ruleFlow = ruleFlow;
+        }
+    }
+}
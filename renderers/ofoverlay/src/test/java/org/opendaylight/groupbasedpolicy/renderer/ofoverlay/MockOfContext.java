@@ -3,6 +3,7 @@ package org.opendaylight.groupbasedpolicy.renderer.ofoverlay;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointIndexSnapshot;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.Tenant;
@@ -18,4 +19,13 @@ public class MockOfContext extends OfContext {
         addTenantAndResolvePolicy(unresolvedTenant);
     }
 
+    /**
+     * Tests add endpoints after the context is created, so the current
+     * snapshot is used instead of the one taken on creation
+     */
+    @Override
+    public EndpointIndexSnapshot getEndpointIndex() {
+        return getEndpointManager().getIndexSnapshot();
+    }
+
 }
@@ -76,7 +76,7 @@ public class OFOverlayRendererTest {
         future = Futures.immediateCheckedFuture(Optional.<OfOverlayConfig> absent());
         when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(future);
         renderer = new OFOverlayRenderer(dataProvider, rpcRegistry, notificationService, endpointRpcRegistry,
-                policyValidatorRegistry, tableOffset);
+                policyValidatorRegistry, null, tableOffset, 30, 1, 0);
     }
 
     @Test
@@ -33,6 +33,7 @@ import org.opendaylight.groupbasedpolicy.dto.EgKey;
 import org.opendaylight.groupbasedpolicy.dto.EpKey;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
+import org.opendaylight.groupbasedpolicy.util.IidFactory;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableBuilder;
@@ -40,6 +41,7 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.ta
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2ContextId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.renderer.rev151103.renderers.renderer.interests.followed.tenants.followed.tenant.FollowedEndpointGroup;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
@@ -60,6 +62,8 @@ public class PolicyManagerTest {
     private PolicyManager manager;
 
     private DataBroker dataBroker;
+    private EndpointManager endpointManager;
+    private WriteTransaction writeTransaction;
     private SwitchManager switchManager;
     private short tableOffset;
 
@@ -69,16 +73,19 @@ public class PolicyManagerTest {
     private short tableId;
     private Flow flow;
 
+    @SuppressWarnings("unchecked")
     @Before
     public void setUp() {
-        EndpointManager endpointManager = mock(EndpointManager.class);
+        endpointManager = mock(EndpointManager.class);
         ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
         dataBroker = mock(DataBroker.class);
         switchManager = mock(SwitchManager.class);
         tableOffset = 5;
 
-        WriteTransaction writeTransaction = mock(WriteTransaction.class);
+        writeTransaction = mock(WriteTransaction.class);
         when(dataBroker.newWriteOnlyTransaction()).thenReturn(writeTransaction);
+        CheckedFuture<Void, TransactionCommitFailedException> writeFuture = mock(CheckedFuture.class);
+        when(writeTransaction.submit()).thenReturn(writeFuture);
 
         readWriteTransaction = mock(ReadWriteTransaction.class);
         when(dataBroker.newReadWriteTransaction()).thenReturn(readWriteTransaction);
@@ -132,7 +139,37 @@ public class PolicyManagerTest {
         EpKey epKey = new EpKey(
                 new L2ContextId("10fdfde9-c0f2-412d-822d-59d38711bde8"),
                 new MacAddress("24:77:03:D8:E9:B4"));
-        // TODO finish this test
+        when(endpointManager.hasEndpointsInGroup(egKey)).thenReturn(true);
+
+        // every endpoint of the group notifies, but the group is written once
+        manager.groupEndpointUpdated(egKey, epKey);
+        manager.groupEndpointUpdated(egKey, epKey);
+        manager.writeFollowedInterests();
+        manager.writeFollowedInterests();
+        verify(writeTransaction, times(1)).put(any(LogicalDatastoreType.class), any(InstanceIdentifier.class),
+                any(FollowedEndpointGroup.class), any(Boolean.class));
+        verify(writeTransaction, times(1)).submit();
+
+        // last endpoint left the group, the tenant has no other followed group
+        when(endpointManager.hasEndpointsInGroup(egKey)).thenReturn(false);
+        manager.groupEndpointUpdated(egKey, epKey);
+        manager.writeFollowedInterests();
+        verify(writeTransaction).delete(LogicalDatastoreType.OPERATIONAL,
+                IidFactory.followedTenantIid(OFOverlayRenderer.RENDERER_NAME, egKey.getTenantId()));
+        verify(writeTransaction, times(2)).submit();
+    }
+
+    @Test
+    public void groupEndpointUpdatedTestFollowAndLeaveBeforeWrite() throws Exception {
+        EgKey egKey = new EgKey(new TenantId("tenant"), new EndpointGroupId("epg"));
+        EpKey epKey = new EpKey(new L2ContextId("l2ctx"), new MacAddress("24:77:03:D8:E9:B4"));
+        when(endpointManager.hasEndpointsInGroup(egKey)).thenReturn(true);
+        manager.groupEndpointUpdated(egKey, epKey);
+        when(endpointManager.hasEndpointsInGroup(egKey)).thenReturn(false);
+        manager.groupEndpointUpdated(egKey, epKey);
+
+        manager.writeFollowedInterests();
+        verify(dataBroker, times(0)).newWriteOnlyTransaction();
     }
 
     @Test
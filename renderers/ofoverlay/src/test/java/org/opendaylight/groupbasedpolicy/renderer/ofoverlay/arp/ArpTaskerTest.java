@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.arp;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpPrefix;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Prefix;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.AddFlowInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.AddFlowOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.RemoveFlowInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.RemoveFlowOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SalFlowService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L3ContextId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.NetworkDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubnetId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Builder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.Subnet;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.forwarding.context.SubnetBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeConnectorId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnector;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnectorKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketProcessingService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.TransmitPacketInput;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.common.RpcResult;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.RateLimiter;
+
+public class ArpTaskerTest {
+
+    private static final NodeId NODE_ID = new NodeId("openflow:1");
+
+    private PacketProcessingService packetService;
+    private SalFlowService flowService;
+    private ScheduledExecutorService executor;
+    private RpcProviderRegistry rpcRegistry;
+    private DataBroker dataProvider;
+    private SwitchManager switchManager;
+    private EndpointL3 l3Ep;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void init() {
+        packetService = mock(PacketProcessingService.class);
+        when(packetService.transmitPacket(any(TransmitPacketInput.class)))
+            .thenReturn(Futures.immediateFuture(RpcResultBuilder.<Void>success().build()));
+        flowService = mock(SalFlowService.class);
+        when(flowService.addFlow(any(AddFlowInput.class)))
+            .thenReturn(Futures.immediateFuture(RpcResultBuilder.<AddFlowOutput>success().build()));
+        when(flowService.removeFlow(any(RemoveFlowInput.class)))
+            .thenReturn(Futures.immediateFuture(RpcResultBuilder.<RemoveFlowOutput>success().build()));
+        rpcRegistry = mock(RpcProviderRegistry.class);
+        when(rpcRegistry.getRpcService(PacketProcessingService.class)).thenReturn(packetService);
+        when(rpcRegistry.getRpcService(SalFlowService.class)).thenReturn(flowService);
+
+        executor = mock(ScheduledExecutorService.class);
+        doReturn(mock(ScheduledFuture.class)).when(executor)
+            .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        TenantId tenantId = new TenantId("tenant");
+        SubnetId subnetId = new SubnetId("subnet");
+        Subnet subnet = new SubnetBuilder().setId(subnetId)
+            .setIpPrefix(new IpPrefix(new Ipv4Prefix("10.0.0.0/24")))
+            .build();
+        ReadOnlyTransaction rTx = mock(ReadOnlyTransaction.class);
+        when(rTx.read(eq(LogicalDatastoreType.CONFIGURATION), any(InstanceIdentifier.class)))
+            .thenReturn(Futures.immediateCheckedFuture(Optional.of(subnet)));
+        dataProvider = mock(DataBroker.class);
+        when(dataProvider.newReadOnlyTransaction()).thenReturn(rTx);
+
+        InstanceIdentifier<NodeConnector> extNcIid = InstanceIdentifier.builder(Nodes.class)
+            .child(Node.class, new NodeKey(NODE_ID))
+            .child(NodeConnector.class, new NodeConnectorKey(new NodeConnectorId("openflow:1:1")))
+            .build();
+        Map<InstanceIdentifier<NodeConnector>, MacAddress> extNcWithMac =
+                Collections.singletonMap(extNcIid, new MacAddress("00:00:00:00:00:01"));
+        switchManager = mock(SwitchManager.class);
+        when(switchManager.getExternalNodeConnectorsWithMac())
+            .thenReturn(Collections.singletonMap(NODE_ID, extNcWithMac));
+
+        l3Ep = new EndpointL3Builder().setL3Context(new L3ContextId("l3Context"))
+            .setIpAddress(new IpAddress(new Ipv4Address("10.0.0.1")))
+            .setTenant(tenantId)
+            .setNetworkContainment(new NetworkDomainId(subnetId))
+            .build();
+    }
+
+    @Test
+    public void testAddMacForL3EpAndCreateEp_rateLimited() {
+        RateLimiter drainedLimiter = RateLimiter.create(0.001);
+        drainedLimiter.acquire();
+        ArpTasker arpTasker = new ArpTasker(rpcRegistry, dataProvider, executor, switchManager, drainedLimiter);
+
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+        assertEquals(1, arpTasker.getRateLimitedRequests());
+        verify(flowService, never()).addFlow(any(AddFlowInput.class));
+        verify(packetService, never()).transmitPacket(any(TransmitPacketInput.class));
+
+        // delayed request stays in flight
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+        assertEquals(1, arpTasker.getCoalescedRequests());
+
+        runScheduled(ArpTasker.ARP_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(2, arpTasker.getRateLimitedRequests());
+        runScheduled(ArpTasker.ARP_RETRY_DELAY_MILLIS << 1, TimeUnit.MILLISECONDS);
+        assertEquals(ArpTasker.ARP_REQUEST_MAX_ATTEMPTS, arpTasker.getRateLimitedRequests());
+        assertEquals(1, arpTasker.getAbandonedRequests());
+        verify(flowService, never()).removeFlow(any(RemoveFlowInput.class));
+
+        // abandoned request does not block a new one
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+        assertEquals(1, arpTasker.getCoalescedRequests());
+        assertEquals(ArpTasker.ARP_REQUEST_MAX_ATTEMPTS + 1, arpTasker.getRateLimitedRequests());
+    }
+
+    @Test
+    public void testAddMacForL3EpAndCreateEp_coalesced() {
+        ArpTasker arpTasker =
+                new ArpTasker(rpcRegistry, dataProvider, executor, switchManager, RateLimiter.create(Double.MAX_VALUE));
+
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+
+        assertEquals(2, arpTasker.getCacheMisses());
+        assertEquals(1, arpTasker.getCoalescedRequests());
+        verify(flowService, times(1)).addFlow(any(AddFlowInput.class));
+        verify(packetService, times(1)).transmitPacket(any(TransmitPacketInput.class));
+    }
+
+    @Test
+    public void testAddMacForL3EpAndCreateEp_timedOut() {
+        ArpTasker arpTasker =
+                new ArpTasker(rpcRegistry, dataProvider, executor, switchManager, RateLimiter.create(Double.MAX_VALUE));
+
+        arpTasker.addMacForL3EpAndCreateEp(l3Ep);
+        verify(packetService, times(1)).transmitPacket(any(TransmitPacketInput.class));
+
+        long retryDelay = ArpTasker.ARP_RETRY_DELAY_MILLIS;
+        for (int attempt = 2; attempt <= ArpTasker.ARP_REQUEST_MAX_ATTEMPTS; attempt++) {
+            runScheduled(ArpTasker.ARP_REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            runScheduled(retryDelay, TimeUnit.MILLISECONDS);
+            retryDelay <<= 1;
+            // flows are installed once, only ARP request is sent again
+            verify(flowService, times(1)).addFlow(any(AddFlowInput.class));
+            verify(packetService, times(attempt)).transmitPacket(any(TransmitPacketInput.class));
+        }
+        verify(flowService, never()).removeFlow(any(RemoveFlowInput.class));
+
+        runScheduled(ArpTasker.ARP_REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(ArpTasker.ARP_REQUEST_MAX_ATTEMPTS, arpTasker.getTimedOutRequests());
+        assertEquals(1, arpTasker.getAbandonedRequests());
+        verify(flowService, times(1)).removeFlow(any(RemoveFlowInput.class));
+    }
+
+    private void runScheduled(long delay, TimeUnit unit) {
+        ArgumentCaptor<Runnable> scheduled = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, atLeastOnce()).schedule(scheduled.capture(), eq(delay), eq(unit));
+        scheduled.getValue().run();
+    }
+}
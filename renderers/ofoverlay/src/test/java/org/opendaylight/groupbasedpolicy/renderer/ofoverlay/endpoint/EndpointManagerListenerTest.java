@@ -86,6 +86,8 @@ public class EndpointManagerListenerTest {
         endpointManagerListener.onDataChanged(change);
         verify(endpointManager, never()).processEndpoint(any(Endpoint.class), any(Endpoint.class));
         verify(endpointManager, never()).processL3Endpoint(any(EndpointL3.class), any(EndpointL3.class));
+        verify(endpointManager, times(3)).processL3PrefixEndpoint(any(EndpointL3Prefix.class),
+                any(EndpointL3Prefix.class));
     }
 
 }
\ No newline at end of file
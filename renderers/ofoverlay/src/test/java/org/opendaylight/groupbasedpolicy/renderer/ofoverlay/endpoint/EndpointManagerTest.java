@@ -32,7 +32,6 @@ import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
 import org.opendaylight.controller.md.sal.binding.api.NotificationService;
-import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataBroker.DataChangeScope;
@@ -47,6 +46,7 @@ import org.opendaylight.groupbasedpolicy.dto.EpKey;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.EndpointListener;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpPrefix;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ConditionName;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
@@ -55,7 +55,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.NetworkDomainId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.EndpointService;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.Endpoints;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
@@ -97,7 +96,6 @@ public class EndpointManagerTest {
     private NodeId nodeId2;
     private EndpointL3 oldL3Ep;
     private EndpointL3 newL3Ep;
-    private Optional<Endpoints> optionalRead;
 
     @SuppressWarnings("unchecked")
     @Before
@@ -157,17 +155,6 @@ public class EndpointManagerTest {
         // updateEndpointL3
         oldL3Ep = mock(EndpointL3.class);
         newL3Ep = mock(EndpointL3.class);
-
-        // getEndpointsFromDataStore
-        ReadOnlyTransaction readTransaction = mock(ReadOnlyTransaction.class);
-        when(dataProvider.newReadOnlyTransaction()).thenReturn(readTransaction);
-        CheckedFuture<Optional<Endpoints>, ReadFailedException> checkedFutureRead = mock(CheckedFuture.class);
-        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
-                checkedFutureRead);
-        optionalRead = mock(Optional.class);
-        when(checkedFutureRead.checkedGet()).thenReturn(optionalRead);
-        when(optionalRead.isPresent()).thenReturn(false);
-
     }
 
     // ***************
@@ -189,6 +176,50 @@ public class EndpointManagerTest {
         Assert.assertTrue(nodesForGroup.isEmpty());
     }
 
+    @Test
+    public void getNodesForGroupTestReverseIndex() {
+        EgKey egKey = new EgKey(tenantId, endpointGroupId);
+        MacAddress otherMac = mock(MacAddress.class);
+        when(endpoint2.getMacAddress()).thenReturn(otherMac);
+        manager.processEndpoint(null, endpoint1);
+        manager.processEndpoint(null, endpoint2);
+        Set<NodeId> nodesForGroup = manager.getNodesForGroup(egKey);
+        Assert.assertEquals(2, nodesForGroup.size());
+        Assert.assertTrue(nodesForGroup.contains(nodeId1));
+        Assert.assertTrue(nodesForGroup.contains(nodeId2));
+
+        manager.processEndpoint(endpoint1, null);
+        Assert.assertEquals(Collections.singleton(nodeId2), manager.getNodesForGroup(egKey));
+    }
+
+    @Test
+    public void hasEndpointsInGroupTest() {
+        EgKey egKey = new EgKey(tenantId, endpointGroupId);
+        Assert.assertFalse(manager.hasEndpointsInGroup(egKey));
+        manager.processEndpoint(null, endpoint1);
+        Assert.assertTrue(manager.hasEndpointsInGroup(egKey));
+        manager.processEndpoint(endpoint1, null);
+        Assert.assertFalse(manager.hasEndpointsInGroup(egKey));
+    }
+
+    @Test
+    public void getIndexSnapshotTest() {
+        EndpointIndexSnapshot empty = manager.getIndexSnapshot();
+        Assert.assertSame(empty, manager.getIndexSnapshot());
+
+        manager.processEndpoint(null, endpoint1);
+        EndpointIndexSnapshot snapshot = manager.getIndexSnapshot();
+        Assert.assertTrue(snapshot.getVersion() > empty.getVersion());
+        Assert.assertSame(snapshot, manager.getIndexSnapshot());
+        Assert.assertTrue(empty.getEndpointsForNode(nodeId1).isEmpty());
+        Assert.assertEquals(1, snapshot.getEndpointsForNode(nodeId1).size());
+
+        manager.processEndpoint(endpoint1, null);
+        // published snapshot is not affected by later updates
+        Assert.assertEquals(1, snapshot.getEndpointsForNode(nodeId1).size());
+        Assert.assertTrue(manager.getIndexSnapshot().getEndpointsForNode(nodeId1).isEmpty());
+    }
+
     @Test
     public void getEndpointsForNodeTestNodeIdEgKey() {
         EgKey egKey = new EgKey(tenantId, endpointGroupId);
@@ -211,83 +242,90 @@ public class EndpointManagerTest {
         Assert.assertEquals(endpoint1, manager.getEndpoint(epKey));
     }
 
-    @SuppressWarnings("unchecked")
     @Test
     public void getEndpointsL3PrefixForTenantTest() throws Exception {
-        ReadOnlyTransaction readTransaction = mock(ReadOnlyTransaction.class);
-        when(dataProvider.newReadOnlyTransaction()).thenReturn(readTransaction);
-        CheckedFuture<Optional<Endpoints>, ReadFailedException> resultFuture = mock(CheckedFuture.class);
-        when(readTransaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
-                resultFuture);
-        Optional<Endpoints> optional = mock(Optional.class);
-        when(resultFuture.checkedGet()).thenReturn(optional);
-        when(optional.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optional.get()).thenReturn(endpoints);
         EndpointL3Prefix endpointL3Prefix = mock(EndpointL3Prefix.class);
-        when(endpoints.getEndpointL3Prefix()).thenReturn(Collections.singletonList(endpointL3Prefix));
         when(endpointL3Prefix.getTenant()).thenReturn(tenantId);
+        when(endpointL3Prefix.getIpPrefix()).thenReturn(mock(IpPrefix.class));
+        when(endpointL3Prefix.getL3Context()).thenReturn(mock(L3ContextId.class));
+        Assert.assertTrue(manager.getEndpointsL3PrefixForTenant(tenantId).isEmpty());
 
+        manager.processL3PrefixEndpoint(null, endpointL3Prefix);
         Collection<EndpointL3Prefix> result = manager.getEndpointsL3PrefixForTenant(tenantId);
         Assert.assertTrue(result.contains(endpointL3Prefix));
+        Assert.assertTrue(manager.getEndpointsL3PrefixForTenant(mock(TenantId.class)).isEmpty());
+
+        manager.processL3PrefixEndpoint(endpointL3Prefix, null);
+        Assert.assertTrue(manager.getEndpointsL3PrefixForTenant(tenantId).isEmpty());
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void getEndpointsFromDataStoreTest() throws Exception {
-        ReadOnlyTransaction transaction = mock(ReadOnlyTransaction.class);
-        when(dataProvider.newReadOnlyTransaction()).thenReturn(transaction);
-        CheckedFuture<Optional<Endpoints>, ReadFailedException> checkedFuture = mock(CheckedFuture.class);
-        when(transaction.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(checkedFuture);
-        Optional<Endpoints> optional = mock(Optional.class);
-        when(checkedFuture.checkedGet()).thenReturn(optional);
-        when(optional.isPresent()).thenReturn(false);
-        Assert.assertNull(manager.getEndpointsFromDataStore());
+    public void getL3EndpointsTestEndpointsEmpty() throws Exception {
+        Assert.assertTrue(manager.getL3Endpoints().isEmpty());
+    }
 
-        when(optional.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optional.get()).thenReturn(endpoints);
-        Assert.assertEquals(endpoints, manager.getEndpointsFromDataStore());
+    @Test
+    public void getL3EndpointsTest() throws Exception {
+        EndpointL3 endpointL3 = mockL3Endpoint();
+        manager.processL3Endpoint(null, endpointL3);
+        Assert.assertTrue(manager.getL3Endpoints().contains(endpointL3));
 
-        manager = new EndpointManager(null, rpcRegistry, notificationService, executor, switchManager);
-        Assert.assertNull(manager.getEndpointsFromDataStore());
+        manager.processL3Endpoint(endpointL3, null);
+        Assert.assertTrue(manager.getL3Endpoints().isEmpty());
     }
 
     @Test
-    public void getL3EndpointsTestEndpointsNull() throws Exception {
-        Assert.assertNull(manager.getL3Endpoints());
+    public void getL3EndpointTest() {
+        EndpointL3 endpointL3 = mockL3Endpoint();
+        Assert.assertNull(manager.getL3Endpoint(endpointL3.getL3Context(), endpointL3.getIpAddress()));
+
+        manager.processL3Endpoint(null, endpointL3);
+        Assert.assertEquals(endpointL3, manager.getL3Endpoint(endpointL3.getL3Context(), endpointL3.getIpAddress()));
+        Assert.assertNull(manager.getL3Endpoint(null, endpointL3.getIpAddress()));
     }
 
     @Test
-    public void getL3EndpointsTestEndpointL3Null() throws Exception {
-        when(optionalRead.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optionalRead.get()).thenReturn(endpoints);
-        when(endpoints.getEndpointL3()).thenReturn(null);
+    public void getL2EndpointFromL3Test() {
+        EndpointL3 endpointL3 = mockL3Endpoint();
+        when(endpointL3.getL2Context()).thenReturn(l2BridgeDomainId);
+        when(endpointL3.getMacAddress()).thenReturn(endpoint1.getMacAddress());
+        Assert.assertNull(manager.getL2EndpointFromL3(endpointL3));
 
-        Assert.assertNull(manager.getL3Endpoints());
+        manager.processEndpoint(null, endpoint1);
+        Assert.assertEquals(endpoint1, manager.getL2EndpointFromL3(endpointL3));
     }
 
     @Test
-    public void getL3EndpointsTest() throws Exception {
-        when(optionalRead.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optionalRead.get()).thenReturn(endpoints);
-        List<EndpointL3> endpointL3List = Collections.singletonList(mock(EndpointL3.class));
-        when(endpoints.getEndpointL3()).thenReturn(endpointL3List);
+    public void getL2EndpointFromL3TestExternal() {
+        when(context1.getNodeId()).thenReturn(null);
+        EndpointL3 endpointL3 = mockL3Endpoint();
+        when(endpointL3.getL2Context()).thenReturn(l2BridgeDomainId);
+        when(endpointL3.getMacAddress()).thenReturn(endpoint1.getMacAddress());
 
-        Assert.assertEquals(endpointL3List, manager.getL3Endpoints());
+        manager.processEndpoint(null, endpoint1);
+        Assert.assertEquals(endpoint1, manager.getL2EndpointFromL3(endpointL3));
     }
 
     @Test
-    public void getL3EpWithNatByL2KeyTest() {
-        when(optionalRead.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optionalRead.get()).thenReturn(endpoints);
-        EndpointL3 endpointL3 = mock(EndpointL3.class);
-        List<EndpointL3> endpointL3List = Collections.singletonList(endpointL3);
-        when(endpoints.getEndpointL3()).thenReturn(endpointL3List);
+    public void getL3EndpointsWithNatTest() {
+        EndpointL3 endpointL3 = mockL3Endpoint();
+        manager.processL3Endpoint(null, endpointL3);
+        Assert.assertTrue(manager.getL3EndpointsWithNat().isEmpty());
 
+        EndpointL3 natEndpointL3 = mockL3Endpoint();
+        NatAddress overlayL3Nat = mock(NatAddress.class);
+        when(natEndpointL3.getAugmentation(NatAddress.class)).thenReturn(overlayL3Nat);
+        when(overlayL3Nat.getNatAddress()).thenReturn(mock(IpAddress.class));
+        manager.processL3Endpoint(endpointL3, natEndpointL3);
+        Assert.assertTrue(manager.getL3EndpointsWithNat().contains(natEndpointL3));
+
+        manager.processL3Endpoint(natEndpointL3, endpointL3);
+        Assert.assertTrue(manager.getL3EndpointsWithNat().isEmpty());
+    }
+
+    @Test
+    public void getL3EpWithNatByL2KeyTest() {
+        EndpointL3 endpointL3 = mockL3Endpoint();
         NatAddress overlayL3Nat = mock(NatAddress.class);
         when(endpointL3.getAugmentation(NatAddress.class)).thenReturn(overlayL3Nat);
         when(overlayL3Nat.getNatAddress()).thenReturn(mock(IpAddress.class));
@@ -295,8 +333,12 @@ public class EndpointManagerTest {
         when(endpointL3.getL2Context()).thenReturn(mock(L2BridgeDomainId.class));
         when(endpointL3.getMacAddress()).thenReturn(mock(MacAddress.class));
 
+        manager.processL3Endpoint(null, endpointL3);
         Map<EndpointKey, EndpointL3> result = manager.getL3EpWithNatByL2Key();
         Assert.assertTrue(result.containsValue(endpointL3));
+
+        manager.processL3Endpoint(endpointL3, null);
+        Assert.assertTrue(manager.getL3EpWithNatByL2Key().isEmpty());
     }
 
     @Test
@@ -307,38 +349,30 @@ public class EndpointManagerTest {
 
     @Test
     public void getL3EpWithNatByL2KeyTestGetMacAddressNull() {
-        when(optionalRead.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optionalRead.get()).thenReturn(endpoints);
-        EndpointL3 endpointL3 = mock(EndpointL3.class);
-        List<EndpointL3> endpointL3List = Collections.singletonList(endpointL3);
-        when(endpoints.getEndpointL3()).thenReturn(endpointL3List);
-
+        EndpointL3 endpointL3 = mockL3Endpoint();
         NatAddress overlayL3Nat = mock(NatAddress.class);
         when(endpointL3.getAugmentation(NatAddress.class)).thenReturn(overlayL3Nat);
+        when(overlayL3Nat.getNatAddress()).thenReturn(mock(IpAddress.class));
 
         when(endpointL3.getL2Context()).thenReturn(mock(L2BridgeDomainId.class));
         when(endpointL3.getMacAddress()).thenReturn(null);
 
+        manager.processL3Endpoint(null, endpointL3);
         Map<EndpointKey, EndpointL3> result = manager.getL3EpWithNatByL2Key();
         Assert.assertTrue(result.isEmpty());
     }
 
     @Test
     public void getL3EpWithNatByL2KeyTestGetL2ContextNull() {
-        when(optionalRead.isPresent()).thenReturn(true);
-        Endpoints endpoints = mock(Endpoints.class);
-        when(optionalRead.get()).thenReturn(endpoints);
-        EndpointL3 endpointL3 = mock(EndpointL3.class);
-        List<EndpointL3> endpointL3List = Collections.singletonList(endpointL3);
-        when(endpoints.getEndpointL3()).thenReturn(endpointL3List);
-
+        EndpointL3 endpointL3 = mockL3Endpoint();
         NatAddress overlayL3Nat = mock(NatAddress.class);
         when(endpointL3.getAugmentation(NatAddress.class)).thenReturn(overlayL3Nat);
+        when(overlayL3Nat.getNatAddress()).thenReturn(mock(IpAddress.class));
 
         when(endpointL3.getL2Context()).thenReturn(null);
         when(endpointL3.getMacAddress()).thenReturn(mock(MacAddress.class));
 
+        manager.processL3Endpoint(null, endpointL3);
         Map<EndpointKey, EndpointL3> result = manager.getL3EpWithNatByL2Key();
         Assert.assertTrue(result.isEmpty());
     }
@@ -657,6 +691,13 @@ public class EndpointManagerTest {
      //Helper Functions
      //**************
 
+    private EndpointL3 mockL3Endpoint() {
+        EndpointL3 endpointL3 = mock(EndpointL3.class);
+        when(endpointL3.getIpAddress()).thenReturn(mock(IpAddress.class));
+        when(endpointL3.getL3Context()).thenReturn(mock(L3ContextId.class));
+        return endpointL3;
+    }
+
     @Test
     public void getEgKeyTest() {
         Assert.assertNotNull(manager.getEgKey(endpoint1));
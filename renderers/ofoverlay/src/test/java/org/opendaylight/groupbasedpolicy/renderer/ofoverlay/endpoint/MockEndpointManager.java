@@ -8,13 +8,9 @@
 
 package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Key;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointL3Prefix;
 
 /**
  * Class for mocking up endpoints for unit tests
@@ -22,8 +18,6 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.r
  */
 public class MockEndpointManager extends EndpointManager {
 
-    private Map<EndpointL3Key, EndpointL3> endpointsL3 = new HashMap<>();
-
     public MockEndpointManager() {
         super(null, null, null, null, null);
     }
@@ -33,11 +27,10 @@ public class MockEndpointManager extends EndpointManager {
     }
 
     public void addL3Endpoint(EndpointL3 l3Ep) {
-        endpointsL3.put(l3Ep.getKey(), l3Ep);
+        processL3Endpoint(null, l3Ep);
     }
 
-    @Override
-    protected Collection<EndpointL3> getL3Endpoints() {
-        return endpointsL3.values();
+    public void addL3PrefixEndpoint(EndpointL3Prefix l3PrefixEp) {
+        processL3PrefixEndpoint(null, l3PrefixEp);
     }
 }
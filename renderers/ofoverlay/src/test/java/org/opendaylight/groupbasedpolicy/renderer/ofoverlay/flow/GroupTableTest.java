@@ -35,6 +35,7 @@ import org.opendaylight.groupbasedpolicy.dto.IndexedTenant;
 import org.opendaylight.groupbasedpolicy.dto.PolicyInfo;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfContext;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfWriter;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointIndexSnapshot;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.Action;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
@@ -83,6 +84,7 @@ public class GroupTableTest {
     private OfWriter ofWriter;
     private Bucket bucketOther;
     private EndpointManager endpointManager;
+    private EndpointIndexSnapshot endpointIndex;
     private Endpoint localEp;
     private EgKey egKey;
     private OfOverlayContext ofc;
@@ -140,15 +142,17 @@ public class GroupTableTest {
 
         endpointManager = mock(EndpointManager.class);
         when(ofContext.getEndpointManager()).thenReturn(endpointManager);
+        endpointIndex = mock(EndpointIndexSnapshot.class);
+        when(ofContext.getEndpointIndex()).thenReturn(endpointIndex);
         localEp = mock(Endpoint.class);
-        when(endpointManager.getEndpointsForNode(nodeId)).thenReturn(Collections.singletonList(
+        when(endpointIndex.getEndpointsForNode(nodeId)).thenReturn(Collections.singletonList(
                 localEp));
         IndexedTenant indexedTenant = mock(IndexedTenant.class);
         when(ofContext.getTenant(any(TenantId.class))).thenReturn(indexedTenant);
         EndpointGroup epg = mock(EndpointGroup.class);
         when(indexedTenant.getEndpointGroup(any(EndpointGroupId.class))).thenReturn(epg);
         egKey = mock(EgKey.class);
-        when(endpointManager.getGroupsForNode(any(NodeId.class))).thenReturn(
+        when(endpointIndex.getGroupsForNode(any(NodeId.class))).thenReturn(
                 new HashSet<>(Collections.singletonList(egKey)));
         ofc = mock(OfOverlayContext.class);
         when(localEp.getAugmentation(OfOverlayContext.class)).thenReturn(ofc);
@@ -178,7 +182,7 @@ public class GroupTableTest {
     @Test
     public void syncTestNoGroup() throws Exception {
         when(ofWriter.groupExists(any(NodeId.class), any(Long.class))).thenReturn(false);
-        when(endpointManager.getGroupsForNode(any(NodeId.class))).thenReturn(
+        when(endpointIndex.getGroupsForNode(any(NodeId.class))).thenReturn(
                 Collections.<EgKey>emptySet());
 
         groupTable.sync(nodeId, ofWriter);
@@ -188,7 +192,7 @@ public class GroupTableTest {
     @Test
     public void syncTestGroupExists() throws Exception {
         when(ofWriter.groupExists(any(NodeId.class), any(Long.class))).thenReturn(true);
-        when(endpointManager.getGroupsForNode(any(NodeId.class))).thenReturn(
+        when(endpointIndex.getGroupsForNode(any(NodeId.class))).thenReturn(
                 Collections.<EgKey>emptySet());
 
         groupTable.sync(nodeId, ofWriter);
@@ -22,6 +22,7 @@ import org.opendaylight.groupbasedpolicy.dto.EpKey;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfContext;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfWriter;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.PolicyManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointIndexSnapshot;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Address;
@@ -55,6 +56,8 @@ public class IngressNatMapperTest {
 
         EndpointManager endpointManager = mock(EndpointManager.class);
         when(ctx.getEndpointManager()).thenReturn(endpointManager);
+        EndpointIndexSnapshot endpointIndex = mock(EndpointIndexSnapshot.class);
+        when(ctx.getEndpointIndex()).thenReturn(endpointIndex);
 
         // endpointL3
         EndpointL3 endpointL3 = mock(EndpointL3.class);
@@ -75,7 +78,7 @@ public class IngressNatMapperTest {
 
         Endpoint endpoint = mock(Endpoint.class);
         when(endpointManager.getEndpoint(any(EpKey.class))).thenReturn(endpoint);
-        when(endpointManager.getEndpointsForNode(any(NodeId.class))).thenReturn(Arrays.asList(endpoint));
+        when(endpointIndex.getEndpointsForNode(any(NodeId.class))).thenReturn(Arrays.asList(endpoint));
 
         // createNatFlow
         ipAddressNapt = mock(IpAddress.class);
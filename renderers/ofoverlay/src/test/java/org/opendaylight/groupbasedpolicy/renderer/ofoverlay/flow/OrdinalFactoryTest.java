@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.groupbasedpolicy.dto.EpKey;
+import org.opendaylight.groupbasedpolicy.dto.IndexedTenant;
+import org.opendaylight.groupbasedpolicy.dto.PolicyInfo;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfContext;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.OrdinalFactory.EndpointFwdCtxOrdinals;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ConditionName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.NetworkDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
+
+public class OrdinalFactoryTest {
+
+    private static final TenantId TENANT_ID = new TenantId("tenant");
+    private static final L2BridgeDomainId L2_CONTEXT = new L2BridgeDomainId("l2bd");
+    private static final MacAddress MAC = new MacAddress("00:00:00:00:00:01");
+
+    private OfContext ctx;
+    private IndexedTenant tenant;
+    private PolicyInfo policyInfo;
+    private Endpoint endpoint;
+
+    @Before
+    public void initialisation() {
+        tenant = mock(IndexedTenant.class);
+        policyInfo = mock(PolicyInfo.class);
+        ctx = newContext();
+        endpoint = new EndpointBuilder().setTenant(TENANT_ID)
+            .setL2Context(L2_CONTEXT)
+            .setMacAddress(MAC)
+            .setEndpointGroup(new EndpointGroupId("epg"))
+            .setNetworkContainment(new NetworkDomainId("subnet"))
+            .build();
+    }
+
+    @Test
+    public void getEndpointFwdCtxOrdinalsTest_cached() throws Exception {
+        EndpointFwdCtxOrdinals ordinals = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint);
+        Assert.assertNotNull(ordinals);
+        Assert.assertSame(ordinals, OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint));
+    }
+
+    @Test
+    public void getEndpointFwdCtxOrdinalsTest_notSharedByContexts() throws Exception {
+        EndpointFwdCtxOrdinals ordinals = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint);
+        EndpointFwdCtxOrdinals recomputed = OrdinalFactory.getEndpointFwdCtxOrdinals(newContext(), endpoint);
+        Assert.assertNotSame(ordinals, recomputed);
+        Assert.assertEquals(ordinals.getEpgId(), recomputed.getEpgId());
+        Assert.assertSame(ordinals, OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint));
+    }
+
+    @Test
+    public void getEndpointFwdCtxOrdinalsTest_endpointChanged() throws Exception {
+        EndpointFwdCtxOrdinals ordinals = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint);
+        Endpoint updatedEndpoint = new EndpointBuilder(endpoint).setEndpointGroup(new EndpointGroupId("epg2")).build();
+        EndpointFwdCtxOrdinals recomputed = OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, updatedEndpoint);
+        Assert.assertNotSame(ordinals, recomputed);
+        Assert.assertNotEquals(ordinals.getEpgId(), recomputed.getEpgId());
+    }
+
+    @Test
+    public void getEndpointFwdCtxOrdinalsTest_tenantNull() throws Exception {
+        when(ctx.getTenant(TENANT_ID)).thenReturn(null);
+        Assert.assertNull(OrdinalFactory.getEndpointFwdCtxOrdinals(ctx, endpoint));
+    }
+
+    private OfContext newContext() {
+        OfContext context = mock(OfContext.class);
+        EndpointManager endpointManager = mock(EndpointManager.class);
+        when(context.getTenant(TENANT_ID)).thenReturn(tenant);
+        when(context.getCurrentPolicy()).thenReturn(policyInfo);
+        when(context.getEndpointManager()).thenReturn(endpointManager);
+        when(context.getEndpointFwdCtxOrdinals())
+            .thenReturn(new ConcurrentHashMap<EpKey, EndpointFwdCtxOrdinals>());
+        when(endpointManager.getConditionsForEndpoint(any(Endpoint.class)))
+            .thenReturn(Collections.<ConditionName>emptyList());
+        return context;
+    }
+}
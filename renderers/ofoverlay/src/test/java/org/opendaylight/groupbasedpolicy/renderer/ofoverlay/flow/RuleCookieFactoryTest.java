@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.groupbasedpolicy.dto.EgKey;
+import org.opendaylight.groupbasedpolicy.dto.RuleGroup;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory.RuleFlow;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.Endpoint;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.ContractBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.contract.subject.Rule;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.contract.subject.RuleBuilder;
+
+public class RuleCookieFactoryTest {
+
+    private RuleCookieFactory factory;
+    private EgKey srcEpg;
+    private EgKey dstEpg;
+    private RuleFlow forward;
+    private RuleFlow reverse;
+
+    @Before
+    public void init() {
+        factory = new RuleCookieFactory();
+        TenantId tenant = new TenantId("tenant");
+        srcEpg = new EgKey(tenant, new EndpointGroupId("srcEpg"));
+        dstEpg = new EgKey(tenant, new EndpointGroupId("dstEpg"));
+        Endpoint srcEp = new EndpointBuilder().setL2Context(new L2BridgeDomainId("l2c"))
+            .setMacAddress(new MacAddress("00:00:00:00:00:01"))
+            .setTenant(tenant)
+            .build();
+        Endpoint dstEp = new EndpointBuilder().setL2Context(new L2BridgeDomainId("l2c"))
+            .setMacAddress(new MacAddress("00:00:00:00:00:02"))
+            .setTenant(tenant)
+            .build();
+        Rule rule = new RuleBuilder().setName(new RuleName("rule")).build();
+        RuleGroup ruleGroup = new RuleGroup(Collections.singletonList(rule), 0, null,
+                new ContractBuilder().setId(new ContractId("contract")).build(), new SubjectName("subject"));
+        forward = new RuleFlow(srcEp, dstEp, srcEpg, dstEpg, ruleGroup, rule);
+        reverse = new RuleFlow(dstEp, srcEp, dstEpg, srcEpg, ruleGroup, rule);
+    }
+
+    @Test
+    public void getCookieTest() {
+        FlowCookie cookie = factory.getCookie(forward);
+        assertEquals(cookie, factory.getCookie(forward));
+        assertNotEquals(cookie, factory.getCookie(reverse));
+        assertEquals(forward, factory.getRuleFlow(cookie));
+        assertNull(factory.getRuleFlow(new FlowCookie(BigInteger.ONE)));
+    }
+
+    @Test
+    public void removeRulesTest() {
+        FlowCookie forwardCookie = factory.getCookie(forward);
+        FlowCookie reverseCookie = factory.getCookie(reverse);
+
+        factory.removeRules(dstEpg, srcEpg);
+
+        assertNull(factory.getRuleFlow(forwardCookie));
+        assertNull(factory.getRuleFlow(reverseCookie));
+
+        // ordinals of removed rules are reused
+        FlowCookie newReverseCookie = factory.getCookie(reverse);
+        FlowCookie newForwardCookie = factory.getCookie(forward);
+        assertEquals(new HashSet<>(Arrays.asList(forwardCookie, reverseCookie)),
+                new HashSet<>(Arrays.asList(newForwardCookie, newReverseCookie)));
+        assertEquals(reverse, factory.getRuleFlow(newReverseCookie));
+        assertEquals(forward, factory.getRuleFlow(newForwardCookie));
+    }
+
+    @Test
+    public void getCookieTest_prefixKept() {
+        long value = factory.getCookie(forward).getValue().longValue();
+        assertEquals(RuleCookieFactory.RULE_COOKIE_PREFIX, value & 0xffffffff00000000L);
+    }
+}
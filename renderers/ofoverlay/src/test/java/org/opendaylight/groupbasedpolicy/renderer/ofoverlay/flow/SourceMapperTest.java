@@ -28,6 +28,7 @@ import org.opendaylight.groupbasedpolicy.dto.PolicyInfo;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfContext;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.OfWriter;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.PolicyManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointIndexSnapshot;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.endpoint.EndpointManager;
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
@@ -51,6 +52,7 @@ public class SourceMapperTest {
     private OfWriter ofWriter;
     private Endpoint endpoint;
     private EndpointManager endpointManager;
+    private EndpointIndexSnapshot endpointIndex;
     private IndexedTenant tenant;
     private TenantId tenantId;
     private PolicyManager policyManager;
@@ -72,9 +74,11 @@ public class SourceMapperTest {
 
         endpointManager = mock(EndpointManager.class);
         when(ctx.getEndpointManager()).thenReturn(endpointManager);
+        endpointIndex = mock(EndpointIndexSnapshot.class);
+        when(ctx.getEndpointIndex()).thenReturn(endpointIndex);
         endpoint = mock(Endpoint.class);
         List<Endpoint> endpointsForNode = Arrays.asList(endpoint);
-        when(endpointManager.getEndpointsForNode(nodeId)).thenReturn(endpointsForNode);
+        when(endpointIndex.getEndpointsForNode(nodeId)).thenReturn(endpointsForNode);
 
         ofOverlayContext = mock(OfOverlayContext.class);
         when(endpoint.getAugmentation(OfOverlayContext.class)).thenReturn(ofOverlayContext);
@@ -94,7 +98,7 @@ public class SourceMapperTest {
         when(tenant.getEndpointGroup(any(EndpointGroupId.class))).thenReturn(endpointGroup);
 
         Set<NodeId> nodeIdPeers = new HashSet<NodeId>(Arrays.asList(nodeId));
-        when(endpointManager.getNodesForGroup(any(EgKey.class))).thenReturn(nodeIdPeers);
+        when(endpointIndex.getNodesForGroup(any(EgKey.class))).thenReturn(nodeIdPeers);
 
         switchManager = mock(SwitchManager.class);
         when(ctx.getSwitchManager()).thenReturn(switchManager);
@@ -136,6 +140,26 @@ public class SourceMapperTest {
         verify(ofWriter, times(4)).writeFlow(any(NodeId.class), any(Short.class), any(Flow.class));
     }
 
+    @Test
+    public void syncTestRemoteTunnelsDeduplicated() throws Exception {
+        endpointGroupIdSingle = mock(EndpointGroupId.class);
+        when(endpoint.getEndpointGroup()).thenReturn(endpointGroupIdSingle);
+        when(endpoint.getEndpointGroups()).thenReturn(null);
+        Endpoint secondEndpoint = mock(Endpoint.class);
+        when(secondEndpoint.getAugmentation(OfOverlayContext.class)).thenReturn(ofOverlayContext);
+        when(secondEndpoint.getTenant()).thenReturn(tenantId);
+        when(secondEndpoint.getEndpointGroup()).thenReturn(endpointGroupIdSingle);
+        when(secondEndpoint.getEndpointGroups()).thenReturn(null);
+        List<Endpoint> endpointsForNode = Arrays.asList(endpoint, secondEndpoint);
+        when(endpointIndex.getEndpointsForNode(nodeId)).thenReturn(endpointsForNode);
+
+        mapper.sync(nodeId, ofWriter);
+        // drop flow, one tunnel and one broadcast flow shared by both endpoints, two ep flows
+        verify(ofWriter, times(5)).writeFlow(any(NodeId.class), any(Short.class), any(Flow.class));
+        Assert.assertEquals(4, mapper.getGeneratedRemoteTunnelFlows());
+        Assert.assertEquals(2, mapper.getUniqueRemoteTunnelFlows());
+    }
+
     @Test
     public void syncTestEndpointGroupTunPortNull() throws Exception {
         endpointGroupIdSingle = mock(EndpointGroupId.class);
@@ -32,6 +32,7 @@ import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager.S
 import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager.SwitchStatus;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.PortNumber;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNodeConnector;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.ofoverlay.rev140528.OfOverlayNodeConfig;
@@ -179,6 +180,27 @@ public class SwitchManagerTest {
         Assert.assertEquals(externalPorts, switchManager.getExternalPorts(nodeId));
     }
 
+    @Test
+    public void getExternalNodeConnectorsWithMacTest() {
+        ExternalInterfaces extIface = mock(ExternalInterfaces.class);
+        when(extIface.getNodeConnectorId()).thenReturn(new NodeConnectorId("value"));
+        when(ofOverlayNodeConfig.getExternalInterfaces()).thenReturn(Collections.singletonList(extIface));
+        MacAddress mac = new MacAddress("00:00:00:00:00:01");
+        when(fcnc.getHardwareAddress()).thenReturn(mac);
+
+        switchManager.updateSwitchConfig(nodeId, ofOverlayNodeConfig);
+        Assert.assertTrue(switchManager.getExternalNodeConnectorsWithMac().isEmpty());
+
+        switchManager.updateSwitchNodeConnectorConfig(ncIid, fcnc);
+        Map<NodeId, Map<InstanceIdentifier<NodeConnector>, MacAddress>> extNcsWithMac =
+                switchManager.getExternalNodeConnectorsWithMac();
+        Assert.assertEquals(1, extNcsWithMac.size());
+        Assert.assertEquals(Collections.singletonMap(ncIid, mac), extNcsWithMac.get(nodeId));
+
+        switchManager.updateSwitchNodeConnectorConfig(ncIid, null);
+        Assert.assertTrue(switchManager.getExternalNodeConnectorsWithMac().isEmpty());
+    }
+
     @Test
     public void getTunnelPortsTest1arg() {
         NodeId nodeId = mock(NodeId.class);
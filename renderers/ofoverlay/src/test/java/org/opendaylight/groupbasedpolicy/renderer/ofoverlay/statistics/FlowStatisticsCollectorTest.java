@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.groupbasedpolicy.renderer.ofoverlay.statistics;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.groupbasedpolicy.api.StatisticsManager;
+import org.opendaylight.groupbasedpolicy.dto.EgKey;
+import org.opendaylight.groupbasedpolicy.dto.RuleGroup;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.PolicyManager;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.FlowUtils;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.flow.RuleCookieFactory.RuleFlow;
+import org.opendaylight.groupbasedpolicy.renderer.ofoverlay.node.SwitchManager;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.Counter64;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.yang.types.rev100924.MacAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.statistics.rev130819.FlowStatisticsData;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.statistics.rev130819.FlowStatisticsDataBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.statistics.rev130819.flow.statistics.FlowStatisticsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.ContractId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.EndpointGroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.L2BridgeDomainId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.RuleName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.SubjectName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.common.rev140421.TenantId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.endpoint.rev140421.endpoints.EndpointBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.ContractBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.contract.subject.Rule;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.policy.rev140421.tenants.tenant.policy.contract.subject.RuleBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.StatRecords;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.EpToEpStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.EpEpgToEpEpgStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.groupbasedpolicy.statistics.rev151215.statistic.records.stat.records.ep.to.ep.statistic.ep.epg.to.ep.epg.statistic.MatchedRuleStatistic;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
+
+public class FlowStatisticsCollectorTest {
+
+    private static final short TABLE_ID = 4;
+
+    private NodeId nodeId;
+    private DataBroker dataBroker;
+    private ReadOnlyTransaction rTx;
+    private StatisticsManager statisticsManager;
+    private FlowStatisticsCollector collector;
+    private FlowCookie cookie;
+
+    @Before
+    public void init() {
+        nodeId = new NodeId("openflow:1");
+        dataBroker = mock(DataBroker.class);
+        rTx = mock(ReadOnlyTransaction.class);
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(rTx);
+        SwitchManager switchManager = mock(SwitchManager.class);
+        when(switchManager.getReadySwitches()).thenReturn(Collections.singletonList(nodeId));
+        PolicyManager policyManager = mock(PolicyManager.class);
+        when(policyManager.getTABLEID_POLICY_ENFORCER()).thenReturn(TABLE_ID);
+        RuleCookieFactory ruleCookieFactory = new RuleCookieFactory();
+        when(policyManager.getRuleCookieFactory()).thenReturn(ruleCookieFactory);
+        statisticsManager = mock(StatisticsManager.class);
+        collector = new FlowStatisticsCollector(dataBroker, switchManager, policyManager, statisticsManager,
+                mock(ScheduledExecutorService.class), 30, 1, 0);
+
+        Rule rule = new RuleBuilder().setName(new RuleName("rule")).build();
+        RuleGroup ruleGroup = new RuleGroup(Collections.singletonList(rule), 0, null,
+                new ContractBuilder().setId(new ContractId("contract")).build(), new SubjectName("subject"));
+        TenantId tenant = new TenantId("tenant");
+        cookie = ruleCookieFactory.getCookie(new RuleFlow(
+                new EndpointBuilder().setL2Context(new L2BridgeDomainId("l2c"))
+                    .setMacAddress(new MacAddress("00:00:00:00:00:01"))
+                    .setTenant(tenant)
+                    .build(),
+                new EndpointBuilder().setL2Context(new L2BridgeDomainId("l2c"))
+                    .setMacAddress(new MacAddress("00:00:00:00:00:02"))
+                    .setTenant(tenant)
+                    .build(),
+                new EgKey(tenant, new EndpointGroupId("srcEpg")), new EgKey(tenant, new EndpointGroupId("dstEpg")),
+                ruleGroup, rule));
+    }
+
+    @Test
+    public void runTestDeltas() {
+        stubTable(flow("flow1", cookie, 100, 10), flow("flow2", cookie, 50, 5),
+                flow("foreign", new FlowCookie(BigInteger.ONE), 1000, 100));
+        collector.run();
+        stubTable(flow("flow1", cookie, 150, 15), flow("flow2", cookie, 50, 5));
+        collector.run();
+        // flow2 was replaced, its whole count is added
+        stubTable(flow("flow1", cookie, 150, 15), flow("flow2", cookie, 20, 2));
+        collector.run();
+
+        ArgumentCaptor<StatRecords> captor = ArgumentCaptor.forClass(StatRecords.class);
+        verify(statisticsManager, times(2)).writeStat(captor.capture());
+        MatchedRuleStatistic first = matchedRuleStatistic(captor.getAllValues().get(0));
+        Assert.assertEquals(Long.valueOf(50), first.getByteCount());
+        Assert.assertEquals(Long.valueOf(5), first.getPacketCount());
+        MatchedRuleStatistic second = matchedRuleStatistic(captor.getAllValues().get(1));
+        Assert.assertEquals(Long.valueOf(20), second.getByteCount());
+        Assert.assertEquals(Long.valueOf(2), second.getPacketCount());
+        Assert.assertEquals(new ContractId("contract"), second.getContract());
+        Assert.assertEquals(new SubjectName("subject"), second.getSubject());
+        Assert.assertEquals(new RuleName("rule"), second.getMatchedRule());
+    }
+
+    @Test
+    public void runTestFirstPollBaseline() {
+        stubTable(flow("flow1", cookie, 100, 10));
+        collector.run();
+        verify(statisticsManager, never()).writeStat(any(StatRecords.class));
+    }
+
+    @Test
+    public void runTestNoTraffic() {
+        stubTable(flow("flow1", cookie, 0, 0));
+        collector.run();
+        verify(statisticsManager, never()).writeStat(any(StatRecords.class));
+    }
+
+    @Test
+    public void runTestOtherShard() {
+        SwitchManager switchManager = mock(SwitchManager.class);
+        when(switchManager.getReadySwitches()).thenReturn(Collections.singletonList(nodeId));
+        PolicyManager policyManager = mock(PolicyManager.class);
+        int shardCount = 2;
+        int otherShard = (nodeId.getValue().hashCode() % shardCount + shardCount + 1) % shardCount;
+        collector = new FlowStatisticsCollector(dataBroker, switchManager, policyManager, statisticsManager,
+                mock(ScheduledExecutorService.class), 30, shardCount, otherShard);
+        stubTable(flow("flow1", cookie, 100, 10));
+        collector.run();
+        verify(statisticsManager, never()).writeStat(any(StatRecords.class));
+    }
+
+    private void stubTable(Flow... flows) {
+        Table table = new TableBuilder().setId(TABLE_ID).setFlow(Arrays.asList(flows)).build();
+        CheckedFuture<Optional<Table>, ReadFailedException> future = Futures.immediateCheckedFuture(Optional.of(table));
+        when(rTx.read(LogicalDatastoreType.OPERATIONAL, FlowUtils.createTablePath(nodeId, TABLE_ID)))
+            .thenReturn(future);
+    }
+
+    private static Flow flow(String id, FlowCookie cookie, long byteCount, long packetCount) {
+        return new FlowBuilder().setId(new FlowId(id))
+            .setTableId(TABLE_ID)
+            .setCookie(cookie)
+            .addAugmentation(FlowStatisticsData.class, new FlowStatisticsDataBuilder()
+                .setFlowStatistics(new FlowStatisticsBuilder()
+                    .setByteCount(new Counter64(BigInteger.valueOf(byteCount)))
+                    .setPacketCount(new Counter64(BigInteger.valueOf(packetCount)))
+                    .build())
+                .build())
+            .build();
+    }
+
+    private static MatchedRuleStatistic matchedRuleStatistic(StatRecords records) {
+        Assert.assertEquals(1, records.getEpToEpStatistic().size());
+        EpToEpStatistic epStat = records.getEpToEpStatistic().get(0);
+        Assert.assertEquals(new MacAddress("00:00:00:00:00:01"), epStat.getSrcMacAddress());
+        Assert.assertEquals(1, epStat.getEpEpgToEpEpgStatistic().size());
+        EpEpgToEpEpgStatistic epgStat = epStat.getEpEpgToEpEpgStatistic().get(0);
+        Assert.assertEquals(new EndpointGroupId("srcEpg"), epgStat.getSrcEpg());
+        Assert.assertEquals(1, epgStat.getMatchedRuleStatistic().size());
+        return epgStat.getMatchedRuleStatistic().get(0);
+    }
+}